@@ -40,7 +40,8 @@ import static com.graphhopper.api.Version.GH_VERSION_FROM_MAVEN;
 public class GHMatrixBatchRequester extends GHMatrixAbstractRequester {
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private int maxIterations = 100;
-    private long sleepAfterGET = 1000;
+    private long sleepAfterGET = 100;
+    private long maxSleepAfterGET = 2000;
 
     public GHMatrixBatchRequester() {
         this(MATRIX_URL);
@@ -65,13 +66,26 @@ public class GHMatrixBatchRequester extends GHMatrixAbstractRequester {
     }
 
     /**
-     * Internal parameter. Increase only if you have very large matrices.
+     * Internal parameter. The time to wait before the solution is requested the first time. While the job is still
+     * processing this time is doubled after every request until it reaches the maximum, see setMaxSleepAfterGET.
      */
     public GHMatrixBatchRequester setSleepAfterGET(long sleepAfterGETMillis) {
         this.sleepAfterGET = sleepAfterGETMillis;
         return this;
     }
 
+    /**
+     * Internal parameter. Increase only if you have very large matrices.
+     */
+    public GHMatrixBatchRequester setMaxSleepAfterGET(long maxSleepAfterGETMillis) {
+        this.maxSleepAfterGET = maxSleepAfterGETMillis;
+        return this;
+    }
+
+    void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+
     @Override
     public MatrixResponse route(GHMRequest ghRequest) {
         JsonNode requestJson = createPostRequest(ghRequest);
@@ -104,11 +118,14 @@ public class GHMatrixBatchRequester extends GHMatrixAbstractRequester {
             }
 
             final String id = responseJson.get("job_id").asText();
+            // small matrices are usually finished quickly, so start with a short sleep and back off exponentially
+            long sleep = sleepAfterGET;
             int i = 0;
             for (; i < maxIterations; i++) {
                 // SLEEP a bit and GET solution
-                if (sleepAfterGET > 0) {
-                    Thread.sleep(sleepAfterGET);
+                if (sleep > 0) {
+                    sleep(sleep);
+                    sleep = Math.min(2 * sleep, Math.max(sleepAfterGET, maxSleepAfterGET));
                 }
                 String getUrl = buildURLNoHints("/solution/" + id, ghRequest);
 
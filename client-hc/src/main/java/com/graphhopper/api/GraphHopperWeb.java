@@ -32,11 +32,16 @@ import com.graphhopper.util.Helper;
 import com.graphhopper.util.Parameters;
 import com.graphhopper.util.shapes.GHPoint;
 import okhttp3.*;
+import okio.Buffer;
 
+import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import static com.graphhopper.api.GraphHopperMatrixWeb.*;
 import static com.graphhopper.api.Version.GH_VERSION_FROM_MAVEN;
@@ -48,6 +53,11 @@ import static com.graphhopper.util.Parameters.Routing.INSTRUCTIONS;
 /**
  * Main wrapper of the GraphHopper Directions API for a simple and efficient
  * usage.
+ * <p>
+ * Besides the blocking {@link #route(GHRequest)} there is {@link #routeAsync(GHRequest)}, which does not block the
+ * calling thread while waiting for the response. The number of concurrently running asynchronous requests is limited
+ * by the dispatcher of the OkHttpClient, see {@link #setMaxRequestsInFlight(int)}, and further requests wait in its
+ * queue. For https URLs OkHttp uses HTTP/2 if the server supports it, so concurrent requests share one connection.
  *
  * @author Peter Karich
  */
@@ -64,6 +74,9 @@ public class GraphHopperWeb {
     private String optimize = "false";
     private boolean postRequest = true;
     private int maxUnzippedLength = 1000;
+    private boolean coalesceRequests = false;
+    // the asynchronous requests that are currently running, only used if coalesceRequests is true
+    private final Map<String, InFlightRequest> requestsInFlight = new ConcurrentHashMap<>();
     private final Set<String> ignoreSetForGet;
     private final Set<String> ignoreSetForPost;
 
@@ -127,6 +140,27 @@ public class GraphHopperWeb {
         return downloader;
     }
 
+    /**
+     * Limits the number of asynchronous requests that are running at the same time. Further requests are queued
+     * without blocking a thread. Note that this changes the dispatcher of the current downloader, which might be
+     * shared with other OkHttpClients.
+     */
+    public GraphHopperWeb setMaxRequestsInFlight(int maxRequests) {
+        downloader.dispatcher().setMaxRequests(maxRequests);
+        downloader.dispatcher().setMaxRequestsPerHost(maxRequests);
+        return this;
+    }
+
+    /**
+     * If true an asynchronous request that is identical to a request that is still running does not send a new HTTP
+     * request but gets the same GHResponse instance as the running one. So the returned responses must not be
+     * modified. The default is false.
+     */
+    public GraphHopperWeb setCoalesceRequests(boolean coalesceRequests) {
+        this.coalesceRequests = coalesceRequests;
+        return this;
+    }
+
     public GraphHopperWeb setKey(String key) {
         Objects.requireNonNull(key, "Key must not be null");
         if (key.isEmpty()) {
@@ -183,41 +217,147 @@ public class GraphHopperWeb {
     }
 
     public GHResponse route(GHRequest ghRequest) {
-        ResponseBody rspBody = null;
         try {
             boolean tmpElevation = ghRequest.getHints().getBool("elevation", elevation);
             boolean tmpTurnDescription = ghRequest.getHints().getBool("turn_description", true);
             ghRequest.getHints().remove("turn_description"); // do not include in request
 
             Request okRequest = postRequest ? createPostRequest(ghRequest) : createGetRequest(ghRequest);
-            Response rsp = getClientForRequest(ghRequest).newCall(okRequest).execute();
-            rspBody = rsp.body();
-            JsonNode json = objectMapper.reader().readTree(rspBody.byteStream());
-
-            GHResponse res = new GHResponse();
-            res.addErrors(ResponsePathDeserializerHelper.readErrors(objectMapper, json));
-            if (res.hasErrors())
-                return res;
-
-            JsonNode paths = json.get("paths");
-            for (JsonNode path : paths) {
-                ResponsePath altRsp = ResponsePathDeserializerHelper.createResponsePath(objectMapper, path, tmpElevation, tmpTurnDescription);
-                res.add(altRsp);
+            try (Response rsp = getClientForRequest(ghRequest).newCall(okRequest).execute()) {
+                return readResponse(rsp, tmpElevation, tmpTurnDescription);
+            }
+        } catch (Exception ex) {
+            throw createRouteException(ghRequest, ex);
+        }
+    }
+
+    /**
+     * Sends the request without blocking the calling thread. The returned future completes exceptionally with the
+     * same exceptions that {@link #route(GHRequest)} throws. Cancelling it cancels the HTTP call, or for coalesced
+     * requests, see {@link #setCoalesceRequests(boolean)}, once all callers of the same request cancelled.
+     */
+    public CompletableFuture<GHResponse> routeAsync(GHRequest ghRequest) {
+        Request okRequest;
+        String coalescingKey;
+        boolean tmpElevation;
+        boolean tmpTurnDescription;
+        try {
+            tmpElevation = ghRequest.getHints().getBool("elevation", elevation);
+            tmpTurnDescription = ghRequest.getHints().getBool("turn_description", true);
+            ghRequest.getHints().remove("turn_description"); // do not include in request
+            okRequest = postRequest ? createPostRequest(ghRequest) : createGetRequest(ghRequest);
+            coalescingKey = coalesceRequests ? createCoalescingKey(okRequest, tmpTurnDescription) : null;
+        } catch (Exception ex) {
+            return CompletableFuture.failedFuture(createRouteException(ghRequest, ex));
+        }
+
+        Call call = getClientForRequest(ghRequest).newCall(okRequest);
+        if (coalescingKey == null) {
+            CompletableFuture<GHResponse> future = new CompletableFuture<>();
+            future.whenComplete((rsp, ex) -> {
+                if (future.isCancelled())
+                    call.cancel();
+            });
+            enqueue(call, future, ghRequest, tmpElevation, tmpTurnDescription);
+            return future;
+        }
+
+        InFlightRequest created = new InFlightRequest(call);
+        InFlightRequest running = requestsInFlight.compute(coalescingKey, (key, existing) -> {
+            InFlightRequest result = existing == null ? created : existing;
+            result.callers++;
+            return result;
+        });
+        if (running == created) {
+            running.future.whenComplete((rsp, ex) -> requestsInFlight.remove(coalescingKey, running));
+            enqueue(call, running.future, ghRequest, tmpElevation, tmpTurnDescription);
+        }
+        // every caller gets its own future, so e.g. cancelling it does not affect the other callers. Only if the
+        // last caller cancels, the call is cancelled.
+        CompletableFuture<GHResponse> future = running.future.thenApply(Function.identity());
+        future.whenComplete((rsp, ex) -> {
+            if (future.isCancelled())
+                requestsInFlight.computeIfPresent(coalescingKey, (key, existing) -> {
+                    if (existing != running || --existing.callers > 0)
+                        return existing;
+                    existing.call.cancel();
+                    return null;
+                });
+        });
+        return future;
+    }
+
+    private void enqueue(Call call, CompletableFuture<GHResponse> future, GHRequest ghRequest,
+                         boolean tmpElevation, boolean tmpTurnDescription) {
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException ex) {
+                future.completeExceptionally(createRouteException(ghRequest, ex));
+            }
+
+            @Override
+            public void onResponse(Call call, Response rsp) {
+                try (rsp) {
+                    future.complete(readResponse(rsp, tmpElevation, tmpTurnDescription));
+                } catch (Exception ex) {
+                    future.completeExceptionally(createRouteException(ghRequest, ex));
+                }
             }
+        });
+    }
 
-            for (Map.Entry<String, List<String>> entry : rsp.headers().toMultimap().entrySet()) {
-                res.getHints().putObject(entry.getKey(), entry.getValue());
+    /**
+     * Sends all requests concurrently, see {@link #routeAsync(GHRequest)}.
+     *
+     * @return the responses in the order of the requests
+     */
+    public CompletableFuture<List<GHResponse>> routeBatch(List<GHRequest> ghRequests) {
+        List<CompletableFuture<GHResponse>> futures = new ArrayList<>(ghRequests.size());
+        for (GHRequest ghRequest : ghRequests) {
+            futures.add(routeAsync(ghRequest));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(ignore -> {
+            List<GHResponse> responses = new ArrayList<>(futures.size());
+            for (CompletableFuture<GHResponse> future : futures) {
+                responses.add(future.join());
             }
-            JsonNode b = json.get("hints");
-            b.fields().forEachRemaining(f -> res.getHints().putObject(f.getKey(), Helper.toObject(f.getValue().asText())));
+            return responses;
+        });
+    }
+
+    private GHResponse readResponse(Response rsp, boolean tmpElevation, boolean tmpTurnDescription) throws IOException {
+        JsonNode json = objectMapper.reader().readTree(rsp.body().byteStream());
 
+        GHResponse res = new GHResponse();
+        res.addErrors(ResponsePathDeserializerHelper.readErrors(objectMapper, json));
+        if (res.hasErrors())
             return res;
 
-        } catch (Exception ex) {
-            throw new RuntimeException("Problem while fetching path " + ghRequest.getPoints() + ": " + ex.getMessage(), ex);
-        } finally {
-            Helper.close(rspBody);
+        JsonNode paths = json.get("paths");
+        for (JsonNode path : paths) {
+            ResponsePath altRsp = ResponsePathDeserializerHelper.createResponsePath(objectMapper, path, tmpElevation, tmpTurnDescription);
+            res.add(altRsp);
+        }
+
+        for (Map.Entry<String, List<String>> entry : rsp.headers().toMultimap().entrySet()) {
+            res.getHints().putObject(entry.getKey(), entry.getValue());
         }
+        JsonNode b = json.get("hints");
+        b.fields().forEachRemaining(f -> res.getHints().putObject(f.getKey(), Helper.toObject(f.getValue().asText())));
+        return res;
+    }
+
+    private static RuntimeException createRouteException(GHRequest ghRequest, Exception ex) {
+        return new RuntimeException("Problem while fetching path " + ghRequest.getPoints() + ": " + ex.getMessage(), ex);
+    }
+
+    private static String createCoalescingKey(Request okRequest, boolean turnDescription) throws IOException {
+        String key = okRequest.method() + " " + okRequest.url() + " " + turnDescription;
+        if (okRequest.body() == null)
+            return key;
+        Buffer buffer = new Buffer();
+        okRequest.body().writeTo(buffer);
+        return key + " " + buffer.readUtf8();
     }
 
     OkHttpClient getClientForRequest(GHRequest request) {
@@ -436,4 +576,15 @@ public class GraphHopperWeb {
     private static String encodeURL(String str) {
         return URLEncoder.encode(str, StandardCharsets.UTF_8);
     }
+
+    private static class InFlightRequest {
+        final CompletableFuture<GHResponse> future = new CompletableFuture<>();
+        final Call call;
+        // the number of callers that wait for the response and did not cancel, guarded by the map
+        int callers;
+
+        InFlightRequest(Call call) {
+            this.call = call;
+        }
+    }
 }
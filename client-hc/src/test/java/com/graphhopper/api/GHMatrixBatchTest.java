@@ -1,8 +1,16 @@
 package com.graphhopper.api;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
 /**
  * @author Peter Karich
@@ -27,6 +35,35 @@ public class GHMatrixBatchTest extends AbstractGHMatrixWebTester {
         }.setSleepAfterGET(0));
     }
 
+    @Test
+    public void testBackoffWhileProcessing() throws IOException {
+        String finished = readFile(new InputStreamReader(getClass().getResourceAsStream("matrix-weights-only.json")));
+        List<Long> sleeps = new ArrayList<>();
+        GHMatrixBatchRequester requester = new GHMatrixBatchRequester("") {
+            @Override
+            protected JsonResult postJson(String url, JsonNode data) {
+                return new JsonResult("{\"job_id\": \"1\"}", 200, new HashMap<>());
+            }
+
+            @Override
+            protected JsonResult getJson(String url) {
+                String json = sleeps.size() < 6 ? "{\"status\": \"processing\"}" : finished;
+                return new JsonResult(json, 200, new HashMap<>());
+            }
+
+            @Override
+            void sleep(long millis) {
+                sleeps.add(millis);
+            }
+        }.setSleepAfterGET(100).setMaxSleepAfterGET(1000);
+
+        MatrixResponse rsp = new GraphHopperMatrixWeb(requester).route(createRequest());
+        assertFalse(rsp.hasErrors());
+        assertEquals(885.9, rsp.getWeight(0, 1), .1);
+        // the sleep is doubled for every request while processing until it reaches the maximum
+        assertEquals(List.of(100L, 200L, 400L, 800L, 1000L, 1000L), sleeps);
+    }
+
     @Override
     GHMatrixAbstractRequester createRequester(String url) {
         return new GHMatrixBatchRequester(url);
@@ -5,12 +5,14 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
 import com.graphhopper.jackson.Jackson;
 import com.graphhopper.json.Statement;
 import com.graphhopper.util.CustomModel;
 import com.graphhopper.util.JsonFeature;
 import com.graphhopper.util.JsonFeatureCollection;
 import com.graphhopper.util.shapes.GHPoint;
+import okhttp3.*;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
@@ -19,6 +21,12 @@ import org.locationtech.jts.geom.GeometryFactory;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.graphhopper.json.Statement.If;
 import static org.junit.jupiter.api.Assertions.*;
@@ -119,4 +127,94 @@ public class GraphHopperWebTest {
         CustomModel cm = objectMapper.readValue("{\"distance_influence\":null}", CustomModel.class);
         assertNull(cm.getDistanceInfluence());
     }
+
+    @ParameterizedTest(name = "coalesce={0}")
+    @ValueSource(booleans = {true, false})
+    public void routeAsync(boolean coalesce) throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(coalesce ? 2 : 4);
+        CountDownLatch latch = new CountDownLatch(1);
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(chain -> {
+            calls.incrementAndGet();
+            started.countDown();
+            // keep the request running until all requests were sent
+            try {
+                latch.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                throw new RuntimeException(ex);
+            }
+            return new Response.Builder().request(chain.request()).protocol(Protocol.HTTP_1_1).code(400).message("").
+                    body(ResponseBody.create("{\"message\":\"Point 1 is out of bounds\",\"hints\":[{\"message\":\"Point 1 is out of bounds\"}]}",
+                            MediaType.get("application/json"))).build();
+        }).build();
+        GraphHopperWeb gh = new GraphHopperWeb("http://localhost:8080/route").setDownloader(client).setCoalesceRequests(coalesce);
+
+        CompletableFuture<GHResponse> first = gh.routeAsync(new GHRequest(new GHPoint(42.5, 1.5), new GHPoint(42.6, 1.6)).setProfile("car"));
+        CompletableFuture<GHResponse> second = gh.routeAsync(new GHRequest(new GHPoint(42.5, 1.5), new GHPoint(42.6, 1.6)).setProfile("car"));
+        CompletableFuture<List<GHResponse>> batch = gh.routeBatch(List.of(
+                new GHRequest(new GHPoint(42.5, 1.5), new GHPoint(42.6, 1.6)).setProfile("car"),
+                new GHRequest(new GHPoint(42.5, 1.5), new GHPoint(42.7, 1.7)).setProfile("car")));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // cancelling a coalesced request does not cancel the others
+        assertTrue(second.cancel(true));
+        latch.countDown();
+
+        assertEquals("Point 1 is out of bounds", first.join().getErrors().get(0).getMessage());
+        assertTrue(second.isCancelled());
+        assertEquals(2, batch.join().size());
+        assertEquals(coalesce ? 2 : 4, calls.get());
+    }
+
+    @ParameterizedTest(name = "coalesce={0}")
+    @ValueSource(booleans = {true, false})
+    public void routeAsyncCancelsCall(boolean coalesce) throws InterruptedException {
+        List<Call> calls = new CopyOnWriteArrayList<>();
+        CountDownLatch started = new CountDownLatch(coalesce ? 1 : 2);
+        CountDownLatch latch = new CountDownLatch(1);
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(chain -> {
+            calls.add(chain.call());
+            started.countDown();
+            try {
+                latch.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                throw new RuntimeException(ex);
+            }
+            return new Response.Builder().request(chain.request()).protocol(Protocol.HTTP_1_1).code(400).message("").
+                    body(ResponseBody.create("{\"message\":\"Point 1 is out of bounds\"}", MediaType.get("application/json"))).build();
+        }).build();
+        GraphHopperWeb gh = new GraphHopperWeb("http://localhost:8080/route").setDownloader(client).setCoalesceRequests(coalesce);
+
+        CompletableFuture<GHResponse> first = gh.routeAsync(new GHRequest(new GHPoint(42.5, 1.5), new GHPoint(42.6, 1.6)).setProfile("car"));
+        CompletableFuture<GHResponse> second = gh.routeAsync(new GHRequest(new GHPoint(42.5, 1.5), new GHPoint(42.6, 1.6)).setProfile("car"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(coalesce ? 1 : 2, calls.size());
+
+        assertTrue(first.cancel(true));
+        // a coalesced call is only cancelled once all of its callers cancelled
+        assertEquals(coalesce ? 0 : 1, calls.stream().filter(Call::isCanceled).count());
+        assertTrue(second.cancel(true));
+        assertEquals(coalesce ? 1 : 2, calls.stream().filter(Call::isCanceled).count());
+        latch.countDown();
+    }
+
+    @Test
+    public void routeAsyncSuccess() {
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(chain ->
+                new Response.Builder().request(chain.request()).protocol(Protocol.HTTP_1_1).code(200).message("").
+                        body(ResponseBody.create("{\"hints\":{\"visited_nodes.sum\":58},\"info\":{},\"paths\":[{" +
+                                        "\"distance\":1234.5,\"time\":98000,\"weight\":100.2,\"points_encoded\":false," +
+                                        "\"points\":{\"type\":\"LineString\",\"coordinates\":[[1.5,42.5],[1.55,42.55],[1.6,42.6]]}}]}",
+                                MediaType.get("application/json"))).build()).build();
+        GraphHopperWeb gh = new GraphHopperWeb("http://localhost:8080/route").setDownloader(client).
+                setInstructions(false).setCoalesceRequests(true);
+
+        GHResponse rsp = gh.routeAsync(new GHRequest(new GHPoint(42.5, 1.5), new GHPoint(42.6, 1.6)).setProfile("car")).join();
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(1234.5, rsp.getBest().getDistance(), 1.e-6);
+        assertEquals(98000, rsp.getBest().getTime());
+        assertEquals(100.2, rsp.getBest().getRouteWeight(), 1.e-6);
+        assertEquals(3, rsp.getBest().getPoints().size());
+        assertEquals(42.55, rsp.getBest().getPoints().getLat(1), 1.e-6);
+        assertEquals(58, rsp.getHints().getInt("visited_nodes.sum", 0));
+    }
 }
@@ -20,6 +20,8 @@ package com.graphhopper;
 import com.bedatadriven.jackson.datatype.jts.JtsModule;
 import com.carrotsearch.hppc.BitSet;
 import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntCollection;
+import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.LongArrayList;
 import com.carrotsearch.hppc.sorting.IndirectSort;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -33,6 +35,7 @@ import com.graphhopper.reader.osm.RestrictionTagParser;
 import com.graphhopper.routing.*;
 import com.graphhopper.routing.ch.CHPreparationHandler;
 import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.ch.ShortcutUnpackingCache;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.lm.LMConfig;
 import com.graphhopper.routing.lm.LMPreparationHandler;
@@ -50,6 +53,7 @@ import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.routing.weighting.custom.CustomModelParser;
 import com.graphhopper.routing.weighting.custom.CustomWeighting;
 import com.graphhopper.routing.weighting.custom.NameValidator;
+import com.graphhopper.routing.weighting.custom.TemporalAccessSchedules;
 import com.graphhopper.storage.*;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.LocationIndexTree;
@@ -71,6 +75,7 @@ import java.util.*;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import static com.graphhopper.util.GHUtility.readCountries;
@@ -105,10 +110,16 @@ public class GraphHopper {
     private DAType dataAccessDefaultType = DAType.RAM_STORE;
     private final LinkedHashMap<String, String> dataAccessConfig = new LinkedHashMap<>();
     private boolean sortGraph = true;
+    private boolean compressedGeometry = false;
+    private int loadThreads = 1;
+    private boolean backgroundPreload = false;
+    private Thread preloadThread;
+    private volatile boolean preloading = false;
     private boolean elevation = false;
     private LockFactory lockFactory = new NativeFSLockFactory();
     private boolean allowWrites = true;
     private boolean fullyLoaded = false;
+    private TemporalAccessSchedules temporalAccessSchedules;
     private final OSMReaderConfig osmReaderConfig = new OSMReaderConfig();
     // for routing
     private final RouterConfig routerConfig = new RouterConfig();
@@ -116,7 +127,13 @@ public class GraphHopper {
     private LocationIndex locationIndex;
     private int preciseIndexResolution = 300;
     private int maxRegionSearch = 4;
+    private int indexThreads = 1;
     // subnetworks
+    // When the subnetworks are updated the search from a changed edge key stops after this many times
+    // minNetworkSize edge keys and assumes the key belongs to a big component. A small component has at most
+    // 2*minNetworkSize edge keys, the rest of the budget allows the search to leave it through the surrounding roads
+    // before giving up. Bigger values make the update more exact but slower for every changed edge.
+    private static final int SUBNETWORK_UPDATE_EDGE_KEYS_FACTOR = 20;
     private int minNetworkSize = 200;
     private int subnetworksThreads = 1;
     // residential areas
@@ -130,6 +147,8 @@ public class GraphHopper {
     private final LMPreparationHandler lmPreparationHandler = new LMPreparationHandler();
     private final CHPreparationHandler chPreparationHandler = new CHPreparationHandler();
     private Map<String, RoutingCHGraph> chGraphs = Collections.emptyMap();
+    private int shortcutUnpackingCacheMB = 0;
+    private int shortcutUnpackingCacheMinEdges = 32;
     private Map<String, LandmarkStorage> landmarks = Collections.emptyMap();
 
     // for data reader
@@ -140,6 +159,7 @@ public class GraphHopper {
 
     private String dateRangeParserString = "";
     private String encodedValuesString = "";
+    private String coldEncodedValuesString = "";
 
     public GraphHopper setEncodedValuesString(String encodedValuesString) {
         this.encodedValuesString = encodedValuesString;
@@ -150,6 +170,20 @@ public class GraphHopper {
         return encodedValuesString;
     }
 
+    /**
+     * Specifies the encoded values that are rarely read and should be stored outside the edge rows, see
+     * {@link EncodingManager.Builder#addCold(EncodedValue)}. Either a comma separated list of encoded values or 'auto'
+     * to pick all encoded values that are not used by the custom models of the profiles.
+     */
+    public GraphHopper setColdEncodedValuesString(String coldEncodedValuesString) {
+        this.coldEncodedValuesString = coldEncodedValuesString;
+        return this;
+    }
+
+    public String getColdEncodedValuesString() {
+        return coldEncodedValuesString;
+    }
+
     public EncodingManager getEncodingManager() {
         if (encodingManager == null)
             throw new IllegalStateException("EncodingManager not yet built");
@@ -366,6 +400,58 @@ public class GraphHopper {
         return this;
     }
 
+    /**
+     * Stores the way geometry as varint deltas which makes the geometry file considerably smaller. Only used for the
+     * import, a loaded graph uses the format it was stored with.
+     */
+    public GraphHopper setCompressedGeometry(boolean compressedGeometry) {
+        this.compressedGeometry = compressedGeometry;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads used in {@link #load()} to load independent storages concurrently and to load
+     * memory mapped files into physical memory (see graph.dataaccess.mmap.preload).
+     */
+    public GraphHopper setLoadThreads(int loadThreads) {
+        if (loadThreads < 1)
+            throw new IllegalArgumentException("loadThreads must be at least 1 but was " + loadThreads);
+        this.loadThreads = loadThreads;
+        return this;
+    }
+
+    /**
+     * If true the memory mapped files are loaded into physical memory after {@link #load()} returns and
+     * {@link #isPreloading()} can be used to find out when this is finished.
+     */
+    public GraphHopper setBackgroundPreload(boolean backgroundPreload) {
+        this.backgroundPreload = backgroundPreload;
+        return this;
+    }
+
+    /**
+     * Enables a cache for the original edges of frequently unpacked shortcuts, shared by all queries of a CH profile.
+     *
+     * @param sizeMB   the maximum size of the cache per CH profile, 0 disables the cache. The cache also needs one bit
+     *                 per edge and shortcut to mark the smaller shortcuts.
+     * @param minEdges only shortcuts with at least this number of original edges are cached
+     * @see ShortcutUnpackingCache
+     */
+    public GraphHopper setShortcutUnpackingCache(int sizeMB, int minEdges) {
+        ensureNotLoaded();
+        this.shortcutUnpackingCacheMB = sizeMB;
+        this.shortcutUnpackingCacheMinEdges = minEdges;
+        return this;
+    }
+
+    /**
+     * @return true while memory mapped files are loaded into physical memory in the background. Queries are possible
+     * already, but the first ones can be slow.
+     */
+    public boolean isPreloading() {
+        return preloading;
+    }
+
     /**
      * The underlying graph used in algorithms.
      *
@@ -514,7 +600,10 @@ public class GraphHopper {
                 dataAccessConfig.put(entry.getKey().substring("graph.dataaccess.mmap.".length()), entry.getValue().toString());
         }
 
+        loadThreads = ghConfig.getInt("graph.dataaccess.load_threads", loadThreads);
+        backgroundPreload = ghConfig.getBool("graph.dataaccess.mmap.background_preload", backgroundPreload);
         sortGraph = ghConfig.getBool("graph.sort", sortGraph);
+        compressedGeometry = ghConfig.getBool("graph.geometry.compressed", compressedGeometry);
         if (ghConfig.getBool("max_speed_calculator.enabled", false))
             maxSpeedCalculator = new MaxSpeedCalculator(MaxSpeedCalculator.createLegalDefaultSpeeds());
 
@@ -539,6 +628,7 @@ public class GraphHopper {
             throw new IllegalArgumentException("The option graph.flag_encoders is no longer supported.");
 
         encodedValuesString = ghConfig.getString("graph.encoded_values", encodedValuesString);
+        coldEncodedValuesString = ghConfig.getString("graph.cold_encoded_values", coldEncodedValuesString);
         dateRangeParserString = ghConfig.getString("datareader.date_range_parser_day", dateRangeParserString);
 
         if (ghConfig.getString("graph.locktype", "native").equals("simple"))
@@ -590,6 +680,7 @@ public class GraphHopper {
         // index
         preciseIndexResolution = ghConfig.getInt("index.high_resolution", preciseIndexResolution);
         maxRegionSearch = ghConfig.getInt("index.max_region_search", maxRegionSearch);
+        indexThreads = ghConfig.getInt("index.threads", indexThreads);
 
         // urban density calculation
         residentialAreaRadius = ghConfig.getDouble("graph.urban_density.residential_radius", residentialAreaRadius);
@@ -609,6 +700,8 @@ public class GraphHopper {
             throw new IllegalArgumentException("Default value for active landmarks " + activeLandmarkCount
                     + " should be less or equal to landmark count of " + lmPreparationHandler.getLandmarks());
         routerConfig.setActiveLandmarkCount(activeLandmarkCount);
+        shortcutUnpackingCacheMB = ghConfig.getInt("routing.ch.unpacking_cache.size_mb", shortcutUnpackingCacheMB);
+        shortcutUnpackingCacheMinEdges = ghConfig.getInt("routing.ch.unpacking_cache.min_edges", shortcutUnpackingCacheMinEdges);
 
         calcChecksums = ghConfig.getBool("graph.calc_checksums", false);
 
@@ -631,14 +724,53 @@ public class GraphHopper {
         List<String> sortedEVs = getEVSortIndex(profilesByName);
         encodedValues.sort(Comparator.comparingInt(ev -> sortedEVs.indexOf(ev.getName())));
 
+        Set<String> coldEncodedValues = findColdEncodedValues(encodedValues);
         EncodingManager.Builder emBuilder = new EncodingManager.Builder();
-        encodedValues.forEach(emBuilder::add);
+        encodedValues.forEach(ev -> {
+            if (coldEncodedValues.contains(ev.getName()))
+                emBuilder.addCold(ev);
+            else
+                emBuilder.add(ev);
+        });
         restrictionVehicleTypesByProfile.entrySet().stream()
                 .filter(e -> !e.getValue().isEmpty())
                 .forEach(e -> emBuilder.addTurnCostEncodedValue(TurnRestriction.create(e.getKey())));
         return emBuilder.build();
     }
 
+    protected Set<String> findColdEncodedValues(List<EncodedValue> encodedValues) {
+        if (coldEncodedValuesString.trim().isEmpty())
+            return Collections.emptySet();
+        Set<String> names = encodedValues.stream().map(EncodedValue::getName).collect(Collectors.toSet());
+        if (!coldEncodedValuesString.trim().equals("auto")) {
+            Set<String> coldEncodedValues = new LinkedHashSet<>();
+            for (String name : coldEncodedValuesString.split(",")) {
+                name = name.trim();
+                if (name.isEmpty())
+                    continue;
+                if (!names.contains(name))
+                    throw new IllegalArgumentException("Cold encoded value " + name + " is not in graph.encoded_values");
+                coldEncodedValues.add(name);
+            }
+            return coldEncodedValues;
+        }
+
+        // everything the custom models of the profiles do not use is cold, except for the encoded values that are
+        // read by instructions, the snap prevention and the subnetwork filters
+        Set<String> hotEncodedValues = new HashSet<>(Arrays.asList(RoadClass.KEY, RoadEnvironment.KEY, Roundabout.KEY,
+                VehicleAccess.key("car"), RoadClassLink.KEY, MaxSpeed.KEY));
+        NameValidator nameValidator = names::contains;
+        profilesByName.values().forEach(profile -> {
+            hotEncodedValues.add(Subnetwork.key(profile.getName()));
+            hotEncodedValues.addAll(CustomModelParser.findVariablesForEncodedValuesString(profile.getCustomModel(), nameValidator, s -> ""));
+        });
+        Set<String> coldEncodedValues = encodedValues.stream().map(EncodedValue::getName)
+                .filter(name -> !hotEncodedValues.contains(name))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        logger.info("cold encoded values: " + coldEncodedValues);
+        return coldEncodedValues;
+    }
+
     protected List<BooleanEncodedValue> createSubnetworkEncodedValues() {
         return profilesByName.values().stream().map(profile -> Subnetwork.create(profile.getName())).toList();
     }
@@ -718,8 +850,18 @@ public class GraphHopper {
         if (cacheDirStr.isEmpty() && ghConfig.has("graph.elevation.cachedir"))
             throw new IllegalArgumentException("use graph.elevation.cache_dir not cachedir in configuration");
 
+        boolean interpolate = ghConfig.has("graph.elevation.interpolate")
+                ? "bilinear".equals(ghConfig.getString("graph.elevation.interpolate", "none"))
+                : ghConfig.getBool("graph.elevation.calc_mean", false);
+
         ElevationProvider elevationProvider = ElevationProvider.NOOP;
-        if (eleProviderStr.equalsIgnoreCase("hgt")) {
+        if (eleProviderStr.equalsIgnoreCase("archive")) {
+            String archiveFile = ghConfig.getString("graph.elevation.archive_file", "");
+            if (archiveFile.isEmpty())
+                throw new IllegalArgumentException("graph.elevation.archive_file is required for graph.elevation.provider: archive");
+            elevationProvider = new ElevationArchiveProvider(archiveFile, ghConfig.getInt("graph.elevation.archive.max_mapped_tiles", 64))
+                    .setInterpolate(interpolate);
+        } else if (eleProviderStr.equalsIgnoreCase("hgt")) {
             elevationProvider = new HGTProvider(cacheDirStr);
         } else if (eleProviderStr.equalsIgnoreCase("srtm")) {
             elevationProvider = new SRTMProvider(cacheDirStr);
@@ -744,10 +886,6 @@ public class GraphHopper {
 
             DAType elevationDAType = DAType.fromString(ghConfig.getString("graph.elevation.dataaccess", "MMAP"));
 
-            boolean interpolate = ghConfig.has("graph.elevation.interpolate")
-                    ? "bilinear".equals(ghConfig.getString("graph.elevation.interpolate", "none"))
-                    : ghConfig.getBool("graph.elevation.calc_mean", false);
-
             boolean removeTempElevationFiles = ghConfig.getBool("graph.elevation.cgiar.clear", true);
             removeTempElevationFiles = ghConfig.getBool("graph.elevation.clear", removeTempElevationFiles);
 
@@ -828,6 +966,7 @@ public class GraphHopper {
                 .set3D(hasElevation())
                 .withTurnCosts(encodingManager.needsTurnCostsSupport())
                 .setSegmentSize(defaultSegmentSize)
+                .setCompressedGeometry(compressedGeometry)
                 .build();
         properties = new StorableProperties(directory);
         checkProfilesConsistency();
@@ -1152,7 +1291,7 @@ public class GraphHopper {
                     .setSegmentSize(defaultSegmentSize)
                     .build();
             checkProfilesConsistency();
-            baseGraph.loadExisting();
+            baseGraph.loadExisting(loadThreads);
             String storedProfiles = properties.get("profiles");
             String configuredProfiles = getProfilesString();
             if (!storedProfiles.equals(configuredProfiles))
@@ -1162,7 +1301,7 @@ public class GraphHopper {
                         + "\nChange configuration to match the graph or delete " + baseGraph.getDirectory().getLocation());
 
             postProcessing(false);
-            directory.loadMMap();
+            preload(directory);
             setFullyLoaded();
             return true;
         } finally {
@@ -1171,6 +1310,27 @@ public class GraphHopper {
         }
     }
 
+    private void preload(GHDirectory directory) {
+        if (!backgroundPreload) {
+            directory.loadMMap(loadThreads);
+            return;
+        }
+        preloading = true;
+        preloadThread = new Thread(() -> {
+            StopWatch sw = StopWatch.started();
+            try {
+                directory.loadMMap(loadThreads);
+                logger.info("finished preloading in {}s", sw.stop().getSeconds());
+            } catch (Exception ex) {
+                logger.error("Problem while preloading", ex);
+            } finally {
+                preloading = false;
+            }
+        }, "preload");
+        preloadThread.setDaemon(true);
+        preloadThread.start();
+    }
+
     protected int getProfileHash(Profile profile) {
         return profile.getVersion();
     }
@@ -1276,6 +1436,23 @@ public class GraphHopper {
      */
     protected void postProcessing(boolean closeEarly) {
         calcChecksums();
+        if (!closeEarly && loadThreads > 1 && isLMAndCHPrepared()) {
+            // nothing needs to be prepared, so the storages do not depend on each other and can be loaded concurrently
+            GHUtility.runConcurrently(Stream.of(
+                    () -> {
+                        initLocationIndex();
+                        importPublicTransit();
+                    },
+                    () -> {
+                        if (lmPreparationHandler.isEnabled())
+                            loadOrPrepareLM(false);
+                    },
+                    () -> {
+                        if (chPreparationHandler.isEnabled())
+                            loadOrPrepareCH(false);
+                    }), loadThreads);
+            return;
+        }
         initLocationIndex();
         importPublicTransit();
 
@@ -1327,7 +1504,7 @@ public class GraphHopper {
     }
 
     protected WeightingFactory createWeightingFactory() {
-        return new DefaultWeightingFactory(baseGraph.getBaseGraph(), getEncodingManager());
+        return new DefaultWeightingFactory(baseGraph.getBaseGraph(), getEncodingManager(), temporalAccessSchedules);
     }
 
     public GHResponse route(GHRequest request) {
@@ -1358,6 +1535,7 @@ public class GraphHopper {
         LocationIndexTree tmpIndex = new LocationIndexTree(baseGraph, dir);
         tmpIndex.setResolution(preciseIndexResolution);
         tmpIndex.setMaxRegionSearch(maxRegionSearch);
+        tmpIndex.setThreads(indexThreads);
         if (!tmpIndex.loadExisting()) {
             ensureWriteAccess();
             tmpIndex.prepareIndex();
@@ -1407,6 +1585,13 @@ public class GraphHopper {
         locationIndex = createLocationIndex(baseGraph.getDirectory());
     }
 
+    private boolean isLMAndCHPrepared() {
+        return chPreparationHandler.getCHProfiles().stream().allMatch(p ->
+                getCHProfileVersion(p.getProfile()).equals("" + getProfileHash(profilesByName.get(p.getProfile()))))
+                && lmPreparationHandler.getLMProfiles().stream().allMatch(p ->
+                getLMProfileVersion(p.getProfile()).equals("" + getProfileHash(profilesByName.get(p.getProfile()))));
+    }
+
     private String getCHProfileVersion(String profile) {
         return properties.get("graph.profiles.ch." + profile + ".version");
     }
@@ -1449,6 +1634,10 @@ public class GraphHopper {
             } else
                 throw new IllegalStateException("CH graph should be either loaded or prepared: " + profile.getProfile());
         }
+        if (shortcutUnpackingCacheMB > 0)
+            for (RoutingCHGraph chGraph : chGraphs.values())
+                ((RoutingCHGraphImpl) chGraph).setShortcutUnpackingCache(
+                        new ShortcutUnpackingCache(shortcutUnpackingCacheMB, shortcutUnpackingCacheMinEdges, chGraph.getEdges()));
     }
 
     protected Map<String, PrepareContractionHierarchies.Result> prepareCH(boolean closeEarly, List<CHConfig> configsToPrepare) {
@@ -1511,6 +1700,37 @@ public class GraphHopper {
         logger.info("nodes: " + Helper.nf(baseGraph.getNodes()) + ", edges: " + Helper.nf(baseGraph.getEdges()));
     }
 
+    /**
+     * Updates the subnetwork flags and the landmark weights after the weights of a few edges changed, e.g. because
+     * roads were closed or opened by changing their encoded values. This is much faster than a new import but only
+     * correct for small changes, see {@link PrepareRoutingSubnetworks#updateSubnetworks} and
+     * {@link LandmarkStorage#updateLandmarks}. The CH preparations are not updated. This must not be called while
+     * routing requests are processed.
+     *
+     * @param maxLMWeightError the maximum error of the landmark weights in units of their factor, e.g. 4
+     * @return false if the landmarks of at least one profile could not be updated and have to be prepared again
+     */
+    public boolean updateSubnetworksAndLandmarks(IntCollection changedEdges, int maxLMWeightError) {
+        ensureWriteAccess();
+        PrepareRoutingSubnetworks preparation = new PrepareRoutingSubnetworks(baseGraph.getBaseGraph(), buildSubnetworkRemovalJobs());
+        preparation.setMinNetworkSize(minNetworkSize);
+        preparation.setThreads(subnetworksThreads);
+        IntHashSet edges = new IntHashSet(changedEdges);
+        if (minNetworkSize > 0)
+            edges.addAll(preparation.updateSubnetworks(changedEdges, SUBNETWORK_UPDATE_EDGE_KEYS_FACTOR * minNetworkSize));
+
+        boolean updated = true;
+        // landmark storages can be shared by several profiles
+        for (LandmarkStorage lms : new LinkedHashSet<>(landmarks.values())) {
+            if (lms.updateLandmarks(edges, maxLMWeightError))
+                lms.flush();
+            else
+                updated = false;
+        }
+        baseGraph.flush();
+        return updated;
+    }
+
     private List<PrepareJob> buildSubnetworkRemovalJobs() {
         List<PrepareJob> jobs = new ArrayList<>();
         for (Profile profile : profilesByName.values()) {
@@ -1535,6 +1755,15 @@ public class GraphHopper {
      * remove the files created in graphhopperLocation you have to call clean().
      */
     public void close() {
+        if (preloadThread != null) {
+            ((GHDirectory) baseGraph.getDirectory()).stopLoadMMap();
+            try {
+                preloadThread.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            preloadThread = null;
+        }
         if (baseGraph != null)
             baseGraph.close();
         if (properties != null)
@@ -1576,6 +1805,9 @@ public class GraphHopper {
     }
 
     private void setFullyLoaded() {
+        // the conditional restrictions are parsed only once, as soon as all schedules are known
+        if (encodingManager != null)
+            temporalAccessSchedules = new TemporalAccessSchedules(encodingManager);
         fullyLoaded = true;
     }
 
@@ -40,7 +40,6 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
     private final int DEGREE = 1;
     // use a map as an array is not quite useful if we want to hold only parts of the world
     private final GHIntObjectHashMap<HeightTile> cacheData = new GHIntObjectHashMap<>();
-    private final double precision = 1e7;
     private final double invPrecision = 1 / precision;
 
     public AbstractSRTMElevationProvider(String baseUrl, String cacheDir, String downloaderName, int minLat, int maxLat, int defaultWidth) {
@@ -78,14 +77,17 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
     }
 
     @Override
-    public double getEle(double lat, double lon) {
-        // Return fast, if there is no data available
+    boolean isOutsideSupportedArea(double lat, double lon) {
         // See https://www2.jpl.nasa.gov/srtm/faq.html
-        if (lat >= MAX_LAT || lat <= MIN_LAT)
-            return 0;
+        return lat >= MAX_LAT || lat <= MIN_LAT;
+    }
+
+    @Override
+    HeightTile getTile(double lat, double lon) {
+        // Return fast, if there is no data available
+        if (isOutsideSupportedArea(lat, lon))
+            return null;
 
-        lat = (int) (lat * precision) / precision;
-        lon = (int) (lon * precision) / precision;
         int intKey = calcIntKey(lat, lon);
         HeightTile demProvider = cacheData.get(intKey);
         if (demProvider == null) {
@@ -97,7 +99,7 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
 
             String fileName = getFileName(lat, lon);
             if (fileName == null || (Helper.isEmpty(baseUrl) && !new File(fileName).exists()))
-                return 0;
+                return null;
 
             DataAccess heights = getDirectory().create("dem" + intKey);
             boolean loadExisting = false;
@@ -118,7 +120,7 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
                     // use small size on disc and in-memory
                     heights.create(10)
                             .flush();
-                    return 0;
+                    return demProvider;
                 }
             }
 
@@ -131,11 +133,27 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
             demProvider.setInterpolate(interpolate);
             demProvider.setHeights(heights);
         }
+        return demProvider;
+    }
 
-        if (demProvider.isSeaLevel())
-            return 0;
+    @Override
+    int getMinLatForTile(double lat) {
+        return down(lat);
+    }
 
-        return demProvider.getHeight(lat, lon);
+    @Override
+    int getMinLonForTile(double lon) {
+        return down(lon);
+    }
+
+    @Override
+    int getLatDegree() {
+        return DEGREE;
+    }
+
+    @Override
+    int getLonDegree() {
+        return DEGREE;
     }
 
     private void updateHeightsFromFile(double lat, double lon, DataAccess heights) throws FileNotFoundException {
@@ -35,7 +35,6 @@ import java.util.Map;
  */
 public abstract class AbstractTiffElevationProvider extends TileBasedElevationProvider {
     private final Map<String, HeightTile> cacheData = new HashMap<>();
-    final double precision = 1e7;
 
     private final int WIDTH;
     private final int HEIGHT;
@@ -67,21 +66,6 @@ public abstract class AbstractTiffElevationProvider extends TileBasedElevationPr
         }
     }
 
-    /**
-     * Return true if the coordinates are outside of the supported area
-     */
-    abstract boolean isOutsideSupportedArea(double lat, double lon);
-
-    /**
-     * The smallest lat that is still in the HeightTile
-     */
-    abstract int getMinLatForTile(double lat);
-
-    /**
-     * The smallest lon that is still in the HeightTile
-     */
-    abstract int getMinLonForTile(double lon);
-
     /**
      * Specify the name of the file after downloading
      */
@@ -98,13 +82,20 @@ public abstract class AbstractTiffElevationProvider extends TileBasedElevationPr
     abstract String getDownloadURL(double lat, double lon);
 
     @Override
-    public double getEle(double lat, double lon) {
-        // Return fast, if there is no data available
+    int getLatDegree() {
+        return LAT_DEGREE;
+    }
+
+    @Override
+    int getLonDegree() {
+        return LON_DEGREE;
+    }
+
+    @Override
+    HeightTile getTile(double lat, double lon) {
         if (isOutsideSupportedArea(lat, lon))
-            return 0;
+            return null;
 
-        lat = (int) (lat * precision) / precision;
-        lon = (int) (lon * precision) / precision;
         String name = getFileName(lat, lon);
         HeightTile demProvider = cacheData.get(name);
         if (demProvider == null) {
@@ -139,7 +130,7 @@ public abstract class AbstractTiffElevationProvider extends TileBasedElevationPr
                         demProvider.setSeaLevel(true);
                         // use small size on disc and in-memory
                         heights.create(10).flush();
-                        return 0;
+                        return demProvider;
                     }
 
                 // short == 2 bytes
@@ -150,11 +141,7 @@ public abstract class AbstractTiffElevationProvider extends TileBasedElevationPr
 
             } // loadExisting
         }
-
-        if (demProvider.isSeaLevel())
-            return 0;
-
-        return demProvider.getHeight(lat, lon);
+        return demProvider;
     }
 
     abstract Raster readFile(File file, String tifName);
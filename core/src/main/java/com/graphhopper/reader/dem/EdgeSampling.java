@@ -22,6 +22,8 @@ import com.graphhopper.util.DistanceCalcEarth;
 import com.graphhopper.util.PointList;
 import com.graphhopper.util.shapes.GHPoint;
 
+import java.util.Arrays;
+
 /**
  * Ensures that elevation is sampled along a point list with no more than maxDistance between samples. Works by adding
  * points along long edges and fetching elevation at each inserted point.
@@ -38,40 +40,54 @@ public class EdgeSampling {
         PointList output = new PointList(input.size() * 2, input.is3D());
         if (input.isEmpty()) return output;
         int nodes = input.size();
+        // first collect the new points of all segments, so that their elevation can be looked up at once
+        double[] lats = new double[0], lons = new double[0];
+        int[] samplesUntil = new int[nodes];
+        int samples = 0;
         double lastLat = input.getLat(0), lastLon = input.getLon(0), lastEle = input.getEle(0),
                 thisLat, thisLon, thisEle;
-        for (int i = 0; i < nodes; i++) {
+        for (int i = 1; i < nodes; i++) {
             thisLat = input.getLat(i);
             thisLon = input.getLon(i);
             thisEle = input.getEle(i);
-            if (i > 0) {
-                double segmentLength = distCalc.calcDist3D(lastLat, lastLon, lastEle, thisLat, thisLon, thisEle);
-                int segments = (int) Math.round(segmentLength / maxDistance);
-                // for small distances, we use a simple and fast approximation to interpolate between points
-                // for longer distances (or when crossing international date line) we use great circle interpolation
-                boolean exact = segmentLength > GREAT_CIRCLE_SEGMENT_LENGTH || distCalc.isCrossBoundary(lastLon, thisLon);
-                for (int segment = 1; segment < segments; segment++) {
-                    double ratio = (double) segment / segments;
-                    double lat, lon;
-                    if (exact) {
-                        GHPoint point = distCalc.intermediatePoint(ratio, lastLat, lastLon, thisLat, thisLon);
-                        lat = point.getLat();
-                        lon = point.getLon();
-                    } else {
-                        lat = lastLat + (thisLat - lastLat) * ratio;
-                        lon = lastLon + (thisLon - lastLon) * ratio;
-                    }
-                    double ele = elevation.getEle(lat, lon);
-                    if (!Double.isNaN(ele)) {
-                        output.add(lat, lon, ele);
-                    }
+            double segmentLength = distCalc.calcDist3D(lastLat, lastLon, lastEle, thisLat, thisLon, thisEle);
+            int segments = (int) Math.round(segmentLength / maxDistance);
+            if (samples + segments > lats.length) {
+                lats = Arrays.copyOf(lats, Math.max(2 * lats.length, samples + segments));
+                lons = Arrays.copyOf(lons, lats.length);
+            }
+            // for small distances, we use a simple and fast approximation to interpolate between points
+            // for longer distances (or when crossing international date line) we use great circle interpolation
+            boolean exact = segmentLength > GREAT_CIRCLE_SEGMENT_LENGTH || distCalc.isCrossBoundary(lastLon, thisLon);
+            for (int segment = 1; segment < segments; segment++) {
+                double ratio = (double) segment / segments;
+                if (exact) {
+                    GHPoint point = distCalc.intermediatePoint(ratio, lastLat, lastLon, thisLat, thisLon);
+                    lats[samples] = point.getLat();
+                    lons[samples] = point.getLon();
+                } else {
+                    lats[samples] = lastLat + (thisLat - lastLat) * ratio;
+                    lons[samples] = lastLon + (thisLon - lastLon) * ratio;
                 }
+                samples++;
             }
-            output.add(thisLat, thisLon, thisEle);
+            samplesUntil[i] = samples;
             lastLat = thisLat;
             lastLon = thisLon;
             lastEle = thisEle;
         }
+        double[] eles = new double[samples];
+        elevation.getEle(lats, lons, eles, samples);
+
+        output.add(input.getLat(0), input.getLon(0), input.getEle(0));
+        for (int i = 1; i < nodes; i++) {
+            for (int sample = samplesUntil[i - 1]; sample < samplesUntil[i]; sample++) {
+                if (!Double.isNaN(eles[sample])) {
+                    output.add(lats[sample], lons[sample], eles[sample]);
+                }
+            }
+            output.add(input.getLat(i), input.getLon(i), input.getEle(i));
+        }
         return output;
     }
 }
@@ -0,0 +1,382 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.storage.MMapDataAccess;
+import com.graphhopper.util.shapes.BBox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads elevation data from a single pre-converted archive file, see {@link #createArchive}. The archive contains
+ * the uncompressed heights of all tiles of a {@link TileBasedElevationProvider} in an area, so no tiles have to be
+ * downloaded or unpacked at import time. Tiles are memory mapped on demand and only the most recently used ones are
+ * kept mapped, so memory usage is bounded even for a planet-wide archive.
+ * <p>
+ * This class is thread-safe, i.e. several import threads can call {@link #getEle} concurrently. The mapped tiles are
+ * kept in several LRU stripes with their own lock, so threads working on different tiles rarely wait for each other.
+ * Every tile counts its readers and is unmapped as soon as it was evicted and its last reader is done, instead of
+ * waiting for the garbage collector.
+ */
+public class ElevationArchiveProvider implements ElevationProvider {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ElevationArchiveProvider.class);
+    private static final int MAGIC = 0x47484541;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 40;
+    private static final int INDEX_ENTRY_BYTES = 24;
+    private static final int MAX_STRIPES = 16;
+    private final double precision = 1e7;
+
+    private final File file;
+    private final FileChannel channel;
+    private final int latDegree;
+    private final int lonDegree;
+    private final int latOrigin;
+    private final int lonOrigin;
+    // the index entry of every tile in the archive
+    private final GHIntObjectHashMap<TileEntry> index;
+    // the most recently used tiles of every stripe, each stripe is guarded by its own lock
+    private final LinkedHashMap<Integer, ArchiveTile>[] mappedTiles;
+    private boolean interpolate = false;
+
+    public ElevationArchiveProvider(String file) {
+        this(file, 64);
+    }
+
+    /**
+     * @param maxMappedTiles the maximum number of tiles that are kept mapped at the same time, apart from evicted
+     *                       tiles that are still read by another thread
+     */
+    public ElevationArchiveProvider(String file, int maxMappedTiles) {
+        if (maxMappedTiles < 1)
+            throw new IllegalArgumentException("maxMappedTiles must be positive but was " + maxMappedTiles);
+        this.file = new File(file);
+        try {
+            channel = FileChannel.open(this.file.toPath(), StandardOpenOption.READ);
+            ByteBuffer header = read(0, HEADER_BYTES);
+            if (header.getInt() != MAGIC)
+                throw new IllegalStateException("Not an elevation archive: " + file);
+            int version = header.getInt();
+            if (version != VERSION)
+                throw new IllegalStateException("Unsupported elevation archive version " + version + ", expected " + VERSION + ": " + file);
+            latDegree = header.getInt();
+            lonDegree = header.getInt();
+            latOrigin = header.getInt();
+            lonOrigin = header.getInt();
+            int tileCount = header.getInt();
+            header.getInt();
+            long indexOffset = header.getLong();
+
+            index = new GHIntObjectHashMap<>(tileCount);
+            ByteBuffer indexBuffer = read(indexOffset, (long) tileCount * INDEX_ENTRY_BYTES);
+            for (int i = 0; i < tileCount; i++) {
+                TileEntry entry = new TileEntry(indexBuffer.getInt(), indexBuffer.getInt(), indexBuffer.getInt(), indexBuffer.getInt(), indexBuffer.getLong());
+                index.put(calcIntKey(entry.minLat, entry.minLon), entry);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read elevation archive " + file, ex);
+        }
+        // the tiles are split evenly, so there are never more than maxMappedTiles in all stripes together
+        int stripes = Math.min(MAX_STRIPES, maxMappedTiles);
+        int maxTilesPerStripe = maxMappedTiles / stripes;
+        @SuppressWarnings("unchecked")
+        LinkedHashMap<Integer, ArchiveTile>[] maps = new LinkedHashMap[stripes];
+        for (int i = 0; i < stripes; i++) {
+            maps[i] = new LinkedHashMap<Integer, ArchiveTile>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, ArchiveTile> eldest) {
+                    if (size() <= maxTilesPerStripe)
+                        return false;
+                    eldest.getValue().release();
+                    return true;
+                }
+            };
+        }
+        mappedTiles = maps;
+    }
+
+    /**
+     * Configuration option to use bilinear interpolation to find the elevation at a point from the
+     * surrounding elevation points. Has only an effect if called before the first getEle call.
+     * Turned off by default.
+     */
+    public ElevationArchiveProvider setInterpolate(boolean interpolate) {
+        this.interpolate = interpolate;
+        return this;
+    }
+
+    @Override
+    public boolean canInterpolate() {
+        return interpolate;
+    }
+
+    /**
+     * @return the number of tiles in this archive
+     */
+    public int getTileCount() {
+        return index.size();
+    }
+
+    @Override
+    public double getEle(double lat, double lon) {
+        lat = (int) (lat * precision) / precision;
+        lon = (int) (lon * precision) / precision;
+        ArchiveTile tile = acquireTile(calcIntKey(getMinLatForTile(lat), getMinLonForTile(lon)));
+        // like the other providers we use 0 if there is no data, e.g. for the sea
+        if (tile == null)
+            return 0;
+        try {
+            return tile.getHeight(lat, lon);
+        } finally {
+            tile.release();
+        }
+    }
+
+    @Override
+    public void getEle(double[] lats, double[] lons, double[] eles, int count) {
+        // the tile of the previous point stays acquired, this avoids the lookup as long as we stay in the same tile
+        ArchiveTile tile = null;
+        int tileKey = -1;
+        try {
+            for (int i = 0; i < count; i++) {
+                double lat = (int) (lats[i] * precision) / precision;
+                double lon = (int) (lons[i] * precision) / precision;
+                int key = calcIntKey(getMinLatForTile(lat), getMinLonForTile(lon));
+                if (key != tileKey) {
+                    if (tile != null)
+                        tile.release();
+                    tile = acquireTile(key);
+                    tileKey = key;
+                }
+                eles[i] = tile == null ? 0 : tile.getHeight(lat, lon);
+            }
+        } finally {
+            if (tile != null)
+                tile.release();
+        }
+    }
+
+    private int getMinLatForTile(double lat) {
+        return (int) Math.floor((lat - latOrigin) / latDegree) * latDegree + latOrigin;
+    }
+
+    private int getMinLonForTile(double lon) {
+        return (int) Math.floor((lon - lonOrigin) / lonDegree) * lonDegree + lonOrigin;
+    }
+
+    /**
+     * @return the mapped tile for the given key or null if the archive has no such tile. The tile must be released
+     * after use.
+     */
+    private ArchiveTile acquireTile(int key) {
+        // the index is only read after the constructor, so it can be used without a lock
+        TileEntry entry = index.get(key);
+        if (entry == null)
+            return null;
+        LinkedHashMap<Integer, ArchiveTile> stripe = mappedTiles[((key * 0x9E3779B9) >>> 16) % mappedTiles.length];
+        synchronized (stripe) {
+            ArchiveTile tile = stripe.get(key);
+            if (tile == null) {
+                tile = new ArchiveTile(entry, map(entry));
+                tile.setInterpolate(interpolate);
+                // this can evict and release another tile of this stripe
+                stripe.put(key, tile);
+            }
+            // tiles in the map are never unmapped, so the reader can be added inside the lock safely
+            tile.readers.incrementAndGet();
+            return tile;
+        }
+    }
+
+    @Override
+    public void release() {
+        for (LinkedHashMap<Integer, ArchiveTile> stripe : mappedTiles) {
+            synchronized (stripe) {
+                stripe.values().forEach(ArchiveTile::release);
+                stripe.clear();
+            }
+        }
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "archive:" + file;
+    }
+
+    private MappedByteBuffer map(TileEntry entry) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, entry.offset, 2L * entry.width * entry.rows);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot map tile " + entry.minLat + "," + entry.minLon + " of " + file, ex);
+        }
+    }
+
+    private ByteBuffer read(long offset, long bytes) throws IOException {
+        if (bytes > Integer.MAX_VALUE)
+            throw new IllegalStateException("Cannot read " + bytes + " bytes at once from " + file);
+        ByteBuffer buffer = ByteBuffer.allocate((int) bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0)
+                throw new IllegalStateException("Unexpected end of elevation archive " + file);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    static int calcIntKey(int minLat, int minLon) {
+        return (minLat + 90) * 1000 + minLon + 180;
+    }
+
+    /**
+     * Writes the tiles of the given provider that overlap the given area into a new archive file. Tiles without
+     * data or that only contain the sea are skipped. The provider is released after every tile, so only one
+     * tile is kept in memory at any time.
+     *
+     * @return the number of tiles written
+     */
+    public static int createArchive(TileBasedElevationProvider provider, BBox bbox, File file) {
+        int latDegree = provider.getLatDegree();
+        int lonDegree = provider.getLonDegree();
+        int latOrigin = Math.floorMod(provider.getMinLatForTile(0.5), latDegree);
+        int lonOrigin = Math.floorMod(provider.getMinLonForTile(0.5), lonDegree);
+        int firstLat = provider.getMinLatForTile(bbox.minLat);
+        int firstLon = provider.getMinLonForTile(bbox.minLon);
+        int tileCount = 0;
+        try (FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer index = ByteBuffer.allocate(INDEX_ENTRY_BYTES * 1024);
+            long offset = HEADER_BYTES;
+            for (int minLat = firstLat; minLat < bbox.maxLat; minLat += latDegree) {
+                for (int minLon = firstLon; minLon < bbox.maxLon; minLon += lonDegree) {
+                    HeightTile tile = provider.getTile(minLat + latDegree / 2.0, minLon + lonDegree / 2.0);
+                    if (tile == null || tile.isSeaLevel()) {
+                        provider.release();
+                        continue;
+                    }
+                    if (tile.getMinLat() != minLat || tile.getMinLon() != minLon)
+                        throw new IllegalStateException("Unexpected tile " + tile.getMinLat() + "," + tile.getMinLon()
+                                + " for " + minLat + "," + minLon + " of " + provider);
+
+                    int width = tile.getWidth(), rows = tile.getRows();
+                    ByteBuffer row = ByteBuffer.allocate(2 * width);
+                    for (int y = 0; y < rows; y++) {
+                        row.clear();
+                        for (int x = 0; x < width; x++) {
+                            row.putShort(tile.getHeightSample(x, y));
+                        }
+                        row.flip();
+                        writeFully(out, row, offset + 2L * y * width);
+                    }
+                    if (index.remaining() < INDEX_ENTRY_BYTES) {
+                        ByteBuffer larger = ByteBuffer.allocate(index.capacity() * 2);
+                        index.flip();
+                        index = larger.put(index);
+                    }
+                    index.putInt(minLat).putInt(minLon).putInt(width).putInt(rows).putLong(offset);
+                    offset += 2L * width * rows;
+                    tileCount++;
+                    provider.release();
+                    LOGGER.info("Added elevation tile " + minLat + "," + minLon + " (" + tileCount + " tiles so far)");
+                }
+            }
+            index.flip();
+            writeFully(out, index, offset);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(latDegree).putInt(lonDegree).putInt(latOrigin).putInt(lonOrigin)
+                    .putInt(tileCount).putInt(0).putLong(offset);
+            header.flip();
+            writeFully(out, header, 0);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot write elevation archive " + file, ex);
+        }
+        return tileCount;
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += out.write(buffer, position);
+        }
+    }
+
+    private static class TileEntry {
+        final int minLat;
+        final int minLon;
+        final int width;
+        final int rows;
+        final long offset;
+
+        TileEntry(int minLat, int minLon, int width, int rows, long offset) {
+            this.minLat = minLat;
+            this.minLon = minLon;
+            this.width = width;
+            this.rows = rows;
+            this.offset = offset;
+        }
+    }
+
+    private class ArchiveTile extends HeightTile {
+        private final MappedByteBuffer buffer;
+        private final int width;
+        // the threads reading this tile plus one while it is mapped in the LRU stripe
+        private final AtomicInteger readers = new AtomicInteger(1);
+
+        ArchiveTile(TileEntry entry, MappedByteBuffer buffer) {
+            super(entry.minLat, entry.minLon, entry.width, entry.rows, precision, lonDegree, latDegree);
+            this.buffer = buffer;
+            this.width = entry.width;
+        }
+
+        @Override
+        public boolean isSeaLevel() {
+            return false;
+        }
+
+        @Override
+        short getHeightSample(int x, int y) {
+            // absolute reads do not change the state of the buffer, so this is safe for concurrent use
+            return buffer.getShort(2 * (y * width + x));
+        }
+
+        /**
+         * Unmaps the tile once it was evicted and no thread reads it anymore. Reading an unmapped buffer would crash
+         * the JVM.
+         */
+        void release() {
+            if (readers.decrementAndGet() == 0)
+                MMapDataAccess.cleanMappedByteBuffer(buffer);
+        }
+    }
+}
@@ -52,6 +52,19 @@ public interface ElevationProvider {
         return getEle(node.getLat(), node.getLon());
     }
 
+    /**
+     * Looks up the elevation of the first count points of the given coordinates, see {@link #getEle(double, double)}.
+     * Tile based providers resolve the tile only once for consecutive points of the same tile, so the points
+     * should be passed in their geometric order, e.g. along an edge.
+     *
+     * @param eles receives the elevations, it must have at least count entries
+     */
+    default void getEle(double[] lats, double[] lons, double[] eles, int count) {
+        for (int i = 0; i < count; i++) {
+            eles[i] = getEle(lats[i], lons[i]);
+        }
+    }
+
     /**
      * Returns true if bilinear interpolation is enabled.
      */
@@ -78,7 +78,37 @@ public class HeightTile {
         this.heights = da;
     }
 
-    private short getHeightSample(int x, int y) {
+    int getMinLat() {
+        return minLat;
+    }
+
+    int getMinLon() {
+        return minLon;
+    }
+
+    /**
+     * @return the number of samples per row
+     */
+    int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the number of rows
+     */
+    int getRows() {
+        return height;
+    }
+
+    int getHorizontalDegree() {
+        return horizontalDegree;
+    }
+
+    int getVerticalDegree() {
+        return verticalDegree;
+    }
+
+    short getHeightSample(int x, int y) {
         // always keep in mind factor 2 because of short value
         return heights.getShort(2L * ((long) y * width + x));
     }
@@ -55,6 +55,47 @@ public class MultiSourceElevationProvider extends TileBasedElevationProvider {
         return globalProvider.getEle(lat, lon);
     }
 
+    @Override
+    public void getEle(double[] lats, double[] lons, double[] eles, int count) {
+        // the sources use different tiles, so we cannot reuse the tile of the previous point
+        for (int i = 0; i < count; i++) {
+            eles[i] = getEle(lats[i], lons[i]);
+        }
+    }
+
+    @Override
+    boolean isOutsideSupportedArea(double lat, double lon) {
+        return srtmProvider.isOutsideSupportedArea(lat, lon) && globalProvider.isOutsideSupportedArea(lat, lon);
+    }
+
+    @Override
+    HeightTile getTile(double lat, double lon) {
+        if (lat < 59.999 && lat > -56) {
+            return srtmProvider.getTile(lat, lon);
+        }
+        return globalProvider.getTile(lat, lon);
+    }
+
+    @Override
+    int getMinLatForTile(double lat) {
+        throw new UnsupportedOperationException("The tiles of " + this + " do not form a single grid");
+    }
+
+    @Override
+    int getMinLonForTile(double lon) {
+        throw new UnsupportedOperationException("The tiles of " + this + " do not form a single grid");
+    }
+
+    @Override
+    int getLatDegree() {
+        throw new UnsupportedOperationException("The tiles of " + this + " do not form a single grid");
+    }
+
+    @Override
+    int getLonDegree() {
+        throw new UnsupportedOperationException("The tiles of " + this + " do not form a single grid");
+    }
+
     /**
      * For the MultiSourceElevationProvider you have to specify the base URL separated by a ';'.
      * The first for cgiar, the second for gmted.
@@ -38,6 +38,7 @@ public abstract class TileBasedElevationProvider implements ElevationProvider {
     final File cacheDir;
     String baseUrl;
     Directory dir;
+    final double precision = 1e7;
     DAType daType = DAType.MMAP;
     boolean interpolate = false;
     boolean autoRemoveTemporary = true;
@@ -108,6 +109,74 @@ public abstract class TileBasedElevationProvider implements ElevationProvider {
         return this;
     }
 
+    @Override
+    public double getEle(double lat, double lon) {
+        // Return fast, if there is no data available
+        if (isOutsideSupportedArea(lat, lon))
+            return 0;
+
+        lat = (int) (lat * precision) / precision;
+        lon = (int) (lon * precision) / precision;
+        HeightTile demProvider = getTile(lat, lon);
+        if (demProvider == null || demProvider.isSeaLevel())
+            return 0;
+
+        return demProvider.getHeight(lat, lon);
+    }
+
+    @Override
+    public void getEle(double[] lats, double[] lons, double[] eles, int count) {
+        // the tile of the previous point, which is usually also the tile of the current point
+        HeightTile demProvider = null;
+        int tileLat = Integer.MIN_VALUE, tileLon = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            if (isOutsideSupportedArea(lats[i], lons[i])) {
+                eles[i] = 0;
+                continue;
+            }
+            double lat = (int) (lats[i] * precision) / precision;
+            double lon = (int) (lons[i] * precision) / precision;
+            int minLat = getMinLatForTile(lat), minLon = getMinLonForTile(lon);
+            if (minLat != tileLat || minLon != tileLon) {
+                demProvider = getTile(lat, lon);
+                tileLat = minLat;
+                tileLon = minLon;
+            }
+            eles[i] = demProvider == null || demProvider.isSeaLevel() ? 0 : demProvider.getHeight(lat, lon);
+        }
+    }
+
+    /**
+     * Return true if the coordinates are outside of the supported area
+     */
+    abstract boolean isOutsideSupportedArea(double lat, double lon);
+
+    /**
+     * @return the tile containing the given coordinates or null if there is no data for them. The tile can be
+     * sea level, see {@link HeightTile#isSeaLevel()}.
+     */
+    abstract HeightTile getTile(double lat, double lon);
+
+    /**
+     * The smallest lat that is still in the HeightTile
+     */
+    abstract int getMinLatForTile(double lat);
+
+    /**
+     * The smallest lon that is still in the HeightTile
+     */
+    abstract int getMinLonForTile(double lon);
+
+    /**
+     * @return the degrees of latitude covered by a tile
+     */
+    abstract int getLatDegree();
+
+    /**
+     * @return the degrees of longitude covered by a tile
+     */
+    abstract int getLonDegree();
+
     protected File getCacheDir() {
         return cacheDir;
     }
@@ -29,6 +29,10 @@ import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.Parameters;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
 /**
  * This class implements a bidirectional A* algorithm. It is interesting to note that a
  * bidirectional dijkstra is far more efficient than a single direction one. The same does not hold
@@ -58,6 +62,9 @@ import com.graphhopper.util.Parameters;
 public class AStarBidirection extends AbstractNonCHBidirAlgo {
     private BalancedWeightApproximator weightApprox;
     double stoppingCriterionOffset;
+    private int approximationUpdateInterval;
+    private int nextApproximationUpdate;
+    private int approximationUpdates;
 
     public AStarBidirection(Graph graph, Weighting weighting, TraversalMode tMode) {
         super(graph, weighting, tMode);
@@ -70,9 +77,99 @@ public class AStarBidirection extends AbstractNonCHBidirAlgo {
     void init(int from, double fromWeight, int to, double toWeight) {
         weightApprox.setFromTo(from, to);
         stoppingCriterionOffset = weightApprox.approximate(to, true) + weightApprox.getSlack();
+        nextApproximationUpdate = approximationUpdateInterval;
         super.init(from, fromWeight, to, toWeight);
     }
 
+    @Override
+    protected void runAlgo() {
+        if (approximationUpdateInterval <= 0) {
+            super.runAlgo();
+            return;
+        }
+        while (!finished() && !isMaxVisitedNodesExceeded() && !isTimeoutExceeded()) {
+            if (!finishedFrom)
+                finishedFrom = !fillEdgesFrom();
+
+            if (!finishedTo)
+                finishedTo = !fillEdgesTo();
+
+            if (getVisitedNodes() >= nextApproximationUpdate && !finishedFrom && !finishedTo) {
+                nextApproximationUpdate = getVisitedNodes() + approximationUpdateInterval;
+                if (weightApprox.update(currFrom.adjNode, currTo.adjNode))
+                    updateHeapWeights();
+            }
+        }
+    }
+
+    /**
+     * The settled entries stay correct if the approximation changes as long as it stays consistent, but the weights
+     * of the entries in the queues (and the stopping criterion) have to be recalculated.
+     */
+    private void updateHeapWeights() {
+        pqOpenSetFrom = rebuildQueue(pqOpenSetFrom, false);
+        pqOpenSetTo = rebuildQueue(pqOpenSetTo, true);
+        // the stopping criterion needs the smallest weights of the queues. with the new approximation this is no longer
+        // the weight of the last polled entry, which is settled already so we can just overwrite its weight
+        currFrom.weight = pqOpenSetFrom.isEmpty()
+                ? currFrom.getWeightOfVisitedPath() + weightApprox.approximate(currFrom.adjNode, false)
+                : pqOpenSetFrom.peek().weight;
+        currTo.weight = pqOpenSetTo.isEmpty()
+                ? currTo.getWeightOfVisitedPath() + weightApprox.approximate(currTo.adjNode, true)
+                : pqOpenSetTo.peek().weight;
+        stoppingCriterionOffset = weightApprox.approximate(to, true) + weightApprox.getSlack();
+        approximationUpdates++;
+    }
+
+    private PriorityQueue<SPTEntry> rebuildQueue(PriorityQueue<SPTEntry> queue, boolean reverse) {
+        List<SPTEntry> entries = new ArrayList<>(queue.size());
+        for (SPTEntry entry : queue) {
+            if (entry.isDeleted())
+                continue;
+            entry.weight = entry.getWeightOfVisitedPath() + weightApprox.approximate(entry.adjNode, reverse);
+            entries.add(entry);
+        }
+        return new PriorityQueue<>(entries);
+    }
+
+    /**
+     * Lets the approximation adapt to the progress of the search every time the given number of nodes were visited,
+     * see {@link WeightApproximator#update(int)}. Whenever the approximation changes both queues have to be rebuilt, so
+     * this should not be too small. The default is 0, i.e. the approximation is never updated.
+     */
+    public AStarBidirection setApproximationUpdateInterval(int visitedNodes) {
+        this.approximationUpdateInterval = visitedNodes;
+        return this;
+    }
+
+    /**
+     * @return how often the approximation changed during the last search
+     */
+    public int getApproximationUpdates() {
+        return approximationUpdates;
+    }
+
+    /**
+     * Shows how tight the lower bounds of the approximation are. Virtual nodes are usually approximated with 0, so
+     * the first node of the found path with a positive approximation is used.
+     *
+     * @return the approximated divided by the actual weight from this node to the destination, or -1 if there is no
+     * such node. 1 means the approximation was perfect.
+     */
+    public double getLowerBoundRatio() {
+        if (bestFwdEntry == null || bestWeight == Double.MAX_VALUE)
+            return -1;
+        WeightApproximator approximation = getApproximation();
+        double ratio = -1;
+        for (SPTEntry entry = bestFwdEntry; entry != null; entry = entry.getParent()) {
+            double remainingWeight = bestWeight - entry.getWeightOfVisitedPath();
+            double approximatedWeight = approximation.approximate(entry.adjNode);
+            if (approximatedWeight > 0 && remainingWeight > 0)
+                ratio = approximatedWeight / remainingWeight;
+        }
+        return ratio;
+    }
+
     @Override
     protected boolean finished() {
         if (finishedFrom || finishedTo)
@@ -18,10 +18,13 @@
 
 package com.graphhopper.routing;
 
+import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.IntIndexedContainer;
 import com.carrotsearch.hppc.predicates.IntObjectPredicate;
 import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.DistanceCalcEarth;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.PMap;
 
@@ -29,6 +32,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
 
 /**
  * Minimum number-of-moving-parts implementation of alternative route search with
@@ -44,6 +48,8 @@ public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
     private final double localOptimalityFactor;
     private final int maxPaths;
     private final List<AlternativeInfo> alternatives = new ArrayList<>();
+    // the nodes of all alternatives found so far
+    private final IntHashSet nodesInAlternatives = new IntHashSet();
     private int extraVisitedNodes = 0;
 
     public AlternativeRouteCH(RoutingCHGraph graph, PMap hints) {
@@ -78,9 +84,9 @@ public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
             return Collections.emptyList();
         }
 
-        alternatives.add(new AlternativeInfo(bestPath, 0));
+        addAlternative(new AlternativeInfo(bestPath, 0));
 
-        final ArrayList<PotentialAlternativeInfo> potentialAlternativeInfos = new ArrayList<>();
+        final List<PotentialAlternativeInfo> potentialAlternativeInfos = new ArrayList<>();
 
         bestWeightMapFrom.forEach((IntObjectPredicate<SPTEntry>) (v, fromSPTEntry) -> {
             SPTEntry toSPTEntry = bestWeightMapTo.get(v);
@@ -90,48 +96,81 @@ public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
             if (fromSPTEntry.getWeightOfVisitedPath() + toSPTEntry.getWeightOfVisitedPath() > bestPath.getWeight() * maxWeightFactor)
                 return true;
 
-            // This gives us a path s -> v -> t, but since we are using contraction hierarchies,
-            // s -> v and v -> t need not be shortest paths. In fact, they can sometimes be pretty strange.
-            // We still use this preliminary path to filter for shared path length with other alternatives,
-            // so we don't have to work so much.
-            Path preliminaryRoute = createPathExtractor().extract(fromSPTEntry, toSPTEntry, fromSPTEntry.getWeightOfVisitedPath() + toSPTEntry.getWeightOfVisitedPath());
-            double preliminaryShare = calculateShare(preliminaryRoute);
-            if (preliminaryShare > maxShareFactor) {
+            // the shortest s -> v -> t path is the best path itself if v is on it
+            if (alternatives.get(0).nodes.contains(v))
                 return true;
-            }
+
+            // the beeline distances are lower bounds of the road distances, so we can skip the candidates that
+            // cannot pass the detour test without running any query
+            if (exceedsDetourBound(beelineDistance(s, v) + beelineDistance(v, t), 0, bestPath.getDistance()))
+                return true;
+
             PotentialAlternativeInfo potentialAlternativeInfo = new PotentialAlternativeInfo();
             potentialAlternativeInfo.v = v;
-            potentialAlternativeInfo.weight = 2 * (fromSPTEntry.getWeightOfVisitedPath() + toSPTEntry.getWeightOfVisitedPath()) + preliminaryShare;
+            potentialAlternativeInfo.fromSPTEntry = fromSPTEntry;
+            potentialAlternativeInfo.toSPTEntry = toSPTEntry;
+            potentialAlternativeInfo.index = potentialAlternativeInfos.size();
+            // the preliminary share is added later, it is between 0 and 1 so this is a lower bound of the final weight
+            potentialAlternativeInfo.weight = 2 * (fromSPTEntry.getWeightOfVisitedPath() + toSPTEntry.getWeightOfVisitedPath());
             potentialAlternativeInfos.add(potentialAlternativeInfo);
             return true;
         });
 
-        potentialAlternativeInfos.sort(Comparator.comparingDouble(o -> o.weight));
-
-        for (PotentialAlternativeInfo potentialAlternativeInfo : potentialAlternativeInfos) {
+        // Usually we find enough alternatives among the first candidates. So instead of unpacking the preliminary
+        // paths of all candidates we poll them using the lower bound of their weight and unpack only the polled ones.
+        // The candidates are still processed in the order of their final weight.
+        PriorityQueue<PotentialAlternativeInfo> queue = createQueue(potentialAlternativeInfos);
+        while (!queue.isEmpty()) {
+            PotentialAlternativeInfo potentialAlternativeInfo = queue.poll();
+            if (potentialAlternativeInfo.fromSPTEntry != null) {
+                // This gives us a path s -> v -> t, but since we are using contraction hierarchies,
+                // s -> v and v -> t need not be shortest paths. In fact, they can sometimes be pretty strange.
+                // We still use this preliminary path to filter for shared path length with other alternatives,
+                // so we don't have to work so much.
+                SPTEntry fromSPTEntry = potentialAlternativeInfo.fromSPTEntry;
+                SPTEntry toSPTEntry = potentialAlternativeInfo.toSPTEntry;
+                potentialAlternativeInfo.fromSPTEntry = null;
+                potentialAlternativeInfo.toSPTEntry = null;
+                Path preliminaryRoute = createPathExtractor().extract(fromSPTEntry, toSPTEntry, fromSPTEntry.getWeightOfVisitedPath() + toSPTEntry.getWeightOfVisitedPath());
+                // at this point we must only compare with the best path, no matter how many alternatives we found already
+                double preliminaryShare = sharedDistanceWithShortest(preliminaryRoute.calcEdges()) / preliminaryRoute.getDistance();
+                if (preliminaryShare > maxShareFactor)
+                    continue;
+                potentialAlternativeInfo.weight += preliminaryShare;
+                queue.add(potentialAlternativeInfo);
+                continue;
+            }
             int v = potentialAlternativeInfo.v;
 
             // Okay, now we want the s -> v -> t shortest via-path, so we route s -> v and v -> t
-            // and glue them together.
+            // and glue them together. The routers are not pooled: they can be used only once and their maps
+            // only grow with the few nodes a CH query visits.
             DijkstraBidirectionCH svRouter = new DijkstraBidirectionCH(graph);
             svRouter.setPathExtractorSupplier(this::createPathExtractor);
             final Path svPath = svRouter.calcPath(s, v);
             extraVisitedNodes += svRouter.getVisitedNodes();
 
+            // the edges are needed for all the following checks, so we calculate them only once
+            List<EdgeIteratorState> edges = svPath.calcEdges();
+            // with the exact s -> v part we can often skip the v -> t query
+            if (exceedsDetourBound(svPath.getDistance() + beelineDistance(v, t), sharedDistanceWithShortest(edges), bestPath.getDistance()))
+                continue;
+
             DijkstraBidirectionCH vtRouter = new DijkstraBidirectionCH(graph);
             vtRouter.setPathExtractorSupplier(this::createPathExtractor);
             final Path vtPath = vtRouter.calcPath(v, t);
             Path path = concat(graph.getBaseGraph(), svPath, vtPath);
             extraVisitedNodes += vtRouter.getVisitedNodes();
+            edges.addAll(vtPath.calcEdges());
 
-            double sharedDistanceWithShortest = sharedDistanceWithShortest(path);
+            double sharedDistanceWithShortest = sharedDistanceWithShortest(edges);
             double detourLength = path.getDistance() - sharedDistanceWithShortest;
             double directLength = bestPath.getDistance() - sharedDistanceWithShortest;
             if (detourLength > directLength * maxWeightFactor) {
                 continue;
             }
 
-            double share = calculateShare(path);
+            double share = sharedDistance(edges) / path.getDistance();
             if (share > maxShareFactor) {
                 continue;
             }
@@ -139,75 +178,81 @@ public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
             // This is the final test we need: Discard paths that are not "locally shortest" around v.
             // So move a couple of nodes to the left and right from v on our path,
             // route, and check if v is on the shortest path.
-            final IntIndexedContainer svNodes = svPath.calcNodes();
-            int vIndex = svNodes.size() - 1;
-            if (!tTest(path, vIndex))
+            int vIndex = svPath.getEdgeCount();
+            if (!tTest(path, edges, vIndex, detourLength))
                 continue;
 
-            alternatives.add(new AlternativeInfo(path, share));
+            addAlternative(new AlternativeInfo(path, share));
             if (alternatives.size() >= maxPaths)
                 break;
         }
         return alternatives;
     }
 
-    private double calculateShare(final Path path) {
-        double sharedDistance = sharedDistance(path);
-        return sharedDistance / path.getDistance();
+    private static PriorityQueue<PotentialAlternativeInfo> createQueue(List<PotentialAlternativeInfo> potentialAlternativeInfos) {
+        // for equal weights we keep the order in which the candidates were found
+        PriorityQueue<PotentialAlternativeInfo> queue = new PriorityQueue<>(Math.max(1, potentialAlternativeInfos.size()),
+                Comparator.<PotentialAlternativeInfo>comparingDouble(o -> o.weight).thenComparingInt(o -> o.index));
+        queue.addAll(potentialAlternativeInfos);
+        return queue;
+    }
+
+    private void addAlternative(AlternativeInfo alternativeInfo) {
+        alternatives.add(alternativeInfo);
+        nodesInAlternatives.addAll(alternativeInfo.nodes);
     }
 
-    private double sharedDistance(Path path) {
+    /**
+     * The detour test rejects a path if its detour is longer than maxWeightFactor times the direct part of the best
+     * path, i.e. if distance + (maxWeightFactor - 1) * sharedDistanceWithShortest > maxWeightFactor * bestDistance.
+     * The left side does not decrease with the distance and the shared distance, so lower bounds of both are enough
+     * to reject a path early.
+     */
+    private boolean exceedsDetourBound(double distanceLowerBound, double sharedDistanceLowerBound, double bestDistance) {
+        return maxWeightFactor >= 1 && distanceLowerBound + (maxWeightFactor - 1) * sharedDistanceLowerBound > maxWeightFactor * bestDistance;
+    }
+
+    private double beelineDistance(int a, int b) {
+        NodeAccess na = graph.getBaseGraph().getNodeAccess();
+        return DistanceCalcEarth.DIST_EARTH.calcDist(na.getLat(a), na.getLon(a), na.getLat(b), na.getLon(b));
+    }
+
+    private double sharedDistance(List<EdgeIteratorState> edges) {
         double sharedDistance = 0.0;
-        List<EdgeIteratorState> edges = path.calcEdges();
         for (EdgeIteratorState edge : edges) {
-            if (nodesInCurrentAlternativeSetContains(edge.getBaseNode()) && nodesInCurrentAlternativeSetContains(edge.getAdjNode())) {
+            if (nodesInAlternatives.contains(edge.getBaseNode()) && nodesInAlternatives.contains(edge.getAdjNode())) {
                 sharedDistance += edge.getDistance();
             }
         }
         return sharedDistance;
     }
 
-    private double sharedDistanceWithShortest(Path path) {
+    private double sharedDistanceWithShortest(List<EdgeIteratorState> edges) {
         double sharedDistance = 0.0;
-        List<EdgeIteratorState> edges = path.calcEdges();
+        IntHashSet nodes = alternatives.get(0).nodes;
         for (EdgeIteratorState edge : edges) {
-            if (alternatives.get(0).nodes.contains(edge.getBaseNode()) && alternatives.get(0).nodes.contains(edge.getAdjNode())) {
+            if (nodes.contains(edge.getBaseNode()) && nodes.contains(edge.getAdjNode())) {
                 sharedDistance += edge.getDistance();
             }
         }
         return sharedDistance;
     }
 
-    private boolean nodesInCurrentAlternativeSetContains(int v) {
-        for (AlternativeInfo alternative : alternatives) {
-            if (alternative.nodes.contains(v)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private boolean tTest(Path path, int vIndex) {
+    private boolean tTest(Path path, List<EdgeIteratorState> edges, int vIndex, double detourDistance) {
         if (path.getEdgeCount() == 0) return true;
-        double detourDistance = detourDistance(path);
         double T = 0.5 * localOptimalityFactor * detourDistance;
-        int fromNode = getPreviousNodeTMetersAway(path, vIndex, T);
-        int toNode = getNextNodeTMetersAway(path, vIndex, T);
+        int fromNode = getPreviousNodeTMetersAway(edges, vIndex, T);
+        int toNode = getNextNodeTMetersAway(edges, vIndex, T);
         DijkstraBidirectionCH tRouter = new DijkstraBidirectionCH(graph);
         tRouter.setPathExtractorSupplier(this::createPathExtractor);
         Path tPath = tRouter.calcPath(fromNode, toNode);
         extraVisitedNodes += tRouter.getVisitedNodes();
         IntIndexedContainer tNodes = tPath.calcNodes();
-        int v = path.calcNodes().get(vIndex);
+        int v = vIndex == 0 ? path.getFromNode() : edges.get(vIndex - 1).getAdjNode();
         return tNodes.contains(v);
     }
 
-    private double detourDistance(Path path) {
-        return path.getDistance() - sharedDistanceWithShortest(path);
-    }
-
-    private int getPreviousNodeTMetersAway(Path path, int vIndex, double T) {
-        List<EdgeIteratorState> edges = path.calcEdges();
+    private int getPreviousNodeTMetersAway(List<EdgeIteratorState> edges, int vIndex, double T) {
         double distance = 0.0;
         int i = vIndex;
         while (i > 0 && distance < T) {
@@ -217,8 +262,7 @@ public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
         return edges.get(i).getBaseNode();
     }
 
-    private int getNextNodeTMetersAway(Path path, int vIndex, double T) {
-        List<EdgeIteratorState> edges = path.calcEdges();
+    private int getNextNodeTMetersAway(List<EdgeIteratorState> edges, int vIndex, double T) {
         double distance = 0.0;
         int i = vIndex;
         while (i < edges.size() - 1 && distance < T) {
@@ -257,17 +301,21 @@ public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
     public static class PotentialAlternativeInfo {
         int v;
         double weight;
+        int index;
+        // not null as long as the preliminary path was not checked
+        SPTEntry fromSPTEntry;
+        SPTEntry toSPTEntry;
     }
 
     public static class AlternativeInfo {
         final double shareWeight;
         final Path path;
-        final IntIndexedContainer nodes;
+        final IntHashSet nodes;
 
         AlternativeInfo(Path path, double shareWeight) {
             this.path = path;
             this.shareWeight = shareWeight;
-            this.nodes = path.calcNodes();
+            this.nodes = new IntHashSet(path.calcNodes());
         }
 
         @Override
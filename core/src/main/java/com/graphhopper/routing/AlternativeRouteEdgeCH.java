@@ -18,12 +18,16 @@
 
 package com.graphhopper.routing;
 
+import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.IntIndexedContainer;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import com.carrotsearch.hppc.predicates.IntObjectPredicate;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.DistanceCalcEarth;
+import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.PMap;
 
@@ -46,6 +50,8 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
     private final double localOptimalityFactor;
     private final int maxPaths;
     private final List<AlternativeInfo> alternatives = new ArrayList<>();
+    // the nodes of all alternatives found so far
+    private final IntHashSet nodesInAlternatives = new IntHashSet();
     private int extraVisitedNodes = 0;
 
     public AlternativeRouteEdgeCH(RoutingCHGraph graph, PMap hints) {
@@ -80,9 +86,13 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
             return Collections.emptyList();
         }
 
-        alternatives.add(new AlternativeInfo(bestPath, 0));
+        addAlternative(new AlternativeInfo(bestPath, 0));
 
-        final ArrayList<PotentialAlternativeInfo> potentialAlternativeInfos = new ArrayList<>();
+        final List<PotentialAlternativeInfo> potentialAlternativeInfos = new ArrayList<>();
+
+        final IntHashSet bestPathEdgeKeys = new IntHashSet(bestPath.getEdgeCount());
+        for (EdgeIteratorState edge : bestPath.calcEdges())
+            bestPathEdgeKeys.add(edge.getEdgeKey());
 
         final Map<Integer, SPTEntry> bestWeightMapByNode = new HashMap<>();
         bestWeightMapTo.forEach((IntObjectPredicate<SPTEntry>) (key, value) -> {
@@ -98,36 +108,70 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
             if (fromSPTEntry.getWeightOfVisitedPath() + toSPTEntry.getWeightOfVisitedPath() > bestPath.getWeight() * maxWeightFactor)
                 return true;
 
-            // This gives us a path s -> v -> t, but since we are using contraction hierarchies,
-            // s -> v and v -> t need not be shortest paths. In fact, they can sometimes be pretty strange.
-            // We still use this preliminary path to filter for shared path length with other alternatives,
-            // so we don't have to work so much.
-            Path preliminaryRoute = createPathExtractor().extract(fromSPTEntry, toSPTEntry, fromSPTEntry.getWeightOfVisitedPath() + toSPTEntry.getWeightOfVisitedPath());
-            double preliminaryShare = calculateShare(preliminaryRoute);
-            if (preliminaryShare > maxShareFactor) {
-                return true;
-            }
             assert fromSPTEntry.adjNode == toSPTEntry.adjNode;
+            int v = fromSPTEntry.adjNode;
+            int edgeIn = getIncomingEdge(fromSPTEntry);
+            // the shortest s -> u -> v -> t path is the best path itself if the best path enters v via u
+            if (EdgeIterator.Edge.isValid(edgeIn) && bestPathEdgeKeys.contains(graph.getBaseGraph().getEdgeIteratorState(edgeIn, v).getEdgeKey()))
+                return true;
+
+            // the beeline distances are lower bounds of the road distances, so we can skip the candidates that
+            // cannot pass the detour test without running any query
+            if (exceedsDetourBound(beelineDistance(s, v) + beelineDistance(v, t), 0, bestPath.getDistance()))
+                return true;
+
             PotentialAlternativeInfo potentialAlternativeInfo = new PotentialAlternativeInfo();
-            potentialAlternativeInfo.v = fromSPTEntry.adjNode;
-            potentialAlternativeInfo.edgeIn = getIncomingEdge(fromSPTEntry);
-            potentialAlternativeInfo.weight = 2 * (fromSPTEntry.getWeightOfVisitedPath() + toSPTEntry.getWeightOfVisitedPath()) + preliminaryShare;
+            potentialAlternativeInfo.v = v;
+            potentialAlternativeInfo.edgeIn = edgeIn;
+            potentialAlternativeInfo.fromSPTEntry = fromSPTEntry;
+            potentialAlternativeInfo.toSPTEntry = toSPTEntry;
+            potentialAlternativeInfo.index = potentialAlternativeInfos.size();
+            // the preliminary share is added later, it is between 0 and 1 so this is a lower bound of the final weight
+            potentialAlternativeInfo.weight = 2 * (fromSPTEntry.getWeightOfVisitedPath() + toSPTEntry.getWeightOfVisitedPath());
             potentialAlternativeInfos.add(potentialAlternativeInfo);
             return true;
         });
 
-        potentialAlternativeInfos.sort(Comparator.comparingDouble(o -> o.weight));
-
-        for (PotentialAlternativeInfo potentialAlternativeInfo : potentialAlternativeInfos) {
+        // Usually we find enough alternatives among the first candidates. So instead of unpacking the preliminary
+        // paths of all candidates we poll them using the lower bound of their weight and unpack only the polled ones.
+        // The candidates are still processed in the order of their final weight.
+        PriorityQueue<PotentialAlternativeInfo> queue = createQueue(potentialAlternativeInfos);
+        while (!queue.isEmpty()) {
+            PotentialAlternativeInfo potentialAlternativeInfo = queue.poll();
+            if (potentialAlternativeInfo.fromSPTEntry != null) {
+                // This gives us a path s -> v -> t, but since we are using contraction hierarchies,
+                // s -> v and v -> t need not be shortest paths. In fact, they can sometimes be pretty strange.
+                // We still use this preliminary path to filter for shared path length with other alternatives,
+                // so we don't have to work so much.
+                SPTEntry fromSPTEntry = potentialAlternativeInfo.fromSPTEntry;
+                SPTEntry toSPTEntry = potentialAlternativeInfo.toSPTEntry;
+                potentialAlternativeInfo.fromSPTEntry = null;
+                potentialAlternativeInfo.toSPTEntry = null;
+                Path preliminaryRoute = createPathExtractor().extract(fromSPTEntry, toSPTEntry, fromSPTEntry.getWeightOfVisitedPath() + toSPTEntry.getWeightOfVisitedPath());
+                // at this point we must only compare with the best path, no matter how many alternatives we found already
+                double preliminaryShare = sharedDistanceWithShortest(preliminaryRoute.calcEdges()) / preliminaryRoute.getDistance();
+                if (preliminaryShare > maxShareFactor)
+                    continue;
+                potentialAlternativeInfo.weight += preliminaryShare;
+                queue.add(potentialAlternativeInfo);
+                continue;
+            }
             int v = potentialAlternativeInfo.v;
             int tailSv = potentialAlternativeInfo.edgeIn;
 
             // Okay, now we want the s -> v -> t shortest via-path, so we route s -> v and v -> t
-            // and glue them together.
+            // and glue them together. The routers are not pooled: they can be used only once and their maps
+            // only grow with the few nodes a CH query visits.
             DijkstraBidirectionEdgeCHNoSOD svRouter = new DijkstraBidirectionEdgeCHNoSOD(graph);
             final Path suvPath = svRouter.calcPath(s, v, ANY_EDGE, tailSv);
             extraVisitedNodes += svRouter.getVisitedNodes();
 
+            // the edges are needed for all the following checks, so we calculate them only once
+            List<EdgeIteratorState> edges = suvPath.calcEdges();
+            // with the exact s -> u -> v part we can often skip the u -> v -> t query
+            if (exceedsDetourBound(suvPath.getDistance() + beelineDistance(v, t), sharedDistanceWithShortest(edges), bestPath.getDistance()))
+                continue;
+
             int u = graph.getBaseGraph().getEdgeIteratorState(tailSv, v).getBaseNode();
 
             DijkstraBidirectionEdgeCHNoSOD vtRouter = new DijkstraBidirectionEdgeCHNoSOD(graph);
@@ -139,15 +183,17 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
                 continue;
             Path path = concat(graph.getBaseGraph(), graph.getBaseGraph().wrapWeighting(graph.getWeighting()), suvPath, uvtPath);
             extraVisitedNodes += vtRouter.getVisitedNodes();
-
-            double sharedDistanceWithShortest = sharedDistanceWithShortest(path);
+            // the u-v edge is already the last edge of the s -> u -> v path
+            List<EdgeIteratorState> uvtEdges = uvtPath.calcEdges();
+            edges.addAll(uvtEdges.subList(1, uvtEdges.size()));
+            double sharedDistanceWithShortest = sharedDistanceWithShortest(edges);
             double detourLength = path.getDistance() - sharedDistanceWithShortest;
             double directLength = bestPath.getDistance() - sharedDistanceWithShortest;
             if (detourLength > directLength * maxWeightFactor) {
                 continue;
             }
 
-            double share = calculateShare(path);
+            double share = sharedDistance(edges) / path.getDistance();
             if (share > maxShareFactor) {
                 continue;
             }
@@ -155,74 +201,80 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
             // This is the final test we need: Discard paths that are not "locally shortest" around v.
             // So move a couple of nodes to the left and right from v on our path,
             // route, and check if v is on the shortest path.
-            final IntIndexedContainer svNodes = suvPath.calcNodes();
-            int vIndex = svNodes.size() - 1;
-            if (!tTest(path, vIndex))
+            int vIndex = suvPath.getEdgeCount();
+            if (!tTest(path, edges, vIndex, detourLength))
                 continue;
 
-            alternatives.add(new AlternativeInfo(path, share));
+            addAlternative(new AlternativeInfo(path, share));
             if (alternatives.size() >= maxPaths)
                 break;
         }
         return alternatives;
     }
 
-    private double calculateShare(final Path path) {
-        double sharedDistance = sharedDistance(path);
-        return sharedDistance / path.getDistance();
+    private static PriorityQueue<PotentialAlternativeInfo> createQueue(List<PotentialAlternativeInfo> potentialAlternativeInfos) {
+        // for equal weights we keep the order in which the candidates were found
+        PriorityQueue<PotentialAlternativeInfo> queue = new PriorityQueue<>(Math.max(1, potentialAlternativeInfos.size()),
+                Comparator.<PotentialAlternativeInfo>comparingDouble(o -> o.weight).thenComparingInt(o -> o.index));
+        queue.addAll(potentialAlternativeInfos);
+        return queue;
     }
 
-    private double sharedDistance(Path path) {
+    private void addAlternative(AlternativeInfo alternativeInfo) {
+        alternatives.add(alternativeInfo);
+        nodesInAlternatives.addAll(alternativeInfo.nodes);
+    }
+
+    /**
+     * The detour test rejects a path if its detour is longer than maxWeightFactor times the direct part of the best
+     * path, i.e. if distance + (maxWeightFactor - 1) * sharedDistanceWithShortest > maxWeightFactor * bestDistance.
+     * The left side does not decrease with the distance and the shared distance, so lower bounds of both are enough
+     * to reject a path early.
+     */
+    private boolean exceedsDetourBound(double distanceLowerBound, double sharedDistanceLowerBound, double bestDistance) {
+        return maxWeightFactor >= 1 && distanceLowerBound + (maxWeightFactor - 1) * sharedDistanceLowerBound > maxWeightFactor * bestDistance;
+    }
+
+    private double beelineDistance(int a, int b) {
+        NodeAccess na = graph.getBaseGraph().getNodeAccess();
+        return DistanceCalcEarth.DIST_EARTH.calcDist(na.getLat(a), na.getLon(a), na.getLat(b), na.getLon(b));
+    }
+
+    private double sharedDistance(List<EdgeIteratorState> edges) {
         double sharedDistance = 0.0;
-        List<EdgeIteratorState> edges = path.calcEdges();
         for (EdgeIteratorState edge : edges) {
-            if (nodesInCurrentAlternativeSetContains(edge.getBaseNode()) && nodesInCurrentAlternativeSetContains(edge.getAdjNode())) {
+            if (nodesInAlternatives.contains(edge.getBaseNode()) && nodesInAlternatives.contains(edge.getAdjNode())) {
                 sharedDistance += edge.getDistance();
             }
         }
         return sharedDistance;
     }
 
-    private double sharedDistanceWithShortest(Path path) {
+    private double sharedDistanceWithShortest(List<EdgeIteratorState> edges) {
         double sharedDistance = 0.0;
-        List<EdgeIteratorState> edges = path.calcEdges();
+        IntHashSet nodes = alternatives.get(0).nodes;
         for (EdgeIteratorState edge : edges) {
-            if (alternatives.get(0).nodes.contains(edge.getBaseNode()) && alternatives.get(0).nodes.contains(edge.getAdjNode())) {
+            if (nodes.contains(edge.getBaseNode()) && nodes.contains(edge.getAdjNode())) {
                 sharedDistance += edge.getDistance();
             }
         }
         return sharedDistance;
     }
 
-    private boolean nodesInCurrentAlternativeSetContains(int v) {
-        for (AlternativeInfo alternative : alternatives) {
-            if (alternative.nodes.contains(v)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private boolean tTest(Path path, int vIndex) {
+    private boolean tTest(Path path, List<EdgeIteratorState> edges, int vIndex, double detourDistance) {
         if (path.getEdgeCount() == 0) return true;
-        double detourDistance = detourDistance(path);
         double T = 0.5 * localOptimalityFactor * detourDistance;
-        EdgeIteratorState fromNode = getPreviousNodeTMetersAway(path, vIndex, T);
-        EdgeIteratorState toNode = getNextNodeTMetersAway(path, vIndex, T);
+        EdgeIteratorState fromNode = getPreviousNodeTMetersAway(edges, vIndex, T);
+        EdgeIteratorState toNode = getNextNodeTMetersAway(edges, vIndex, T);
         DijkstraBidirectionEdgeCHNoSOD tRouter = new DijkstraBidirectionEdgeCHNoSOD(graph);
         Path tPath = tRouter.calcPath(fromNode.getBaseNode(), toNode.getAdjNode(), fromNode.getEdge(), toNode.getEdge());
         extraVisitedNodes += tRouter.getVisitedNodes();
         IntIndexedContainer tNodes = tPath.calcNodes();
-        int v = path.calcNodes().get(vIndex);
+        int v = vIndex == 0 ? path.getFromNode() : edges.get(vIndex - 1).getAdjNode();
         return tNodes.contains(v);
     }
 
-    private double detourDistance(Path path) {
-        return path.getDistance() - sharedDistanceWithShortest(path);
-    }
-
-    private EdgeIteratorState getPreviousNodeTMetersAway(Path path, int vIndex, double T) {
-        List<EdgeIteratorState> edges = path.calcEdges();
+    private EdgeIteratorState getPreviousNodeTMetersAway(List<EdgeIteratorState> edges, int vIndex, double T) {
         double distance = 0.0;
         int i = vIndex;
         while (i > 0 && distance < T) {
@@ -232,8 +284,7 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
         return edges.get(i);
     }
 
-    private EdgeIteratorState getNextNodeTMetersAway(Path path, int vIndex, double T) {
-        List<EdgeIteratorState> edges = path.calcEdges();
+    private EdgeIteratorState getNextNodeTMetersAway(List<EdgeIteratorState> edges, int vIndex, double T) {
         double distance = 0.0;
         int i = vIndex;
         while (i < edges.size() - 1 && distance < T) {
@@ -280,6 +331,10 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
         public int v;
         public int edgeIn;
         double weight;
+        int index;
+        // not null as long as the preliminary path was not checked
+        SPTEntry fromSPTEntry;
+        SPTEntry toSPTEntry;
 
         @Override
         public String toString() {
@@ -290,12 +345,12 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
     public static class AlternativeInfo {
         final double shareWeight;
         final Path path;
-        final IntIndexedContainer nodes;
+        final IntHashSet nodes;
 
         AlternativeInfo(Path path, double shareWeight) {
             this.path = path;
             this.shareWeight = shareWeight;
-            this.nodes = path.calcNodes();
+            this.nodes = new IntHashSet(path.calcNodes());
         }
 
         @Override
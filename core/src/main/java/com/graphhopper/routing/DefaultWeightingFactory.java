@@ -29,12 +29,15 @@ import com.graphhopper.routing.weighting.TurnCostProvider;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.routing.weighting.custom.CustomModelParser;
 import com.graphhopper.routing.weighting.custom.CustomWeighting;
+import com.graphhopper.routing.weighting.custom.TemporalAccessSchedules;
 import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.util.CustomModel;
 import com.graphhopper.util.PMap;
 import com.graphhopper.util.Parameters;
 import com.graphhopper.util.TurnCostsConfig;
 
+import java.time.LocalDate;
+
 import static com.graphhopper.routing.weighting.TurnCostProvider.NO_TURN_COST_PROVIDER;
 import static com.graphhopper.util.Helper.toLowerCase;
 
@@ -42,10 +45,21 @@ public class DefaultWeightingFactory implements WeightingFactory {
 
     private final BaseGraph graph;
     private final EncodingManager encodingManager;
+    private final TemporalAccessSchedules temporalAccessSchedules;
 
     public DefaultWeightingFactory(BaseGraph graph, EncodingManager encodingManager) {
+        this(graph, encodingManager, null);
+    }
+
+    /**
+     * @param temporalAccessSchedules the conditional access restrictions that are evaluated for the departure time
+     *                                of a request or null if requests with a departure time are not supported. This
+     *                                should be created only once per graph as the restrictions have to be parsed.
+     */
+    public DefaultWeightingFactory(BaseGraph graph, EncodingManager encodingManager, TemporalAccessSchedules temporalAccessSchedules) {
         this.graph = graph;
         this.encodingManager = encodingManager;
+        this.temporalAccessSchedules = temporalAccessSchedules;
     }
 
     @Override
@@ -82,12 +96,13 @@ public class DefaultWeightingFactory implements WeightingFactory {
             final CustomModel mergedCustomModel = CustomModel.merge(profile.getCustomModel(), queryCustomModel);
             if (requestHints.has(Parameters.Routing.HEADING_PENALTY))
                 mergedCustomModel.setHeadingPenalty(requestHints.getDouble(Parameters.Routing.HEADING_PENALTY, Parameters.Routing.DEFAULT_HEADING_PENALTY));
+            TemporalAccessSchedules.DayAccess temporalAccess = getTemporalAccess(requestHints);
             if (hints.has("cm_version")) {
                 if (!hints.getString("cm_version", "").equals("2"))
                     throw new IllegalArgumentException("cm_version: \"2\" is required");
-                weighting = CustomModelParser.createWeighting2(encodingManager, turnCostProvider, mergedCustomModel);
+                weighting = CustomModelParser.createWeighting2(encodingManager, turnCostProvider, mergedCustomModel, temporalAccess);
             } else
-                weighting = CustomModelParser.createWeighting(encodingManager, turnCostProvider, mergedCustomModel);
+                weighting = CustomModelParser.createWeighting(encodingManager, turnCostProvider, mergedCustomModel, temporalAccess);
 
         } else if ("shortest".equalsIgnoreCase(weightingStr)) {
             throw new IllegalArgumentException("Instead of weighting=shortest use weighting=custom with a high distance_influence");
@@ -106,4 +121,15 @@ public class DefaultWeightingFactory implements WeightingFactory {
         return weighting;
     }
 
+    private TemporalAccessSchedules.DayAccess getTemporalAccess(PMap requestHints) {
+        // PMap might have converted the value into a number
+        Object departureTime = requestHints.getObject(Parameters.Routing.DEPARTURE_TIME, null);
+        if (departureTime == null)
+            return null;
+        if (temporalAccessSchedules == null || temporalAccessSchedules.isEmpty())
+            throw new IllegalArgumentException("The parameter " + Parameters.Routing.DEPARTURE_TIME + " requires conditional "
+                    + "access restrictions in the graph, e.g. add car_temporal_access_schedule to graph.encoded_values");
+        LocalDate day = TemporalAccessSchedules.parseDay(departureTime.toString());
+        return temporalAccessSchedules.evaluate(day);
+    }
 }
@@ -37,6 +37,8 @@ public class FlexiblePathCalculator implements PathCalculator {
     private final AlgorithmOptions algoOpts;
     private String debug;
     private int visitedNodes;
+    private int approximationUpdates;
+    private double lowerBoundRatio = -1;
 
     public FlexiblePathCalculator(QueryGraph queryGraph, RoutingAlgorithmFactory algoFactory, Weighting weighting, AlgorithmOptions algoOpts) {
         this.queryGraph = queryGraph;
@@ -87,6 +89,13 @@ public class FlexiblePathCalculator implements PathCalculator {
         if (algo.getVisitedNodes() >= algoOpts.getMaxVisitedNodes())
             throw new MaximumNodesExceededException("No path found due to maximum nodes exceeded " + algoOpts.getMaxVisitedNodes(), algoOpts.getMaxVisitedNodes());
         visitedNodes = algo.getVisitedNodes();
+        if (algo instanceof AStarBidirection) {
+            approximationUpdates = ((AStarBidirection) algo).getApproximationUpdates();
+            lowerBoundRatio = ((AStarBidirection) algo).getLowerBoundRatio();
+        } else {
+            approximationUpdates = 0;
+            lowerBoundRatio = -1;
+        }
         debug += ", " + algo.getName() + "-routing:" + sw.stop().getMillis() + " ms";
         return paths;
     }
@@ -101,6 +110,16 @@ public class FlexiblePathCalculator implements PathCalculator {
         return visitedNodes;
     }
 
+    @Override
+    public int getApproximationUpdates() {
+        return approximationUpdates;
+    }
+
+    @Override
+    public double getLowerBoundRatio() {
+        return lowerBoundRatio;
+    }
+
     public Weighting getWeighting() {
         return weighting;
     }
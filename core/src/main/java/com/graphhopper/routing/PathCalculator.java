@@ -30,4 +30,19 @@ public interface PathCalculator {
 
     int getVisitedNodes();
 
+    /**
+     * @return how often the weight approximation of the last calculation changed during the search
+     */
+    default int getApproximationUpdates() {
+        return 0;
+    }
+
+    /**
+     * @return how tight the weight approximation of the last calculation was, see
+     * {@link AStarBidirection#getLowerBoundRatio()}, or -1 if the algorithm does not approximate weights
+     */
+    default double getLowerBoundRatio() {
+        return -1;
+    }
+
 }
@@ -263,16 +263,46 @@ public class Router {
 
         // each path represents a different alternative and we do the path merging for each of them
         PathMerger pathMerger = createPathMerger(request, solver.weighting, queryGraph);
-        for (Path path : result.paths) {
+        Set<Integer> detailedPaths = getDetailedPaths(request.getHints());
+        for (int i = 0; i < result.paths.size(); i++) {
             PointList waypoints = getWaypoints(snaps);
-            ResponsePath responsePath = pathMerger.doWork(waypoints, Collections.singletonList(path), encodingManager, translationMap.getWithFallBack(request.getLocale()));
-            ghRsp.add(responsePath);
+            Translation tr = translationMap.getWithFallBack(request.getLocale());
+            List<Path> paths = Collections.singletonList(result.paths.get(i));
+            if (detailedPaths == null) {
+                ghRsp.add(pathMerger.doWork(waypoints, paths, encodingManager, tr));
+            } else {
+                ResponsePath responsePath = pathMerger.doWorkLazily(waypoints, paths, encodingManager, tr);
+                ghRsp.add(responsePath.setSummaryOnly(!detailedPaths.contains(i)));
+            }
         }
         ghRsp.getHints().putObject("visited_nodes.sum", result.visitedNodes);
         ghRsp.getHints().putObject("visited_nodes.average", (float) result.visitedNodes / (snaps.size() - 1));
         return ghRsp;
     }
 
+    /**
+     * @return the indices of the alternatives that should be returned with all details or null if this was not
+     * specified, i.e. all alternatives should be returned with all details
+     */
+    private static Set<Integer> getDetailedPaths(PMap hints) {
+        // a single index is converted to a number when the hints are parsed
+        Object value = hints.getObject(Parameters.Algorithms.AltRoute.DETAILED_PATHS, null);
+        if (value == null)
+            return null;
+        String str = value.toString().trim();
+        Set<Integer> detailedPaths = new HashSet<>();
+        if (str.isEmpty())
+            return detailedPaths;
+        for (String index : str.split(",")) {
+            try {
+                detailedPaths.add(Integer.parseInt(index.trim()));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException(Parameters.Algorithms.AltRoute.DETAILED_PATHS + " must be a comma separated list of path indices, but was: " + str);
+            }
+        }
+        return detailedPaths;
+    }
+
     protected GHResponse routeVia(GHRequest request, Solver solver) {
         GHResponse ghRsp = new GHResponse();
         StopWatch sw = new StopWatch().start();
@@ -298,6 +328,11 @@ public class Router {
         ghRsp.add(responsePath);
         ghRsp.getHints().putObject("visited_nodes.sum", result.visitedNodes);
         ghRsp.getHints().putObject("visited_nodes.average", (float) result.visitedNodes / (snaps.size() - 1));
+        if (result.lowerBoundRatioCount > 0) {
+            // how tight the lower bounds of the weight approximation (e.g. landmarks) were, 1 is perfect
+            ghRsp.getHints().putObject("approximation.lower_bound_ratio", (float) (result.lowerBoundRatioSum / result.lowerBoundRatioCount));
+            ghRsp.getHints().putObject("approximation.updates", result.approximationUpdates);
+        }
         return ghRsp;
     }
 
@@ -465,6 +500,9 @@ public class Router {
             if (request.getCustomModel() != null)
                 throw new IllegalArgumentException("The 'custom_model' parameter is currently not supported for speed mode, you need to disable speed mode with `ch.disable=true`.");
 
+            if (request.getHints().has(Parameters.Routing.DEPARTURE_TIME))
+                throw new IllegalArgumentException("The '" + Parameters.Routing.DEPARTURE_TIME + "' parameter is currently not supported for speed mode, you need to disable speed mode with `ch.disable=true`.");
+
             if (ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm()))
                 throw new IllegalArgumentException("algorithm=round_trip cannot be used with CH");
         }
@@ -589,6 +627,9 @@ public class Router {
                         "\navailable LM profiles: " + landmarks.keySet());
             if (request.getCustomModel() != null)
                 FindMinMax.checkLMConstraints(profile.getCustomModel(), request.getCustomModel(), lookup);
+            // the conditional restrictions could open roads that were closed during the preparation
+            if (request.getHints().has(Parameters.Routing.DEPARTURE_TIME))
+                throw new IllegalArgumentException("The '" + Parameters.Routing.DEPARTURE_TIME + "' parameter is currently not supported for LM, you need to disable LM with `" + Parameters.Landmark.DISABLE + "=true`.");
             RoutingAlgorithmFactory routingAlgorithmFactory = new LMRoutingAlgorithmFactory(landmarkStorage).setDefaultActiveLandmarks(routerConfig.getActiveLandmarkCount());
             return new FlexiblePathCalculator(queryGraph, routingAlgorithmFactory, weighting, getAlgoOpts());
         }
@@ -153,6 +153,11 @@ public class ViaRouting {
             }
 
             result.visitedNodes += pathCalculator.getVisitedNodes();
+            result.approximationUpdates += pathCalculator.getApproximationUpdates();
+            if (pathCalculator.getLowerBoundRatio() >= 0) {
+                result.lowerBoundRatioSum += pathCalculator.getLowerBoundRatio();
+                result.lowerBoundRatioCount++;
+            }
             result.debug += ", visited nodes sum: " + result.visitedNodes;
         }
 
@@ -162,6 +167,10 @@ public class ViaRouting {
     public static class Result {
         public List<Path> paths;
         public long visitedNodes;
+        public int approximationUpdates;
+        // the sum of the lower bound ratios of the legs for which the algorithm approximated the weight
+        public double lowerBoundRatioSum;
+        public int lowerBoundRatioCount;
         public String debug = "";
 
         Result(int legs) {
@@ -1,5 +1,6 @@
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.graphhopper.storage.RoutingCHEdgeIteratorState;
 import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.util.EdgeIteratorState;
@@ -12,21 +13,30 @@ import static com.graphhopper.util.EdgeIterator.NO_EDGE;
 /**
  * Recursively unpack shortcuts.
  * <p>
+ * If the graph has a {@link ShortcutUnpackingCache} the original edges of a shortcut are first collected and stored
+ * in the cache, so that the next time the same shortcut is unpacked they can be visited without the recursion.
+ * Shortcuts that turn out to be too small for the cache are marked and from then on unpacked recursively.
  *
  * @author Peter Karich
  * @author easbar
  * @see PrepareContractionHierarchies
  */
 public class ShortcutUnpacker {
+    private static final int UNKNOWN_EDGE = Integer.MIN_VALUE;
     private final RoutingCHGraph graph;
     private final Visitor visitor;
     private final boolean edgeBased;
+    private final ShortcutUnpackingCache cache;
+    // the edge keys of the collected original edges and for edge-based CH their prevOrNextEdgeIds
+    private final IntArrayList collected = new IntArrayList();
+    private boolean collecting;
     private boolean reverseOrder;
 
     public ShortcutUnpacker(RoutingCHGraph graph, Visitor visitor, boolean edgeBased) {
         this.graph = graph;
         this.visitor = visitor;
         this.edgeBased = edgeBased;
+        this.cache = graph.getShortcutUnpackingCache();
     }
 
     /**
@@ -49,12 +59,64 @@ public class ShortcutUnpacker {
         if (edge == null) {
             throw new IllegalArgumentException("Edge with id: " + edgeId + " does not exist or does not touch node " + adjNode);
         }
-        expandEdge(edge, reverse, prevOrNextEdgeId);
+        if (cache == null || !edge.isShortcut() || cache.isSmall(edge.getEdge())) {
+            expandEdge(edge, reverse, prevOrNextEdgeId);
+            return;
+        }
+        long key = ShortcutUnpackingCache.createKey(edge.getEdge(), edge.getBaseNode() > edge.getAdjNode(), reverse);
+        int[] values = cache.get(key);
+        if (values != null) {
+            visitCollectedEdges(values, values.length, reverse, prevOrNextEdgeId);
+            return;
+        }
+        collectOriginalEdges(edge, reverse);
+        int edges = edgeBased ? collected.size() / 2 : collected.size();
+        if (edges < cache.getMinEdges()) {
+            cache.setSmall(edge.getEdge());
+            visitCollectedEdges(collected.buffer, collected.size(), reverse, prevOrNextEdgeId);
+        } else {
+            values = collected.toArray();
+            cache.put(key, values, edges);
+            visitCollectedEdges(values, values.length, reverse, prevOrNextEdgeId);
+        }
+    }
+
+    private void collectOriginalEdges(RoutingCHEdgeIteratorState edge, boolean reverse) {
+        boolean tmpReverseOrder = reverseOrder;
+        reverseOrder = false;
+        collected.clear();
+        collecting = true;
+        try {
+            // the prevOrNextEdgeId of the first edge is not known here and is replaced when visiting the edges
+            expandEdge(edge, reverse, UNKNOWN_EDGE);
+        } finally {
+            collecting = false;
+            reverseOrder = tmpReverseOrder;
+        }
+    }
+
+    private void visitCollectedEdges(int[] values, int length, boolean reverse, int prevOrNextEdgeId) {
+        int step = edgeBased ? 2 : 1;
+        // the edges are collected in forward order, so for the reverse order we just iterate backwards
+        int start = reverseOrder ? length - step : 0;
+        int end = reverseOrder ? -step : length;
+        for (int i = start; i != end; i += reverseOrder ? -step : step) {
+            int prevOrNext = edgeBased ? values[i + 1] : NO_EDGE;
+            visitor.visit(graph.getBaseGraph().getEdgeIteratorStateForKey(values[i]), reverse,
+                    prevOrNext == UNKNOWN_EDGE ? prevOrNextEdgeId : prevOrNext);
+        }
     }
 
     private void expandEdge(RoutingCHEdgeIteratorState edge, boolean reverse, int prevOrNextEdgeId) {
         if (!edge.isShortcut()) {
-            visitor.visit(graph.getBaseGraph().getEdgeIteratorState(edge.getOrigEdge(), edge.getAdjNode()), reverse, prevOrNextEdgeId);
+            EdgeIteratorState origEdge = graph.getBaseGraph().getEdgeIteratorState(edge.getOrigEdge(), edge.getAdjNode());
+            if (collecting) {
+                collected.add(origEdge.getEdgeKey());
+                if (edgeBased)
+                    collected.add(prevOrNextEdgeId);
+            } else {
+                visitor.visit(origEdge, reverse, prevOrNextEdgeId);
+            }
             return;
         }
         if (edgeBased) {
@@ -0,0 +1,169 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.util.Helper;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache for the original edges of shortcuts that are unpacked very often, like the shortcuts between the
+ * highest level nodes of long routes. It is shared by all threads routing on the same CH graph. Every slot holds at
+ * most one entry and a new entry replaces the entry in its slot, so reads and writes are lock-free. Only shortcuts
+ * that consist of at least minEdges original edges are cached. The shortcuts with fewer original edges are marked
+ * with one bit per edge of the CH graph once they were unpacked, so they are not looked up again.
+ *
+ * @see ShortcutUnpacker
+ */
+public class ShortcutUnpackingCache {
+    // the estimated memory usage of an entry without the int values
+    private static final int ENTRY_BYTES = 48;
+    private final AtomicReferenceArray<Entry> entries;
+    private final long maxBytes;
+    private final int minEdges;
+    // the shortcuts with less than minEdges original edges
+    private final AtomicLongArray smallShortcuts;
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param sizeMB   the maximum memory used for the cached edges
+     * @param minEdges shortcuts with fewer original edges are not cached
+     * @param edges    the number of edges and shortcuts of the CH graph
+     */
+    public ShortcutUnpackingCache(int sizeMB, int minEdges, int edges) {
+        if (sizeMB <= 0)
+            throw new IllegalArgumentException("Size of the shortcut unpacking cache must be positive but was " + sizeMB + "MB");
+        if (minEdges < 1)
+            throw new IllegalArgumentException("Minimum number of edges must be positive but was " + minEdges);
+        this.maxBytes = (long) sizeMB << 20;
+        this.minEdges = minEdges;
+        this.smallShortcuts = new AtomicLongArray((edges + 63) >>> 6);
+        // there should be enough slots for the case that all entries have the minimum size
+        entries = new AtomicReferenceArray<>((int) Math.max(1, Math.min(Integer.MAX_VALUE - 8, maxBytes / (ENTRY_BYTES + 4L * minEdges))));
+    }
+
+    /**
+     * @return the key for the given shortcut in the given direction
+     */
+    public static long createKey(int shortcut, boolean reverseDirection, boolean reverse) {
+        return ((long) shortcut << 2) | (reverseDirection ? 2 : 0) | (reverse ? 1 : 0);
+    }
+
+    /**
+     * @return true if the given shortcut was marked as having less than minEdges original edges
+     */
+    public boolean isSmall(int shortcut) {
+        int word = shortcut >>> 6;
+        return word < smallShortcuts.length() && (smallShortcuts.get(word) & (1L << shortcut)) != 0;
+    }
+
+    /**
+     * Marks the given shortcut as having less than minEdges original edges
+     */
+    public void setSmall(int shortcut) {
+        int word = shortcut >>> 6;
+        if (word < smallShortcuts.length()) {
+            long mask = 1L << shortcut;
+            smallShortcuts.getAndUpdate(word, current -> current | mask);
+        }
+    }
+
+    /**
+     * @return the previously stored values for the specified key or null if there are none. Only a hit is counted
+     * here, because a miss only counts if the shortcut turns out to be big enough, see {@link #put}.
+     */
+    public int[] get(long key) {
+        Entry entry = entries.get(getSlot(key));
+        if (entry != null && entry.key == key) {
+            hits.increment();
+            return entry.values;
+        }
+        return null;
+    }
+
+    /**
+     * Stores the values for the specified key after it was not found by {@link #get} and counts the miss. This does
+     * nothing if there are less than minEdges original edges and only counts the miss if the maximum size of the cache
+     * would be exceeded.
+     */
+    public void put(long key, int[] values, int edges) {
+        if (edges < minEdges)
+            return;
+        misses.increment();
+        int slot = getSlot(key);
+        Entry entry = new Entry(key, values);
+        Entry old = entries.get(slot);
+        long bytesDiff = getBytes(entry) - getBytes(old);
+        if (usedBytes.get() + bytesDiff > maxBytes)
+            return;
+        // if another thread changed this slot in the meantime we keep its entry
+        if (entries.compareAndSet(slot, old, entry))
+            usedBytes.addAndGet(bytesDiff);
+    }
+
+    private int getSlot(long key) {
+        return (int) (((key * 0x9E3779B97F4A7C15L) >>> 1) % entries.length());
+    }
+
+    private static long getBytes(Entry entry) {
+        return entry == null ? 0 : ENTRY_BYTES + 4L * entry.values.length;
+    }
+
+    public int getMinEdges() {
+        return minEdges;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return "hits: " + getHits() + ", misses: " + getMisses() + ", hit rate: " + Helper.round2(getHitRate())
+                + ", used: " + getUsedBytes() / Helper.MB + "MB of " + maxBytes / Helper.MB + "MB";
+    }
+
+    private static class Entry {
+        final long key;
+        final int[] values;
+
+        Entry(long key, int[] values) {
+            this.key = key;
+            this.values = values;
+        }
+    }
+}
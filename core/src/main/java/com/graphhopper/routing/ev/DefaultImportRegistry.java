@@ -247,27 +247,45 @@ public class DefaultImportRegistry implements ImportRegistry {
                     (lookup, props) -> {
                         EnumEncodedValue<FootTemporalAccess> enc = lookup.getEnumEncodedValue(FootTemporalAccess.KEY, FootTemporalAccess.class);
                         OSMTemporalAccessParser.Setter fct = (edgeId, edgeIntAccess, b) -> enc.setEnum(false, edgeId, edgeIntAccess, b ? FootTemporalAccess.YES : FootTemporalAccess.NO);
-                        return new OSMTemporalAccessParser(FootTemporalAccess.CONDITIONALS, fct, props.getString("date_range_parser_day", ""));
+                        String scheduleKey = TemporalAccessSchedule.key(FootTemporalAccess.KEY);
+                        return new OSMTemporalAccessParser(FootTemporalAccess.CONDITIONALS, fct, props.getString("date_range_parser_day", ""),
+                                lookup.hasEncodedValue(scheduleKey) ? lookup.getStringEncodedValue(scheduleKey) : null);
                     }
             );
+        else if (TemporalAccessSchedule.key(FootTemporalAccess.KEY).equals(name))
+            return ImportUnit.create(name, props -> TemporalAccessSchedule.create(FootTemporalAccess.KEY), null,
+                    FootTemporalAccess.KEY
+            );
 
         else if (BikeTemporalAccess.KEY.equals(name))
             return ImportUnit.create(name, props -> BikeTemporalAccess.create(),
                     (lookup, props) -> {
                         EnumEncodedValue<BikeTemporalAccess> enc = lookup.getEnumEncodedValue(BikeTemporalAccess.KEY, BikeTemporalAccess.class);
                         OSMTemporalAccessParser.Setter fct = (edgeId, edgeIntAccess, b) -> enc.setEnum(false, edgeId, edgeIntAccess, b ? BikeTemporalAccess.YES : BikeTemporalAccess.NO);
-                        return new OSMTemporalAccessParser(BikeTemporalAccess.CONDITIONALS, fct, props.getString("date_range_parser_day", ""));
+                        String scheduleKey = TemporalAccessSchedule.key(BikeTemporalAccess.KEY);
+                        return new OSMTemporalAccessParser(BikeTemporalAccess.CONDITIONALS, fct, props.getString("date_range_parser_day", ""),
+                                lookup.hasEncodedValue(scheduleKey) ? lookup.getStringEncodedValue(scheduleKey) : null);
                     }
             );
+        else if (TemporalAccessSchedule.key(BikeTemporalAccess.KEY).equals(name))
+            return ImportUnit.create(name, props -> TemporalAccessSchedule.create(BikeTemporalAccess.KEY), null,
+                    BikeTemporalAccess.KEY
+            );
 
         else if (CarTemporalAccess.KEY.equals(name))
             return ImportUnit.create(name, props -> CarTemporalAccess.create(),
                     (lookup, props) -> {
                         EnumEncodedValue<CarTemporalAccess> enc = lookup.getEnumEncodedValue(CarTemporalAccess.KEY, CarTemporalAccess.class);
                         OSMTemporalAccessParser.Setter fct = (edgeId, edgeIntAccess, b) -> enc.setEnum(false, edgeId, edgeIntAccess, b ? CarTemporalAccess.YES : CarTemporalAccess.NO);
-                        return new OSMTemporalAccessParser(CarTemporalAccess.CONDITIONALS, fct, props.getString("date_range_parser_day", ""));
+                        String scheduleKey = TemporalAccessSchedule.key(CarTemporalAccess.KEY);
+                        return new OSMTemporalAccessParser(CarTemporalAccess.CONDITIONALS, fct, props.getString("date_range_parser_day", ""),
+                                lookup.hasEncodedValue(scheduleKey) ? lookup.getStringEncodedValue(scheduleKey) : null);
                     }
             );
+        else if (TemporalAccessSchedule.key(CarTemporalAccess.KEY).equals(name))
+            return ImportUnit.create(name, props -> TemporalAccessSchedule.create(CarTemporalAccess.KEY), null,
+                    CarTemporalAccess.KEY
+            );
 
         else if (VehicleAccess.key("car").equals(name))
             return ImportUnit.create(name, props -> VehicleAccess.create("car"),
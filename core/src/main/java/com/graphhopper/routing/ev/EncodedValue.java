@@ -68,6 +68,14 @@ public interface EncodedValue {
             nextShift = shift + usedBits;
         }
 
+        /**
+         * Makes sure that the next encoded value starts at a new int, i.e. it does not share an int with the encoded
+         * values before.
+         */
+        public void alignToNextInt() {
+            nextShift = 32;
+        }
+
         private int getRequiredBits() {
             return (dataIndex) * 32 + nextShift;
         }
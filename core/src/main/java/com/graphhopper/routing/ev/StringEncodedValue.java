@@ -114,6 +114,13 @@ public final class StringEncodedValue extends IntEncodedValueImpl {
         return indexMap.getOrDefault(value, 0);
     }
 
+    /**
+     * @return the maximum number of distinct values that can be stored
+     */
+    public int getMaxValues() {
+        return maxValues;
+    }
+
     /**
      * @return an unmodifiable List of the current values
      */
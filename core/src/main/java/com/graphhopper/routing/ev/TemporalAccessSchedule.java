@@ -0,0 +1,42 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ev;
+
+/**
+ * Stores the conditional access restrictions from which the XYTemporalAccess encoded values are calculated, e.g.
+ * "no@Jan15-Aug15" for car_temporal_access. Every distinct restriction is stored only once and the edges store its
+ * index. While car_temporal_access is calculated for a fixed date during the import, the restriction stored in
+ * car_temporal_access_schedule can be evaluated for the departure time of a request.
+ */
+public class TemporalAccessSchedule {
+
+    public static String key(String temporalAccessKey) {
+        return temporalAccessKey + "_schedule";
+    }
+
+    /**
+     * @return true if the specified key belongs to an XYTemporalAccess encoded value, which can have a schedule
+     */
+    public static boolean isTemporalAccess(String key) {
+        return key.endsWith("_temporal_access");
+    }
+
+    public static StringEncodedValue create(String temporalAccessKey) {
+        return new StringEncodedValue(key(temporalAccessKey), 1023);
+    }
+}
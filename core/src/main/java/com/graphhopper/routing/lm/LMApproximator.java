@@ -23,6 +23,7 @@ import com.graphhopper.routing.weighting.BeelineWeightApproximator;
 import com.graphhopper.routing.weighting.WeightApproximator;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
+import com.graphhopper.util.exceptions.ConnectionNotFoundException;
 
 import java.util.Arrays;
 
@@ -109,10 +110,7 @@ public class LMApproximator implements WeightApproximator {
         if (recalculateActiveLandmarks) {
             recalculateActiveLandmarks = false;
             if (lms.chooseActiveLandmarks(v, towerNodeNextToT, activeLandmarkIndices, reverse)) {
-                for (int i = 0; i < activeLandmarkIndices.length; i++) {
-                    weightsFromActiveLandmarksToT[i] = lms.getFromWeight(activeLandmarkIndices[i], towerNodeNextToT);
-                    weightsFromTToActiveLandmarks[i] = lms.getToWeight(activeLandmarkIndices[i], towerNodeNextToT);
-                }
+                initWeightsToT();
             } else {
                 // note: fallback==true means forever true!
                 fallback = true;
@@ -126,6 +124,45 @@ public class LMApproximator implements WeightApproximator {
         return Math.max(lmApproximation, beelineApproximation.approximate(v));
     }
 
+    /**
+     * Chooses the active landmarks again for the given node, like it was done for the first node of the search. Note
+     * that at least two of the previous landmarks are kept, see LandmarkStorage.chooseActiveLandmarks.
+     */
+    @Override
+    public boolean update(int v) {
+        if (recalculateActiveLandmarks || fallback || lms.isEmpty() || v >= maxBaseNodes)
+            return false;
+        int[] newActiveLandmarkIndices = activeLandmarkIndices.clone();
+        try {
+            if (!lms.chooseActiveLandmarks(v, towerNodeNextToT, newActiveLandmarkIndices, reverse))
+                return false;
+        } catch (ConnectionNotFoundException ex) {
+            // v can be in another landmark subnetwork than t, e.g. behind the border of a split area
+            return false;
+        }
+        int[] sortedOld = activeLandmarkIndices.clone();
+        int[] sortedNew = newActiveLandmarkIndices.clone();
+        Arrays.sort(sortedOld);
+        Arrays.sort(sortedNew);
+        if (Arrays.equals(sortedOld, sortedNew))
+            return false;
+        System.arraycopy(newActiveLandmarkIndices, 0, activeLandmarkIndices, 0, activeLandmarkIndices.length);
+        initWeightsToT();
+        return true;
+    }
+
+    private void initWeightsToT() {
+        // for compressed weights t and v need to be rounded in opposite directions, see approximateForLandmark
+        for (int i = 0; i < activeLandmarkIndices.length; i++) {
+            weightsFromActiveLandmarksToT[i] = reverse
+                    ? lms.getFromWeightUpperBound(activeLandmarkIndices[i], towerNodeNextToT)
+                    : lms.getFromWeight(activeLandmarkIndices[i], towerNodeNextToT);
+            weightsFromTToActiveLandmarks[i] = reverse
+                    ? lms.getToWeight(activeLandmarkIndices[i], towerNodeNextToT)
+                    : lms.getToWeightUpperBound(activeLandmarkIndices[i], towerNodeNextToT);
+        }
+    }
+
     private double getRemainingWeightUnderestimationUpToTowerNode(int v) {
         int maxWeightInt = 0;
         for (int i = 0; i < activeLandmarkIndices.length; i++) {
@@ -133,7 +170,8 @@ public class LMApproximator implements WeightApproximator {
             maxWeightInt = Math.max(maxWeightInt, resultInt);
         }
         // Round down, we need to be an underestimator.
-        return (maxWeightInt - 1) * factor;
+        // the stored weights can be too small or too big by the weight error
+        return (maxWeightInt - 1 - lms.getUpdateError()) * factor;
     }
 
     private int approximateForLandmark(int i, int v) {
@@ -166,9 +204,15 @@ public class LMApproximator implements WeightApproximator {
         //   IV)  d(v,LM) + d(t,v)  >= d(t,LM), so d(t,v) >= d(t,LM) - d(v,LM)
         //
         // ...and we can get the right-hand sides of III) and IV) by multiplying those of II) and I) by -1.
+        //
+        // Compressed weights are only known within a range, so the minuends have to be rounded down and the subtrahends
+        // up to keep the approximation a lower bound. This is why we read the lower or upper bound depending on the
+        // direction.
 
-        int rhs1Int = lms.getToWeight(activeLandmarkIndices[i], v) - weightsFromTToActiveLandmarks[i];
-        int rhs2Int = weightsFromActiveLandmarksToT[i] - lms.getFromWeight(activeLandmarkIndices[i], v);
+        int rhs1Int = (reverse ? lms.getToWeightUpperBound(activeLandmarkIndices[i], v) : lms.getToWeight(activeLandmarkIndices[i], v))
+                - weightsFromTToActiveLandmarks[i];
+        int rhs2Int = weightsFromActiveLandmarksToT[i]
+                - (reverse ? lms.getFromWeight(activeLandmarkIndices[i], v) : lms.getFromWeightUpperBound(activeLandmarkIndices[i], v));
 
         if (reverse) {
             rhs1Int *= -1;
@@ -209,7 +253,7 @@ public class LMApproximator implements WeightApproximator {
 
     @Override
     public double getSlack() {
-        return lms.getFactor();
+        return lms.getFactor() * lms.getMaxWeightError();
     }
 
     @Override
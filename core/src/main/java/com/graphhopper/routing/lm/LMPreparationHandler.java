@@ -59,6 +59,7 @@ public class LMPreparationHandler {
     private final List<String> lmSuggestionsLocations = new ArrayList<>(5);
     private int preparationThreads;
     private boolean logDetails = false;
+    private boolean compressWeights = false;
     private AreaIndex<SplitArea> areaIndex;
 
     public LMPreparationHandler() {
@@ -76,6 +77,7 @@ public class LMPreparationHandler {
 
         landmarkCount = ghConfig.getInt(Parameters.Landmark.COUNT, landmarkCount);
         logDetails = ghConfig.getBool(Landmark.PREPARE + "log_details", false);
+        compressWeights = ghConfig.getBool(Landmark.PREPARE + "compress_weights", compressWeights);
         minNodes = ghConfig.getInt(Landmark.PREPARE + "min_network_size", -1);
 
         for (String loc : ghConfig.getString(Landmark.PREPARE + "suggestions_location", "").split(",")) {
@@ -110,7 +112,8 @@ public class LMPreparationHandler {
 
     /**
      * This method changes the number of threads used for preparation on import. Default is 1. Make
-     * sure that you have enough memory when increasing this number!
+     * sure that you have enough memory when increasing this number! The threads are distributed among the LM profiles
+     * and the threads of a profile calculate the weights of its landmarks concurrently.
      */
     public void setPreparationThreads(int preparationThreads) {
         this.preparationThreads = preparationThreads;
@@ -153,6 +156,9 @@ public class LMPreparationHandler {
                     //       we should also work towards a separation of the storage and preparation related code in
                     //       landmark storage
                     LandmarkStorage lms = new LandmarkStorage(baseGraph, encodedValueLookup, baseGraph.getDirectory(), lmConfig, landmarkCount);
+                    // the area index is not needed for routing, but for updateLandmarks
+                    if (areaIndex != null)
+                        lms.setAreaIndex(areaIndex);
                     if (lms.loadExisting())
                         loaded.add(lms);
                     else {
@@ -214,6 +220,8 @@ public class LMPreparationHandler {
         }
 
         List<PrepareLandmarks> preparations = new ArrayList<>();
+        // the profiles are prepared concurrently, so every profile gets its share of the threads for its landmarks
+        int threadsPerPreparation = Math.max(1, preparationThreads / lmConfigs.size());
         for (LMConfig lmConfig : lmConfigs) {
             Double maximumWeight = maximumWeights.get(lmConfig.getName());
             if (maximumWeight == null)
@@ -224,6 +232,8 @@ public class LMPreparationHandler {
                     lmConfig, landmarkCount).
                     setLandmarkSuggestions(lmSuggestions).
                     setMaximumWeight(maximumWeight).
+                    setThreads(threadsPerPreparation).
+                    setCompressWeights(compressWeights).
                     setLogDetails(logDetails);
             if (minNodes > 1)
                 prepareLandmarks.setMinimumNodes(minNodes);
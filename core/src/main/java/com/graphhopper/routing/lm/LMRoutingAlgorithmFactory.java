@@ -59,6 +59,7 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
             double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStarBi.EPSILON, 1);
             AStarBidirection algo = new AStarBidirection(g, weighting, opts.getTraversalMode());
             algo.setApproximation(getApproximator(g, weighting, activeLM, epsilon));
+            algo.setApproximationUpdateInterval(opts.getHints().getInt(Parameters.Landmark.ACTIVE_UPDATE_INTERVAL, 0));
             algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
             algo.setTimeoutMillis(opts.getTimeoutMillis());
             return algo;
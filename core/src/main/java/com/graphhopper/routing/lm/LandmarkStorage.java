@@ -17,9 +17,9 @@
  */
 package com.graphhopper.routing.lm;
 
-import com.carrotsearch.hppc.IntArrayList;
-import com.carrotsearch.hppc.IntHashSet;
-import com.carrotsearch.hppc.IntObjectMap;
+import com.carrotsearch.hppc.*;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.carrotsearch.hppc.cursors.IntDoubleCursor;
 import com.carrotsearch.hppc.predicates.IntObjectPredicate;
 import com.carrotsearch.hppc.procedures.IntObjectProcedure;
 import com.graphhopper.coll.MapEntry;
@@ -38,10 +38,7 @@ import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.AbstractAdjustedWeighting;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.*;
-import com.graphhopper.util.EdgeIteratorState;
-import com.graphhopper.util.GHUtility;
-import com.graphhopper.util.Helper;
-import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.*;
 import com.graphhopper.util.exceptions.ConnectionNotFoundException;
 import com.graphhopper.util.shapes.GHPoint;
 import org.slf4j.Logger;
@@ -50,6 +47,7 @@ import org.slf4j.LoggerFactory;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 /**
  * This class stores the landmark nodes and the weights from and to all other nodes in every
@@ -71,12 +69,32 @@ public class LandmarkStorage {
     private static final int UNSET_SUBNETWORK = -1;
     // This value should only be used if subnetwork is too small to be explicitly stored
     private static final int UNCLEAR_SUBNETWORK = 0;
+    // the layouts of the landmark weights, see compressWeights
+    private static final int ROW_LAYOUT = 0;
+    private static final int TILE_LAYOUT = 1;
+    private static final int TILE_NODES = 64;
+    // a compressed weight with this value stands for SHORT_MAX
+    private static final int BYTE_MAX = 255;
+    // tiles that would need a bigger shift are stored uncompressed
+    private static final int MAX_SHIFT = 2;
     // one node has an associated landmark information ('one landmark row'): the forward and backward weight
     private long LM_ROW_LENGTH;
     private int landmarks;
     private final int FROM_OFFSET;
     private final int TO_OFFSET;
     private final DataAccess landmarkWeightDA;
+    // the weights in the row layout, i.e. landmarkWeightDA or, while compressed weights are created, a temporary DataAccess
+    private DataAccess rowWeightDA;
+    private final Directory dir;
+    private boolean compressWeights;
+    private boolean tiled;
+    private long tileHeaderBytes;
+    private long tileBytes;
+    private long overflowStart;
+    private int overflowTiles;
+    private long weightBytes;
+    // the additional error of the weights caused by updateLandmarks
+    private int updateError;
     // every subnetwork has its own landmark mapping but the count of landmarks is always the same
     private final List<int[]> landmarkIDs;
     private double factor = -1;
@@ -94,6 +112,7 @@ public class LandmarkStorage {
     private List<LandmarkSuggestion> landmarkSuggestions = Collections.emptyList();
     private AreaIndex<SplitArea> areaIndex;
     private boolean logDetails = false;
+    private int threads = 1;
     /**
      * 'to' and 'from' fit into 32 bit => 16 bit for each of them => 65536
      */
@@ -132,13 +151,16 @@ public class LandmarkStorage {
         // use the node based traversal as this is a smaller weight approximation and will still produce correct results
         // In this sense its even 'better' to use node-based.
         this.traversalMode = TraversalMode.NODE_BASED;
+        this.dir = dir;
         this.landmarkWeightDA = dir.create("landmarks_" + lmConfig.getName());
+        this.rowWeightDA = landmarkWeightDA;
 
         this.landmarks = landmarks;
         // one short per landmark and two directions => 2*2 byte
         this.LM_ROW_LENGTH = landmarks * 4;
         this.FROM_OFFSET = 0;
         this.TO_OFFSET = 2;
+        initTiles();
         this.landmarkIDs = new ArrayList<>();
         this.subnetworkStorage = new SubnetworkStorage(dir.create("landmarks_subnetwork_" + lmConfig.getName()));
     }
@@ -162,6 +184,35 @@ public class LandmarkStorage {
         return this;
     }
 
+    /**
+     * Sets the number of threads that calculate the weights of the landmarks of a subnetwork concurrently. The
+     * selection of the landmarks is not affected and stays deterministic.
+     */
+    public LandmarkStorage setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be positive but was " + threads);
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Stores the weights compressed to one byte per landmark, direction and node instead of two, see
+     * {@link #compressWeights}. This nearly halves the memory of the weights. The approximation gets a bit less
+     * accurate but stays a lower bound. This works best if the graph is sorted along a Hilbert curve, which is the
+     * default, because then nodes with nearby IDs have similar weights.
+     */
+    public LandmarkStorage setCompressWeights(boolean compressWeights) {
+        this.compressWeights = compressWeights;
+        return this;
+    }
+
+    /**
+     * @return true if the weights are stored compressed
+     */
+    public boolean isCompressed() {
+        return tiled;
+    }
+
     /**
      * By default do not log many details.
      */
@@ -232,11 +283,14 @@ public class LandmarkStorage {
 
         // fill 'from' and 'to' weights with maximum value
         long maxBytes = (long) graph.getNodes() * LM_ROW_LENGTH;
-        this.landmarkWeightDA.create(2000);
-        this.landmarkWeightDA.ensureCapacity(maxBytes);
+        String rowWeightName = "landmarks_rows_" + lmConfig.getName();
+        if (compressWeights)
+            rowWeightDA = dir.create(rowWeightName);
+        this.rowWeightDA.create(2000);
+        this.rowWeightDA.ensureCapacity(maxBytes);
 
         for (long pointer = 0; pointer < maxBytes; pointer += 2) {
-            landmarkWeightDA.setShort(pointer, (short) SHORT_INFINITY);
+            rowWeightDA.setShort(pointer, (short) SHORT_INFINITY);
         }
 
         int[] empty = new int[landmarks];
@@ -320,12 +374,23 @@ public class LandmarkStorage {
                 LOGGER.warn("next start node not found in big enough network of size " + subnetworkIds.size() + ", first element is " + subnetworkIds.get(0) + ", " + createPoint(graph, subnetworkIds.get(0)));
         }
 
+        if (compressWeights) {
+            sw = new StopWatch().start();
+            compressWeights(rowWeightDA, landmarkWeightDA);
+            dir.remove(rowWeightName);
+            rowWeightDA = landmarkWeightDA;
+            if (logDetails)
+                LOGGER.info("Compressed landmark weights from " + maxBytes / Helper.MB + "MB to " + weightBytes / Helper.MB + "MB in " + sw.stop().getSeconds() + "s, uncompressed tiles: " + overflowTiles);
+        } else {
+            weightBytes = maxBytes;
+        }
+
         int subnetworkCount = landmarkIDs.size();
         // store all landmark node IDs and one int for the factor itself.
-        this.landmarkWeightDA.ensureCapacity(maxBytes /* landmark weights */ + (long) subnetworkCount * landmarks /* landmark mapping per subnetwork */ + 4);
+        this.landmarkWeightDA.ensureCapacity(weightBytes /* landmark weights */ + (long) subnetworkCount * landmarks /* landmark mapping per subnetwork */ + 4);
 
         // calculate offset to point into landmark mapping
-        long bytePos = maxBytes;
+        long bytePos = weightBytes;
         for (int[] landmarks : landmarkIDs) {
             for (int lmNodeId : landmarks) {
                 landmarkWeightDA.setInt(bytePos, lmNodeId);
@@ -339,6 +404,9 @@ public class LandmarkStorage {
         if (factor * DOUBLE_MLTPL > Integer.MAX_VALUE)
             throw new UnsupportedOperationException("landmark weight factor cannot be bigger than Integer.MAX_VALUE " + factor * DOUBLE_MLTPL);
         landmarkWeightDA.setHeader(3 * 4, (int) Math.round(factor * DOUBLE_MLTPL));
+        landmarkWeightDA.setHeader(4 * 4, tiled ? TILE_LAYOUT : ROW_LAYOUT);
+        landmarkWeightDA.setHeader(5 * 4, overflowTiles);
+        landmarkWeightDA.setHeader(6 * 4, updateError);
 
         // serialize fast byte[] into DataAccess
         subnetworkStorage.create(graph.getNodes());
@@ -445,39 +513,65 @@ public class LandmarkStorage {
         }
 
         // 2) calculate weights for all landmarks -> 'from' and 'to' weight
-        for (int lmIdx = 0; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
-            if (Thread.currentThread().isInterrupted()) {
-                throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
-            }
-            int lmNodeId = tmpLandmarkNodeIds[lmIdx];
-            LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, false);
-            explorer.setStartNode(lmNodeId);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, FROM_OFFSET);
-
-            // set subnetwork id to all explored nodes, but do this only for the first landmark
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
+        // the first landmark also sets the subnetwork of the explored nodes and this can fail, so it always runs alone
+        if (!calcLandmarkWeights(0, tmpLandmarkNodeIds[0], subnetworks, subnetworkId, accessFilter))
+            return false;
+        if (threads <= 1) {
+            for (int lmIdx = 1; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
+                calcLandmarkWeights(lmIdx, tmpLandmarkNodeIds[lmIdx], subnetworks, subnetworkId, accessFilter);
+                if (logDetails && lmIdx % logOffset == 0)
+                    LOGGER.info("Set landmarks weights [" + weighting + "]. "
+                            + "Progress " + (int) (100.0 * lmIdx / tmpLandmarkNodeIds.length) + "%");
             }
+        } else {
+            // Every landmark writes only its own 'from' and 'to' shorts of every row, so the landmarks can be explored
+            // concurrently. The 'from' and 'to' exploration of the same landmark must stay in one task, because both
+            // shorts are in the same int for RAMIntDataAccess.
+            AtomicInteger finished = new AtomicInteger(1);
+            GHUtility.runConcurrently(IntStream.range(1, tmpLandmarkNodeIds.length).mapToObj(lmIdx -> () -> {
+                calcLandmarkWeights(lmIdx, tmpLandmarkNodeIds[lmIdx], subnetworks, subnetworkId, accessFilter);
+                int count = finished.incrementAndGet();
+                if (logDetails && count % logOffset == 0)
+                    LOGGER.info("Set landmarks weights [" + weighting + "]. "
+                            + "Progress " + (int) (100.0 * count / tmpLandmarkNodeIds.length) + "%");
+            }), threads);
+        }
 
-            explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, true);
-            explorer.setStartNode(lmNodeId);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, TO_OFFSET);
+        // TODO set weight to SHORT_MAX if entry has either no 'from' or no 'to' entry
+        landmarkIDs.add(tmpLandmarkNodeIds);
+        return true;
+    }
 
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
-            }
+    /**
+     * Calculates the 'from' and 'to' weights of one landmark for all nodes it reaches. Only for the first landmark the
+     * subnetwork of the explored nodes is set.
+     *
+     * @return false if the subnetwork of the first landmark overlaps with an existing one
+     */
+    private boolean calcLandmarkWeights(int lmIdx, int lmNodeId, byte[] subnetworks, int subnetworkId, EdgeFilter accessFilter) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
+        }
+        LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, false);
+        explorer.setStartNode(lmNodeId);
+        explorer.runAlgo();
+        explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, FROM_OFFSET);
 
-            if (logDetails && lmIdx % logOffset == 0)
-                LOGGER.info("Set landmarks weights [" + weighting + "]. "
-                        + "Progress " + (int) (100.0 * lmIdx / tmpLandmarkNodeIds.length) + "%");
+        // set subnetwork id to all explored nodes, but do this only for the first landmark
+        if (lmIdx == 0) {
+            if (explorer.setSubnetworks(subnetworks, subnetworkId))
+                return false;
         }
 
-        // TODO set weight to SHORT_MAX if entry has either no 'from' or no 'to' entry
-        landmarkIDs.add(tmpLandmarkNodeIds);
+        explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, true);
+        explorer.setStartNode(lmNodeId);
+        explorer.runAlgo();
+        explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, TO_OFFSET);
+
+        if (lmIdx == 0) {
+            if (explorer.setSubnetworks(subnetworks, subnetworkId))
+                return false;
+        }
         return true;
     }
 
@@ -497,20 +591,156 @@ public class LandmarkStorage {
         AllEdgesIterator allEdgesIterator = graph.getAllEdges();
         IntHashSet inaccessible = new IntHashSet();
         while (allEdgesIterator.next()) {
-            int adjNode = allEdgesIterator.getAdjNode();
-            List<SplitArea> areas = areaIndex.query(na.getLat(adjNode), na.getLon(adjNode));
-            SplitArea areaAdj = areas.isEmpty() ? null : areas.get(0);
-
-            int baseNode = allEdgesIterator.getBaseNode();
-            areas = areaIndex.query(na.getLat(baseNode), na.getLon(baseNode));
-            SplitArea areaBase = areas.isEmpty() ? null : areas.get(0);
-            if (areaAdj != areaBase) {
+            if (isBorderEdge(areaIndex, allEdgesIterator)) {
                 inaccessible.add(allEdgesIterator.getEdge());
             }
         }
         return inaccessible;
     }
 
+    private boolean isBorderEdge(AreaIndex<SplitArea> areaIndex, EdgeIteratorState edge) {
+        int adjNode = edge.getAdjNode();
+        List<SplitArea> areas = areaIndex.query(na.getLat(adjNode), na.getLon(adjNode));
+        SplitArea areaAdj = areas.isEmpty() ? null : areas.get(0);
+
+        int baseNode = edge.getBaseNode();
+        areas = areaIndex.query(na.getLat(baseNode), na.getLon(baseNode));
+        SplitArea areaBase = areas.isEmpty() ? null : areas.get(0);
+        return areaAdj != areaBase;
+    }
+
+    /**
+     * Updates the landmark weights after the weights of the given edges changed, e.g. because roads were closed or
+     * opened. When an edge weight increases the stored weights still lead to a lower bound, so only weights that get
+     * smaller have to be updated: starting at the changed edges the smaller weights are propagated like in Dijkstra's
+     * algorithm, for every landmark and direction. This only explores the nodes whose weights actually change.
+     * <p>
+     * The new weights are calculated from the stored weights, which are rounded down. So every update that changes
+     * weights increases the maximum error of the weights by one unit of the factor and the approximation gets a bit
+     * worse, see {@link #getMaxWeightError()}.
+     *
+     * @param maxWeightError the maximum error in units of the factor that is acceptable after the update
+     * @return false if the landmarks were not updated and have to be prepared again. This is the case if the maximum
+     * error would be exceeded, if a changed edge connects subnetworks with different landmarks or if the weights are
+     * compressed.
+     */
+    public boolean updateLandmarks(IntCollection changedEdges, int maxWeightError) {
+        if (!isInitialized())
+            throw new IllegalStateException("Initialize the landmark storage before updating it");
+        if (tiled) {
+            LOGGER.warn("Cannot update compressed landmark weights of " + lmConfig.getName());
+            return false;
+        }
+        StopWatch sw = new StopWatch().start();
+        BooleanEncodedValue edgeInSubnetworkEnc = encodedValueLookup.getBooleanEncodedValue(Subnetwork.key(lmConfig.getName()));
+        AreaIndex<SplitArea> areaIndex = this.areaIndex;
+        EdgeFilter accessFilter = edge -> !edge.get(edgeInSubnetworkEnc) && (areaIndex == null || !isBorderEdge(areaIndex, edge));
+
+        IntHashSet subnetworks = new IntHashSet();
+        for (IntCursor c : changedEdges) {
+            EdgeIteratorState edge = graph.getEdgeIteratorState(c.value, Integer.MIN_VALUE);
+            subnetworks.add(subnetworkStorage.getSubnetwork(edge.getBaseNode()));
+            subnetworks.add(subnetworkStorage.getSubnetwork(edge.getAdjNode()));
+        }
+        // the new weights of every landmark and direction, they are only stored if the update is possible
+        List<IntDoubleHashMap> newWeights = new ArrayList<>();
+        IntArrayList pointerOffsets = new IntArrayList();
+        int changedWeights = 0;
+        for (IntCursor subnetwork : subnetworks) {
+            if (subnetwork.value <= UNCLEAR_SUBNETWORK)
+                continue;
+            for (int lmIdx = 0; lmIdx < landmarks; lmIdx++) {
+                for (boolean reverse : new boolean[]{false, true}) {
+                    int offset = lmIdx * 4 + (reverse ? TO_OFFSET : FROM_OFFSET);
+                    IntDoubleHashMap weights = propagateWeights(changedEdges, subnetwork.value, offset, reverse, accessFilter);
+                    if (weights == null) {
+                        LOGGER.warn("Cannot update landmarks of " + lmConfig.getName() + ", subnetwork " + subnetwork.value + " is connected to another subnetwork now");
+                        return false;
+                    }
+                    newWeights.add(weights);
+                    pointerOffsets.add(offset);
+                    changedWeights += weights.size();
+                }
+            }
+        }
+        if (changedWeights == 0)
+            return true;
+        if (getMaxWeightError() + 1 > maxWeightError) {
+            LOGGER.warn("Cannot update landmarks of " + lmConfig.getName() + ", the weight error would exceed " + maxWeightError);
+            return false;
+        }
+        updateError++;
+        landmarkWeightDA.setHeader(6 * 4, updateError);
+        for (int i = 0; i < newWeights.size(); i++) {
+            for (IntDoubleCursor c : newWeights.get(i)) {
+                int weight = (int) Math.min(c.value, SHORT_MAX);
+                landmarkWeightDA.setShort((long) c.key * LM_ROW_LENGTH + pointerOffsets.get(i), (short) weight);
+            }
+        }
+        LOGGER.info("Updated " + changedWeights + " landmark weights of " + lmConfig.getName() + " for " + changedEdges.size()
+                + " changed edges, max weight error: " + getMaxWeightError() + ", took: " + sw.stop().getSeconds() + "s");
+        return true;
+    }
+
+    /**
+     * @return the weights (in units of the factor) of the nodes whose weight got smaller or null if a node of
+     * another subnetwork was reached
+     */
+    private IntDoubleHashMap propagateWeights(IntCollection changedEdges, int subnetwork, int offset, boolean reverse, EdgeFilter accessFilter) {
+        IntDoubleHashMap weights = new IntDoubleHashMap();
+        PriorityQueue<SPTEntry> queue = new PriorityQueue<>();
+        for (IntCursor c : changedEdges) {
+            EdgeIteratorState edge = graph.getEdgeIteratorState(c.value, Integer.MIN_VALUE);
+            if (!accessFilter.accept(edge))
+                continue;
+            for (boolean reverseEdge : new boolean[]{false, true}) {
+                double edgeWeight = weighting.calcEdgeWeight(edge, reverseEdge);
+                if (Double.isInfinite(edgeWeight))
+                    continue;
+                int from = reverseEdge ? edge.getAdjNode() : edge.getBaseNode();
+                int to = reverseEdge ? edge.getBaseNode() : edge.getAdjNode();
+                // the 'from' weight of 'to' can get smaller via this edge, and the 'to' weight of 'from'
+                int knownNode = reverse ? to : from;
+                int updatedNode = reverse ? from : to;
+                if (subnetworkStorage.getSubnetwork(knownNode) != subnetwork)
+                    continue;
+                double weight = getStoredWeight(knownNode, offset) + edgeWeight / factor;
+                if (weight < getStoredWeight(updatedNode, offset))
+                    queue.add(new SPTEntry(updatedNode, weight));
+            }
+        }
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        while (!queue.isEmpty()) {
+            SPTEntry entry = queue.poll();
+            int node = entry.adjNode;
+            if (entry.weight >= weights.getOrDefault(node, getStoredWeight(node, offset)))
+                continue;
+            int nodeSubnetwork = subnetworkStorage.getSubnetwork(node);
+            if (nodeSubnetwork != subnetwork && nodeSubnetwork > UNCLEAR_SUBNETWORK)
+                return null;
+            weights.put(node, entry.weight);
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                if (!accessFilter.accept(iter))
+                    continue;
+                // for the 'to' weights we need the edges towards the node
+                double edgeWeight = weighting.calcEdgeWeight(iter, reverse);
+                if (Double.isInfinite(edgeWeight))
+                    continue;
+                int adjNode = iter.getAdjNode();
+                double weight = entry.weight + edgeWeight / factor;
+                if (weight < weights.getOrDefault(adjNode, getStoredWeight(adjNode, offset)))
+                    queue.add(new SPTEntry(adjNode, weight));
+            }
+        }
+        return weights;
+    }
+
+    private double getStoredWeight(int node, int offset) {
+        int weight = landmarkWeightDA.getShort((long) node * LM_ROW_LENGTH + offset) & 0xFFFF;
+        return weight == SHORT_INFINITY ? Double.POSITIVE_INFINITY : weight;
+    }
+
     /**
      * The factor is used to convert double values into more compact int values.
      */
@@ -523,6 +753,8 @@ public class LandmarkStorage {
      * a node ID but the internal index of the landmark array.
      */
     int getFromWeight(int landmarkIndex, int node) {
+        if (tiled)
+            return getTileWeight(landmarkIndex * 2, node, false);
         int res = (int) landmarkWeightDA.getShort((long) node * LM_ROW_LENGTH + landmarkIndex * 4L + FROM_OFFSET)
                 & 0x0000FFFF;
         if (res == SHORT_INFINITY)
@@ -540,6 +772,8 @@ public class LandmarkStorage {
      * @return the weight from the specified node to the landmark (specified *as index*)
      */
     int getToWeight(int landmarkIndex, int node) {
+        if (tiled)
+            return getTileWeight(landmarkIndex * 2 + 1, node, false);
         int res = (int) landmarkWeightDA.getShort((long) node * LM_ROW_LENGTH + landmarkIndex * 4 + TO_OFFSET)
                 & 0x0000FFFF;
         if (res == SHORT_INFINITY)
@@ -548,6 +782,136 @@ public class LandmarkStorage {
         return res;
     }
 
+    /**
+     * @return an upper bound of the weight from the landmark to the specified node. For uncompressed weights this is
+     * the same as {@link #getFromWeight(int, int)}, which is always a lower bound.
+     */
+    int getFromWeightUpperBound(int landmarkIndex, int node) {
+        return tiled ? getTileWeight(landmarkIndex * 2, node, true) : getFromWeight(landmarkIndex, node);
+    }
+
+    /**
+     * @return an upper bound of the weight from the specified node to the landmark, see getFromWeightUpperBound
+     */
+    int getToWeightUpperBound(int landmarkIndex, int node) {
+        return tiled ? getTileWeight(landmarkIndex * 2 + 1, node, true) : getToWeight(landmarkIndex, node);
+    }
+
+    private int getTileWeight(int column, int node, boolean upperBound) {
+        long tilePointer = (node / TILE_NODES) * tileBytes;
+        int header = landmarkWeightDA.getInt(tilePointer + column * 4L);
+        if (header < 0) {
+            int weight = landmarkWeightDA.getShort(overflowStart + (header & Integer.MAX_VALUE) * TILE_NODES * LM_ROW_LENGTH
+                    + (node % TILE_NODES) * LM_ROW_LENGTH + column * 2L) & 0xFFFF;
+            return weight == SHORT_INFINITY ? SHORT_MAX : weight;
+        }
+        int value = landmarkWeightDA.getByte(tilePointer + tileHeaderBytes + (long) (node % TILE_NODES) * landmarks * 2 + column) & 0xFF;
+        if (value == BYTE_MAX)
+            return SHORT_MAX;
+        int shift = header >>> 16;
+        int weight = (header & 0xFFFF) + (value << shift);
+        return upperBound ? Math.min(weight + (1 << shift) - 1, SHORT_MAX - 1) : weight;
+    }
+
+    /**
+     * @return the maximum difference between the real weight and the weight returned by getFromWeight or getToWeight,
+     * in units of the factor
+     */
+    int getMaxWeightError() {
+        return (tiled ? 1 << MAX_SHIFT : 1) + updateError;
+    }
+
+    /**
+     * @return the additional error of the weights caused by {@link #updateLandmarks}, in units of the factor
+     */
+    int getUpdateError() {
+        return updateError;
+    }
+
+    /**
+     * Converts the weights from the row layout into the tile layout. The nodes are grouped into tiles of TILE_NODES
+     * consecutive node IDs. Every tile starts with a header that stores the minimum weight and a shift for every
+     * landmark and direction (a 'column'), followed by one byte per node and column: (weight - minimum) >> shift. Reading
+     * such a byte gives a lower and an upper bound of the original weight, which is enough to keep the approximation a
+     * lower bound, see LMApproximator. The shift is limited to MAX_SHIFT to keep the approximation consistent enough, so
+     * the few tiles with a bigger spread of weights are copied unchanged to an overflow area after the tiles. The header
+     * of these tiles only contains their index in the overflow area.
+     */
+    private void compressWeights(DataAccess rows, DataAccess tiles) {
+        int nodes = graph.getNodes();
+        int columns = landmarks * 2;
+        long tileCount = (nodes + TILE_NODES - 1) / TILE_NODES;
+        long overflowTileBytes = TILE_NODES * LM_ROW_LENGTH;
+        overflowStart = tileCount * tileBytes;
+        overflowTiles = 0;
+        tiles.create(2000);
+        tiles.ensureCapacity(overflowStart);
+        int[] min = new int[columns];
+        int[] max = new int[columns];
+        int[] shift = new int[columns];
+        for (int tile = 0; tile < tileCount; tile++) {
+            int firstNode = tile * TILE_NODES;
+            int endNode = Math.min(firstNode + TILE_NODES, nodes);
+            Arrays.fill(min, SHORT_MAX);
+            Arrays.fill(max, -1);
+            for (int node = firstNode; node < endNode; node++) {
+                for (int column = 0; column < columns; column++) {
+                    int weight = rows.getShort(node * LM_ROW_LENGTH + column * 2L) & 0xFFFF;
+                    if (weight < SHORT_MAX) {
+                        min[column] = Math.min(min[column], weight);
+                        max[column] = Math.max(max[column], weight);
+                    }
+                }
+            }
+            boolean overflow = false;
+            for (int column = 0; column < columns; column++) {
+                if (max[column] < 0)
+                    min[column] = max[column] = 0;
+                shift[column] = 0;
+                while ((max[column] - min[column]) >> shift[column] >= BYTE_MAX) {
+                    shift[column]++;
+                }
+                overflow |= shift[column] > MAX_SHIFT;
+            }
+
+            long tilePointer = tile * tileBytes;
+            if (overflow) {
+                long overflowPointer = overflowStart + overflowTiles * overflowTileBytes;
+                tiles.ensureCapacity(overflowPointer + overflowTileBytes);
+                for (int node = firstNode; node < endNode; node++) {
+                    for (int column = 0; column < columns; column++) {
+                        tiles.setShort(overflowPointer + (node - firstNode) * LM_ROW_LENGTH + column * 2L,
+                                rows.getShort(node * LM_ROW_LENGTH + column * 2L));
+                    }
+                }
+                for (int column = 0; column < columns; column++) {
+                    tiles.setInt(tilePointer + column * 4L, Integer.MIN_VALUE | overflowTiles);
+                }
+                overflowTiles++;
+                continue;
+            }
+            for (int column = 0; column < columns; column++) {
+                tiles.setInt(tilePointer + column * 4L, min[column] | shift[column] << 16);
+            }
+            for (int node = firstNode; node < endNode; node++) {
+                long pointer = tilePointer + tileHeaderBytes + (long) (node - firstNode) * columns;
+                for (int column = 0; column < columns; column++) {
+                    int weight = rows.getShort(node * LM_ROW_LENGTH + column * 2L) & 0xFFFF;
+                    int value = weight >= SHORT_MAX ? BYTE_MAX : (weight - min[column]) >> shift[column];
+                    tiles.setByte(pointer + column, (byte) value);
+                }
+            }
+        }
+        weightBytes = overflowStart + overflowTiles * overflowTileBytes;
+        tiled = true;
+    }
+
+    private void initTiles() {
+        // one int per column in the header and then one byte per column for every node
+        tileHeaderBytes = landmarks * 2 * 4L;
+        tileBytes = tileHeaderBytes + TILE_NODES * landmarks * 2L;
+    }
+
     /**
      * @return false if the value capacity was reached and instead of the real value the SHORT_MAX was stored.
      */
@@ -557,16 +921,16 @@ public class LandmarkStorage {
             throw new UnsupportedOperationException("Cannot store infinity explicitly, pointer=" + pointer + ", value=" + value + ", factor=" + factor);
 
         if (tmpVal >= SHORT_MAX) {
-            landmarkWeightDA.setShort(pointer, (short) SHORT_MAX);
+            rowWeightDA.setShort(pointer, (short) SHORT_MAX);
             return false;
         } else {
-            landmarkWeightDA.setShort(pointer, (short) tmpVal);
+            rowWeightDA.setShort(pointer, (short) tmpVal);
             return true;
         }
     }
 
     boolean isInfinity(long pointer) {
-        return ((int) landmarkWeightDA.getShort(pointer) & 0x0000FFFF) == SHORT_INFINITY;
+        return ((int) rowWeightDA.getShort(pointer) & 0x0000FFFF) == SHORT_INFINITY;
     }
 
     // From all available landmarks pick just a few active ones
@@ -690,8 +1054,20 @@ public class LandmarkStorage {
             int subnetworks = landmarkWeightDA.getHeader(2 * 4);
             factor = landmarkWeightDA.getHeader(3 * 4) / DOUBLE_MLTPL;
             LM_ROW_LENGTH = landmarks * 4;
-            long maxBytes = LM_ROW_LENGTH * nodes;
-            long bytePos = maxBytes;
+            initTiles();
+            updateError = landmarkWeightDA.getHeader(6 * 4);
+            int layout = landmarkWeightDA.getHeader(4 * 4);
+            if (layout == TILE_LAYOUT) {
+                tiled = true;
+                overflowStart = (long) (nodes + TILE_NODES - 1) / TILE_NODES * tileBytes;
+                overflowTiles = landmarkWeightDA.getHeader(5 * 4);
+                weightBytes = overflowStart + overflowTiles * TILE_NODES * LM_ROW_LENGTH;
+            } else if (layout == ROW_LAYOUT) {
+                weightBytes = LM_ROW_LENGTH * nodes;
+            } else {
+                throw new IllegalStateException("Unknown layout " + layout + " of landmark weights " + landmarkWeightDA.getName());
+            }
+            long bytePos = weightBytes;
 
             // in the first subnetwork 0 there are no landmark IDs stored
             for (int j = 0; j < subnetworks; j++) {
@@ -91,6 +91,22 @@ public class PrepareLandmarks {
         lms.setMinimumNodes(nodes);
     }
 
+    /**
+     * @see LandmarkStorage#setThreads(int)
+     */
+    public PrepareLandmarks setThreads(int threads) {
+        lms.setThreads(threads);
+        return this;
+    }
+
+    /**
+     * @see LandmarkStorage#setCompressWeights(boolean)
+     */
+    public PrepareLandmarks setCompressWeights(boolean compressWeights) {
+        lms.setCompressWeights(compressWeights);
+        return this;
+    }
+
     public PrepareLandmarks setLogDetails(boolean logDetails) {
         lms.setLogDetails(logDetails);
         return this;
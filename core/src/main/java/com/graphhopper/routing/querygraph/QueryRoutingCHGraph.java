@@ -21,6 +21,7 @@ package com.graphhopper.routing.querygraph;
 import com.carrotsearch.hppc.IntObjectHashMap;
 import com.carrotsearch.hppc.IntObjectMap;
 import com.carrotsearch.hppc.procedures.IntObjectProcedure;
+import com.graphhopper.routing.ch.ShortcutUnpackingCache;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.*;
 import com.graphhopper.util.EdgeIteratorState;
@@ -139,6 +140,12 @@ public class QueryRoutingCHGraph implements RoutingCHGraph {
         return queryGraph;
     }
 
+    @Override
+    public ShortcutUnpackingCache getShortcutUnpackingCache() {
+        // shortcuts are never virtual, so the cache of the underlying graph can be used
+        return routingCHGraph.getShortcutUnpackingCache();
+    }
+
     @Override
     public boolean hasTurnCosts() {
         return routingCHGraph.hasTurnCosts();
@@ -0,0 +1,445 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.routing.subnetwork;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.subnetwork.EdgeBasedTarjanSCC.ConnectedComponents;
+import com.graphhopper.routing.subnetwork.EdgeBasedTarjanSCC.EdgeTransitionFilter;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Finds the same strongly connected components of edge keys as {@link EdgeBasedTarjanSCC}, but uses multiple threads.
+ * Tarjan's algorithm is an inherently sequential depth-first search, so this class uses the forward-backward
+ * algorithm with trimming and coloring instead:
+ * <ol>
+ * <li>trimming: edge keys without an incoming or outgoing transition form their own component. This removes dead ends
+ * like the blocked directions of oneways. After the first pass over all edge keys only the neighbors of the keys
+ * trimmed in the previous pass are checked again, until no more keys can be trimmed.</li>
+ * <li>forward-backward: the edge keys that can be reached from a pivot edge key and that can reach it form its
+ * component. For road networks the pivot is almost always part of the biggest component, which is found by two
+ * parallel searches this way. Components of the remaining edge keys cannot cross the borders between the keys reached
+ * only forward, only backward or not at all, so these are treated separately from now on.</li>
+ * <li>coloring: every remaining edge key gets its own id as color and the biggest color is propagated along the
+ * transitions until nothing changes. Every round only visits the keys whose color changed in the previous round. The
+ * component of an edge key whose color is its own id consists of the keys of the same color that can reach it. These
+ * components are removed and the coloring is repeated for the rest.</li>
+ * </ol>
+ * So apart from the forward-backward search every step only visits the edge keys that are still remaining or whose
+ * state changed, and not all edge keys of the graph again. Apart from the components themselves this only uses a few
+ * bitsets, the lists of edge keys to visit next and, for the coloring, one int per edge key. The
+ * components and the edge keys in each component are sorted, so unlike for {@link EdgeBasedTarjanSCC} the result does
+ * not depend on the order in which the edges are traversed. The edge transition filter is called concurrently and
+ * must be thread-safe.
+ *
+ * @see EdgeBasedTarjanSCC
+ */
+public class EdgeBasedParallelSCC {
+    private static final int CHUNK_SIZE = 1 << 14;
+    private static final int PIVOT_SAMPLES = 100;
+    // the number of edge keys on the stack of a search until half of them are handed to another thread
+    private static final int SPLIT_SIZE = 256;
+
+    private final Graph graph;
+    private final EdgeTransitionFilter edgeTransitionFilter;
+    private final boolean excludeSingleEdgeComponents;
+    private final int edgeKeys;
+    private final ForkJoinPool pool;
+    // the edge keys whose component is known already
+    private final AtomicBitSet done;
+    private final List<IntArrayList> found = Collections.synchronizedList(new ArrayList<>());
+    // the edge keys reached by the forward and backward search from the pivot
+    private AtomicBitSet forward;
+    private AtomicBitSet backward;
+
+    /**
+     * @param threads the number of threads used for the search
+     * @see EdgeBasedTarjanSCC#findComponents(Graph, EdgeTransitionFilter, boolean)
+     */
+    public static ConnectedComponents findComponents(Graph graph, EdgeTransitionFilter edgeTransitionFilter, boolean excludeSingleEdgeComponents, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return new EdgeBasedParallelSCC(graph, edgeTransitionFilter, excludeSingleEdgeComponents, pool).findComponents();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private EdgeBasedParallelSCC(Graph graph, EdgeTransitionFilter edgeTransitionFilter, boolean excludeSingleEdgeComponents, ForkJoinPool pool) {
+        this.graph = graph;
+        this.edgeTransitionFilter = edgeTransitionFilter;
+        this.excludeSingleEdgeComponents = excludeSingleEdgeComponents;
+        this.edgeKeys = 2 * graph.getEdges();
+        this.pool = pool;
+        this.done = new AtomicBitSet(edgeKeys);
+    }
+
+    private ConnectedComponents findComponents() {
+        trim();
+        findPivotComponent();
+        findColoredComponents();
+        return collectComponents();
+    }
+
+    private void trim() {
+        AtomicBitSet queued = new AtomicBitSet(edgeKeys);
+        // the first pass checks all edge keys
+        IntArrayList candidates = null;
+        while (candidates == null || !candidates.isEmpty()) {
+            IntArrayList trimmed = forEachKey(candidates, (explorer, neighbors, key, next) -> {
+                queued.clear(key);
+                if (done.get(key))
+                    return;
+                if (!hasRemaining(explorer, neighbors, key, true) || !hasRemaining(explorer, neighbors, key, false)) {
+                    done.set(key);
+                    next.add(key);
+                }
+            });
+            // only the neighbors of the trimmed keys can have lost their last remaining transition
+            candidates = forEachKey(trimmed, (explorer, neighbors, key, next) -> {
+                for (boolean forward : new boolean[]{true, false}) {
+                    findNeighbors(explorer, key, forward, neighbors);
+                    for (int i = 0; i < neighbors.size(); i++) {
+                        int neighbor = neighbors.get(i);
+                        if (!done.get(neighbor) && queued.add(neighbor))
+                            next.add(neighbor);
+                    }
+                }
+            });
+        }
+    }
+
+    private boolean hasRemaining(EdgeExplorer explorer, IntArrayList neighbors, int key, boolean forward) {
+        findNeighbors(explorer, key, forward, neighbors);
+        for (int i = 0; i < neighbors.size(); i++) {
+            int neighbor = neighbors.get(i);
+            if (neighbor != key && !done.get(neighbor))
+                return true;
+        }
+        return false;
+    }
+
+    private void findPivotComponent() {
+        int pivot = choosePivot();
+        if (pivot < 0)
+            return;
+        forward = new AtomicBitSet(edgeKeys);
+        backward = new AtomicBitSet(edgeKeys);
+        forward.set(pivot);
+        backward.set(pivot);
+        invoke(new ReachTask(forward, true, IntArrayList.from(pivot)));
+        invoke(new ReachTask(backward, false, IntArrayList.from(pivot)));
+        IntArrayList component = new IntArrayList();
+        for (int key = 0; key < edgeKeys; key++) {
+            if (forward.get(key) && backward.get(key)) {
+                component.add(key);
+                done.set(key);
+            }
+        }
+        found.add(component);
+    }
+
+    /**
+     * @return a remaining edge key with many transitions or -1 if there are no remaining edge keys
+     */
+    private int choosePivot() {
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        IntArrayList neighbors = new IntArrayList();
+        int pivot = -1;
+        long maxTransitions = -1;
+        int step = Math.max(1, edgeKeys / PIVOT_SAMPLES);
+        for (int start = 0; start < edgeKeys; start += step) {
+            int key = done.nextClearBit(start, edgeKeys);
+            if (key < 0)
+                break;
+            findNeighbors(explorer, key, true, neighbors);
+            long transitions = neighbors.size();
+            findNeighbors(explorer, key, false, neighbors);
+            transitions *= neighbors.size();
+            if (transitions > maxTransitions) {
+                maxTransitions = transitions;
+                pivot = key;
+            }
+        }
+        return pivot;
+    }
+
+    private void findColoredComponents() {
+        IntArrayList remaining = forEachKey(null, (explorer, neighbors, key, next) -> {
+            if (!done.get(key))
+                next.add(key);
+        });
+        if (remaining.isEmpty())
+            return;
+        AtomicIntegerArray colors = new AtomicIntegerArray(edgeKeys);
+        AtomicBitSet queued = new AtomicBitSet(edgeKeys);
+        while (!remaining.isEmpty()) {
+            forEachKey(remaining, (explorer, neighbors, key, next) -> colors.set(key, key));
+            // a key only has to propagate its color again if its color changed since it was visited last
+            IntArrayList active = remaining;
+            while (!active.isEmpty()) {
+                active = forEachKey(active, (explorer, neighbors, key, next) -> {
+                    queued.clear(key);
+                    int color = colors.get(key);
+                    findNeighbors(explorer, key, true, neighbors);
+                    for (int i = 0; i < neighbors.size(); i++) {
+                        int neighbor = neighbors.get(i);
+                        if (!done.get(neighbor) && isSamePartition(key, neighbor) && maxTo(colors, neighbor, color) && queued.add(neighbor))
+                            next.add(neighbor);
+                    }
+                });
+            }
+
+            IntArrayList roots = forEachKey(remaining, (explorer, neighbors, key, next) -> {
+                if (colors.get(key) == key)
+                    next.add(key);
+            });
+            // the keys of every color are only visited by the search for its root, so the searches can run concurrently
+            forEach(roots, root -> {
+                EdgeExplorer explorer = graph.createEdgeExplorer();
+                IntArrayList neighbors = new IntArrayList();
+                IntArrayList component = IntArrayList.from(root);
+                done.set(root);
+                for (int i = 0; i < component.size(); i++) {
+                    findNeighbors(explorer, component.get(i), false, neighbors);
+                    for (int j = 0; j < neighbors.size(); j++) {
+                        int neighbor = neighbors.get(j);
+                        if (colors.get(neighbor) == root && !done.get(neighbor)) {
+                            done.set(neighbor);
+                            component.add(neighbor);
+                        }
+                    }
+                }
+                found.add(component);
+            });
+            remaining = forEachKey(remaining, (explorer, neighbors, key, next) -> {
+                if (!done.get(key))
+                    next.add(key);
+            });
+        }
+    }
+
+    private boolean isSamePartition(int key, int otherKey) {
+        return forward == null || forward.get(key) == forward.get(otherKey) && backward.get(key) == backward.get(otherKey);
+    }
+
+    private static boolean maxTo(AtomicIntegerArray array, int index, int value) {
+        while (true) {
+            int current = array.get(index);
+            if (current >= value)
+                return false;
+            if (array.compareAndSet(index, current, value))
+                return true;
+        }
+    }
+
+    private ConnectedComponents collectComponents() {
+        ConnectedComponents components = new ConnectedComponents(excludeSingleEdgeComponents ? -1 : edgeKeys);
+        AtomicBitSet inComponent = new AtomicBitSet(edgeKeys);
+        List<IntArrayList> sorted = new ArrayList<>();
+        for (IntArrayList component : found) {
+            if (component.size() < 2)
+                continue;
+            Arrays.sort(component.buffer, 0, component.size());
+            component.trimToSize();
+            for (int i = 0; i < component.size(); i++)
+                inComponent.set(component.get(i));
+            sorted.add(component);
+        }
+        sorted.sort((a, b) -> Integer.compare(a.get(0), b.get(0)));
+        for (IntArrayList component : sorted)
+            components.addComponent(component);
+        for (int key = inComponent.nextClearBit(0, edgeKeys); key >= 0; key = inComponent.nextClearBit(key + 1, edgeKeys))
+            components.addSingleEdgeComponent(key, excludeSingleEdgeComponents);
+        return components;
+    }
+
+    /**
+     * Finds the edge keys that can follow the given one (forward) or that it can follow (backward).
+     */
+    private void findNeighbors(EdgeExplorer explorer, int key, boolean forward, IntArrayList neighbors) {
+        neighbors.clear();
+        EdgeIteratorState edge = graph.getEdgeIteratorStateForKey(key);
+        if (forward) {
+            EdgeIterator iter = explorer.setBaseNode(edge.getAdjNode());
+            while (iter.next())
+                if (edgeTransitionFilter.accept(edge.getEdge(), iter))
+                    neighbors.add(EdgeBasedTarjanSCC.createEdgeKey(iter, false));
+        } else {
+            EdgeIterator iter = explorer.setBaseNode(edge.getBaseNode());
+            while (iter.next())
+                if (edgeTransitionFilter.accept(iter.getEdge(), edge))
+                    neighbors.add(EdgeBasedTarjanSCC.createEdgeKey(iter, true));
+        }
+    }
+
+    private interface KeyAction {
+        void run(EdgeExplorer explorer, IntArrayList neighbors, int key, IntArrayList next);
+    }
+
+    /**
+     * Runs the action for the given edge keys, or for all edge keys if keys is null, in parallel chunks.
+     *
+     * @return the edge keys that the action added to its next list
+     */
+    private IntArrayList forEachKey(IntArrayList keys, KeyAction action) {
+        int size = keys == null ? edgeKeys : keys.size();
+        int chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntArrayList[] nextByChunk = new IntArrayList[chunks];
+        invoke(() -> IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            EdgeExplorer explorer = graph.createEdgeExplorer();
+            IntArrayList neighbors = new IntArrayList();
+            IntArrayList next = new IntArrayList();
+            for (int i = chunk * CHUNK_SIZE; i < Math.min(size, (chunk + 1) * CHUNK_SIZE); i++)
+                action.run(explorer, neighbors, keys == null ? i : keys.get(i), next);
+            nextByChunk[chunk] = next;
+        }));
+        int nextSize = 0;
+        for (IntArrayList next : nextByChunk)
+            nextSize += next.size();
+        IntArrayList result = new IntArrayList(nextSize);
+        for (IntArrayList next : nextByChunk)
+            result.addAll(next);
+        return result;
+    }
+
+    private void forEach(IntArrayList values, IntConsumer action) {
+        invoke(() -> Arrays.stream(values.buffer, 0, values.size()).parallel().forEach(action));
+    }
+
+    private void invoke(Runnable runnable) {
+        try {
+            pool.submit(runnable).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void invoke(ReachTask task) {
+        pool.invoke(task);
+    }
+
+    /**
+     * Marks all remaining edge keys that can be reached from the ones on the stack. Whenever there are enough keys on
+     * the stack half of them are searched by a new task.
+     */
+    private class ReachTask extends RecursiveAction {
+        private final AtomicBitSet visited;
+        private final boolean forward;
+        private final IntArrayList stack;
+
+        ReachTask(AtomicBitSet visited, boolean forward, IntArrayList stack) {
+            this.visited = visited;
+            this.forward = forward;
+            this.stack = stack;
+        }
+
+        @Override
+        protected void compute() {
+            List<ReachTask> forks = new ArrayList<>();
+            EdgeExplorer explorer = graph.createEdgeExplorer();
+            IntArrayList neighbors = new IntArrayList();
+            while (!stack.isEmpty()) {
+                int key = stack.remove(stack.size() - 1);
+                findNeighbors(explorer, key, forward, neighbors);
+                for (int i = 0; i < neighbors.size(); i++) {
+                    int neighbor = neighbors.get(i);
+                    if (!done.get(neighbor) && visited.add(neighbor))
+                        stack.add(neighbor);
+                }
+                if (stack.size() >= SPLIT_SIZE && getSurplusQueuedTaskCount() < 2) {
+                    int half = stack.size() / 2;
+                    IntArrayList split = new IntArrayList(half);
+                    split.add(stack.buffer, 0, half);
+                    stack.removeRange(0, half);
+                    ReachTask task = new ReachTask(visited, forward, split);
+                    task.fork();
+                    forks.add(task);
+                }
+            }
+            for (ReachTask task : forks)
+                task.join();
+        }
+    }
+
+    private static class AtomicBitSet {
+        private final AtomicLongArray words;
+
+        AtomicBitSet(int bits) {
+            words = new AtomicLongArray((bits + 63) >>> 6);
+        }
+
+        boolean get(int index) {
+            return (words.get(index >>> 6) & (1L << index)) != 0;
+        }
+
+        void set(int index) {
+            add(index);
+        }
+
+        void clear(int index) {
+            long mask = 1L << index;
+            words.getAndUpdate(index >>> 6, current -> current & ~mask);
+        }
+
+        /**
+         * @return true if the bit was not set before
+         */
+        boolean add(int index) {
+            int word = index >>> 6;
+            long mask = 1L << index;
+            while (true) {
+                long current = words.get(word);
+                if ((current & mask) != 0)
+                    return false;
+                if (words.compareAndSet(word, current, current | mask))
+                    return true;
+            }
+        }
+
+        /**
+         * @return the first index in [from, to) whose bit is not set or -1
+         */
+        int nextClearBit(int from, int to) {
+            for (int index = from; index < to; ) {
+                long word = ~words.get(index >>> 6) >>> (index & 63);
+                if (word != 0) {
+                    int result = index + Long.numberOfTrailingZeros(word);
+                    return result < to ? result : -1;
+                }
+                index = (index | 63) + 1;
+            }
+            return -1;
+        }
+    }
+}
@@ -140,7 +140,7 @@ public class EdgeBasedTarjanSCC {
                 findComponentForEdgeKey(edgeKeyFwd, iter.getAdjNode());
             int edgeKeyBwd = createEdgeKey(iter, true);
             if (!edgeKeyIndex.has(edgeKeyBwd))
-                findComponentForEdgeKey(edgeKeyBwd, iter.getAdjNode());
+                findComponentForEdgeKey(edgeKeyBwd, iter.getBaseNode());
         }
         return components;
     }
@@ -181,10 +181,7 @@ public class EdgeBasedTarjanSCC {
             if (tarjanStack.getLast() == p) {
                 tarjanStack.removeLast();
                 edgeKeyOnStack.remove(p);
-                components.numComponents++;
-                components.numEdgeKeys++;
-                if (!excludeSingleEdgeComponents)
-                    components.singleEdgeComponents.set(p);
+                components.addSingleEdgeComponent(p, excludeSingleEdgeComponents);
             } else {
                 IntArrayList component = new IntArrayList();
                 while (true) {
@@ -196,11 +193,7 @@ public class EdgeBasedTarjanSCC {
                 }
                 component.trimToSize();
                 assert component.size() > 1;
-                components.numComponents++;
-                components.numEdgeKeys += component.size();
-                components.components.add(component);
-                if (component.size() > components.biggestComponent.size())
-                    components.biggestComponent = component;
+                components.addComponent(component);
             }
         }
     }
@@ -234,8 +227,9 @@ public class EdgeBasedTarjanSCC {
         // We need to start the search for both edge keys of this edge, but its important to check if the second
         // has already been found by the first search. So we cannot simply push them both and start the search once.
         int edgeKeyBwd = createEdgeKey(edge, true);
+        // the reverse edge key ends at the base node, so this is where the search continues
         if (!edgeKeyIndex.has(edgeKeyBwd))
-            pushFindComponentForEdgeKey(edgeKeyBwd, edge.getAdjNode());
+            pushFindComponentForEdgeKey(edgeKeyBwd, edge.getBaseNode());
         startSearch();
     }
 
@@ -356,6 +350,21 @@ public class EdgeBasedTarjanSCC {
             biggestComponent = new IntArrayList();
         }
 
+        void addComponent(IntArrayList component) {
+            numComponents++;
+            numEdgeKeys += component.size();
+            components.add(component);
+            if (component.size() > biggestComponent.size())
+                biggestComponent = component;
+        }
+
+        void addSingleEdgeComponent(int edgeKey, boolean exclude) {
+            numComponents++;
+            numEdgeKeys++;
+            if (!exclude)
+                singleEdgeComponents.set(edgeKey);
+        }
+
         /**
          * A list of arrays each containing the edge keys of a strongly connected component. Components with only a single
          * edge key are not included here, but need to be obtained using {@link #getSingleEdgeComponents()}.
@@ -17,17 +17,15 @@
  */
 package com.graphhopper.routing.subnetwork;
 
-import com.carrotsearch.hppc.BitSet;
-import com.carrotsearch.hppc.BitSetIterator;
-import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.*;
 import com.carrotsearch.hppc.cursors.IntCursor;
+import com.carrotsearch.hppc.cursors.IntIntCursor;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.subnetwork.EdgeBasedTarjanSCC.EdgeTransitionFilter;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.BaseGraph;
-import com.graphhopper.util.GHUtility;
-import com.graphhopper.util.Helper;
-import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -83,6 +81,10 @@ public class PrepareRoutingSubnetworks {
         return this;
     }
 
+    /**
+     * The jobs are run concurrently using the given number of threads. If there are more threads than jobs the
+     * components of each job are searched with multiple threads as well, see {@link EdgeBasedParallelSCC}.
+     */
     public PrepareRoutingSubnetworks setThreads(int threads) {
         this.threads = threads;
         return this;
@@ -103,9 +105,10 @@ public class PrepareRoutingSubnetworks {
                 Helper.nf(graph.getNodes()) + ", edges: " + Helper.nf(graph.getEdges()) + ", jobs: " + prepareJobs + ", " + Helper.getMemInfo());
         AtomicInteger total = new AtomicInteger(0);
         List<BitSet> flags = Stream.generate(() -> new BitSet(graph.getEdges())).limit(prepareJobs.size()).collect(Collectors.toList());
+        int sccThreads = Math.max(1, threads / Math.max(1, prepareJobs.size()));
         Stream<Runnable> runnables = IntStream.range(0, prepareJobs.size()).mapToObj(i -> () -> {
             PrepareJob job = prepareJobs.get(i);
-            total.addAndGet(setSubnetworks(job.weighting, job.subnetworkEnc.getName().replaceAll("_subnetwork", ""), flags.get(i)));
+            total.addAndGet(setSubnetworks(job.weighting, job.subnetworkEnc.getName().replaceAll("_subnetwork", ""), flags.get(i), sccThreads));
         });
         GHUtility.runConcurrently(runnables, threads);
         AllEdgesIterator iter = graph.getAllEdges();
@@ -119,12 +122,12 @@ public class PrepareRoutingSubnetworks {
         return total.get();
     }
 
-    private int setSubnetworks(Weighting weighting, String jobName, BitSet subnetworkFlags) {
-        // partition graph into strongly connected components using Tarjan's algorithm
+    private int setSubnetworks(Weighting weighting, String jobName, BitSet subnetworkFlags, int sccThreads) {
+        // partition graph into strongly connected components using Tarjan's algorithm, or a parallel algorithm if we have more threads
         StopWatch sw = new StopWatch().start();
-        EdgeBasedTarjanSCC.ConnectedComponents ccs = EdgeBasedTarjanSCC.findComponents(graph,
-                (prev, edge) -> Double.isFinite(GHUtility.calcWeightWithTurnWeight(weighting, edge, false, prev)),
-                false);
+        EdgeBasedTarjanSCC.ConnectedComponents ccs = sccThreads > 1
+                ? EdgeBasedParallelSCC.findComponents(graph, createTransitionFilter(weighting), false, sccThreads)
+                : EdgeBasedTarjanSCC.findComponents(graph, createTransitionFilter(weighting), false);
         List<IntArrayList> components = ccs.getComponents();
         BitSet singleEdgeComponents = ccs.getSingleEdgeComponents();
         long numSingleEdgeComponents = singleEdgeComponents.cardinality();
@@ -176,6 +179,190 @@ public class PrepareRoutingSubnetworks {
         return markedEdges;
     }
 
+    private static EdgeTransitionFilter createTransitionFilter(Weighting weighting) {
+        return (prev, edge) -> Double.isFinite(GHUtility.calcWeightWithTurnWeight(weighting, edge, false, prev));
+    }
+
+    /**
+     * Updates the subnetwork flags after the given edges were changed, e.g. because a road was closed, without
+     * searching the entire graph. Only the edges close to the changed ones are checked again: for an edge key (a
+     * directed edge) we collect all edge keys that can be reached from it or, if there are too many, all edge keys it
+     * can be reached from. If one of these sets has less than maxEdgeKeys elements the components of its edge keys
+     * are contained in it and can be found exactly. Otherwise the edge key is assumed to belong to a big component,
+     * which is only wrong for small components that connect two big components in one direction. Whenever the flag
+     * of an edge changes its neighbors are checked as well.
+     * <p>
+     * Unlike {@link #doWork()} this also marks the biggest component if it is smaller than the minimum network size.
+     *
+     * @param maxEdgeKeys the maximum number of edge keys collected for one edge key, at least 2*minNetworkSize
+     * @return the edges whose subnetwork flag changed for at least one job
+     */
+    public IntHashSet updateSubnetworks(IntCollection changedEdges, int maxEdgeKeys) {
+        if (minNetworkSize <= 0)
+            return new IntHashSet();
+        if (maxEdgeKeys < 2 * minNetworkSize)
+            throw new IllegalArgumentException("maxEdgeKeys must be at least 2*min_network_size: " + maxEdgeKeys + " < " + 2 * minNetworkSize);
+        StopWatch sw = new StopWatch().start();
+        List<IntIntHashMap> changes = Stream.generate(IntIntHashMap::new).limit(prepareJobs.size()).collect(Collectors.toList());
+        Stream<Runnable> runnables = IntStream.range(0, prepareJobs.size()).mapToObj(i -> () -> {
+            PrepareJob job = prepareJobs.get(i);
+            new SubnetworkUpdate(job, maxEdgeKeys, changes.get(i)).run(changedEdges);
+        });
+        GHUtility.runConcurrently(runnables, threads);
+        IntHashSet changedFlags = new IntHashSet();
+        for (int i = 0; i < prepareJobs.size(); i++) {
+            BooleanEncodedValue subnetworkEnc = prepareJobs.get(i).subnetworkEnc;
+            for (IntIntCursor c : changes.get(i)) {
+                graph.getEdgeIteratorState(c.key, Integer.MIN_VALUE).set(subnetworkEnc, c.value == 1);
+                changedFlags.add(c.key);
+            }
+        }
+        logger.info("Updated subnetworks for " + changedEdges.size() + " changed edges, changed flags of " + changedFlags.size()
+                + " edges, jobs: " + prepareJobs + ", took: " + sw.stop().getSeconds() + "s");
+        return changedFlags;
+    }
+
+    private class SubnetworkUpdate {
+        private static final int BIG = 0, SMALL = 1;
+        private final PrepareJob job;
+        private final int maxEdgeKeys;
+        private final EdgeTransitionFilter filter;
+        private final EdgeExplorer explorer;
+        // the status of the edge keys that were checked, BIG or SMALL
+        private final IntIntHashMap status = new IntIntHashMap();
+        private final IntArrayDeque queue = new IntArrayDeque();
+        private final IntIntHashMap changes;
+
+        SubnetworkUpdate(PrepareJob job, int maxEdgeKeys, IntIntHashMap changes) {
+            this.job = job;
+            this.maxEdgeKeys = maxEdgeKeys;
+            this.filter = createTransitionFilter(job.weighting);
+            this.explorer = graph.createEdgeExplorer();
+            this.changes = changes;
+        }
+
+        void run(IntCollection changedEdges) {
+            for (IntCursor c : changedEdges)
+                addNeighbors(c.value);
+            while (!queue.isEmpty()) {
+                int edgeKey = queue.removeFirst();
+                if (status.containsKey(edgeKey) || !isAccessible(edgeKey))
+                    continue;
+                IntHashSet reachable = findReachable(edgeKey, false);
+                if (reachable == null)
+                    reachable = findReachable(edgeKey, true);
+                if (reachable == null) {
+                    status.put(edgeKey, BIG);
+                    checkEdge(GHUtility.getEdgeFromEdgeKey(edgeKey));
+                } else {
+                    for (IntCursor c : findComponents(reachable))
+                        checkEdge(GHUtility.getEdgeFromEdgeKey(c.value));
+                }
+            }
+        }
+
+        private boolean isAccessible(int edgeKey) {
+            return Double.isFinite(job.weighting.calcEdgeWeight(graph.getEdgeIteratorStateForKey(edgeKey), false));
+        }
+
+        /**
+         * @return all edge keys that can be reached from the given one (or that it can be reached from), or null if
+         * there are at least maxEdgeKeys of them
+         */
+        private IntHashSet findReachable(int edgeKey, boolean backward) {
+            IntHashSet reachable = new IntHashSet();
+            IntArrayDeque stack = new IntArrayDeque();
+            reachable.add(edgeKey);
+            stack.addLast(edgeKey);
+            while (!stack.isEmpty()) {
+                EdgeIteratorState edge = graph.getEdgeIteratorStateForKey(stack.removeLast());
+                EdgeIterator iter = explorer.setBaseNode(backward ? edge.getBaseNode() : edge.getAdjNode());
+                while (iter.next()) {
+                    int next;
+                    if (backward) {
+                        // the edge key that ends at the base node of the current one
+                        if (!Double.isFinite(job.weighting.calcEdgeWeight(iter, true)) || !filter.accept(iter.getEdge(), edge))
+                            continue;
+                        next = EdgeBasedTarjanSCC.createEdgeKey(iter, true);
+                    } else {
+                        if (!filter.accept(edge.getEdge(), iter))
+                            continue;
+                        next = EdgeBasedTarjanSCC.createEdgeKey(iter, false);
+                    }
+                    if (reachable.add(next)) {
+                        if (reachable.size() >= maxEdgeKeys)
+                            return null;
+                        stack.addLast(next);
+                    }
+                }
+            }
+            return reachable;
+        }
+
+        /**
+         * Sets the status of the given edge keys. They must be closed under reachability (or reverse reachability),
+         * so their components are contained in them.
+         *
+         * @return the edge keys whose status was not known before
+         */
+        private IntArrayList findComponents(IntHashSet edgeKeys) {
+            IntHashSet edges = new IntHashSet(edgeKeys.size());
+            for (IntCursor c : edgeKeys)
+                edges.add(GHUtility.getEdgeFromEdgeKey(c.value));
+            EdgeBasedTarjanSCC.ConnectedComponents ccs = EdgeBasedTarjanSCC.findComponentsForStartEdges(graph,
+                    (prev, edge) -> edges.contains(edge.getEdge()) && filter.accept(prev, edge), edges);
+            IntArrayList result = new IntArrayList();
+            for (IntArrayList component : ccs.getComponents()) {
+                int componentStatus = component.size() < 2 * minNetworkSize ? SMALL : BIG;
+                for (IntCursor c : component) {
+                    if (edgeKeys.contains(c.value) && !status.containsKey(c.value)) {
+                        status.put(c.value, componentStatus);
+                        result.add(c.value);
+                    }
+                }
+            }
+            // single edge key components are not included in the components
+            for (IntCursor c : edgeKeys) {
+                if (!status.containsKey(c.value)) {
+                    status.put(c.value, SMALL);
+                    result.add(c.value);
+                }
+            }
+            return result;
+        }
+
+        private void checkEdge(int edge) {
+            if (changes.containsKey(edge))
+                return;
+            boolean flag = false;
+            for (int edgeKey : new int[]{GHUtility.createEdgeKey(edge, false), GHUtility.createEdgeKey(edge, true)}) {
+                if (!isAccessible(edgeKey))
+                    continue;
+                if (!status.containsKey(edgeKey)) {
+                    // the edge is checked again when the status of this edge key is known
+                    queue.addLast(edgeKey);
+                    return;
+                }
+                flag |= status.get(edgeKey) == SMALL;
+            }
+            if (flag != graph.getEdgeIteratorState(edge, Integer.MIN_VALUE).get(job.subnetworkEnc)) {
+                changes.put(edge, flag ? 1 : 0);
+                addNeighbors(edge);
+            }
+        }
+
+        private void addNeighbors(int edge) {
+            EdgeIteratorState edgeState = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            for (int node : new int[]{edgeState.getBaseNode(), edgeState.getAdjNode()}) {
+                EdgeIterator iter = explorer.setBaseNode(node);
+                while (iter.next()) {
+                    queue.addLast(GHUtility.createEdgeKey(iter.getEdge(), false));
+                    queue.addLast(GHUtility.createEdgeKey(iter.getEdge(), true));
+                }
+            }
+        }
+    }
+
     private int setSubnetworkEdge(int edgeKey, Weighting weighting, BitSet subnetworkFlags) {
         // edges that are not accessible anyway are not marked as subnetworks additionally
         if (!Double.isFinite(weighting.calcEdgeWeight(graph.getEdgeIteratorStateForKey(edgeKey), false)))
@@ -45,11 +45,13 @@ public class EncodingManager implements EncodedValueLookup {
     private final LinkedHashMap<String, EncodedValue> encodedValueMap;
     private final LinkedHashMap<String, EncodedValue> turnEncodedValueMap;
     private int bytesForFlags;
+    private int bytesForInlineFlags;
     private int intsForTurnCostFlags;
 
     public static void putEncodingManagerIntoProperties(EncodingManager encodingManager, StorableProperties properties) {
         properties.put("graph.em.version", Constants.VERSION_EM);
         properties.put("graph.em.bytes_for_flags", encodingManager.bytesForFlags);
+        properties.put("graph.em.bytes_for_inline_flags", encodingManager.bytesForInlineFlags);
         properties.put("graph.em.ints_for_turn_cost_flags", encodingManager.intsForTurnCostFlags);
         properties.put("graph.encoded_values", encodingManager.toEncodedValuesAsString());
         properties.put("graph.turn_encoded_values", encodingManager.toTurnEncodedValuesAsString());
@@ -83,7 +85,11 @@ public class EncodingManager implements EncodedValueLookup {
                 throw new IllegalStateException("Duplicate turn encoded value name: " + encodedValue.getName() + " in: graph.turn_encoded_values=" + turnEncodedValueStr);
         });
 
-        return new EncodingManager(getIntegerProperty(properties, "graph.em.bytes_for_flags"), getIntegerProperty(properties, "graph.em.ints_for_turn_cost_flags"), encodedValues,
+        int bytesForFlags = getIntegerProperty(properties, "graph.em.bytes_for_flags");
+        // graphs without cold encoded values did not store this
+        String inlineStr = properties.get("graph.em.bytes_for_inline_flags");
+        int bytesForInlineFlags = inlineStr.isEmpty() ? bytesForFlags : Integer.parseInt(inlineStr);
+        return new EncodingManager(bytesForFlags, bytesForInlineFlags, getIntegerProperty(properties, "graph.em.ints_for_turn_cost_flags"), encodedValues,
                 turnEncodedValues
         );
     }
@@ -113,9 +119,18 @@ public class EncodingManager implements EncodedValueLookup {
     public EncodingManager(int bytesForFlags, int intsForTurnCostFlags,
                            LinkedHashMap<String, EncodedValue> encodedValueMap,
                            LinkedHashMap<String, EncodedValue> turnEncodedValueMap) {
+        this(bytesForFlags, bytesForFlags, intsForTurnCostFlags, encodedValueMap, turnEncodedValueMap);
+    }
+
+    public EncodingManager(int bytesForFlags, int bytesForInlineFlags, int intsForTurnCostFlags,
+                           LinkedHashMap<String, EncodedValue> encodedValueMap,
+                           LinkedHashMap<String, EncodedValue> turnEncodedValueMap) {
+        if (bytesForInlineFlags > bytesForFlags)
+            throw new IllegalArgumentException("bytesForInlineFlags cannot be larger than bytesForFlags: " + bytesForInlineFlags + " > " + bytesForFlags);
         this.encodedValueMap = encodedValueMap;
         this.turnEncodedValueMap = turnEncodedValueMap;
         this.bytesForFlags = bytesForFlags;
+        this.bytesForInlineFlags = bytesForInlineFlags;
         this.intsForTurnCostFlags = intsForTurnCostFlags;
     }
 
@@ -126,6 +141,7 @@ public class EncodingManager implements EncodedValueLookup {
     public static class Builder {
         private final EncodedValue.InitializerConfig edgeConfig = new EncodedValue.InitializerConfig();
         private final EncodedValue.InitializerConfig turnCostConfig = new EncodedValue.InitializerConfig();
+        private final List<EncodedValue> coldEncodedValues = new ArrayList<>();
         private EncodingManager em = new EncodingManager();
 
         public Builder add(EncodedValue encodedValue) {
@@ -139,6 +155,22 @@ public class EncodingManager implements EncodedValueLookup {
             return this;
         }
 
+        /**
+         * Adds an encoded value that is rarely read, e.g. one that is not used by the custom models of the profiles.
+         * Cold encoded values are placed behind all other encoded values, starting at a new int, so the graph can store
+         * them outside the edge rows, see {@link #getBytesForInlineFlags()}. This keeps the edge rows small for the
+         * frequently read encoded values.
+         */
+        public Builder addCold(EncodedValue encodedValue) {
+            checkNotBuiltAlready();
+            if (em.hasEncodedValue(encodedValue.getName()) || coldEncodedValues.stream().anyMatch(ev -> ev.getName().equals(encodedValue.getName())))
+                throw new IllegalArgumentException("EncodedValue already exists: " + encodedValue.getName());
+            if (em.hasTurnEncodedValue(encodedValue.getName()))
+                throw new IllegalArgumentException("Already defined as 'turn'-EncodedValue: " + encodedValue.getName());
+            coldEncodedValues.add(encodedValue);
+            return this;
+        }
+
         public Builder addTurnCostEncodedValue(EncodedValue turnCostEnc) {
             checkNotBuiltAlready();
             if (em.hasTurnEncodedValue(turnCostEnc.getName()))
@@ -157,6 +189,16 @@ public class EncodingManager implements EncodedValueLookup {
 
         public EncodingManager build() {
             checkNotBuiltAlready();
+            em.bytesForInlineFlags = edgeConfig.getRequiredBytes();
+            if (!coldEncodedValues.isEmpty()) {
+                edgeConfig.alignToNextInt();
+                for (EncodedValue encodedValue : coldEncodedValues) {
+                    if (em.hasEncodedValue(encodedValue.getName()))
+                        throw new IllegalArgumentException("EncodedValue already exists: " + encodedValue.getName());
+                    encodedValue.init(edgeConfig);
+                    em.encodedValueMap.put(encodedValue.getName(), encodedValue);
+                }
+            }
             em.bytesForFlags = edgeConfig.getRequiredBytes();
             em.intsForTurnCostFlags = turnCostConfig.getRequiredInts();
             EncodingManager result = em;
@@ -169,6 +211,15 @@ public class EncodingManager implements EncodedValueLookup {
         return bytesForFlags;
     }
 
+    /**
+     * @return the number of bytes of the edge flags that are stored within the edge rows. The remaining bytes (if any)
+     * belong to the cold encoded values and start at int index ceil(bytesForInlineFlags / 4), see
+     * {@link Builder#addCold(EncodedValue)}
+     */
+    public int getBytesForInlineFlags() {
+        return bytesForInlineFlags;
+    }
+
     public boolean hasEncodedValue(String key) {
         return encodedValueMap.get(key) != null;
     }
@@ -22,8 +22,11 @@ import com.graphhopper.reader.ReaderWay;
 import com.graphhopper.reader.osm.conditional.ConditionalValueParser;
 import com.graphhopper.reader.osm.conditional.DateRangeParser;
 import com.graphhopper.routing.ev.EdgeIntAccess;
+import com.graphhopper.routing.ev.StringEncodedValue;
 import com.graphhopper.storage.IntsRef;
 import com.graphhopper.util.Helper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.text.ParseException;
 import java.util.Collection;
@@ -35,12 +38,18 @@ import java.util.Map;
  * This parser fills the different XYTemporalAccess enums from the OSM conditional
  * restrictions based on the specified dateRangeParserDate. 'Temporal' means that both, temporary
  * and seasonal restrictions will be considered. Node tags will be ignored for now.
+ * <p>
+ * If a schedule encoded value is specified the used restriction is stored there too, so that it can be evaluated
+ * for other dates later, see TemporalAccessSchedule.
  */
 public class OSMTemporalAccessParser implements TagParser {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(OSMTemporalAccessParser.class);
     private final Collection<String> conditionals;
     private final Setter restrictionSetter;
     private final DateRangeParser parser;
+    private final StringEncodedValue scheduleEnc;
+    private int skippedSchedules;
 
     @FunctionalInterface
     public interface Setter {
@@ -48,8 +57,14 @@ public class OSMTemporalAccessParser implements TagParser {
     }
 
     public OSMTemporalAccessParser(Collection<String> conditionals, Setter restrictionSetter, String dateRangeParserDate) {
+        this(conditionals, restrictionSetter, dateRangeParserDate, null);
+    }
+
+    public OSMTemporalAccessParser(Collection<String> conditionals, Setter restrictionSetter, String dateRangeParserDate,
+                                   StringEncodedValue scheduleEnc) {
         this.conditionals = conditionals;
         this.restrictionSetter = restrictionSetter;
+        this.scheduleEnc = scheduleEnc;
         if (dateRangeParserDate.isEmpty())
             dateRangeParserDate = Helper.createFormatter("yyyy-MM-dd").format(new Date().getTime());
 
@@ -61,28 +76,56 @@ public class OSMTemporalAccessParser implements TagParser {
         // TODO for now the node tag overhead is not worth the effort due to very few data points
         // List<Map<String, Object>> nodeTags = way.getTag("node_tags", null);
 
-        Boolean b = getTemporaryAccess(way.getTags());
-        if (b != null)
-            restrictionSetter.setBoolean(edgeId, edgeIntAccess, b);
+        String schedule = getSchedule(way.getTags());
+        if (schedule == null)
+            return;
+        restrictionSetter.setBoolean(edgeId, edgeIntAccess, isAccessible(schedule));
+        if (scheduleEnc == null)
+            return;
+        if (scheduleEnc.indexOf(schedule) > 0 || scheduleEnc.getValues().size() < scheduleEnc.getMaxValues()) {
+            scheduleEnc.setString(false, edgeId, edgeIntAccess, schedule);
+        } else {
+            // if there are too many distinct schedules we keep only the access for the import date
+            skippedSchedules++;
+            if (skippedSchedules == 1 || skippedSchedules % 10_000 == 0)
+                LOGGER.warn(scheduleEnc.getName() + " cannot store more than " + scheduleEnc.getMaxValues() + " different schedules, "
+                        + "so " + skippedSchedules + " edges so far only get the access of the import date, e.g. OSM way "
+                        + way.getId() + " with " + schedule);
+        }
     }
 
     public Boolean getTemporaryAccess(Map<String, Object> tags) {
+        String schedule = getSchedule(tags);
+        return schedule == null ? null : isAccessible(schedule);
+    }
+
+    /**
+     * @return the first conditional restriction like "no@Jan15-Aug15" that can be evaluated or null if there is none.
+     * The condition is normalized, i.e. without brackets and surrounding whitespace.
+     */
+    private String getSchedule(Map<String, Object> tags) {
         for (Map.Entry<String, Object> entry : tags.entrySet()) {
             if (!conditionals.contains(entry.getKey())) continue;
 
             String value = (String) entry.getValue();
             String[] strs = value.split("@");
             if (strs.length == 2) {
-                Boolean inRange = isInRange(parser, strs[1].trim());
-                if (inRange != null) {
-                    if (strs[0].trim().equals("no")) return !inRange;
-                    if (strs[0].trim().equals("yes")) return inRange;
-                }
+                String access = strs[0].trim();
+                if (!access.equals("no") && !access.equals("yes")) continue;
+                String condition = strs[1].trim();
+                if (isInRange(parser, condition) != null)
+                    return access + "@" + condition.replace('(', ' ').replace(')', ' ').trim();
             }
         }
         return null;
     }
 
+    private boolean isAccessible(String schedule) {
+        String[] strs = schedule.split("@");
+        boolean inRange = isInRange(parser, strs[1]);
+        return strs[0].equals("yes") == inRange;
+    }
+
     private static Boolean isInRange(final DateRangeParser parser, final String value) {
         if (value.isEmpty())
             return null;
@@ -45,6 +45,7 @@ public class BalancedWeightApproximator {
 
     // Constants to shift the estimate (reverse estimate) so that it is actually 0 at the destination (source).
     double fromOffset, toOffset;
+    private int from, to;
 
     public BalancedWeightApproximator(WeightApproximator weightApprox) {
         if (weightApprox == null)
@@ -61,10 +62,29 @@ public class BalancedWeightApproximator {
     public void setFromTo(int from, int to) {
         uniDirApproximatorReverse.setTo(from);
         uniDirApproximatorForward.setTo(to);
+        this.from = from;
+        this.to = to;
+        calcOffsets();
+    }
+
+    private void calcOffsets() {
         fromOffset = 0.5 * uniDirApproximatorForward.approximate(from);
         toOffset = 0.5 * uniDirApproximatorReverse.approximate(to);
     }
 
+    /**
+     * Updates the forward and the reverse approximation, see {@link WeightApproximator#update(int)}.
+     *
+     * @return true if one of them changed. The approximations of all nodes have to be recalculated then.
+     */
+    public boolean update(int currFromNode, int currToNode) {
+        // no short-circuit, both directions should be updated
+        boolean changed = uniDirApproximatorForward.update(currFromNode) | uniDirApproximatorReverse.update(currToNode);
+        if (changed)
+            calcOffsets();
+        return changed;
+    }
+
     public double approximate(int node, boolean reverse) {
         double weightApproximation = 0.5 * (uniDirApproximatorForward.approximate(node) - uniDirApproximatorReverse.approximate(node));
         if (reverse) {
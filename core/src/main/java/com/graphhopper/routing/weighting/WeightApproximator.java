@@ -40,5 +40,16 @@ public interface WeightApproximator {
      */
     WeightApproximator reverse();
 
+    /**
+     * Gives the approximation the chance to adapt itself to the progress of the search, e.g. by picking other
+     * landmarks. The approximation must stay consistent.
+     *
+     * @param currentNode a node the search has just settled
+     * @return true if the approximation changed and previously calculated approximations are outdated
+     */
+    default boolean update(int currentNode) {
+        return false;
+    }
+
     double getSlack();
 }
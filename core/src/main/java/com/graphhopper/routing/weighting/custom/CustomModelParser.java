@@ -73,16 +73,30 @@ public class CustomModelParser {
      * an if-elseif-else group.
      */
     public static CustomWeighting createWeighting(EncodedValueLookup lookup, TurnCostProvider turnCostProvider, CustomModel customModel) {
+        return createWeighting(lookup, turnCostProvider, customModel, null);
+    }
+
+    /**
+     * @param temporalAccess if not null the XYTemporalAccess encoded values are evaluated for this day instead of the
+     *                       import date
+     */
+    public static CustomWeighting createWeighting(EncodedValueLookup lookup, TurnCostProvider turnCostProvider, CustomModel customModel,
+                                                  TemporalAccessSchedules.DayAccess temporalAccess) {
         if (customModel == null)
             throw new IllegalStateException("CustomModel cannot be null");
-        CustomWeighting.Parameters parameters = createWeightingParameters(customModel, lookup);
+        CustomWeighting.Parameters parameters = createWeightingParameters(customModel, lookup, temporalAccess);
         return new CustomWeighting(turnCostProvider, parameters);
     }
 
     public static CustomWeighting2 createWeighting2(EncodedValueLookup lookup, TurnCostProvider turnCostProvider, CustomModel customModel) {
+        return createWeighting2(lookup, turnCostProvider, customModel, null);
+    }
+
+    public static CustomWeighting2 createWeighting2(EncodedValueLookup lookup, TurnCostProvider turnCostProvider, CustomModel customModel,
+                                                    TemporalAccessSchedules.DayAccess temporalAccess) {
         if (customModel == null)
             throw new IllegalStateException("CustomModel cannot be null");
-        CustomWeighting.Parameters parameters = createWeightingParameters(customModel, lookup);
+        CustomWeighting.Parameters parameters = createWeightingParameters(customModel, lookup, temporalAccess);
         return new CustomWeighting2(turnCostProvider, parameters);
     }
 
@@ -91,6 +105,11 @@ public class CustomModelParser {
      * and returns an instance.
      */
     public static CustomWeighting.Parameters createWeightingParameters(CustomModel customModel, EncodedValueLookup lookup) {
+        return createWeightingParameters(customModel, lookup, null);
+    }
+
+    static CustomWeighting.Parameters createWeightingParameters(CustomModel customModel, EncodedValueLookup lookup,
+                                                                TemporalAccessSchedules.DayAccess temporalAccess) {
         String key = customModel.toString();
         Class<?> clazz = customModel.isInternal() ? INTERNAL_CACHE.get(key) : null;
         if (CACHE_SIZE > 0 && clazz == null)
@@ -113,6 +132,7 @@ public class CustomModelParser {
         try {
             // The class does not need to be thread-safe as we create an instance per request
             CustomWeightingHelper prio = (CustomWeightingHelper) clazz.getDeclaredConstructor().newInstance();
+            prio.setTemporalAccess(temporalAccess);
             prio.init(customModel, lookup, CustomModel.getAreasAsMap(customModel.getAreas()));
             return new CustomWeighting.Parameters(
                     prio::getSpeed, prio::calcMaxSpeed,
@@ -268,16 +288,16 @@ public class CustomModelParser {
     private static String getVariableDeclaration(EncodedValueLookup lookup, final String arg) {
         if (lookup.hasEncodedValue(arg)) {
             EncodedValue enc = lookup.getEncodedValue(arg, EncodedValue.class);
-            return getReturnType(enc) + " " + arg + " = (" + getReturnType(enc) + ") (reverse ? " +
+            return getReturnType(enc) + " " + arg + " = (" + getReturnType(enc) + ") " + wrapTemporalAccess(enc, arg, "(reverse ? " +
                     "edge.getReverse((" + getInterface(enc) + ") this." + arg + "_enc) : " +
-                    "edge.get((" + getInterface(enc) + ") this." + arg + "_enc));\n";
+                    "edge.get((" + getInterface(enc) + ") this." + arg + "_enc))") + ";\n";
         } else if (arg.startsWith(BACKWARD_PREFIX)) {
             final String argSubstr = arg.substring(BACKWARD_PREFIX.length());
             if (lookup.hasEncodedValue(argSubstr)) {
                 EncodedValue enc = lookup.getEncodedValue(argSubstr, EncodedValue.class);
-                return getReturnType(enc) + " " + arg + " = (" + getReturnType(enc) + ") (reverse ? " +
+                return getReturnType(enc) + " " + arg + " = (" + getReturnType(enc) + ") " + wrapTemporalAccess(enc, argSubstr, "(reverse ? " +
                         "edge.get((" + getInterface(enc) + ") this." + argSubstr + "_enc) : " +
-                        "edge.getReverse((" + getInterface(enc) + ") this." + argSubstr + "_enc));\n";
+                        "edge.getReverse((" + getInterface(enc) + ") this." + argSubstr + "_enc))") + ";\n";
             } else {
                 throw new IllegalArgumentException("Not supported for backward: " + argSubstr);
             }
@@ -288,6 +308,17 @@ public class CustomModelParser {
         }
     }
 
+    /**
+     * The access of the XYTemporalAccess encoded values can depend on the departure time of the request, see
+     * CustomWeightingHelper.getTemporalAccess. The generated code is the same for every departure time, so the compiled
+     * class can still be cached.
+     */
+    private static String wrapTemporalAccess(EncodedValue enc, String arg, String expression) {
+        if (enc instanceof EnumEncodedValue && TemporalAccessSchedule.isTemporalAccess(arg))
+            return "getTemporalAccess(this." + arg + "_enc, edge, " + expression + ")";
+        return expression;
+    }
+
     /**
      * @return the interface as string of the provided EncodedValue, e.g. IntEncodedValue (only interface) or
      * BooleanEncodedValue (first interface). For StringEncodedValue we return IntEncodedValue to return the index
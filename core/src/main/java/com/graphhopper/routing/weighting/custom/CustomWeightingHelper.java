@@ -20,6 +20,7 @@ package com.graphhopper.routing.weighting.custom;
 import com.graphhopper.json.MinMax;
 import com.graphhopper.json.Statement;
 import com.graphhopper.routing.ev.EncodedValueLookup;
+import com.graphhopper.routing.ev.EnumEncodedValue;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.Polygon;
@@ -37,10 +38,16 @@ public class CustomWeightingHelper {
 
     protected EncodedValueLookup lookup;
     protected CustomModel customModel;
+    // the access of the conditional restrictions for the departure day of the request, if it was specified
+    protected TemporalAccessSchedules.DayAccess temporalAccess;
 
     protected CustomWeightingHelper() {
     }
 
+    public void setTemporalAccess(TemporalAccessSchedules.DayAccess temporalAccess) {
+        this.temporalAccess = temporalAccess;
+    }
+
     public void init(CustomModel customModel, EncodedValueLookup lookup, Map<String, JsonFeature> areas) {
         this.lookup = lookup;
         this.customModel = customModel;
@@ -54,6 +61,14 @@ public class CustomWeightingHelper {
         return getRawSpeed(edge, reverse);
     }
 
+    /**
+     * Used for the XYTemporalAccess encoded values to replace the access stored for the import date with the access
+     * for the departure day of the request.
+     */
+    protected final Enum getTemporalAccess(EnumEncodedValue accessEnc, EdgeIteratorState edge, Enum access) {
+        return temporalAccess == null ? access : temporalAccess.getAccess(accessEnc, edge, access);
+    }
+
     protected final double getRawSpeed(EdgeIteratorState edge, boolean reverse) {
         return 1;
     }
@@ -0,0 +1,172 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting.custom;
+
+import com.graphhopper.reader.osm.conditional.DateRange;
+import com.graphhopper.reader.osm.conditional.DateRangeParser;
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Evaluates the conditional access restrictions stored in the XYTemporalAccess schedules (see TemporalAccessSchedule)
+ * for the departure day of a request. The restrictions are parsed in the constructor, so a single instance should be
+ * shared by all requests for the same graph. The access of every restriction is then calculated only once per day and
+ * a request only has to look up the access via the index stored for the edge.
+ */
+public class TemporalAccessSchedules {
+    // there are usually only requests for a few different days, but we do not want to grow without limits
+    private static final int MAX_DAYS = 366;
+
+    private final EnumEncodedValue<?>[] accessEncs;
+    private final IntEncodedValue[] scheduleEncs;
+    // for every schedule index: the access if the date range matches, null if the restriction cannot be evaluated
+    private final Boolean[][] accessInRange;
+    private final DateRange[][] ranges;
+    private final Map<LocalDate, DayAccess> days = new ConcurrentHashMap<>();
+
+    public TemporalAccessSchedules(EncodedValueLookup lookup) {
+        List<EnumEncodedValue<?>> accessEncList = new ArrayList<>();
+        List<StringEncodedValue> scheduleEncList = new ArrayList<>();
+        for (EncodedValue enc : lookup.getEncodedValues()) {
+            String scheduleKey = TemporalAccessSchedule.key(enc.getName());
+            if (enc instanceof EnumEncodedValue && TemporalAccessSchedule.isTemporalAccess(enc.getName()) && lookup.hasEncodedValue(scheduleKey)) {
+                accessEncList.add((EnumEncodedValue<?>) enc);
+                scheduleEncList.add(lookup.getStringEncodedValue(scheduleKey));
+            }
+        }
+        accessEncs = accessEncList.toArray(new EnumEncodedValue<?>[0]);
+        scheduleEncs = scheduleEncList.toArray(new IntEncodedValue[0]);
+        accessInRange = new Boolean[accessEncs.length][];
+        ranges = new DateRange[accessEncs.length][];
+        // DateRangeParser uses shared date formats
+        synchronized (DateRangeParser.class) {
+            for (int i = 0; i < accessEncs.length; i++) {
+                List<String> values = scheduleEncList.get(i).getValues();
+                // index 0 is reserved for edges without a restriction
+                accessInRange[i] = new Boolean[values.size() + 1];
+                ranges[i] = new DateRange[values.size() + 1];
+                for (int index = 1; index <= values.size(); index++) {
+                    String[] strs = values.get(index - 1).split("@");
+                    if (strs.length != 2) continue;
+                    try {
+                        ranges[i][index] = DateRangeParser.getRange(strs[1]);
+                    } catch (ParseException ex) {
+                        continue;
+                    }
+                    if (ranges[i][index] != null)
+                        accessInRange[i][index] = strs[0].equals("yes");
+                }
+            }
+        }
+    }
+
+    /**
+     * @param departureTime a date like 2024-03-20 or an ISO 8601 date time like 2024-03-20T08:00:00+01:00. Only the
+     *                      day is considered, in the time zone of the specified date time.
+     */
+    public static LocalDate parseDay(String departureTime) {
+        try {
+            if (departureTime.length() == 10)
+                return LocalDate.parse(departureTime);
+            return OffsetDateTime.parse(departureTime).toLocalDate();
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Cannot parse departure time " + departureTime + ", use e.g. 2024-03-20 or 2024-03-20T08:00:00Z");
+        }
+    }
+
+    /**
+     * @return true if there is no XYTemporalAccess encoded value with a schedule
+     */
+    public boolean isEmpty() {
+        return accessEncs.length == 0;
+    }
+
+    /**
+     * @return the access of all conditional restrictions for the specified day
+     */
+    public DayAccess evaluate(LocalDate day) {
+        DayAccess dayAccess = days.get(day);
+        if (dayAccess != null)
+            return dayAccess;
+        if (days.size() >= MAX_DAYS)
+            days.clear();
+        return days.computeIfAbsent(day, this::calcDayAccess);
+    }
+
+    private synchronized DayAccess calcDayAccess(LocalDate day) {
+        Calendar calendar = DateRangeParser.createCalendar();
+        calendar.clear();
+        calendar.set(day.getYear(), day.getMonthValue() - 1, day.getDayOfMonth());
+        Enum<?>[][] access = new Enum<?>[accessEncs.length][];
+        for (int i = 0; i < accessEncs.length; i++) {
+            Enum<?> yes = getValue(accessEncs[i], "YES"), no = getValue(accessEncs[i], "NO");
+            access[i] = new Enum<?>[ranges[i].length];
+            for (int index = 0; index < ranges[i].length; index++) {
+                // DateRange is not thread-safe as it lazily calculates the fields of its calendars, that's why this
+                // method is synchronized
+                if (accessInRange[i][index] != null)
+                    access[i][index] = accessInRange[i][index] == ranges[i][index].isInRange(calendar) ? yes : no;
+            }
+        }
+        return new DayAccess(accessEncs, scheduleEncs, access);
+    }
+
+    private static Enum<?> getValue(EnumEncodedValue<?> enc, String name) {
+        for (Enum<?> value : enc.getValues()) {
+            if (value.name().equals(name))
+                return value;
+        }
+        throw new IllegalArgumentException(enc.getName() + " has no value " + name);
+    }
+
+    public static class DayAccess {
+        private final EnumEncodedValue<?>[] accessEncs;
+        private final IntEncodedValue[] scheduleEncs;
+        private final Enum<?>[][] access;
+
+        DayAccess(EnumEncodedValue<?>[] accessEncs, IntEncodedValue[] scheduleEncs, Enum<?>[][] access) {
+            this.accessEncs = accessEncs;
+            this.scheduleEncs = scheduleEncs;
+            this.access = access;
+        }
+
+        /**
+         * @return the access of the edge for this day or the specified value if the access encoded value has no
+         * schedule or the edge has no restriction that can be evaluated
+         */
+        public Enum<?> getAccess(EnumEncodedValue<?> accessEnc, EdgeIteratorState edge, Enum<?> value) {
+            for (int i = 0; i < accessEncs.length; i++) {
+                if (accessEncs[i] == accessEnc) {
+                    Enum<?> result = access[i][edge.get(scheduleEncs[i])];
+                    return result == null ? value : result;
+                }
+            }
+            return value;
+        }
+    }
+}
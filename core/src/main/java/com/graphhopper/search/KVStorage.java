@@ -17,6 +17,7 @@
  */
 package com.graphhopper.search;
 
+import com.graphhopper.coll.GHLongLongHashMap;
 import com.graphhopper.storage.DataAccess;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.util.BitUtil;
@@ -39,6 +40,11 @@ public class KVStorage {
     static final int MAX_UNIQUE_KEYS = (1 << 14);
     // Store string value as byte array and store the length into 1 byte
     private static final int MAX_LENGTH = (1 << 8) - 1;
+    // The number of content hashes we keep to find duplicates while adding. If there are more we start over to limit
+    // the memory usage, so only recently added entries are re-used then.
+    private static final int MAX_DEDUPLICATION_ENTRIES = 1 << 21;
+    // The number of decoded entries we keep for reading, must be a power of 2
+    private static final int DECODED_CACHE_SIZE = 1 << 12;
 
     private final Directory dir;
     // It stores the mapping of "key to index" in the keys DataAccess. E.g. if your first key is "some" then we will
@@ -82,6 +88,12 @@ public class KVStorage {
     private long bytePointer = START_POINTER;
     private long lastEntryPointer = -1;
     private Map<String, KValue> lastEntries;
+    // the content hash of every added entry, pointing to the entry. It is only needed while adding entries, so it is
+    // created lazily and dropped on flush.
+    private GHLongLongHashMap contentHashToPointer;
+    // A direct mapped cache for getAll and get. It is safe to share the decoded entries between threads because they
+    // are immutable and the array slots are only replaced as a whole.
+    private final DecodedEntry[] decodedCache = new DecodedEntry[DECODED_CACHE_SIZE];
 
     /**
      * Specify a larger cacheSize to reduce disk usage. Note that this increases the memory usage of this object.
@@ -223,7 +235,8 @@ public class KVStorage {
             throw new IllegalArgumentException("Cannot store more than 200 entries per entry");
 
         // This is a very important "compression" mechanism because one OSM way is split into multiple edges and so we
-        // can often re-use the serialized key-value pairs of the previous edge.
+        // can often re-use the serialized key-value pairs of the previous edge. For other ways with the same key-value
+        // pairs we find the entry via its content hash, see below.
         if (entries.equals(lastEntries)) return lastEntryPointer;
 
         int entryCount = 0;
@@ -253,15 +266,69 @@ public class KVStorage {
         bytePointer = setKVList(bytePointer, entries);
         if (bytePointer < 0)
             throw new IllegalStateException("Negative bytePointer in KVStorage");
+
+        long existingPointer = findDuplicate(lastEntryPointer, bytePointer);
+        if (existingPointer != EMPTY_POINTER) {
+            // drop the bytes we just wrote, they will be overwritten by the next entry
+            bytePointer = lastEntryPointer;
+            lastEntryPointer = existingPointer;
+        }
         return lastEntryPointer;
     }
 
+    /**
+     * @return the pointer of an earlier entry with the same bytes as the entry from the specified start to end pointer
+     * or EMPTY_POINTER if there is none. In the latter case the entry is remembered for later calls.
+     */
+    private long findDuplicate(long start, long end) {
+        int length = (int) (end - start);
+        byte[] bytes = new byte[length];
+        vals.getBytes(start, bytes, length);
+        // FNV-1a
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001b3L;
+        }
+
+        if (contentHashToPointer == null)
+            contentHashToPointer = new GHLongLongHashMap();
+        long existingPointer = contentHashToPointer.getOrDefault(hash, EMPTY_POINTER);
+        if (existingPointer != EMPTY_POINTER) {
+            // The entries are self-delimiting, i.e. if the first bytes are equal the earlier entry has the same length.
+            byte[] existingBytes = new byte[length];
+            vals.getBytes(existingPointer, existingBytes, length);
+            if (Arrays.equals(bytes, existingBytes))
+                return existingPointer;
+            // a hash collision, we keep the old entry
+            return EMPTY_POINTER;
+        }
+        if (contentHashToPointer.size() >= MAX_DEDUPLICATION_ENTRIES)
+            contentHashToPointer.clear();
+        contentHashToPointer.put(hash, start);
+        return EMPTY_POINTER;
+    }
+
+    /**
+     * @return the key-value pairs of the specified entry. The returned Map must not be modified as it can be shared
+     * with other callers.
+     */
     public Map<String, KValue> getAll(final long entryPointer) {
         if (entryPointer < 0)
             throw new IllegalStateException("Pointer to access KVStorage cannot be negative:" + entryPointer);
 
         if (entryPointer == EMPTY_POINTER) return Collections.emptyMap();
 
+        int slot = (int) (entryPointer ^ entryPointer >>> 32) * 0x9E3779B9 >>> 20 & (DECODED_CACHE_SIZE - 1);
+        DecodedEntry decoded = decodedCache[slot];
+        if (decoded != null && decoded.pointer == entryPointer)
+            return decoded.map;
+
+        Map<String, KValue> map = decode(entryPointer);
+        decodedCache[slot] = new DecodedEntry(entryPointer, map);
+        return map;
+    }
+
+    private Map<String, KValue> decode(final long entryPointer) {
         int keyCount = vals.getByte(entryPointer) & 0xFF;
         if (keyCount == 0) return Collections.emptyMap();
 
@@ -287,7 +354,7 @@ public class KVStorage {
                 map.put(key, new KValue(fwd ? object : null, bwd ? object : null));
         }
 
-        return map;
+        return Collections.unmodifiableMap(map);
     }
 
     /**
@@ -414,33 +481,14 @@ public class KVStorage {
 
         if (entryPointer == EMPTY_POINTER) return null;
 
-        Integer keyIndex = keyToIndex.get(key);
-        if (keyIndex == null) return null; // key wasn't stored before
-
-        int keyCount = vals.getByte(entryPointer) & 0xFF;
-        if (keyCount == 0) return null; // no entries
-
-        long tmpPointer = entryPointer + 1;
-        for (int i = 0; i < keyCount; i++) {
-            int currentKeyIndexRaw = vals.getShort(tmpPointer);
-            boolean bwd = (currentKeyIndexRaw & 1) == 1;
-            boolean fwd = (currentKeyIndexRaw & 2) == 2;
-            int currentKeyIndex = currentKeyIndexRaw >>> 2;
-
-            assert currentKeyIndex < indexToKey.size() : "invalid key index " + currentKeyIndex + ">=" + indexToKey.size() + ", entryPointer=" + entryPointer + ", max=" + bytePointer;
-            tmpPointer += 2;
-            if ((!reverse && fwd || reverse && bwd) && currentKeyIndex == keyIndex) {
-                return deserializeObj(null, tmpPointer, indexToClass.get(keyIndex));
-            }
+        if (!keyToIndex.containsKey(key)) return null; // key wasn't stored before
 
-            // skip to next entry of same edge via skipping the real value
-            Class<?> clazz = indexToClass.get(currentKeyIndex);
-            int valueLength = hasDynLength(clazz) ? 1 + vals.getByte(tmpPointer) & 0xFF : getFixLength(clazz);
-            tmpPointer += valueLength;
-        }
-
-        // value for specified key does not exist for the specified pointer
-        return null;
+        // edges usually have only a few key-value pairs, so decoding all of them is cheap and the decoded entry is
+        // cached for the other keys and edges of the same entry
+        KValue value = getAll(entryPointer).get(key);
+        if (value == null)
+            return null; // value for specified key does not exist for the specified pointer
+        return reverse ? value.bwdValue : value.fwdValue;
     }
 
     public void flush() {
@@ -472,6 +520,9 @@ public class KVStorage {
         vals.setHeader(4, bitUtil.getIntHigh(bytePointer));
         vals.setHeader(8, Constants.VERSION_KV_STORAGE);
         vals.flush();
+        // usually no entries are added after the flush, and if they are, they are just not deduplicated against the
+        // earlier ones
+        contentHashToPointer = null;
     }
 
     public void clear() {
@@ -480,6 +531,7 @@ public class KVStorage {
     }
 
     public void close() {
+        contentHashToPointer = null;
         keys.close();
         vals.close();
     }
@@ -492,6 +544,16 @@ public class KVStorage {
         return vals.getCapacity() + keys.getCapacity();
     }
 
+    private static class DecodedEntry {
+        final long pointer;
+        final Map<String, KValue> map;
+
+        DecodedEntry(long pointer, Map<String, KValue> map) {
+            this.pointer = pointer;
+            this.map = map;
+        }
+    }
+
     public static class KValue {
         private final Object fwdValue;
         private final Object bwdValue;
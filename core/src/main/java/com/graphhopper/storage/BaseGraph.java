@@ -27,7 +27,10 @@ import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
 
 import java.io.Closeable;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 import java.util.function.IntConsumer;
 import java.util.function.IntUnaryOperator;
@@ -62,13 +65,22 @@ public class BaseGraph implements Graph, Closeable {
     private long minGeoRef;
     private long maxGeoRef;
     private final int eleBytesPerCoord;
+    private boolean compressedGeometry;
 
     public BaseGraph(Directory dir, boolean withElevation, boolean withTurnCosts, int segmentSize, int bytesForFlags) {
+        this(dir, withElevation, withTurnCosts, segmentSize, bytesForFlags, bytesForFlags);
+    }
+
+    /**
+     * @param bytesForInlineFlags the number of bytes of the edge flags that are stored within the edge rows. The
+     *                            remaining flags are stored in separate columns, see EncodingManager.Builder.addCold
+     */
+    public BaseGraph(Directory dir, boolean withElevation, boolean withTurnCosts, int segmentSize, int bytesForFlags, int bytesForInlineFlags) {
         this.dir = dir;
         this.bitUtil = BitUtil.LITTLE;
         this.wayGeometry = dir.create("geometry", segmentSize);
         this.edgeKVStorage = new KVStorage(dir, true);
-        this.store = new BaseGraphNodesAndEdges(dir, withElevation, withTurnCosts, segmentSize, bytesForFlags);
+        this.store = new BaseGraphNodesAndEdges(dir, withElevation, withTurnCosts, segmentSize, bytesForFlags, bytesForInlineFlags);
         this.nodeAccess = new GHNodeAccess(store);
         this.segmentSize = segmentSize;
         this.turnCostStorage = withTurnCosts ? new TurnCostStorage(this, dir.create("turn_costs", dir.getDefaultType("turn_costs", true), segmentSize)) : null;
@@ -113,6 +125,23 @@ public class BaseGraph implements Graph, Closeable {
                     + "after calling create or loadExisting. Calling one of the methods twice is also not allowed.");
     }
 
+    /**
+     * Stores the latitude and longitude of the pillar nodes of new way geometries as zigzag varint deltas. The first
+     * pillar node is stored relative to the base tower node, so the tower node coordinates must not change after the
+     * geometry was set. The elevation is stored with a fixed width, so that it can be changed later. An existing
+     * geometry can only be replaced with one that fits into the same number of bytes. When loading an existing graph
+     * the format stored in the geometry header is used instead.
+     */
+    public BaseGraph setCompressedGeometry(boolean compressedGeometry) {
+        checkNotInitialized();
+        this.compressedGeometry = compressedGeometry;
+        return this;
+    }
+
+    public boolean isCompressedGeometry() {
+        return compressedGeometry;
+    }
+
     private void loadWayGeometryHeader() {
         int geometryVersion = wayGeometry.getHeader(0);
         GHUtility.checkDAVersion(wayGeometry.getName(), Constants.VERSION_GEOMETRY, geometryVersion);
@@ -124,6 +153,7 @@ public class BaseGraph implements Graph, Closeable {
                 wayGeometry.getHeader(12),
                 wayGeometry.getHeader(16)
         );
+        compressedGeometry = wayGeometry.getHeader(20) == 1;
     }
 
     private void setWayGeometryHeader() {
@@ -132,6 +162,7 @@ public class BaseGraph implements Graph, Closeable {
         wayGeometry.setHeader(8, bitUtil.getIntHigh(minGeoRef));
         wayGeometry.setHeader(12, bitUtil.getIntLow(maxGeoRef));
         wayGeometry.setHeader(16, bitUtil.getIntHigh(maxGeoRef));
+        wayGeometry.setHeader(20, compressedGeometry ? 1 : 0);
     }
 
     private void setInitialized() {
@@ -246,19 +277,33 @@ public class BaseGraph implements Graph, Closeable {
     }
 
     public boolean loadExisting() {
-        checkNotInitialized();
-
-        if (!store.loadExisting())
-            return false;
-
-        if (!wayGeometry.loadExisting())
-            return false;
+        return loadExisting(1);
+    }
 
-        if (!edgeKVStorage.loadExisting())
-            return false;
+    /**
+     * @param threads the number of threads used to load the independent storages of this graph concurrently, which
+     *                speeds up loading for e.g. RAM_STORE where all files have to be read into memory
+     */
+    public boolean loadExisting(int threads) {
+        checkNotInitialized();
 
-        if (supportsTurnCosts() && !turnCostStorage.loadExisting())
-            return false;
+        List<BooleanSupplier> loaders = List.of(
+                store::loadExisting,
+                wayGeometry::loadExisting,
+                edgeKVStorage::loadExisting,
+                () -> !supportsTurnCosts() || turnCostStorage.loadExisting());
+        if (threads == 1) {
+            if (!loaders.stream().allMatch(BooleanSupplier::getAsBoolean))
+                return false;
+        } else {
+            AtomicBoolean loaded = new AtomicBoolean(true);
+            GHUtility.runConcurrently(loaders.stream().<Runnable>map(loader -> () -> {
+                if (!loader.getAsBoolean())
+                    loaded.set(false);
+            }), threads);
+            if (!loaded.get())
+                return false;
+        }
 
         setInitialized();
         loadWayGeometryHeader();
@@ -465,17 +510,20 @@ public class BaseGraph implements Graph, Closeable {
                 throw new IllegalStateException("This edge has already been copied so we can no longer change the geometry, pointer=" + edgePointer);
 
             int len = pillarNodes.size();
+            byte[] wayGeometryBytes = compressedGeometry
+                    ? createCompressedWayGeometryBytes(pillarNodes, edgePointer, reverse)
+                    : createWayGeometryBytes(pillarNodes, reverse);
             if (existingGeoRef > 0) {
                 final int count = getPillarCount(existingGeoRef);
-                if (len <= count) {
-                    setWayGeometryAtGeoRef(pillarNodes, edgePointer, reverse, existingGeoRef);
+                if (len <= count && wayGeometryBytes.length <= getWayGeometryBytes(existingGeoRef, count)) {
+                    setWayGeometryAtGeoRef(wayGeometryBytes, edgePointer, existingGeoRef);
                     return;
                 } else {
                     throw new IllegalStateException("This edge already has a way geometry so it cannot be changed to a bigger geometry, pointer=" + edgePointer);
                 }
             }
-            long nextGeoRef = nextGeoRef(3 + len * (8 + eleBytesPerCoord));
-            setWayGeometryAtGeoRef(pillarNodes, edgePointer, reverse, nextGeoRef);
+            long nextGeoRef = nextGeoRef(wayGeometryBytes.length);
+            setWayGeometryAtGeoRef(wayGeometryBytes, edgePointer, nextGeoRef);
         } else {
             store.setGeoRef(edgePointer, 0L);
         }
@@ -485,8 +533,7 @@ public class BaseGraph implements Graph, Closeable {
         return store;
     }
 
-    private void setWayGeometryAtGeoRef(PointList pillarNodes, long edgePointer, boolean reverse, long geoRef) {
-        byte[] wayGeometryBytes = createWayGeometryBytes(pillarNodes, reverse);
+    private void setWayGeometryAtGeoRef(byte[] wayGeometryBytes, long edgePointer, long geoRef) {
         wayGeometry.ensureCapacity(geoRef + wayGeometryBytes.length);
         wayGeometry.setBytes(geoRef, wayGeometryBytes, wayGeometryBytes.length);
         store.setGeoRef(edgePointer, geoRef);
@@ -520,10 +567,88 @@ public class BaseGraph implements Graph, Closeable {
         return bytes;
     }
 
+    /**
+     * Compressed layout: pillar count (3 bytes) | payload bytes (varint) | per pillar node the zigzag varint deltas
+     * of lat and lon and (for 3D) the elevation (3 bytes). The deltas of the first pillar node are relative to nodeA.
+     */
+    private byte[] createCompressedWayGeometryBytes(PointList pillarNodes, long edgePointer, boolean reverse) {
+        int len = pillarNodes.size();
+        byte[] payload = new byte[len * (10 + eleBytesPerCoord)];
+        if (reverse)
+            pillarNodes.reverse();
+
+        int nodeA = store.getNodeA(edgePointer);
+        int prevLat = Helper.degreeToInt(nodeAccess.getLat(nodeA));
+        int prevLon = Helper.degreeToInt(nodeAccess.getLon(nodeA));
+        boolean is3D = nodeAccess.is3D();
+        int tmpOffset = 0;
+        for (int i = 0; i < len; i++) {
+            int lat = Helper.degreeToInt(pillarNodes.getLat(i));
+            int lon = Helper.degreeToInt(pillarNodes.getLon(i));
+            tmpOffset = writeVarInt(payload, tmpOffset, BitUtil.zigZagEncode(lat - prevLat));
+            tmpOffset = writeVarInt(payload, tmpOffset, BitUtil.zigZagEncode(lon - prevLon));
+            prevLat = lat;
+            prevLon = lon;
+            if (is3D) {
+                bitUtil.fromUInt3(payload, Helper.eleToUInt(pillarNodes.getEle(i)), tmpOffset);
+                tmpOffset += 3;
+            }
+        }
+        byte[] header = new byte[8];
+        int headerLen = writeVarInt(header, 3, tmpOffset);
+        if (((headerLen + tmpOffset) & 0xFF00_0000) != 0)
+            throw new IllegalArgumentException("too long way geometry " + (headerLen + tmpOffset) + ", " + len);
+        bitUtil.fromUInt3(header, len, 0);
+        byte[] bytes = new byte[headerLen + tmpOffset];
+        System.arraycopy(header, 0, bytes, 0, headerLen);
+        System.arraycopy(payload, 0, bytes, headerLen, tmpOffset);
+        return bytes;
+    }
+
+    private static int writeVarInt(byte[] bytes, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[offset++] = (byte) value;
+        return offset;
+    }
+
     private int getPillarCount(long geoRef) {
         return (wayGeometry.getByte(geoRef + 2) & 0xFF << 16) | wayGeometry.getShort(geoRef);
     }
 
+    /**
+     * @return the number of bytes of the way geometry at the specified geoRef, including the header
+     */
+    private int getWayGeometryBytes(long geoRef, int count) {
+        if (compressedGeometry) {
+            int payloadBytes = readPayloadBytes(geoRef);
+            return varIntLength(payloadBytes) + 3 + payloadBytes;
+        }
+        return 3 + count * (8 + eleBytesPerCoord);
+    }
+
+    private int readPayloadBytes(long geoRef) {
+        int value = 0, shift = 0, b;
+        geoRef += 3;
+        do {
+            b = wayGeometry.getByte(geoRef++);
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static int varIntLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
     private PointList fetchWayGeometry_(long edgePointer, boolean reverse, FetchMode mode, int baseNode, int adjNode) {
         if (mode == FetchMode.TOWER_ONLY) {
             // no reverse handling required as adjNode and baseNode is already properly switched
@@ -535,11 +660,16 @@ public class BaseGraph implements Graph, Closeable {
         long geoRef = store.getGeoRef(edgePointer);
         int count = 0;
         byte[] bytes = null;
+        long payloadPointer = 0;
         if (geoRef > 0) {
             count = getPillarCount(geoRef);
-            geoRef += 3L;
-            bytes = new byte[count * (8 + eleBytesPerCoord)];
-            wayGeometry.getBytes(geoRef, bytes, bytes.length);
+            if (compressedGeometry) {
+                // the varints are decoded directly from the way geometry storage, so no buffer is needed
+                payloadPointer = geoRef + 3 + varIntLength(readPayloadBytes(geoRef));
+            } else {
+                bytes = new byte[count * (8 + eleBytesPerCoord)];
+                wayGeometry.getBytes(geoRef + 3L, bytes, bytes.length);
+            }
         } else if (mode == FetchMode.PILLAR_ONLY)
             return PointList.EMPTY;
 
@@ -550,6 +680,23 @@ public class BaseGraph implements Graph, Closeable {
         } else if (mode == FetchMode.ALL || mode == FetchMode.BASE_AND_PILLAR)
             pillarNodes.add(nodeAccess, baseNode);
 
+        if (compressedGeometry)
+            addCompressedPillarNodes(pillarNodes, payloadPointer, count, store.getNodeA(edgePointer));
+        else
+            addPillarNodes(pillarNodes, bytes, count);
+
+        if (reverse) {
+            if (mode == FetchMode.ALL || mode == FetchMode.BASE_AND_PILLAR)
+                pillarNodes.add(nodeAccess, baseNode);
+
+            pillarNodes.reverse();
+        } else if (mode == FetchMode.ALL || mode == FetchMode.PILLAR_AND_ADJ)
+            pillarNodes.add(nodeAccess, adjNode);
+
+        return pillarNodes;
+    }
+
+    private void addPillarNodes(PointList pillarNodes, byte[] bytes, int count) {
         int index = 0;
         for (int i = 0; i < count; i++) {
             double lat = Helper.intToDegree(bitUtil.toInt(bytes, index));
@@ -563,16 +710,50 @@ public class BaseGraph implements Graph, Closeable {
                 pillarNodes.add(lat, lon);
             }
         }
+    }
 
-        if (reverse) {
-            if (mode == FetchMode.ALL || mode == FetchMode.BASE_AND_PILLAR)
-                pillarNodes.add(nodeAccess, baseNode);
+    private void addCompressedPillarNodes(PointList pillarNodes, long pointer, int count, int nodeA) {
+        int lat = Helper.degreeToInt(nodeAccess.getLat(nodeA));
+        int lon = Helper.degreeToInt(nodeAccess.getLon(nodeA));
+        VarIntReader reader = new VarIntReader(wayGeometry, pointer);
+        for (int i = 0; i < count; i++) {
+            lat += reader.readZigZag();
+            lon += reader.readZigZag();
+            if (nodeAccess.is3D()) {
+                pillarNodes.add(Helper.intToDegree(lat), Helper.intToDegree(lon), Helper.uIntToEle(reader.readUInt3()));
+            } else {
+                pillarNodes.add(Helper.intToDegree(lat), Helper.intToDegree(lon));
+            }
+        }
+    }
 
-            pillarNodes.reverse();
-        } else if (mode == FetchMode.ALL || mode == FetchMode.PILLAR_AND_ADJ)
-            pillarNodes.add(nodeAccess, adjNode);
+    private static final class VarIntReader {
+        private final DataAccess dataAccess;
+        private long pointer;
 
-        return pillarNodes;
+        VarIntReader(DataAccess dataAccess, long pointer) {
+            this.dataAccess = dataAccess;
+            this.pointer = pointer;
+        }
+
+        int readZigZag() {
+            int value = 0, shift = 0, b;
+            do {
+                b = dataAccess.getByte(pointer++);
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return BitUtil.zigZagDecode(value);
+        }
+
+        /**
+         * Reads three bytes in the order of {@link BitUtil#fromUInt3}
+         */
+        int readUInt3() {
+            int value = (dataAccess.getByte(pointer + 2) & 0xFF) << 16 | (dataAccess.getByte(pointer + 1) & 0xFF) << 8 | (dataAccess.getByte(pointer) & 0xFF);
+            pointer += 3;
+            return value;
+        }
     }
 
     static int getPointListLength(int pillarNodes, FetchMode mode) {
@@ -610,19 +791,26 @@ public class BaseGraph implements Graph, Closeable {
 
     public static class Builder {
         private final int bytesForFlags;
+        private final int bytesForInlineFlags;
         private Directory directory = new RAMDirectory();
         private boolean withElevation = false;
         private boolean withTurnCosts = false;
         private long bytes = 100;
         private int segmentSize = -1;
+        private boolean compressedGeometry = false;
 
         public Builder(EncodingManager em) {
-            this(em.getBytesForFlags());
+            this(em.getBytesForFlags(), em.getBytesForInlineFlags());
             withTurnCosts(em.needsTurnCostsSupport());
         }
 
         public Builder(int bytesForFlags) {
+            this(bytesForFlags, bytesForFlags);
+        }
+
+        public Builder(int bytesForFlags, int bytesForInlineFlags) {
             this.bytesForFlags = bytesForFlags;
+            this.bytesForInlineFlags = bytesForInlineFlags;
         }
 
         // todo: maybe rename later, but for now this makes it easier to replace GraphBuilder
@@ -653,8 +841,14 @@ public class BaseGraph implements Graph, Closeable {
             return this;
         }
 
+        public Builder setCompressedGeometry(boolean compressedGeometry) {
+            this.compressedGeometry = compressedGeometry;
+            return this;
+        }
+
         public BaseGraph build() {
-            return new BaseGraph(directory, withElevation, withTurnCosts, segmentSize, bytesForFlags);
+            return new BaseGraph(directory, withElevation, withTurnCosts, segmentSize, bytesForFlags, bytesForInlineFlags)
+                    .setCompressedGeometry(compressedGeometry);
         }
 
         public BaseGraph create() {
@@ -31,7 +31,9 @@ import static com.graphhopper.util.Helper.nf;
 
 /**
  * Underlying storage for nodes and edges of {@link BaseGraph}. Nodes and edges are stored using two {@link DataAccess}
- * instances. Nodes and edges are simply stored sequentially, see the memory layout in the constructor.
+ * instances. Nodes and edges are simply stored sequentially, see the memory layout in the constructor. The edge flags
+ * beyond bytesForInlineFlags are not stored in the edge rows but in one additional {@link DataAccess} per int
+ * ('column'), so rarely read encoded values do not bloat the edge rows.
  */
 class BaseGraphNodesAndEdges implements EdgeIntAccess {
     // Currently distances are stored as 4 byte integers. using a conversion factor of 1000 the minimum distance
@@ -50,6 +52,9 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
     private final DataAccess edges;
     private final int E_NODEA, E_NODEB, E_LINKA, E_LINKB, E_DIST, E_KV, E_FLAGS, E_GEO;
     private final int bytesForFlags;
+    private final int bytesForInlineFlags;
+    private final int inlineFlagInts;
+    private final DataAccess[] coldFlags;
     private int edgeEntryBytes;
     private int edgeCount;
 
@@ -63,9 +68,22 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
     private boolean frozen;
 
     public BaseGraphNodesAndEdges(Directory dir, boolean withElevation, boolean withTurnCosts, int segmentSize, int bytesForFlags) {
+        this(dir, withElevation, withTurnCosts, segmentSize, bytesForFlags, bytesForFlags);
+    }
+
+    public BaseGraphNodesAndEdges(Directory dir, boolean withElevation, boolean withTurnCosts, int segmentSize, int bytesForFlags, int bytesForInlineFlags) {
+        if (bytesForInlineFlags < 0 || bytesForInlineFlags > bytesForFlags)
+            throw new IllegalArgumentException("bytesForInlineFlags must be in [0, " + bytesForFlags + "] but was " + bytesForInlineFlags);
         nodes = dir.create("nodes", dir.getDefaultType("nodes", true), segmentSize);
         edges = dir.create("edges", dir.getDefaultType("edges", false), segmentSize);
         this.bytesForFlags = bytesForFlags;
+        this.bytesForInlineFlags = bytesForInlineFlags;
+        inlineFlagInts = (int) Math.ceil((double) bytesForInlineFlags / 4);
+        coldFlags = new DataAccess[(int) Math.ceil((double) bytesForFlags / 4) - inlineFlagInts];
+        for (int i = 0; i < coldFlags.length; i++) {
+            String name = "edge_flags_" + i;
+            coldFlags[i] = dir.create(name, dir.getDefaultType(name, true), segmentSize);
+        }
         this.withTurnCosts = withTurnCosts;
         this.withElevation = withElevation;
         bounds = BBox.createInverse(withElevation);
@@ -86,18 +104,23 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
         E_DIST = 16;
         E_KV = 20;
         E_FLAGS = 24;
-        E_GEO = E_FLAGS + bytesForFlags;
+        E_GEO = E_FLAGS + bytesForInlineFlags;
         edgeEntryBytes = E_GEO + 5;
     }
 
     public void create(long initSize) {
         nodes.create(initSize);
         edges.create(initSize);
+        for (DataAccess column : coldFlags)
+            column.create(initSize);
     }
 
     public boolean loadExisting() {
         if (!nodes.loadExisting() || !edges.loadExisting())
             return false;
+        for (DataAccess column : coldFlags)
+            if (!column.loadExisting())
+                throw new IllegalStateException("Cannot load " + column.getName() + ". Was the graph stored with a different set of cold encoded values?");
 
         // now load some properties from stored data
         final int nodesVersion = nodes.getHeader(0 * 4);
@@ -121,7 +144,10 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
 
         final int edgesVersion = edges.getHeader(0 * 4);
         GHUtility.checkDAVersion("edges", Constants.VERSION_EDGE, edgesVersion);
-        edgeEntryBytes = edges.getHeader(1 * 4);
+        int storedEdgeEntryBytes = edges.getHeader(1 * 4);
+        if (storedEdgeEntryBytes != edgeEntryBytes)
+            throw new IllegalStateException("Configured edge entry bytes " + edgeEntryBytes + " are not equal to the "
+                    + "edge entry bytes of the loaded graph " + storedEdgeEntryBytes);
         edgeCount = edges.getHeader(2 * 4);
         return true;
     }
@@ -147,11 +173,15 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
 
         edges.flush();
         nodes.flush();
+        for (DataAccess column : coldFlags)
+            column.flush();
     }
 
     public void close() {
         edges.close();
         nodes.close();
+        for (DataAccess column : coldFlags)
+            column.close();
     }
 
     public int getNodes() {
@@ -170,6 +200,10 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
         return bytesForFlags;
     }
 
+    public int getBytesForInlineFlags() {
+        return bytesForInlineFlags;
+    }
+
     public boolean withElevation() {
         return withElevation;
     }
@@ -183,7 +217,10 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
     }
 
     public long getCapacity() {
-        return nodes.getCapacity() + edges.getCapacity();
+        long capacity = nodes.getCapacity() + edges.getCapacity();
+        for (DataAccess column : coldFlags)
+            capacity += column.getCapacity();
+        return capacity;
     }
 
     public boolean isClosed() {
@@ -201,6 +238,8 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
         final long edgePointer = (long) edgeCount * edgeEntryBytes;
         edgeCount++;
         edges.ensureCapacity((long) edgeCount * edgeEntryBytes);
+        for (DataAccess column : coldFlags)
+            column.ensureCapacity((long) edgeCount * 4);
 
         setNodeA(edgePointer, nodeA);
         setNodeB(edgePointer, nodeB);
@@ -357,43 +396,63 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
     public void readFlags(long edgePointer, IntsRef edgeFlags) {
         int size = edgeFlags.ints.length;
         for (int i = 0; i < size; ++i)
-            edgeFlags.ints[i] = getFlagInt(edgePointer, i * 4);
+            edgeFlags.ints[i] = i < inlineFlagInts ? getFlagInt(edgePointer, i * 4) : getColdFlagInt(toEdge(edgePointer), i);
     }
 
     public void writeFlags(long edgePointer, IntsRef edgeFlags) {
         int size = edgeFlags.ints.length;
-        for (int i = 0; i < size; ++i)
-            setFlagInt(edgePointer, i * 4, edgeFlags.ints[i]);
+        for (int i = 0; i < size; ++i) {
+            if (i < inlineFlagInts)
+                setFlagInt(edgePointer, i * 4, edgeFlags.ints[i]);
+            else
+                setColdFlagInt(toEdge(edgePointer), i, edgeFlags.ints[i]);
+        }
+    }
+
+    private int toEdge(long edgePointer) {
+        return (int) (edgePointer / edgeEntryBytes);
+    }
+
+    private int getColdFlagInt(int edge, int index) {
+        if (index * 4 >= bytesForFlags)
+            throw new IllegalArgumentException("too large byteOffset " + index * 4 + " vs " + bytesForFlags);
+        return coldFlags[index - inlineFlagInts].getInt((long) edge * 4);
+    }
+
+    private void setColdFlagInt(int edge, int index, int value) {
+        if (index * 4 >= bytesForFlags)
+            throw new IllegalArgumentException("too large byteOffset " + index * 4 + " vs " + bytesForFlags);
+        coldFlags[index - inlineFlagInts].setInt((long) edge * 4, value);
     }
 
     private int getFlagInt(long edgePointer, int byteOffset) {
-        if (byteOffset >= bytesForFlags)
-            throw new IllegalArgumentException("too large byteOffset " + byteOffset + " vs " + bytesForFlags);
+        if (byteOffset >= bytesForInlineFlags)
+            throw new IllegalArgumentException("too large byteOffset " + byteOffset + " vs " + bytesForInlineFlags);
         edgePointer += byteOffset;
-        if (byteOffset + 3 == bytesForFlags) {
+        if (byteOffset + 3 == bytesForInlineFlags) {
             return (edges.getShort(edgePointer + E_FLAGS) << 8) & 0x00FF_FFFF | edges.getByte(edgePointer + E_FLAGS + 2) & 0xFF;
-        } else if (byteOffset + 2 == bytesForFlags) {
+        } else if (byteOffset + 2 == bytesForInlineFlags) {
             return edges.getShort(edgePointer + E_FLAGS) & 0xFFFF;
-        } else if (byteOffset + 1 == bytesForFlags) {
+        } else if (byteOffset + 1 == bytesForInlineFlags) {
             return edges.getByte(edgePointer + E_FLAGS) & 0xFF;
         }
         return edges.getInt(edgePointer + E_FLAGS);
     }
 
     private void setFlagInt(long edgePointer, int byteOffset, int value) {
-        if (byteOffset >= bytesForFlags)
-            throw new IllegalArgumentException("too large byteOffset " + byteOffset + " vs " + bytesForFlags);
+        if (byteOffset >= bytesForInlineFlags)
+            throw new IllegalArgumentException("too large byteOffset " + byteOffset + " vs " + bytesForInlineFlags);
         edgePointer += byteOffset;
-        if (byteOffset + 3 == bytesForFlags) {
+        if (byteOffset + 3 == bytesForInlineFlags) {
             if ((value & 0xFF00_0000) != 0)
                 throw new IllegalArgumentException("value at byteOffset " + byteOffset + " must not have the highest byte set but was " + value);
             edges.setShort(edgePointer + E_FLAGS, (short) (value >> 8));
             edges.setByte(edgePointer + E_FLAGS + 2, (byte) value);
-        } else if (byteOffset + 2 == bytesForFlags) {
+        } else if (byteOffset + 2 == bytesForInlineFlags) {
             if ((value & 0xFFFF_0000) != 0)
                 throw new IllegalArgumentException("value at byteOffset " + byteOffset + " must not have the 2 highest bytes set but was " + value);
             edges.setShort(edgePointer + E_FLAGS, (short) value);
-        } else if (byteOffset + 1 == bytesForFlags) {
+        } else if (byteOffset + 1 == bytesForInlineFlags) {
             if ((value & 0xFFFF_FF00) != 0)
                 throw new IllegalArgumentException("value at byteOffset " + byteOffset + " must not have the 3 highest bytes set but was " + value);
             edges.setByte(edgePointer + E_FLAGS, (byte) value);
@@ -404,12 +463,17 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
 
     @Override
     public int getInt(int edgeId, int index) {
-        return getFlagInt(toEdgePointer(edgeId), index * 4);
+        long edgePointer = toEdgePointer(edgeId);
+        return index < inlineFlagInts ? getFlagInt(edgePointer, index * 4) : getColdFlagInt(edgeId, index);
     }
 
     @Override
     public void setInt(int edgeId, int index, int value) {
-        setFlagInt(toEdgePointer(edgeId), index * 4, value);
+        long edgePointer = toEdgePointer(edgeId);
+        if (index < inlineFlagInts)
+            setFlagInt(edgePointer, index * 4, value);
+        else
+            setColdFlagInt(edgeId, index, value);
     }
 
     public void setNodeA(long edgePointer, int nodeA) {
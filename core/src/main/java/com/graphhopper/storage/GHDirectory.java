@@ -17,6 +17,8 @@
  */
 package com.graphhopper.storage;
 
+import com.graphhopper.util.GHUtility;
+
 import java.io.File;
 import java.util.*;
 
@@ -36,6 +38,7 @@ public class GHDirectory implements Directory {
     private final Map<String, DAType> defaultTypes = new LinkedHashMap<>();
     private final Map<String, Integer> mmapPreloads = new LinkedHashMap<>();
     private final Map<String, DataAccess> map = Collections.synchronizedMap(new HashMap<>());
+    private volatile boolean stopLoadMMap;
 
     public GHDirectory(String _location, DAType defaultType) {
         this.typeFallback = defaultType;
@@ -86,13 +89,44 @@ public class GHDirectory implements Directory {
     }
 
     public void loadMMap() {
-        for (DataAccess da : map.values()) {
-            if (!(da instanceof MMapDataAccess))
-                continue;
-            int preload = getPreload(da.getName());
-            if (preload > 0)
-                ((MMapDataAccess) da).load(preload);
+        loadMMap(1);
+    }
+
+    /**
+     * Loads the memory mapped DataAccess objects into physical memory as configured via "preload.". The segments are
+     * loaded with the specified number of threads, which is considerably faster than a single thread for
+     * storage with a high bandwidth. The loading can be stopped early via {@link #stopLoadMMap()}.
+     */
+    public void loadMMap(int threads) {
+        List<Runnable> runnables = new ArrayList<>();
+        synchronized (map) {
+            for (DataAccess da : map.values()) {
+                if (!(da instanceof MMapDataAccess))
+                    continue;
+                MMapDataAccess mmap = (MMapDataAccess) da;
+                int preload = getPreload(da.getName());
+                if (preload <= 0)
+                    continue;
+                for (int i = 0, max = mmap.getSegmentsToLoad(preload); i < max; i++) {
+                    final int segment = i;
+                    runnables.add(() -> {
+                        if (!stopLoadMMap)
+                            mmap.loadSegment(segment);
+                    });
+                }
+            }
         }
+        if (threads == 1)
+            runnables.forEach(Runnable::run);
+        else
+            GHUtility.runConcurrently(runnables.stream(), threads);
+    }
+
+    /**
+     * Makes a running {@link #loadMMap(int)} return early, e.g. because the DataAccess objects are about to be closed.
+     */
+    public void stopLoadMMap() {
+        stopLoadMMap = true;
     }
 
     @Override
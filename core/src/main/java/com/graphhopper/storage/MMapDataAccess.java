@@ -234,14 +234,25 @@ public final class MMapDataAccess extends AbstractDataAccess {
      * Load memory mapped files into physical memory.
      */
     public void load(int percentage) {
-        if (percentage < 0 || percentage > 100)
-            throw new IllegalArgumentException("Percentage for MMapDataAccess.load for " + getName() + " must be in [0,100] but was " + percentage);
-        int max = Math.round(segments.size() * percentage / 100f);
+        int max = getSegmentsToLoad(percentage);
         for (int i = 0; i < max; i++) {
-            segments.get(i).load();
+            loadSegment(i);
         }
     }
 
+    int getSegmentsToLoad(int percentage) {
+        if (percentage < 0 || percentage > 100)
+            throw new IllegalArgumentException("Percentage for MMapDataAccess.load for " + getName() + " must be in [0,100] but was " + percentage);
+        return Math.round(segments.size() * percentage / 100f);
+    }
+
+    /**
+     * Loads a single segment into physical memory. Different segments can be loaded concurrently.
+     */
+    void loadSegment(int segment) {
+        segments.get(segment).load();
+    }
+
     @Override
     public void close() {
         super.close();
@@ -18,12 +18,14 @@
 
 package com.graphhopper.storage;
 
+import com.graphhopper.routing.ch.ShortcutUnpackingCache;
 import com.graphhopper.routing.weighting.Weighting;
 
 public class RoutingCHGraphImpl implements RoutingCHGraph {
     private final BaseGraph baseGraph;
     private final CHStorage chStorage;
     private final Weighting weighting;
+    private ShortcutUnpackingCache shortcutUnpackingCache;
 
     public static RoutingCHGraph fromGraph(BaseGraph baseGraph, CHStorage chStorage, CHConfig chConfig) {
         return new RoutingCHGraphImpl(baseGraph, chStorage, chConfig.getWeighting());
@@ -87,6 +89,16 @@ public class RoutingCHGraphImpl implements RoutingCHGraph {
         return weighting;
     }
 
+    @Override
+    public ShortcutUnpackingCache getShortcutUnpackingCache() {
+        return shortcutUnpackingCache;
+    }
+
+    public RoutingCHGraphImpl setShortcutUnpackingCache(ShortcutUnpackingCache shortcutUnpackingCache) {
+        this.shortcutUnpackingCache = shortcutUnpackingCache;
+        return this;
+    }
+
     @Override
     public boolean hasTurnCosts() {
         return weighting.hasTurnCosts();
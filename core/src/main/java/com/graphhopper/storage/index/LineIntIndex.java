@@ -20,6 +20,7 @@ package com.graphhopper.storage.index;
 
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.LongArrayList;
 import com.graphhopper.geohash.SpatialKeyAlgo;
 import com.graphhopper.storage.DAType;
 import com.graphhopper.storage.DataAccess;
@@ -34,6 +35,8 @@ import java.util.function.IntConsumer;
 public class LineIntIndex {
     // do not start with 0 as a positive value means leaf and a negative means "entry with subentries"
     static final int START_POINTER = 1;
+    // the edge id needs 31 bits
+    static final int MAX_TILE_KEY_BITS = 32;
 
     final DataAccess dataAccess;
     private final BBox bounds;
@@ -88,6 +91,141 @@ public class LineIntIndex {
         initialized = true;
     }
 
+    /**
+     * Stores the index without building the in-memory tree of {@link InMemConstructionIndex}. The result is the same
+     * as for {@link #store(InMemConstructionIndex)}.
+     *
+     * @param buckets the (tile key, edge id) pairs encoded via {@link #toTileEdge}, each bucket sorted in ascending
+     *                order. The bucket is selected by the highest bits of the tile key, see {@link #getBucketDepth}.
+     *                Duplicates are ignored.
+     */
+    public void store(LongArrayList[] buckets) {
+        indexStructureInfo = IndexStructureInfo.create(bounds, minResolutionInMeter);
+        keyAlgo = indexStructureInfo.getKeyAlgo();
+        entries = indexStructureInfo.getEntries();
+        shifts = indexStructureInfo.getShifts();
+        int bucketDepth = getBucketDepth(indexStructureInfo);
+        if (buckets.length != getBuckets(indexStructureInfo, bucketDepth))
+            throw new IllegalArgumentException("Expected " + getBuckets(indexStructureInfo, bucketDepth) + " buckets but was " + buckets.length);
+        dataAccess.create(64 * 1024);
+        try {
+            store(buckets, 0, buckets.length, 0, bucketDepth, START_POINTER);
+        } catch (Exception ex) {
+            throw new IllegalStateException("Problem while storing location index. " + Helper.getMemInfo(), ex);
+        }
+        initialized = true;
+    }
+
+    /**
+     * The tile key and the edge id do not fit into a single long for big areas, so the first tree levels are used
+     * to split the tile keys into buckets, and only the remaining key bits are stored in the bucket entries.
+     */
+    static int getBucketDepth(IndexStructureInfo indexStructureInfo) {
+        int bits = indexStructureInfo.getKeyAlgo().getBits();
+        int depth = 0;
+        while (bits > MAX_TILE_KEY_BITS)
+            bits -= indexStructureInfo.getShifts()[depth++];
+        return depth;
+    }
+
+    static int getBuckets(IndexStructureInfo indexStructureInfo, int bucketDepth) {
+        int buckets = 1;
+        for (int depth = 0; depth < bucketDepth; depth++)
+            buckets *= indexStructureInfo.getEntries()[depth];
+        return buckets;
+    }
+
+    private int store(LongArrayList[] buckets, int from, int to, int depth, int bucketDepth, int intPointer) {
+        if (depth == bucketDepth) {
+            int tileKeyBits = keyAlgo.getBits();
+            for (int i = 0; i < bucketDepth; i++)
+                tileKeyBits -= shifts[i];
+            return store(buckets[from].buffer, 0, buckets[from].size(), depth, tileKeyBits, intPointer);
+        }
+
+        long pointer = (long) intPointer * 4;
+        intPointer += entries[depth];
+        dataAccess.ensureCapacity((long) (intPointer + 1) * 4);
+        int bucketsPerEntry = (to - from) / entries[depth];
+        for (int index = 0; index < entries[depth]; index++) {
+            int subFrom = from + index * bucketsPerEntry, subTo = subFrom + bucketsPerEntry;
+            if (isEmpty(buckets, subFrom, subTo))
+                continue;
+            dataAccess.setInt(pointer + index * 4L, intPointer);
+            intPointer = store(buckets, subFrom, subTo, depth + 1, bucketDepth, intPointer);
+        }
+        return intPointer;
+    }
+
+    private static boolean isEmpty(LongArrayList[] buckets, int from, int to) {
+        for (int i = from; i < to; i++)
+            if (!buckets[i].isEmpty())
+                return false;
+        return true;
+    }
+
+    /**
+     * @param remainingBits the number of key bits that are not yet consumed by the parent tree entries
+     */
+    private int store(long[] tileEdges, int from, int to, int depth, int remainingBits, int intPointer) {
+        long pointer = (long) intPointer * 4;
+        if (depth == entries.length) {
+            int len = 0;
+            for (int i = from; i < to; i++)
+                if (i == from || tileEdges[i] != tileEdges[i - 1])
+                    len++;
+            size += len;
+            intPointer++;
+            leafs++;
+            dataAccess.ensureCapacity((long) (intPointer + len + 1) * 4);
+            if (len == 1) {
+                // less disc space for single entries
+                dataAccess.setInt(pointer, -getEdge(tileEdges[from]) - 1);
+            } else {
+                for (int i = from; i < to; i++) {
+                    if (i > from && tileEdges[i] == tileEdges[i - 1])
+                        continue;
+                    dataAccess.setInt((long) intPointer * 4, getEdge(tileEdges[i]));
+                    intPointer++;
+                }
+                dataAccess.setInt(pointer, intPointer);
+            }
+            return intPointer;
+        }
+
+        intPointer += entries[depth];
+        dataAccess.ensureCapacity((long) (intPointer + 1) * 4);
+        int subBits = remainingBits - shifts[depth];
+        int mask = entries[depth] - 1;
+        int groupStart = from;
+        while (groupStart < to) {
+            int index = (int) (getTileKey(tileEdges[groupStart]) >>> subBits) & mask;
+            int groupEnd = groupStart + 1;
+            while (groupEnd < to && ((int) (getTileKey(tileEdges[groupEnd]) >>> subBits) & mask) == index)
+                groupEnd++;
+            dataAccess.setInt(pointer + index * 4L, intPointer);
+            intPointer = store(tileEdges, groupStart, groupEnd, depth + 1, subBits, intPointer);
+            groupStart = groupEnd;
+        }
+        return intPointer;
+    }
+
+    /**
+     * @param tileKey the lowest bits of the tile key that are not used to select the bucket, at most
+     *                {@link #MAX_TILE_KEY_BITS} bits
+     */
+    static long toTileEdge(long tileKey, int edge) {
+        return tileKey << 31 | edge;
+    }
+
+    private static long getTileKey(long tileEdge) {
+        return tileEdge >>> 31;
+    }
+
+    private static int getEdge(long tileEdge) {
+        return (int) (tileEdge & Integer.MAX_VALUE);
+    }
+
     private int store(InMemConstructionIndex.InMemEntry entry, int intPointer) {
         long pointer = (long) intPointer * 4;
         if (entry.isLeaf()) {
@@ -18,6 +18,8 @@
 package com.graphhopper.storage.index;
 
 import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.LongArrayList;
+import com.graphhopper.geohash.SpatialKeyAlgo;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.storage.Directory;
@@ -25,10 +27,12 @@ import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
+import org.locationtech.jts.geom.Coordinate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Arrays;
+import java.util.stream.IntStream;
 
 import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
 
@@ -58,6 +62,7 @@ public class LocationIndexTree implements LocationIndex {
     private final NodeAccess nodeAccess;
     private int maxRegionSearch = 4;
     private int minResolutionInMeter = 300;
+    private int threads = 1;
     private boolean initialized = false;
 
     LineIntIndex lineIntIndex;
@@ -119,6 +124,17 @@ public class LocationIndexTree implements LocationIndex {
     }
 
 
+    /**
+     * Sets the number of threads that are used to find the tiles of the edges in {@link #prepareIndex()}. The edge
+     * filter must be thread-safe if this is larger than 1.
+     */
+    public LocationIndexTree setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1 but was " + threads);
+        this.threads = threads;
+        return this;
+    }
+
     public LocationIndex setResolution(int minResolutionInMeter) {
         if (minResolutionInMeter <= 0)
             throw new IllegalStateException("Negative precision is not allowed!");
@@ -164,16 +180,17 @@ public class LocationIndexTree implements LocationIndex {
         if (!bounds.isValid())
             bounds = new BBox(-10.0, 10.0, -10.0, 10.0);
 
-        InMemConstructionIndex inMemConstructionIndex = prepareInMemConstructionIndex(bounds, edgeFilter);
+        LongArrayList[] tileEdges = prepareTileEdges(bounds, edgeFilter);
 
         lineIntIndex.setMinResolutionInMeter(minResolutionInMeter);
-        lineIntIndex.store(inMemConstructionIndex);
+        lineIntIndex.store(tileEdges);
         lineIntIndex.setChecksum(checksum());
         flush();
         logger.info("location index created in " + sw.stop().getSeconds()
                 + "s, size:" + Helper.nf(lineIntIndex.getSize())
                 + ", leafs:" + Helper.nf(lineIntIndex.getLeafs())
                 + ", precision:" + minResolutionInMeter
+                + ", threads:" + threads
                 + ", depth:" + indexStructureInfo.getEntries().length
                 + ", checksum:" + checksum()
                 + ", entries:" + Arrays.toString(indexStructureInfo.getEntries())
@@ -182,6 +199,80 @@ public class LocationIndexTree implements LocationIndex {
         return this;
     }
 
+    /**
+     * Finds the tiles of all edges in parallel chunks and returns the sorted (tile key, edge id) pairs, see
+     * {@link LineIntIndex#store(LongArrayList[])}. Unlike {@link #prepareInMemConstructionIndex} this avoids a tree
+     * of small objects, which matters for big graphs.
+     */
+    LongArrayList[] prepareTileEdges(BBox bounds, EdgeFilter edgeFilter) {
+        indexStructureInfo = IndexStructureInfo.create(bounds, minResolutionInMeter);
+        final int buckets = LineIntIndex.getBuckets(indexStructureInfo, LineIntIndex.getBucketDepth(indexStructureInfo));
+        final int edges = graph.getEdges();
+        final int chunkSize = Math.max(10_000, edges / (threads * 8) + 1);
+        final int chunks = (edges + chunkSize - 1) / chunkSize;
+        LongArrayList[][] chunkTileEdges = new LongArrayList[chunks][];
+        GHUtility.runConcurrently(IntStream.range(0, chunks).<Runnable>mapToObj(chunk -> () -> {
+            LongArrayList[] tileEdges = new LongArrayList[buckets];
+            for (int bucket = 0; bucket < buckets; bucket++)
+                tileEdges[bucket] = new LongArrayList();
+            int edge = chunk * chunkSize;
+            try {
+                for (int end = Math.min(edges, edge + chunkSize); edge < end; edge++) {
+                    EdgeIteratorState edgeState = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+                    if (edgeFilter.accept(edgeState))
+                        addTileEdges(tileEdges, edgeState);
+                }
+            } catch (Exception ex) {
+                logger.error("Problem! edge:" + edge, ex);
+            }
+            chunkTileEdges[chunk] = tileEdges;
+        }), threads);
+
+        LongArrayList[] result = new LongArrayList[buckets];
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            int size = 0;
+            for (LongArrayList[] tileEdges : chunkTileEdges)
+                size += tileEdges[bucket].size();
+            result[bucket] = new LongArrayList(size);
+            for (LongArrayList[] tileEdges : chunkTileEdges) {
+                result[bucket].addAll(tileEdges[bucket]);
+                tileEdges[bucket] = null;
+            }
+        }
+        if (threads > 1)
+            GHUtility.runConcurrently(Arrays.stream(result).<Runnable>map(tileEdges -> () -> Arrays.parallelSort(tileEdges.buffer, 0, tileEdges.size())), threads);
+        else
+            for (LongArrayList tileEdges : result)
+                Arrays.sort(tileEdges.buffer, 0, tileEdges.size());
+        return result;
+    }
+
+    private void addTileEdges(LongArrayList[] tileEdges, EdgeIteratorState edgeState) {
+        final SpatialKeyAlgo keyAlgo = indexStructureInfo.getKeyAlgo();
+        final PixelGridTraversal pixelGridTraversal = indexStructureInfo.getPixelGridTraversal();
+        // pillar nodes outside the bounds lead to keys with more bits, for them InMemConstructionIndex only uses the
+        // lowest bits and we need to do the same
+        final long keyMask = keyAlgo.getBits() == 64 ? -1L : (1L << keyAlgo.getBits()) - 1;
+        final int bucketBits = Long.numberOfTrailingZeros(tileEdges.length);
+        final int tileKeyBits = keyAlgo.getBits() - bucketBits;
+        final long tileKeyMask = (1L << tileKeyBits) - 1;
+        final int edge = edgeState.getEdge();
+        PointList points = edgeState.fetchWayGeometry(FetchMode.ALL);
+        for (int i = 1; i < points.size(); i++) {
+            double lat1 = points.getLat(i - 1), lon1 = points.getLon(i - 1), lat2 = points.getLat(i), lon2 = points.getLon(i);
+            if (DIST_PLANE.isCrossBoundary(lon1, lon2))
+                continue;
+            pixelGridTraversal.traverse(new Coordinate(lon1, lat1), new Coordinate(lon2, lat2), p -> {
+                long key = keyAlgo.encode((int) p.x, (int) p.y) & keyMask;
+                LongArrayList bucket = tileEdges[(int) (key >>> tileKeyBits)];
+                long tileEdge = LineIntIndex.toTileEdge(key & tileKeyMask, edge);
+                // consecutive segments share their tiles, the remaining duplicates are skipped in LineIntIndex.store
+                if (bucket.isEmpty() || bucket.get(bucket.size() - 1) != tileEdge)
+                    bucket.add(tileEdge);
+            });
+        }
+    }
+
     InMemConstructionIndex prepareInMemConstructionIndex(BBox bounds, EdgeFilter edgeFilter) {
         indexStructureInfo = IndexStructureInfo.create(bounds, minResolutionInMeter);
         InMemConstructionIndex inMem = new InMemConstructionIndex(indexStructureInfo);
@@ -271,6 +271,18 @@ public class BitUtil {
         return counter;
     }
 
+    /**
+     * Maps signed ints to unsigned ints so that values with a small magnitude stay small, i.e. 0, -1, 1, -2, 2, ...
+     * becomes 0, 1, 2, 3, 4, .... This makes variable length encodings of small negative values short.
+     */
+    public static int zigZagEncode(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    public static int zigZagDecode(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
     /**
      * Converts the specified long into a signed int ('reverse' method for Integer.toUnsignedLong).
      */
@@ -181,6 +181,45 @@ public class PathMerger {
         return responsePath;
     }
 
+    /**
+     * Like {@link #doWork} but only the summary, i.e. the distance, time and weight, is calculated immediately. The
+     * points, instructions and path details are calculated when they are accessed for the first time, which makes
+     * sense if the details of some paths are likely not needed, e.g. for alternative routes.
+     */
+    public ResponsePath doWorkLazily(PointList waypoints, List<Path> paths, EncodedValueLookup evLookup, Translation tr) {
+        if (paths.stream().anyMatch(p -> !p.isFound()))
+            // not much to calculate and the errors are required immediately
+            return doWork(waypoints, paths, evLookup, tr);
+
+        ResponsePath responsePath = new ResponsePath();
+        List<String> description = new ArrayList<>();
+        long fullTimeInMillis = 0;
+        double fullWeight = 0;
+        double fullDistance = 0;
+        for (Path path : paths) {
+            description.addAll(path.getDescription());
+            fullTimeInMillis += path.getTime();
+            fullDistance += path.getDistance();
+            fullWeight += path.getWeight();
+        }
+        responsePath.setDescription(description).
+                setRouteWeight(fullWeight).
+                setDistance(fullDistance).
+                setTime(fullTimeInMillis).
+                setWaypoints(waypoints);
+        responsePath.setDetailsCalculator(() -> {
+            ResponsePath full = doWork(waypoints, paths, evLookup, tr);
+            responsePath.setPoints(full.getPoints()).
+                    setWaypointIndices(full.getWaypointIndices()).
+                    setAscend(full.getAscend()).
+                    setDescend(full.getDescend());
+            if (enableInstructions)
+                responsePath.setInstructions(full.getInstructions());
+            responsePath.addPathDetails(full.getPathDetails());
+        });
+        return responsePath;
+    }
+
     /**
      * This method iterates over all instructions and uses the available context to improve the instructions.
      * If the requests contains a heading, this method can transform the first continue to a u-turn if the heading
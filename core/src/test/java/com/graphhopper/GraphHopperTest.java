@@ -24,14 +24,17 @@ import com.graphhopper.reader.ReaderWay;
 import com.graphhopper.reader.dem.SRTMProvider;
 import com.graphhopper.reader.dem.SkadiProvider;
 import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.routing.ch.ShortcutUnpackingCache;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.DefaultSnapFilter;
 import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.countryrules.CountryRuleFactory;
 import com.graphhopper.routing.util.parsers.OSMRoadEnvironmentParser;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.IntsRef;
+import com.graphhopper.storage.RoutingCHGraphImpl;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
@@ -288,6 +291,69 @@ public class GraphHopperTest {
         }
     }
 
+    @Test
+    public void testColdEncodedValues() {
+        final String profile = "profile";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed, surface, toll").
+                setColdEncodedValuesString("auto").
+                setProfiles(TestProfiles.accessAndSpeed(profile, "car"));
+        hopper.importOrLoad();
+        EncodingManager em = hopper.getEncodingManager();
+        assertTrue(em.getBytesForInlineFlags() < em.getBytesForFlags());
+        // surface and toll are not used by the custom model
+        Set<String> cold = hopper.findColdEncodedValues(em.getEncodedValues());
+        assertTrue(cold.containsAll(List.of(Surface.KEY, Toll.KEY)), cold.toString());
+        assertFalse(cold.contains(VehicleAccess.key("car")), cold.toString());
+        assertFalse(cold.contains(VehicleSpeed.key("car")), cold.toString());
+        assertFalse(cold.contains(RoadClass.KEY), cold.toString());
+        GHRequest request = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile).
+                setPathDetails(List.of(Surface.KEY));
+        GHResponse rsp = hopper.route(request);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        ResponsePath path = rsp.getBest();
+        assertFalse(path.getPathDetails().get(Surface.KEY).isEmpty());
+        hopper.close();
+
+        // the cold encoded values are stored in separate files and are available after loading the graph
+        hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setEncodedValuesString("car_access, car_average_speed, surface, toll").
+                setColdEncodedValuesString("auto").
+                setProfiles(TestProfiles.accessAndSpeed(profile, "car"));
+        assertTrue(hopper.load());
+        GHResponse loadedRsp = hopper.route(request);
+        assertEquals(path.getDistance(), loadedRsp.getBest().getDistance(), 1.e-3);
+        assertEquals(path.getPathDetails().get(Surface.KEY).toString(), loadedRsp.getBest().getPathDetails().get(Surface.KEY).toString());
+        hopper.close();
+    }
+
+    @Test
+    public void testCompressedGeometry() {
+        final String profile = "profile";
+        GHRequest request = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile);
+        List<ResponsePath> paths = new ArrayList<>();
+        for (boolean compressed : new boolean[]{false, true}) {
+            GraphHopper hopper = new GraphHopper().
+                    setGraphHopperLocation(GH_LOCATION).
+                    setOSMFile(MONACO).
+                    setEncodedValuesString("car_access, car_average_speed").
+                    setCompressedGeometry(compressed).
+                    setProfiles(TestProfiles.accessAndSpeed(profile, "car"));
+            hopper.importOrLoad();
+            assertEquals(compressed, hopper.getBaseGraph().isCompressedGeometry());
+            GHResponse rsp = hopper.route(request);
+            assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+            paths.add(rsp.getBest());
+            hopper.close();
+            Helper.removeDir(new File(GH_LOCATION));
+        }
+        assertEquals(paths.get(0).getDistance(), paths.get(1).getDistance(), 1.e-3);
+        assertEquals(paths.get(0).getPoints(), paths.get(1).getPoints());
+    }
+
     private void testImportCloseAndLoad(boolean ch, boolean lm) {
         final String profileName = "profile";
         GraphHopper hopper = new GraphHopper().
@@ -443,6 +509,55 @@ public class GraphHopperTest {
         assertEquals(1420, rsp.getAll().get(2).getTime() / 1000);
     }
 
+    @Test
+    public void testAlternativeRoutesWithLazyDetails() {
+        final String profile = "profile";
+
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed, foot_access, foot_priority, foot_average_speed").
+                setProfiles(TestProfiles.accessSpeedAndPriority(profile, "foot")).
+                importOrLoad();
+
+        GHRequest req = new GHRequest(43.729057, 7.41251, 43.740298, 7.423561).
+                setAlgorithm(ALT_ROUTE).setProfile(profile).
+                setPathDetails(List.of("street_name", "distance"));
+        req.putHint("alternative_route.max_paths", 3);
+        req.putHint("alternative_route.min_plateau_factor", 0.1);
+        GHResponse expected = hopper.route(req);
+        assertFalse(expected.hasErrors());
+        assertEquals(3, expected.getAll().size());
+
+        req.putHint(Parameters.Algorithms.AltRoute.DETAILED_PATHS, "0,2");
+        GHResponse rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors());
+        assertEquals(3, rsp.getAll().size());
+        assertFalse(rsp.getAll().get(0).isSummaryOnly());
+        assertTrue(rsp.getAll().get(1).isSummaryOnly());
+        assertFalse(rsp.getAll().get(2).isSummaryOnly());
+        // the details are calculated on demand, also for the paths that were not requested in detail
+        for (int i = 0; i < 3; i++) {
+            ResponsePath expectedPath = expected.getAll().get(i);
+            ResponsePath path = rsp.getAll().get(i);
+            assertEquals(expectedPath.getTime(), path.getTime());
+            assertEquals(expectedPath.getDistance(), path.getDistance(), 1.e-6);
+            assertEquals(expectedPath.getRouteWeight(), path.getRouteWeight(), 1.e-6);
+            assertEquals(expectedPath.getPoints(), path.getPoints());
+            assertEquals(expectedPath.getWaypointIndices(), path.getWaypointIndices());
+            assertEquals(expectedPath.getInstructions().size(), path.getInstructions().size());
+            assertEquals(expectedPath.getPathDetails().get("street_name").size(), path.getPathDetails().get("street_name").size());
+        }
+
+        req.putHint(Parameters.Algorithms.AltRoute.DETAILED_PATHS, 0);
+        rsp = hopper.route(req);
+        assertFalse(rsp.getAll().get(0).isSummaryOnly());
+        assertTrue(rsp.getAll().get(1).isSummaryOnly());
+
+        req.putHint(Parameters.Algorithms.AltRoute.DETAILED_PATHS, "x");
+        assertTrue(hopper.route(req).hasErrors());
+    }
+
     @Test
     public void testAlternativeRoutesBike() {
         final String profile = "profile";
@@ -1798,6 +1913,39 @@ public class GraphHopperTest {
         assertTrue(res.getHints().getInt("visited_nodes.sum", 0) > 170);
     }
 
+    @Test
+    public void testLMActiveLandmarksUpdate() {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(TestProfiles.constantSpeed("car")).
+                setStoreOnFlush(true);
+        hopper.getLMPreparationHandler().
+                setLMProfiles(new LMProfile("car").setMaximumLMWeight(2000));
+        hopper.importOrLoad();
+
+        // for this query the two landmarks that are chosen at the start are a poor choice
+        GHRequest req = new GHRequest(43.74958, 7.436566, 43.727687, 7.418737).
+                setProfile("car");
+        req.putHint(Landmark.ACTIVE_COUNT, 2);
+        GHResponse res = hopper.route(req);
+        assertFalse(res.hasErrors(), res.getErrors().toString());
+        double distance = res.getBest().getDistance();
+        int visitedNodes = res.getHints().getInt("visited_nodes.sum", 0);
+        float lowerBoundRatio = res.getHints().getFloat("approximation.lower_bound_ratio", -1);
+        assertTrue(lowerBoundRatio > 0 && lowerBoundRatio <= 1, "ratio: " + lowerBoundRatio);
+        assertEquals(0, res.getHints().getInt("approximation.updates", -1));
+        assertTrue(visitedNodes > 200, "visited nodes: " + visitedNodes);
+
+        req.putHint(Landmark.ACTIVE_UPDATE_INTERVAL, 20);
+        res = hopper.route(req);
+        assertFalse(res.hasErrors(), res.getErrors().toString());
+        assertEquals(distance, res.getBest().getDistance(), 1.e-3);
+        assertTrue(res.getHints().getInt("approximation.updates", -1) > 0);
+        // re-selecting the active landmarks during the search reduces the search space considerably
+        assertTrue(res.getHints().getInt("visited_nodes.sum", 0) < visitedNodes / 2, "visited nodes: " + res.getHints().getInt("visited_nodes.sum", 0));
+    }
+
     @ParameterizedTest
     @ValueSource(booleans = {true, false})
     public void testCompareAlgos(boolean turnCosts) {
@@ -2263,6 +2411,48 @@ public class GraphHopperTest {
         assertEquals(163000, res.getBest().getTime(), 1000);
     }
 
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testShortcutUnpackingCache(boolean edgeBased) {
+        Profile profile = TestProfiles.accessAndSpeed("my_profile", "car");
+        if (edgeBased)
+            profile.setTurnCostsConfig(TurnCostsConfig.car());
+        GraphHopper h = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(profile).
+                setShortcutUnpackingCache(1, 2);
+        h.getCHPreparationHandler().setCHProfiles(new CHProfile("my_profile"));
+        h.importOrLoad();
+
+        RoutingCHGraphImpl chGraph = (RoutingCHGraphImpl) h.getCHGraphs().get("my_profile");
+        ShortcutUnpackingCache cache = chGraph.getShortcutUnpackingCache();
+        Random rnd = new Random(123);
+        List<GHRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 50; i++)
+            requests.add(new GHRequest(43.727 + rnd.nextDouble() * 0.02, 7.410 + rnd.nextDouble() * 0.02,
+                    43.727 + rnd.nextDouble() * 0.02, 7.410 + rnd.nextDouble() * 0.02).setProfile("my_profile"));
+        List<GHResponse> uncached = new ArrayList<>();
+        chGraph.setShortcutUnpackingCache(null);
+        for (GHRequest req : requests)
+            uncached.add(h.route(req));
+        chGraph.setShortcutUnpackingCache(cache);
+        // the first round fills the cache and the second round reads from it
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < requests.size(); i++) {
+                GHResponse res = h.route(requests.get(i));
+                assertFalse(res.hasErrors(), res.getErrors().toString());
+                ResponsePath expected = uncached.get(i).getBest();
+                assertEquals(expected.getDistance(), res.getBest().getDistance(), 1.e-6);
+                assertEquals(expected.getTime(), res.getBest().getTime());
+                assertEquals(expected.getPoints(), res.getBest().getPoints());
+            }
+        }
+        assertTrue(cache.getHits() > 0, cache.toString());
+        assertTrue(cache.getUsedBytes() > 0, cache.toString());
+    }
+
     @Test
     public void simplifyWithInstructionsAndPathDetails() {
         final String profile = "profile";
@@ -0,0 +1,116 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.shapes.BBox;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.File;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ElevationArchiveProviderTest {
+    private static final File ARCHIVE = new File("./target/elevation-archive-test.gha");
+    private SRTMProvider srtm;
+    private ElevationArchiveProvider archive;
+
+    @AfterEach
+    public void tearDown() {
+        if (srtm != null)
+            srtm.release();
+        if (archive != null)
+            archive.release();
+        ARCHIVE.delete();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void sameAsSRTM(boolean interpolate) {
+        srtm = new SRTMProvider("./files/");
+        srtm.setInterpolate(interpolate);
+        // only N49E011 and N50E011 are available locally
+        assertEquals(2, ElevationArchiveProvider.createArchive(srtm, new BBox(11.1, 11.9, 49.2, 50.8), ARCHIVE));
+        archive = new ElevationArchiveProvider(ARCHIVE.getPath(), 1).setInterpolate(interpolate);
+        assertEquals(2, archive.getTileCount());
+
+        // siegesturm
+        assertEquals(interpolate ? 458.6 : 466, archive.getEle(49.968651, 11.574869), 1e-1);
+        // am main
+        assertEquals(srtm.getEle(49.958233, 11.558647), archive.getEle(49.958233, 11.558647));
+        // outside of the archive
+        assertEquals(0, archive.getEle(52.5, 13.4), 1e-1);
+
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        for (int i = 0; i < 1000; i++) {
+            double lat = 49 + 2 * rnd.nextDouble();
+            double lon = 11 + rnd.nextDouble();
+            assertEquals(srtm.getEle(lat, lon), archive.getEle(lat, lon), "seed: " + seed + ", " + lat + "," + lon);
+        }
+
+        // a geometry crossing both tiles and leaving the archive
+        int count = 300;
+        double[] lats = new double[count], lons = new double[count], eles = new double[count];
+        for (int i = 0; i < count; i++) {
+            lats[i] = 49.5 + 1.49 * i / count;
+            lons[i] = i < count - 10 ? 11.5 : 12.5;
+        }
+        archive.getEle(lats, lons, eles, count);
+        for (int i = 0; i < count - 10; i++) {
+            assertEquals(srtm.getEle(lats[i], lons[i]), eles[i], lats[i] + "," + lons[i]);
+        }
+        for (int i = count - 10; i < count; i++) {
+            assertEquals(0, eles[i]);
+        }
+    }
+
+    @Test
+    public void concurrentAccess() {
+        srtm = new SRTMProvider("./files/");
+        ElevationArchiveProvider.createArchive(srtm, new BBox(11.1, 11.9, 49.2, 50.8), ARCHIVE);
+        archive = new ElevationArchiveProvider(ARCHIVE.getPath(), 1);
+        double[] expected = new double[2000];
+        double[] actual = new double[expected.length];
+        Random rnd = new Random(123);
+        double[] lats = new double[expected.length], lons = new double[expected.length];
+        for (int i = 0; i < expected.length; i++) {
+            lats[i] = 49 + 2 * rnd.nextDouble();
+            lons[i] = 11 + rnd.nextDouble();
+            expected[i] = srtm.getEle(lats[i], lons[i]);
+        }
+        // a single mapped tile and points alternating between both tiles force many evictions
+        GHUtility.runConcurrently(IntStream.range(0, expected.length).mapToObj(i -> () -> actual[i] = archive.getEle(lats[i], lons[i])), 4);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], actual[i], lats[i] + "," + lons[i]);
+        }
+    }
+
+    @Test
+    public void multiSourceIsNotSupported() {
+        MultiSourceElevationProvider multi = new MultiSourceElevationProvider("./files/");
+        assertThrows(UnsupportedOperationException.class, () -> ElevationArchiveProvider.createArchive(multi, new BBox(11.1, 11.9, 49.2, 50.8), ARCHIVE));
+        multi.release();
+    }
+}
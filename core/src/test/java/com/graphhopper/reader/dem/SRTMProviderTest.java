@@ -99,6 +99,23 @@ public class SRTMProviderTest {
         assertEquals(161, instance.getEle(55.8943144, -3), 1e-1);
     }
 
+    @Test
+    public void testGetEleBatch() {
+        instance = new SRTMProvider("./files/");
+        // walk through both available tiles and back, with some points outside of the SRTM area in between
+        int count = 500;
+        double[] lats = new double[count], lons = new double[count], eles = new double[count];
+        for (int i = 0; i < count; i++) {
+            lats[i] = i % 100 == 50 ? 61 : 49.01 + 1.98 * Math.sin(Math.PI * i / count);
+            lons[i] = 11.01 + 0.98 * i / count;
+        }
+        instance.getEle(lats, lons, eles, count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(instance.getEle(lats[i], lons[i]), eles[i], lats[i] + "," + lons[i]);
+        }
+        assertEquals(0, eles[50]);
+    }
+
     @Disabled
     @Test
     public void testGetEle() {
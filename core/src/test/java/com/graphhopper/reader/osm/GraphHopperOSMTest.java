@@ -852,4 +852,45 @@ public class GraphHopperOSMTest {
         assertEquals("CH preparation of car already exists in storage and doesn't match configuration", ex.getMessage());
         hopper.close();
     }
+
+    @Test
+    public void testLoadConcurrentlyAndPreloadInBackground() {
+        Profile profile = TestProfiles.constantSpeed("car");
+        GraphHopper hopper = new GraphHopper()
+                .setGraphHopperLocation(ghLoc)
+                .setOSMFile(testOsm)
+                .setProfiles(profile);
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile("car"));
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile("car"));
+        hopper.importOrLoad();
+        GHRequest req = new GHRequest(51.2492152, 9.4317166, 51.2, 9.4).setProfile("car");
+        GHResponse expected = hopper.route(req);
+        assertFalse(expected.hasErrors(), expected.getErrors().toString());
+        hopper.close();
+
+        hopper = new GraphHopper();
+        hopper.init(new GraphHopperConfig()
+                .putObject("graph.location", ghLoc)
+                .putObject("import.osm.ignored_highways", "")
+                .putObject("graph.dataaccess.default_type", "MMAP")
+                .putObject("graph.dataaccess.mmap.preload.edges", 100)
+                .putObject("graph.dataaccess.mmap.preload.nodes_ch_car", 100)
+                .putObject("graph.dataaccess.mmap.background_preload", true)
+                .putObject("graph.dataaccess.load_threads", 4)
+                .setProfiles(List.of(profile))
+                .setCHProfiles(List.of(new CHProfile("car")))
+                .setLMProfiles(List.of(new LMProfile("car"))));
+        assertTrue(hopper.load());
+        assertNotNull(hopper.getLocationIndex());
+        assertTrue(hopper.getCHGraphs().containsKey("car"));
+        assertTrue(hopper.getLandmarks().containsKey("car"));
+        for (boolean disableCH : new boolean[]{false, true}) {
+            GHResponse rsp = hopper.route(new GHRequest(req.getPoints()).setProfile("car").putHint(Parameters.CH.DISABLE, disableCH));
+            assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+            assertEquals(expected.getBest().getDistance(), rsp.getBest().getDistance(), 1e-3);
+        }
+        // close must wait for a running preload
+        hopper.close();
+        assertFalse(hopper.isPreloading());
+    }
 }
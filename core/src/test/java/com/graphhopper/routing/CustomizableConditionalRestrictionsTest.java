@@ -8,6 +8,7 @@ import com.graphhopper.json.Statement;
 import com.graphhopper.routing.ev.FootTemporalAccess;
 import com.graphhopper.util.CustomModel;
 import com.graphhopper.util.Helper;
+import com.graphhopper.util.Parameters;
 import com.graphhopper.util.details.PathDetail;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -20,6 +21,7 @@ import java.util.List;
 import static com.graphhopper.json.Statement.If;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class CustomizableConditionalRestrictionsTest {
 
@@ -65,5 +67,52 @@ public class CustomizableConditionalRestrictionsTest {
         assertEquals(16, rsp.getBest().getDistance(), 1);
         details = rsp.getBest().getPathDetails().get(PD_KEY);
         assertEquals(1, details.size());
+
+        // without foot_temporal_access_schedule the restrictions cannot be evaluated for another day
+        rsp = hopper.route(new GHRequest(50.909136, 14.213924, 50.90918, 14.213549).
+                setProfile("foot").
+                putHint(Parameters.Routing.DEPARTURE_TIME, "2023-09-01"));
+        assertTrue(rsp.hasErrors());
+        assertTrue(rsp.getErrors().toString().contains("requires conditional access restrictions"), rsp.getErrors().toString());
+    }
+
+    @Test
+    public void testDepartureTime() {
+        GraphHopper hopper = new GraphHopper().
+                setStoreOnFlush(false);
+
+        hopper.init(new GraphHopperConfig().
+                setProfiles(List.of(TestProfiles.accessAndSpeed("foot", "foot"))).
+                putObject("graph.location", GH_LOCATION).
+                putObject("graph.encoded_values", "foot_temporal_access, foot_temporal_access_schedule, foot_access, foot_average_speed").
+                putObject("datareader.file", "../core/files/conditional-restrictions.osm.xml").
+                putObject("prepare.min_network_size", "0").
+                putObject("import.osm.ignored_highways", "").
+                putObject("datareader.date_range_parser_day", "2023-08-01"));
+        hopper.importOrLoad();
+
+        CustomModel customModel = new CustomModel().addToPriority(If("foot_temporal_access == NO", Statement.Op.MULTIPLY, "0"));
+        GHRequest request = new GHRequest(50.909136, 14.213924, 50.90918, 14.213549).
+                setProfile("foot").
+                setCustomModel(customModel);
+        GHResponse rsp = hopper.route(request);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(16, rsp.getBest().getDistance(), 1);
+
+        // the restriction is not active on this day
+        request.putHint(Parameters.Routing.DEPARTURE_TIME, "2023-09-01");
+        rsp = hopper.route(request);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(32, rsp.getBest().getDistance(), 1);
+
+        request.putHint(Parameters.Routing.DEPARTURE_TIME, "2024-02-01T10:00:00+01:00");
+        rsp = hopper.route(request);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(16, rsp.getBest().getDistance(), 1);
+
+        request.putHint(Parameters.Routing.DEPARTURE_TIME, "01.02.2024");
+        rsp = hopper.route(request);
+        assertTrue(rsp.hasErrors());
+        assertTrue(rsp.getErrors().toString().contains("Cannot parse departure time"), rsp.getErrors().toString());
     }
 }
@@ -18,6 +18,8 @@
 
 package com.graphhopper.routing.lm;
 
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.AStarBidirection;
 import com.graphhopper.routing.Dijkstra;
 import com.graphhopper.routing.Path;
 import com.graphhopper.routing.ev.DecimalEncodedValue;
@@ -31,22 +33,116 @@ import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.storage.RAMDirectory;
 import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.GHUtility;
 import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class LMApproximatorTest {
 
     @RepeatedTest(value = 10)
     public void randomGraph() {
         final long seed = System.nanoTime();
-        run(seed);
+        run(seed, false);
     }
 
-    private void run(long seed) {
+    @RepeatedTest(value = 10)
+    public void randomGraphCompressedWeights() {
+        final long seed = System.nanoTime();
+        run(seed, true);
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3, 4, 5})
+    public void randomGraphActiveLandmarkUpdates(long seed) {
+        Directory dir = new RAMDirectory();
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        EncodingManager encodingManager = new EncodingManager.Builder().add(speedEnc).add(Subnetwork.create("car")).build();
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).setDir(dir).create();
+
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 200, 2.2, true, speedEnc, null, 0.8, 0.8);
+
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        PrepareLandmarks lm = new PrepareLandmarks(dir, graph, encodingManager, new LMConfig("car", weighting), 16);
+        lm.setMaximumWeight(10000);
+        lm.doWork();
+        LandmarkStorage landmarkStorage = lm.getLandmarkStorage();
+
+        int updates = 0;
+        for (int i = 0; i < 50; i++) {
+            int from = rnd.nextInt(graph.getNodes());
+            int to = rnd.nextInt(graph.getNodes());
+            Path expected = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+
+            AStarBidirection algo = new AStarBidirection(graph, weighting, TraversalMode.NODE_BASED);
+            algo.setApproximation(LMApproximator.forLandmarks(graph, weighting, landmarkStorage, 2));
+            algo.setApproximationUpdateInterval(1);
+            Path path = algo.calcPath(from, to);
+            assertEquals(expected.isFound(), path.isFound(), "seed: " + seed);
+            if (!path.isFound())
+                continue;
+            assertEquals(expected.getWeight(), path.getWeight(), 1.e-6, "seed: " + seed + ", " + from + "->" + to);
+            assertTrue(algo.getLowerBoundRatio() <= 1 + 1.e-6, "seed: " + seed);
+            updates += algo.getApproximationUpdates();
+        }
+        assertTrue(updates > 0, "seed: " + seed);
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3, 4, 5})
+    public void randomGraphLandmarkUpdates(long seed) {
+        Directory dir = new RAMDirectory();
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        EncodingManager encodingManager = new EncodingManager.Builder().add(speedEnc).add(Subnetwork.create("car")).build();
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).setDir(dir).create();
+
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.2, true, speedEnc, null, 0.8, 0.8);
+
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        PrepareLandmarks lm = new PrepareLandmarks(dir, graph, encodingManager, new LMConfig("car", weighting), 8);
+        lm.setMaximumWeight(10000);
+        lm.doWork();
+        LandmarkStorage landmarkStorage = lm.getLandmarkStorage();
+
+        for (int update = 1; update <= 3; update++) {
+            // make some edges faster, slower edges do not require an update
+            IntArrayList changedEdges = new IntArrayList();
+            for (int i = 0; i < 10; i++) {
+                EdgeIteratorState edge = graph.getEdgeIteratorState(rnd.nextInt(graph.getEdges()), Integer.MIN_VALUE);
+                edge.set(speedEnc, Math.min(150, 3 * edge.get(speedEnc)), Math.min(150, 3 * edge.getReverse(speedEnc)));
+                changedEdges.add(edge.getEdge());
+            }
+            // the faster edges change the landmark weights, so the update is rejected if the error cannot grow
+            int maxWeightError = landmarkStorage.getMaxWeightError();
+            assertFalse(landmarkStorage.updateLandmarks(changedEdges, maxWeightError), "seed: " + seed);
+            assertEquals(update - 1, landmarkStorage.getUpdateError(), "seed: " + seed);
+            assertTrue(landmarkStorage.updateLandmarks(changedEdges, maxWeightError + 1), "seed: " + seed);
+            assertEquals(update, landmarkStorage.getUpdateError(), "seed: " + seed);
+            assertEquals(maxWeightError + 1, landmarkStorage.getMaxWeightError(), "seed: " + seed);
+
+            for (int i = 0; i < 10; i++) {
+                int t = rnd.nextInt(graph.getNodes());
+                LMApproximator lmApproximator = new LMApproximator(graph, weighting, weighting, graph.getNodes(), landmarkStorage, 4, landmarkStorage.getFactor(), false);
+                lmApproximator.setTo(t);
+                for (int v = 0; v < graph.getNodes(); v++) {
+                    Path path = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(v, t);
+                    if (path.isFound())
+                        assertTrue(lmApproximator.approximate(v) <= path.getWeight() + 1.e-6, "seed: " + seed + ", " + v + "->" + t);
+                }
+            }
+        }
+    }
+
+    private void run(long seed, boolean compressWeights) {
         Directory dir = new RAMDirectory();
         DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
         DecimalEncodedValue turnCostEnc = TurnCost.create("car", 1);
@@ -60,6 +156,7 @@ public class LMApproximatorTest {
 
         PrepareLandmarks lm = new PrepareLandmarks(dir, graph, encodingManager, new LMConfig("car", weighting), 16);
         lm.setMaximumWeight(10000);
+        lm.setCompressWeights(compressWeights);
         lm.doWork();
         LandmarkStorage landmarkStorage = lm.getLandmarkStorage();
 
@@ -114,8 +211,8 @@ public class LMApproximatorTest {
                         int w = neighbors.getAdjNode();
                         double vw = weighting.calcEdgeWeight(neighbors, false);
                         double vwApprox = lmApproximator.approximate(v) - lmApproximator.approximate(w);
-                        if (vwApprox - lm.getLandmarkStorage().getFactor() > vw) {
-                            System.out.printf("%f\t%f\n", vwApprox - lm.getLandmarkStorage().getFactor(), vw);
+                        if (vwApprox - lmApproximator.getSlack() > vw) {
+                            System.out.printf("%f\t%f\n", vwApprox - lmApproximator.getSlack(), vw);
                             nInconsistentWeights++;
                         }
                     }
@@ -125,8 +222,8 @@ public class LMApproximatorTest {
                         int w = neighbors.getAdjNode();
                         double vw = weighting.calcEdgeWeight(neighbors, false);
                         double vwApprox = balancedWeightApproximator.approximate(v, false) - balancedWeightApproximator.approximate(w, false);
-                        if (vwApprox - lm.getLandmarkStorage().getFactor() > vw) {
-                            System.out.printf("%f\t%f\n", vwApprox - lm.getLandmarkStorage().getFactor(), vw);
+                        if (vwApprox - lmApproximator.getSlack() > vw) {
+                            System.out.printf("%f\t%f\n", vwApprox - lmApproximator.getSlack(), vw);
                             nInconsistentWeights++;
                         }
                     }
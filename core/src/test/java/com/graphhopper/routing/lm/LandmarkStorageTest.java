@@ -17,6 +17,7 @@
  */
 package com.graphhopper.routing.lm;
 
+import com.graphhopper.GraphHopper;
 import com.graphhopper.routing.RoutingAlgorithmTest;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.DecimalEncodedValue;
@@ -28,15 +29,21 @@ import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.weighting.SpeedWeighting;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.DAType;
 import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.DataAccess;
 import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Helper;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import static java.util.Collections.emptyList;
 import static org.junit.jupiter.api.Assertions.*;
@@ -45,6 +52,7 @@ import static org.junit.jupiter.api.Assertions.*;
  * @author Peter Karich
  */
 public class LandmarkStorageTest {
+    private static final String LOCATION = "./target/landmark-storage-test";
     private BaseGraph graph;
     private BooleanEncodedValue subnetworkEnc;
     private EncodingManager encodingManager;
@@ -62,6 +70,7 @@ public class LandmarkStorageTest {
     public void tearDown() {
         if (graph != null)
             graph.close();
+        Helper.removeDir(new File(LOCATION));
     }
 
     @Test
@@ -131,6 +140,103 @@ public class LandmarkStorageTest {
         assertEquals("[5, 4]", Arrays.toString(storage.getLandmarks(2)));
     }
 
+    @Test
+    public void testConcurrentLandmarkWeights() {
+        GHUtility.buildRandomGraph(graph, new Random(42), 500, 2.2, true, speedEnc, null, 0.8, 0.8);
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        subnetworkRemoval(weighting, 1);
+
+        LandmarkStorage sequential = new LandmarkStorage(graph, encodingManager, new RAMDirectory(), new LMConfig("car", weighting), 8);
+        sequential.setMinimumNodes(2);
+        sequential.createLandmarks();
+        // with RAM_INT the 'from' and 'to' weight of a landmark are stored in the same int
+        Directory dir = new RAMDirectory() {
+            @Override
+            public DataAccess create(String name) {
+                return name.equals("landmarks_car") ? create(name, DAType.RAM_INT) : super.create(name);
+            }
+        };
+        LandmarkStorage concurrent = new LandmarkStorage(graph, encodingManager, dir, new LMConfig("car", weighting), 8);
+        concurrent.setMinimumNodes(2);
+        concurrent.setThreads(4);
+        concurrent.createLandmarks();
+
+        assertEquals(sequential.getSubnetworksWithLandmarks(), concurrent.getSubnetworksWithLandmarks());
+        for (int subnetwork = 1; subnetwork < sequential.getSubnetworksWithLandmarks(); subnetwork++) {
+            assertArrayEquals(sequential.getLandmarks(subnetwork), concurrent.getLandmarks(subnetwork));
+        }
+        for (int node = 0; node < graph.getNodes(); node++) {
+            for (int lm = 0; lm < 8; lm++) {
+                assertEquals(sequential.getFromWeight(lm, node), concurrent.getFromWeight(lm, node));
+                assertEquals(sequential.getToWeight(lm, node), concurrent.getToWeight(lm, node));
+            }
+        }
+    }
+
+    @Test
+    public void testCompressedWeights() {
+        // a grid sorted along the Hilbert curve, like the graph after the import
+        int size = 60;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                graph.getNodeAccess().setNode(row * size + col, 49.4 + row * 0.001, 9.7 + col * 0.001);
+            }
+        }
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int node = row * size + col;
+                if (col + 1 < size)
+                    graph.edge(node, node + 1).setDistance(72).set(speedEnc, 60, 60);
+                if (row + 1 < size)
+                    graph.edge(node, node + size).setDistance(111).set(speedEnc, 40, row % 7 == 0 ? 0 : 40);
+            }
+        }
+        GraphHopper.sortGraphAlongHilbertCurve(graph);
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        subnetworkRemoval(weighting, 1);
+
+        LandmarkStorage rows = new LandmarkStorage(graph, encodingManager, new RAMDirectory(), new LMConfig("car", weighting), 16);
+        rows.setMinimumNodes(2);
+        rows.setMaximumWeight(1000);
+        rows.createLandmarks();
+        assertFalse(rows.isCompressed());
+
+        Directory dir = new RAMDirectory(LOCATION, true).create();
+        LandmarkStorage tiles = new LandmarkStorage(graph, encodingManager, dir, new LMConfig("car", weighting), 16);
+        tiles.setMinimumNodes(2);
+        tiles.setMaximumWeight(1000);
+        tiles.setCompressWeights(true);
+        tiles.createLandmarks();
+        tiles.flush();
+        assertTrue(tiles.isCompressed());
+        assertFalse(dir.getDAs().keySet().stream().anyMatch(name -> name.startsWith("landmarks_rows")));
+        tiles.close();
+
+        tiles = new LandmarkStorage(graph, encodingManager, new RAMDirectory(LOCATION, true), new LMConfig("car", weighting), 16);
+        assertTrue(tiles.loadExisting());
+        assertTrue(tiles.isCompressed());
+        assertEquals(rows.getSubnetworksWithLandmarks(), tiles.getSubnetworksWithLandmarks());
+        for (int subnetwork = 1; subnetwork < rows.getSubnetworksWithLandmarks(); subnetwork++) {
+            assertArrayEquals(rows.getLandmarks(subnetwork), tiles.getLandmarks(subnetwork));
+        }
+        int exact = 0;
+        for (int node = 0; node < graph.getNodes(); node++) {
+            for (int lm = 0; lm < 16; lm++) {
+                int from = rows.getFromWeight(lm, node);
+                assertTrue(tiles.getFromWeight(lm, node) <= from && from <= tiles.getFromWeightUpperBound(lm, node));
+                assertTrue(tiles.getFromWeightUpperBound(lm, node) - tiles.getFromWeight(lm, node) < tiles.getMaxWeightError());
+                int to = rows.getToWeight(lm, node);
+                assertTrue(tiles.getToWeight(lm, node) <= to && to <= tiles.getToWeightUpperBound(lm, node));
+                assertTrue(tiles.getToWeightUpperBound(lm, node) - tiles.getToWeight(lm, node) < tiles.getMaxWeightError());
+                if (from == tiles.getFromWeight(lm, node))
+                    exact++;
+            }
+        }
+        // most tiles can be compressed without a shift
+        assertTrue(exact > 0.5 * graph.getNodes() * 16, "exact weights: " + exact);
+        tiles.close();
+    }
+
     @Test
     public void testWithStronglyConnectedComponent() {
         // 0 - 1 - 2 = 3 - 4
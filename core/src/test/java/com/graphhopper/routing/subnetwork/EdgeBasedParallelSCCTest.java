@@ -0,0 +1,93 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.routing.subnetwork;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.ev.EncodedValue;
+import com.graphhopper.routing.subnetwork.EdgeBasedTarjanSCC.ConnectedComponents;
+import com.graphhopper.routing.subnetwork.EdgeBasedTarjanSCC.EdgeTransitionFilter;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static com.graphhopper.routing.subnetwork.TarjanSCCTest.buildComponentSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EdgeBasedParallelSCCTest {
+
+    private final DecimalEncodedValue speedEnc;
+    private final BaseGraph g;
+    private final EdgeTransitionFilter fwdAccessFilter;
+
+    public EdgeBasedParallelSCCTest() {
+        speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        EncodedValue.InitializerConfig evConf = new EncodedValue.InitializerConfig();
+        speedEnc.init(evConf);
+        g = new BaseGraph.Builder(evConf.getRequiredBytes()).create();
+        fwdAccessFilter = (prev, edge) -> edge.get(speedEnc) > 0;
+    }
+
+    @Test
+    public void withTurnRestriction() {
+        // 0->1
+        // |  |
+        // 3<-2->4
+        g.edge(0, 1).setDistance(1).set(speedEnc, 10, 0);
+        g.edge(1, 2).setDistance(1).set(speedEnc, 10, 0);
+        g.edge(2, 3).setDistance(1).set(speedEnc, 10, 0);
+        g.edge(3, 0).setDistance(1).set(speedEnc, 10, 0);
+        g.edge(2, 4).setDistance(1).set(speedEnc, 10, 0);
+
+        ConnectedComponents result = EdgeBasedParallelSCC.findComponents(g, fwdAccessFilter, false, 2);
+        assertEquals(7, result.getTotalComponents());
+        assertEquals(1, result.getComponents().size());
+        assertEquals(IntArrayList.from(0, 2, 4, 6), result.getBiggestComponent());
+        assertEquals(6, result.getSingleEdgeComponents().cardinality());
+
+        // the restricted turn 1->2->3, i.e. from edge 1 onto edge 2, splits the circle
+        result = EdgeBasedParallelSCC.findComponents(g,
+                (prev, edge) -> fwdAccessFilter.accept(prev, edge) && !(prev == 1 && edge.getBaseNode() == 2 && edge.getEdge() == 2), false, 2);
+        assertEquals(10, result.getTotalComponents());
+        assertEquals(0, result.getComponents().size());
+        assertEquals(10, result.getSingleEdgeComponents().cardinality());
+    }
+
+    @RepeatedTest(20)
+    public void sameAsTarjan() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(g, rnd, 2000, 2, true, speedEnc, 60d, 0.7, 0);
+        // forbid some turns to get more and smaller components
+        EdgeTransitionFilter filter = (prev, edge) -> fwdAccessFilter.accept(prev, edge) && (prev < 0 || (31 * prev + edge.getEdge()) % 7 != 0);
+        for (boolean excludeSingle : new boolean[]{true, false}) {
+            ConnectedComponents expected = EdgeBasedTarjanSCC.findComponents(g, filter, excludeSingle);
+            ConnectedComponents given = EdgeBasedParallelSCC.findComponents(g, filter, excludeSingle, 4);
+            assertEquals(buildComponentSet(expected.getComponents()), buildComponentSet(given.getComponents()), "seed: " + seed);
+            assertEquals(expected.getSingleEdgeComponents(), given.getSingleEdgeComponents(), "seed: " + seed);
+            assertEquals(expected.getBiggestComponent().size(), given.getBiggestComponent().size(), "seed: " + seed);
+            assertEquals(expected.getEdgeKeys(), given.getEdgeKeys(), "seed: " + seed);
+            assertEquals(expected.getTotalComponents(), given.getTotalComponents(), "seed: " + seed);
+        }
+    }
+}
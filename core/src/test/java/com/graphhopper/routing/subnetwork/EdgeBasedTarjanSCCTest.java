@@ -239,6 +239,25 @@ class EdgeBasedTarjanSCCTest {
         }
     }
 
+    @Test
+    public void searchStartsAtReverseEdgeKey() {
+        // 0 - 1
+        //  \  ^
+        //   > 2
+        g.edge(0, 1).setDistance(1).set(speedEnc, 10, 10); // edge-keys 0,1
+        g.edge(0, 2).setDistance(1).set(speedEnc, 10, 0); // edge-keys 2,3
+        g.edge(2, 1).setDistance(1).set(speedEnc, 10, 0); // edge-keys 4,5
+        // without u-turns 1->0->2->1 is the only circle, and it cannot be reached from the edge key 0->1
+        EdgeBasedTarjanSCC.EdgeTransitionFilter filter = (prev, edge) -> fwdAccessFilter.accept(prev, edge) && prev != edge.getEdge();
+        for (ConnectedComponents result : new ConnectedComponents[]{
+                EdgeBasedTarjanSCC.findComponents(g, filter, false),
+                EdgeBasedTarjanSCC.findComponentsRecursive(g, filter, false)}) {
+            assertEquals(4, result.getTotalComponents());
+            assertEquals(1, result.getComponents().size());
+            assertEquals(Set.of(1, 2, 4), Set.of(result.getBiggestComponent().get(0), result.getBiggestComponent().get(1), result.getBiggestComponent().get(2)));
+        }
+    }
+
     @RepeatedTest(20)
     public void implicitVsExplicitRecursion() {
         doImplicitVsExplicit(true);
@@ -18,6 +18,7 @@
 package com.graphhopper.routing.subnetwork;
 
 import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntHashSet;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.EncodingManager;
@@ -217,6 +218,35 @@ public class PrepareRoutingSubnetworksTest {
         assertEquals(IntArrayList.from(4, 5, 6, 7, 8), getSubnetworkEdges(g, subnetworkEnc));
     }
 
+    @Test
+    public void testUpdateSubnetworks() {
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        BooleanEncodedValue subnetworkEnc = Subnetwork.create("car");
+        EncodingManager em = EncodingManager.start().add(speedEnc).add(subnetworkEnc).build();
+        BaseGraph g = createSubnetworkTestStorage(em, speedEnc, null);
+        PrepareRoutingSubnetworks instance = new PrepareRoutingSubnetworks(g, Collections.singletonList(createJob(subnetworkEnc, speedEnc)));
+        instance.setMinNetworkSize(4);
+        assertEquals(3, instance.doWork());
+        assertEquals(IntArrayList.from(7, 8, 9), getSubnetworkEdges(g, subnetworkEnc));
+
+        // opening the edge 3-4 connects the upper network
+        GHUtility.getEdge(g, 3, 4).set(speedEnc, 10, 10);
+        assertEquals(IntHashSet.from(7, 8, 9), instance.updateSubnetworks(IntArrayList.from(0), 8));
+        assertEquals(IntArrayList.from(), getSubnetworkEdges(g, subnetworkEnc));
+
+        // blocking the edge 3-7 separates the edge 7-8
+        GHUtility.getEdge(g, 3, 7).set(speedEnc, 0, 0);
+        assertEquals(IntHashSet.from(6), instance.updateSubnetworks(IntArrayList.from(5), 8));
+        assertEquals(IntArrayList.from(6), getSubnetworkEdges(g, subnetworkEnc));
+
+        // the same as a full preparation
+        BaseGraph expected = createSubnetworkTestStorage(em, speedEnc, null);
+        GHUtility.getEdge(expected, 3, 4).set(speedEnc, 10, 10);
+        GHUtility.getEdge(expected, 3, 7).set(speedEnc, 0, 0);
+        new PrepareRoutingSubnetworks(expected, Collections.singletonList(createJob(subnetworkEnc, speedEnc))).setMinNetworkSize(4).doWork();
+        assertEquals(getSubnetworkEdges(expected, subnetworkEnc), getSubnetworkEdges(g, subnetworkEnc));
+    }
+
     // Previous two-pass implementation failed on 1 -> 2 -> 0
     @Test
     public void testNodeOrderingRegression() {
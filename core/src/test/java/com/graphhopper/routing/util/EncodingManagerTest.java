@@ -21,6 +21,8 @@ import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.util.parsers.BikeAccessParser;
 import com.graphhopper.routing.util.parsers.CarAccessParser;
 import com.graphhopper.routing.util.parsers.FootAccessParser;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.StorableProperties;
 import com.graphhopper.util.PMap;
 import org.junit.jupiter.api.Test;
 
@@ -78,4 +80,29 @@ public class EncodingManagerTest {
         assertEquals(Arrays.asList("bike", "hike"), em.getVehicles());
     }
 
+    @Test
+    public void testColdEncodedValues() {
+        EncodingManager em = EncodingManager.start()
+                .addCold(new IntEncodedValueImpl("cold", 10, false))
+                .add(RoadClass.create())
+                .add(VehicleAccess.create("car"))
+                .build();
+        // the cold encoded value is placed behind the others and starts at a new int
+        assertEquals(1, em.getBytesForInlineFlags());
+        assertEquals(6, em.getBytesForFlags());
+        assertEquals(Arrays.asList(RoadClass.KEY, VehicleAccess.key("car"), "cold"), em.getEncodedValues().stream().map(EncodedValue::getName).toList());
+
+        StorableProperties properties = new StorableProperties(new RAMDirectory());
+        EncodingManager.putEncodingManagerIntoProperties(em, properties);
+        EncodingManager loaded = EncodingManager.fromProperties(properties);
+        assertEquals(1, loaded.getBytesForInlineFlags());
+        assertEquals(6, loaded.getBytesForFlags());
+
+        // without cold encoded values everything is inline
+        em = EncodingManager.start().add(RoadClass.create()).build();
+        assertEquals(em.getBytesForFlags(), em.getBytesForInlineFlags());
+
+        assertThrows(IllegalArgumentException.class, () -> EncodingManager.start().add(RoadClass.create()).addCold(RoadClass.create()));
+    }
+
 }
@@ -303,6 +303,57 @@ public class KVStorageTest {
         assertEquals(pointerA, pointerB);
     }
 
+    @Test
+    public void testDeduplication() {
+        KVStorage index = create();
+        long pointerA = index.add(createMap("name", "Main Street", "ref", "B1"));
+        long pointerB = index.add(createMap("name", "Side Street"));
+        long end = index.add(createMap("name", "Third Street"));
+        // not the previous entry, but it has the same content
+        assertEquals(pointerA, index.add(createMap("name", "Main Street", "ref", "B1")));
+        assertEquals(pointerB, index.add(createMap("name", "Side Street")));
+        // the skipped bytes are re-used by the next entry
+        long pointerC = index.add(createMap("name", "Main Street"));
+        assertTrue(pointerC > end);
+        assertNotEquals(pointerA, pointerC);
+        assertNotEquals(pointerC, index.add(createMap("name", "Main Street", "ref", "B2")));
+        assertEquals("B1", index.get(pointerA, "ref", false));
+        assertNull(index.get(pointerC, "ref", false));
+        assertEquals("Main Street", index.get(pointerC, "name", false));
+
+        Map<String, KValue> map = new LinkedHashMap<>();
+        map.put("name", new KValue("Main Street"));
+        map.put("ref", new KValue("B1", null));
+        long pointerD = index.add(map);
+        assertNotEquals(pointerA, pointerD);
+        assertNull(index.get(pointerD, "ref", true));
+        assertEquals("B1", index.get(pointerA, "ref", true));
+    }
+
+    @Test
+    public void testNoDeduplicationAfterFlush() {
+        KVStorage index = create();
+        long pointerA = index.add(createMap("name", "Main Street"));
+        index.add(createMap("name", "Side Street"));
+        index.flush();
+        // the content hashes are dropped on flush, so the entry is added again
+        long pointerB = index.add(createMap("name", "Main Street"));
+        assertNotEquals(pointerA, pointerB);
+        assertEquals("Main Street", index.get(pointerB, "name", false));
+        assertEquals(pointerB, index.add(createMap("name", "Main Street")));
+    }
+
+    @Test
+    public void testDecodedEntriesAreShared() {
+        KVStorage index = create();
+        long pointer = index.add(createMap("name", "Main Street", "ref", "B1"));
+        Map<String, KValue> map = index.getAll(pointer);
+        assertSame(map, index.getAll(pointer));
+        assertThrows(UnsupportedOperationException.class, () -> map.put("name", new KValue("other")));
+        assertEquals("Main Street", index.get(pointer, "name", false));
+        assertSame(map.get("name").getFwd(), index.get(pointer, "name", true));
+    }
+
     @Test
     public void testUnknownValueClass() {
         KVStorage index = create();
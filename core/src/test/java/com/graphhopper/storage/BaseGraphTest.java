@@ -19,7 +19,10 @@ package com.graphhopper.storage;
 
 import com.carrotsearch.hppc.IntArrayList;
 import com.graphhopper.routing.ev.EnumEncodedValue;
+import com.graphhopper.routing.ev.IntEncodedValue;
+import com.graphhopper.routing.ev.IntEncodedValueImpl;
 import com.graphhopper.routing.ev.RoadClass;
+import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.search.KVStorage.KValue;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
@@ -28,7 +31,9 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import static com.graphhopper.util.EdgeIteratorState.REVERSE_STATE;
 import static com.graphhopper.util.FetchMode.*;
@@ -295,6 +300,40 @@ public class BaseGraphTest extends AbstractGraphStorageTester {
         assertEquals(RoadClass.CORRIDOR, edge.get(rcEnc));
     }
 
+    @Test
+    public void coldFlags() {
+        EnumEncodedValue<RoadClass> rcEnc = RoadClass.create();
+        IntEncodedValue coldEnc = new IntEncodedValueImpl("cold", 31, false);
+        IntEncodedValue coldEnc2 = new IntEncodedValueImpl("cold2", 20, true);
+        EncodingManager em = EncodingManager.start().add(rcEnc).addCold(coldEnc).addCold(coldEnc2).build();
+        BaseGraph graph = new BaseGraph.Builder(em).setDir(new RAMDirectory(defaultGraphLoc, true)).create();
+        assertEquals(1, graph.getStore().getBytesForInlineFlags());
+        for (int i = 0; i < 100; i++) {
+            graph.edge(i, i + 1).setDistance(10).set(rcEnc, RoadClass.values()[i % RoadClass.values().length])
+                    .set(coldEnc, i * 1000).set(coldEnc2, i, 2 * i);
+        }
+        // sorting edges must move the cold flags as well
+        graph.sortEdges(e -> 99 - e);
+        graph.flush();
+        graph.close();
+
+        graph = new BaseGraph.Builder(em).setDir(new RAMDirectory(defaultGraphLoc, true)).build();
+        assertTrue(graph.loadExisting());
+        for (int i = 0; i < 100; i++) {
+            EdgeIteratorState edge = graph.getEdgeIteratorState(99 - i, Integer.MIN_VALUE);
+            assertEquals(RoadClass.values()[i % RoadClass.values().length], edge.get(rcEnc));
+            assertEquals(i * 1000, edge.get(coldEnc));
+            assertEquals(i, edge.get(coldEnc2));
+            assertEquals(2 * i, edge.getReverse(coldEnc2));
+            assertEquals(edge.getFlags(), graph.copyEdge(edge.getEdge(), false).getFlags());
+        }
+        graph.close();
+
+        // the stored graph has cold flags, so it cannot be loaded with an encoding manager without them
+        BaseGraph inlineGraph = new BaseGraph.Builder(em.getBytesForFlags()).setDir(new RAMDirectory(defaultGraphLoc, true)).build();
+        assertThrows(IllegalStateException.class, inlineGraph::loadExisting);
+    }
+
     @Test
     public void copyEdge() {
         BaseGraph graph = createGHStorage();
@@ -392,6 +431,81 @@ public class BaseGraphTest extends AbstractGraphStorageTester {
         assertTrue(e.getMessage().contains("This edge already has a way geometry so it cannot be changed to a bigger geometry"), e.getMessage());
     }
 
+    @Test
+    public void compressedGeometry() {
+        BaseGraph raw = new BaseGraph.Builder(encodingManager).set3D(true).create();
+        BaseGraph compressed = new BaseGraph.Builder(encodingManager).set3D(true).setCompressedGeometry(true)
+                .setDir(new RAMDirectory(defaultGraphLoc, true)).create();
+        assertTrue(compressed.isCompressedGeometry());
+        Random rnd = new Random(42);
+        for (BaseGraph graph : List.of(raw, compressed)) {
+            rnd.setSeed(42);
+            for (int node = 0; node < 50; node++)
+                graph.getNodeAccess().setNode(node, 50 + rnd.nextDouble(), 10 + rnd.nextDouble(), 300 * rnd.nextDouble());
+            for (int edge = 0; edge < 100; edge++) {
+                int from = rnd.nextInt(50), to = (from + 1 + rnd.nextInt(49)) % 50;
+                // real pillar nodes are close to each other and to the tower nodes
+                PointList pillars = new PointList(10, true);
+                double lat = graph.getNodeAccess().getLat(from), lon = graph.getNodeAccess().getLon(from), ele = graph.getNodeAccess().getEle(from);
+                for (int i = 0, count = rnd.nextInt(10); i < count; i++) {
+                    lat += 0.001 * (rnd.nextDouble() - 0.5);
+                    lon += 0.001 * (rnd.nextDouble() - 0.5);
+                    ele += 2 * (rnd.nextDouble() - 0.5);
+                    pillars.add(lat, lon, ele);
+                }
+                graph.edge(from, to).setDistance(10);
+                // store the geometry in both directions
+                if (rnd.nextBoolean()) {
+                    graph.getEdgeIteratorState(edge, to).setWayGeometry(pillars);
+                } else {
+                    pillars.reverse();
+                    graph.getEdgeIteratorState(edge, from).setWayGeometry(pillars);
+                }
+            }
+        }
+        assertTrue(compressed.getMaxGeoRef() < raw.getMaxGeoRef() * 0.7, compressed.getMaxGeoRef() + " vs. " + raw.getMaxGeoRef());
+        assertSameGeometry(raw, compressed);
+
+        // we can change the elevation of an existing geometry as long as it fits in the reserved space
+        for (BaseGraph graph : List.of(raw, compressed)) {
+            EdgeIteratorState edge = graph.getEdgeIteratorState(3, Integer.MIN_VALUE);
+            PointList pillars = edge.fetchWayGeometry(FetchMode.PILLAR_ONLY);
+            for (int i = 0; i < pillars.size(); i++)
+                pillars.set(i, pillars.getLat(i), pillars.getLon(i), 10);
+            edge.setWayGeometry(pillars);
+        }
+        assertSameGeometry(raw, compressed);
+
+        compressed.flush();
+        compressed.close();
+        // the format is read from the geometry header
+        compressed = new BaseGraph.Builder(encodingManager).set3D(true).setDir(new RAMDirectory(defaultGraphLoc, true)).build();
+        assertTrue(compressed.loadExisting());
+        assertTrue(compressed.isCompressedGeometry());
+        assertSameGeometry(raw, compressed);
+        compressed.close();
+    }
+
+    private static void assertSameGeometry(BaseGraph expected, BaseGraph given) {
+        assertEquals(expected.getEdges(), given.getEdges());
+        for (int edge = 0; edge < expected.getEdges(); edge++) {
+            for (FetchMode mode : FetchMode.values()) {
+                for (boolean reverse : new boolean[]{false, true}) {
+                    int adj = expected.getEdgeIteratorState(edge, Integer.MIN_VALUE).getAdjNode();
+                    int base = expected.getEdgeIteratorState(edge, Integer.MIN_VALUE).getBaseNode();
+                    PointList e = expected.getEdgeIteratorState(edge, reverse ? base : adj).fetchWayGeometry(mode);
+                    PointList g = given.getEdgeIteratorState(edge, reverse ? base : adj).fetchWayGeometry(mode);
+                    assertEquals(e.size(), g.size(), "edge " + edge);
+                    for (int i = 0; i < e.size(); i++) {
+                        assertEquals(e.getLat(i), g.getLat(i), 1.e-7, "edge " + edge);
+                        assertEquals(e.getLon(i), g.getLon(i), 1.e-7, "edge " + edge);
+                        assertEquals(e.getEle(i), g.getEle(i), 1.e-1, "edge " + edge);
+                    }
+                }
+            }
+        }
+    }
+
     @Test
     public void testGeoRef() {
         BaseGraph graph = createGHStorage();
@@ -4,6 +4,7 @@ import com.carrotsearch.hppc.DoubleArrayList;
 import com.carrotsearch.hppc.IntArrayList;
 import com.graphhopper.routing.ch.PrepareEncoder;
 import com.graphhopper.routing.ch.ShortcutUnpacker;
+import com.graphhopper.routing.ch.ShortcutUnpackingCache;
 import com.graphhopper.routing.ev.DecimalEncodedValue;
 import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
 import com.graphhopper.routing.ev.TurnCost;
@@ -20,6 +21,8 @@ import org.junit.jupiter.params.provider.ArgumentsSource;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 public class ShortcutUnpackerTest {
@@ -28,14 +31,16 @@ public class ShortcutUnpackerTest {
 
     private static final class Fixture {
         private final boolean edgeBased;
+        private final boolean cached;
         private final DecimalEncodedValue speedEnc;
         private final DecimalEncodedValue turnCostEnc;
         private final BaseGraph graph;
         private CHStorageBuilder chBuilder;
         private RoutingCHGraph routingCHGraph;
 
-        Fixture(boolean edgeBased) {
+        Fixture(boolean edgeBased, boolean cached) {
             this.edgeBased = edgeBased;
+            this.cached = cached;
             speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
             turnCostEnc = TurnCost.create("car", 10);
             EncodingManager encodingManager = EncodingManager.start().add(speedEnc).addTurnCostEncodedValue(turnCostEnc).build();
@@ -44,7 +49,7 @@ public class ShortcutUnpackerTest {
 
         @Override
         public String toString() {
-            return "edge_based=" + edgeBased;
+            return "edge_based=" + edgeBased + ", cached=" + cached;
         }
 
         private void freeze() {
@@ -55,6 +60,8 @@ public class ShortcutUnpackerTest {
             CHStorage chStore = CHStorage.fromGraph(graph, chConfig);
             chBuilder = new CHStorageBuilder(chStore);
             routingCHGraph = RoutingCHGraphImpl.fromGraph(graph, chStore, chConfig);
+            if (cached)
+                ((RoutingCHGraphImpl) routingCHGraph).setShortcutUnpackingCache(new ShortcutUnpackingCache(1, 1, routingCHGraph.getEdges()));
         }
 
         private void setCHLevels(int... order) {
@@ -95,8 +102,10 @@ public class ShortcutUnpackerTest {
         @Override
         public Stream<? extends Arguments> provideArguments(ExtensionContext context) {
             return Stream.of(
-                    new Fixture(false),
-                    new Fixture(true)
+                    new Fixture(false, false),
+                    new Fixture(true, false),
+                    new Fixture(false, true),
+                    new Fixture(true, true)
             ).map(Arguments::of);
         }
     }
@@ -333,6 +342,83 @@ public class ShortcutUnpackerTest {
         }
     }
 
+    @ParameterizedTest
+    @ArgumentsSource(FixtureProvider.class)
+    public void cachedUnpacking(Fixture f) {
+        assumeTrue(f.cached);
+        // 0-1-2-3-4
+        f.graph.edge(0, 1).setDistance(1).set(f.speedEnc, 20, 10);
+        f.graph.edge(1, 2).setDistance(1).set(f.speedEnc, 20, 10);
+        f.graph.edge(2, 3).setDistance(1).set(f.speedEnc, 20, 10);
+        f.graph.edge(3, 4).setDistance(1).set(f.speedEnc, 20, 10);
+        f.freeze();
+
+        f.setCHLevels(1, 3, 2, 0, 4);
+        f.shortcut(2, 0, 0, 1, 0, 2, true);
+        f.shortcut(2, 4, 2, 3, 4, 6, false);
+        f.shortcut(0, 4, 4, 5, 0, 6, false);
+        ShortcutUnpackingCache cache = f.routingCHGraph.getShortcutUnpackingCache();
+
+        TestVisitor visitor = new TestVisitor(f.routingCHGraph);
+        f.visitFwd(6, 4, false, visitor);
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertTrue(cache.getUsedBytes() > 0);
+
+        // the second time the edges come from the cache, but the prevOrNextEdgeId of the first edge can be different
+        TestVisitor cachedVisitor = new TestVisitor(f.routingCHGraph);
+        f.createShortcutUnpacker(cachedVisitor).visitOriginalEdgesFwd(6, 4, false, PREV_EDGE + 1);
+        assertEquals(1, cache.getHits());
+        assertEquals(IntArrayList.from(0, 1, 2, 3), cachedVisitor.edgeIds);
+        assertEquals(visitor.baseNodes, cachedVisitor.baseNodes);
+        assertEquals(visitor.adjNodes, cachedVisitor.adjNodes);
+        assertEquals(visitor.times, cachedVisitor.times);
+        if (f.edgeBased)
+            assertEquals(IntArrayList.from(PREV_EDGE + 1, 0, 1, 2), cachedVisitor.prevOrNextEdgeIds);
+
+        // the other direction is cached separately
+        f.visitBwd(6, 0, false, new TestVisitor(f.routingCHGraph));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(FixtureProvider.class)
+    public void smallShortcutsAreNotLookedUp(Fixture f) {
+        assumeTrue(f.cached);
+        // 0-1-2-3-4
+        f.graph.edge(0, 1).setDistance(1).set(f.speedEnc, 20, 10);
+        f.graph.edge(1, 2).setDistance(1).set(f.speedEnc, 20, 10);
+        f.graph.edge(2, 3).setDistance(1).set(f.speedEnc, 20, 10);
+        f.graph.edge(3, 4).setDistance(1).set(f.speedEnc, 20, 10);
+        f.freeze();
+
+        f.setCHLevels(1, 3, 2, 0, 4);
+        f.shortcut(2, 0, 0, 1, 0, 2, true);
+        f.shortcut(2, 4, 2, 3, 4, 6, false);
+        f.shortcut(0, 4, 4, 5, 0, 6, false);
+        ShortcutUnpackingCache cache = new ShortcutUnpackingCache(1, 3, f.routingCHGraph.getEdges());
+        ((RoutingCHGraphImpl) f.routingCHGraph).setShortcutUnpackingCache(cache);
+
+        // the shortcut 2-4 has only two original edges, so it is only marked as small
+        for (int i = 0; i < 2; i++) {
+            TestVisitor visitor = new TestVisitor(f.routingCHGraph);
+            f.visitFwd(5, 4, false, visitor);
+            assertEquals(IntArrayList.from(2, 3), visitor.edgeIds);
+            assertTrue(cache.isSmall(5));
+            assertEquals(0, cache.getHits());
+            assertEquals(0, cache.getMisses());
+            assertEquals(0, cache.getUsedBytes());
+        }
+
+        // the shortcut 0-4 has four original edges and is cached
+        f.visitFwd(6, 4, false, new TestVisitor(f.routingCHGraph));
+        f.visitFwd(6, 4, false, new TestVisitor(f.routingCHGraph));
+        assertFalse(cache.isSmall(6));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
     private static class TestVisitor implements ShortcutUnpacker.Visitor {
         private final RoutingCHGraph routingCHGraph;
         private final IntArrayList edgeIds = new IntArrayList();
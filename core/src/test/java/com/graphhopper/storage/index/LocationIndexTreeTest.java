@@ -32,6 +32,7 @@ import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.*;
@@ -679,4 +680,44 @@ public class LocationIndexTreeTest {
                     "1, 78, 1, PILLAR"), output);
         }
     }
+
+    @ParameterizedTest
+    @CsvSource({"1, false", "4, false", "4, true"})
+    public void bulkBuildSameAsInMemIndex(int threads, boolean worldBounds) {
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        Random rnd = new Random(123);
+        GHUtility.buildRandomGraph(graph, rnd, 500, 2.2, false, speedEnc, 60d, 0.8, 0.8);
+        if (worldBounds) {
+            // the tile keys get too many bits to be stored together with the edge id
+            int nodes = graph.getNodes();
+            graph.getNodeAccess().setNode(nodes, 0, -179.9);
+            graph.getNodeAccess().setNode(nodes + 1, 0, -179.89);
+            graph.getNodeAccess().setNode(nodes + 2, 0, 179.9);
+            graph.getNodeAccess().setNode(nodes + 3, 0, 179.89);
+            graph.edge(nodes, nodes + 1);
+            graph.edge(nodes + 2, nodes + 3);
+            assertTrue(LineIntIndex.getBucketDepth(IndexStructureInfo.create(graph.getBounds(), 300)) > 0);
+        }
+        for (int edge = 0; edge < graph.getEdges(); edge += 3) {
+            EdgeIteratorState edgeState = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            PointList pillars = new PointList();
+            for (int i = 0, count = rnd.nextInt(4); i < count; i++)
+                pillars.add(graph.getNodeAccess().getLat(edgeState.getBaseNode()) + 0.02 * (rnd.nextDouble() - 0.5),
+                        graph.getNodeAccess().getLon(edgeState.getBaseNode()) + 0.02 * (rnd.nextDouble() - 0.5));
+            edgeState.setWayGeometry(pillars);
+        }
+
+        LocationIndexTree index = createIndexNoPrepare(graph, 300).setThreads(threads);
+        index.prepareIndex();
+
+        LineIntIndex expected = new LineIntIndex(graph.getBounds(), new RAMDirectory(), "expected");
+        expected.setMinResolutionInMeter(300);
+        expected.store(index.prepareInMemConstructionIndex(graph.getBounds(), EdgeFilter.ALL_EDGES));
+        assertTrue(expected.getSize() > graph.getEdges(), "too few entries: " + expected.getSize());
+        assertEquals(expected.getSize(), index.lineIntIndex.getSize());
+        assertEquals(expected.getLeafs(), index.lineIntIndex.getLeafs());
+        long bytes = Math.min(expected.getCapacity(), index.lineIntIndex.getCapacity());
+        for (long pointer = 0; pointer < bytes; pointer += 4)
+            assertEquals(expected.dataAccess.getInt(pointer), index.lineIntIndex.dataAccess.getInt(pointer), "pointer " + pointer);
+    }
 }
@@ -0,0 +1,292 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Matches many traces concurrently, e.g. to backfill an archive of fleet traces. Every worker thread gets its own
+ * {@link MapMatching} instance from the given factory and reuses it for all traces it processes, because MapMatching
+ * is not thread-safe. The traces are read lazily from an iterator through a bounded queue, so the input can be much
+ * larger than the available memory.
+ */
+public class BatchMapMatching {
+    private static final Logger logger = LoggerFactory.getLogger(BatchMapMatching.class);
+    private static final Trace POISON = new Trace("", List.of());
+
+    private final Supplier<MapMatching> mapMatchingFactory;
+    private final int threads;
+    private int logEvery = 10_000;
+
+    public BatchMapMatching(Supplier<MapMatching> mapMatchingFactory, int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be positive but was " + threads);
+        this.mapMatchingFactory = mapMatchingFactory;
+        this.threads = threads;
+    }
+
+    /**
+     * Log the progress after every n traces.
+     */
+    public BatchMapMatching setLogEvery(int logEvery) {
+        this.logEvery = logEvery;
+        return this;
+    }
+
+    /**
+     * Matches all traces and passes the results to the given consumer. The consumer is never called concurrently but
+     * the order of the results is not necessarily the order of the input. It is called while the MatchResult still
+     * refers to the QueryGraph of the worker, so it should process the result immediately and not keep it.
+     */
+    public Statistics match(Iterator<Trace> traces, Consumer<Result> consumer) {
+        BlockingQueue<Trace> queue = new ArrayBlockingQueue<>(threads * 4);
+        Statistics statistics = new Statistics();
+        Object lock = new Object();
+        AtomicReference<RuntimeException> consumerFailure = new AtomicReference<>();
+        long start = System.nanoTime();
+        // create the MapMatching instances before starting any worker, so a failing factory, e.g. due to an unknown
+        // profile, is thrown here instead of silently killing the workers
+        MapMatching[] mapMatchings = new MapMatching[threads];
+        for (int i = 0; i < threads; i++) {
+            mapMatchings[i] = mapMatchingFactory.get();
+        }
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            MapMatching mapMatching = mapMatchings[i];
+            workers[i] = new Thread(() -> {
+                while (true) {
+                    Trace trace;
+                    try {
+                        trace = queue.take();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    if (trace == POISON)
+                        return;
+                    // after a failure of the consumer we only drain the queue so the reading thread does not block
+                    if (consumerFailure.get() != null)
+                        continue;
+                    Result result = matchTrace(mapMatching, trace);
+                    synchronized (lock) {
+                        statistics.add(result);
+                        try {
+                            consumer.accept(result);
+                        } catch (RuntimeException ex) {
+                            consumerFailure.compareAndSet(null, ex);
+                        }
+                        if (logEvery > 0 && statistics.traces % logEvery == 0)
+                            logger.info("matched " + statistics.traces + " traces, " + statistics.toString(System.nanoTime() - start));
+                    }
+                }
+            }, "batch-match-" + i);
+            workers[i].start();
+        }
+        try {
+            while (traces.hasNext() && consumerFailure.get() == null) {
+                queue.put(traces.next());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // the workers have to be stopped even if reading the traces failed, otherwise they wait forever
+            stopWorkers(queue, workers);
+        }
+        if (Thread.currentThread().isInterrupted())
+            throw new RuntimeException("Batch map matching was interrupted");
+        if (consumerFailure.get() != null)
+            throw consumerFailure.get();
+        statistics.wallNanos = System.nanoTime() - start;
+        return statistics;
+    }
+
+    private static void stopWorkers(BlockingQueue<Trace> queue, Thread[] workers) {
+        if (!Thread.currentThread().isInterrupted()) {
+            try {
+                for (int i = 0; i < workers.length; i++) {
+                    queue.put(POISON);
+                }
+                for (Thread worker : workers) {
+                    worker.join();
+                }
+                return;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    private static Result matchTrace(MapMatching mapMatching, Trace trace) {
+        long start = System.nanoTime();
+        try {
+            if (trace.getInvalidReason() != null)
+                throw new IllegalArgumentException(trace.getInvalidReason());
+            if (trace.getObservations().isEmpty())
+                throw new IllegalArgumentException("Trace " + trace.getId() + " has no observations");
+            MatchResult matchResult = mapMatching.match(trace.getObservations());
+            return new Result(trace, matchResult, null, System.nanoTime() - start);
+        } catch (Exception ex) {
+            return new Result(trace, null, ex, System.nanoTime() - start);
+        }
+    }
+
+    public static class Trace {
+        private final String id;
+        private final List<Observation> observations;
+        private final String invalidReason;
+
+        public Trace(String id, List<Observation> observations) {
+            this(id, observations, null);
+        }
+
+        private Trace(String id, List<Observation> observations, String invalidReason) {
+            this.id = id;
+            this.observations = observations;
+            this.invalidReason = invalidReason;
+        }
+
+        /**
+         * Creates a trace that could not be read, e.g. due to a malformed line in the input. It is reported as failed
+         * trace with the given reason instead of stopping the whole batch.
+         */
+        public static Trace invalid(String id, String reason) {
+            return new Trace(id, List.of(), reason);
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public List<Observation> getObservations() {
+            return observations;
+        }
+
+        /**
+         * @return the reason why this trace could not be read or null if it is valid
+         */
+        public String getInvalidReason() {
+            return invalidReason;
+        }
+    }
+
+    public static class Result {
+        private final Trace trace;
+        private final MatchResult matchResult;
+        private final Exception error;
+        private final long nanos;
+
+        Result(Trace trace, MatchResult matchResult, Exception error, long nanos) {
+            this.trace = trace;
+            this.matchResult = matchResult;
+            this.error = error;
+            this.nanos = nanos;
+        }
+
+        public Trace getTrace() {
+            return trace;
+        }
+
+        /**
+         * @return the result of the map matching or null if it failed
+         */
+        public MatchResult getMatchResult() {
+            return matchResult;
+        }
+
+        /**
+         * @return the reason why the map matching failed or null if it succeeded
+         */
+        public Exception getError() {
+            return error;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+    public static class Statistics {
+        private long traces;
+        private long failedTraces;
+        private long observations;
+        private long matchNanos;
+        private long wallNanos;
+
+        void add(Result result) {
+            traces++;
+            observations += result.trace.getObservations().size();
+            matchNanos += result.nanos;
+            if (!result.isSuccess())
+                failedTraces++;
+        }
+
+        public long getTraces() {
+            return traces;
+        }
+
+        public long getFailedTraces() {
+            return failedTraces;
+        }
+
+        public long getObservations() {
+            return observations;
+        }
+
+        /**
+         * @return the time spent in the map matching summed over all threads
+         */
+        public long getMatchNanos() {
+            return matchNanos;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        public double getErrorRate() {
+            return traces == 0 ? 0 : (double) failedTraces / traces;
+        }
+
+        private String toString(long wallNanos) {
+            double seconds = wallNanos / 1e9;
+            return String.format("traces: %d, failed: %d (%.2f%%), observations: %d, traces/s: %.1f, observations/s: %.1f, took: %.1fs",
+                    traces, failedTraces, getErrorRate() * 100, observations, traces / seconds, observations / seconds, seconds);
+        }
+
+        @Override
+        public String toString() {
+            return toString(wallNanos);
+        }
+    }
+}
@@ -211,10 +211,10 @@ public class MapMatching {
 
         // Creates candidates from the Snaps of all observations (a candidate is basically a
         // Snap + direction).
-        List<ObservationWithCandidateStates> timeSteps = createTimeSteps(filteredObservations, snapsPerObservation);
+        List<ObservationWithCandidateStates> timeSteps = createTimeSteps(queryGraph, filteredObservations, snapsPerObservation);
 
         // Compute the most likely sequence of map matching candidates:
-        List<SequenceState<State, Observation, Path>> seq = computeViterbiSequence(timeSteps);
+        List<SequenceState<State, Observation, Path>> seq = computeViterbiSequence(queryGraph, timeSteps);
         statistics.put("transitionDistances", seq.stream().filter(s -> s.transitionDescriptor != null).mapToLong(s -> Math.round(s.transitionDescriptor.getDistance())).toArray());
         statistics.put("visitedNodes", router.getVisitedNodes());
         statistics.put("snapDistanceRanks", IntStream.range(0, seq.size()).map(i -> snapsPerObservation.get(i).indexOf(seq.get(i).state.getSnap())).toArray());
@@ -234,6 +234,18 @@ public class MapMatching {
         return result;
     }
 
+    /**
+     * Creates a session for online map matching, where observations are added one at a time and
+     * matched edges are returned as soon as they are final. See {@link MapMatchingSession}.
+     *
+     * @param lag the number of observations the decoder looks ahead before an observation is
+     *            considered final. Higher values increase accuracy but also latency and the work per
+     *            observation.
+     */
+    public MapMatchingSession createSession(int lag) {
+        return new MapMatchingSession(this, graph, measurementErrorSigma, lag);
+    }
+
     /**
      * Filters observations to only those which will be used for map matching (i.e. those which
      * are separated by at least 2 * measurementErrorSigman
@@ -326,7 +338,7 @@ public class MapMatching {
      * transition probabilities. Creates directed candidates for virtual nodes and undirected
      * candidates for real nodes.
      */
-    private List<ObservationWithCandidateStates> createTimeSteps(List<Observation> filteredObservations, List<List<Snap>> splitsPerObservation) {
+    List<ObservationWithCandidateStates> createTimeSteps(QueryGraph queryGraph, List<Observation> filteredObservations, List<List<Snap>> splitsPerObservation) {
         if (splitsPerObservation.size() != filteredObservations.size()) {
             throw new IllegalArgumentException(
                     "filteredGPXEntries and queriesPerEntry must have same size.");
@@ -379,7 +391,7 @@ public class MapMatching {
         double minusLogProbability;
     }
 
-    private List<SequenceState<State, Observation, Path>> computeViterbiSequence(List<ObservationWithCandidateStates> timeSteps) {
+    List<SequenceState<State, Observation, Path>> computeViterbiSequence(QueryGraph queryGraph, List<ObservationWithCandidateStates> timeSteps) {
         if (timeSteps.isEmpty()) {
             return Collections.emptyList();
         }
@@ -480,7 +492,7 @@ public class MapMatching {
             // transition (except before the first state)
             if (transitionAndState.transitionDescriptor != null) {
                 for (EdgeIteratorState edge : transitionAndState.transitionDescriptor.calcEdges()) {
-                    EdgeIteratorState newDirectedRealEdge = resolveToRealEdge(edge);
+                    EdgeIteratorState newDirectedRealEdge = resolveToRealEdge(queryGraph, edge);
                     if (currentDirectedRealEdge != null) {
                         if (!equalEdges(currentDirectedRealEdge, newDirectedRealEdge)) {
                             EdgeMatch edgeMatch = new EdgeMatch(currentDirectedRealEdge, states);
@@ -493,7 +505,7 @@ public class MapMatching {
             }
             // state
             if (transitionAndState.state.isOnDirectedEdge()) { // as opposed to on a node
-                EdgeIteratorState newDirectedRealEdge = resolveToRealEdge(transitionAndState.state.getOutgoingVirtualEdge());
+                EdgeIteratorState newDirectedRealEdge = resolveToRealEdge(queryGraph, transitionAndState.state.getOutgoingVirtualEdge());
                 if (currentDirectedRealEdge != null) {
                     if (!equalEdges(currentDirectedRealEdge, newDirectedRealEdge)) {
                         EdgeMatch edgeMatch = new EdgeMatch(currentDirectedRealEdge, states);
@@ -527,13 +539,13 @@ public class MapMatching {
         }
     }
 
-    private boolean equalEdges(EdgeIteratorState edge1, EdgeIteratorState edge2) {
+    static boolean equalEdges(EdgeIteratorState edge1, EdgeIteratorState edge2) {
         return edge1.getEdge() == edge2.getEdge()
                 && edge1.getBaseNode() == edge2.getBaseNode()
                 && edge1.getAdjNode() == edge2.getAdjNode();
     }
 
-    private EdgeIteratorState resolveToRealEdge(EdgeIteratorState edgeIteratorState) {
+    EdgeIteratorState resolveToRealEdge(QueryGraph queryGraph, EdgeIteratorState edgeIteratorState) {
         if (queryGraph.isVirtualNode(edgeIteratorState.getBaseNode()) || queryGraph.isVirtualNode(edgeIteratorState.getAdjNode())) {
             return graph.getEdgeIteratorStateForKey(((VirtualEdgeIteratorState) edgeIteratorState).getOriginalEdgeKey());
         } else {
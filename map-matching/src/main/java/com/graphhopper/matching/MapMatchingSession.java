@@ -0,0 +1,268 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.VirtualEdgeIteratorState;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.DistanceCalc;
+import com.graphhopper.util.DistancePlaneProjection;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Online map matching for a live stream of observations, created via {@link MapMatching#createSession(int)}.
+ * <p>
+ * Instead of running the Viterbi algorithm over the full trace this uses fixed-lag decoding: the session keeps a
+ * sliding window of the last 'lag' observations and their candidates. Whenever the window is full the most likely
+ * sequence through the window is computed and the oldest observation is finalized, i.e. its state and the path
+ * leading to it are turned into {@link EdgeMatch}es. The finalized state then serves as the (single) start candidate
+ * of the next decoding, so previous decisions are never revised. The {@link QueryGraph} is recreated for every
+ * decoding and only contains the snaps of the current window, which means that the memory usage does not grow with
+ * the length of the trace.
+ * <p>
+ * An {@link EdgeMatch} is only returned once the matched path leaves its edge, so the observations on the edge that is
+ * currently traversed are returned with a delay. Call {@link #finish()} at the end of the stream to decode the
+ * remaining window.
+ * <p>
+ * Observations for which no candidate can be found are ignored. Like {@link MapMatching} this class is not thread-safe.
+ */
+public class MapMatchingSession {
+    private final MapMatching mapMatching;
+    private final BaseGraph graph;
+    private final double measurementErrorSigma;
+    private final int lag;
+    private final DistanceCalc distanceCalc = new DistancePlaneProjection();
+
+    // the observations that are not final yet, together with the candidates as they were found in the base graph
+    private final List<ObservationWithSnaps> window = new ArrayList<>();
+    // the last finalized observation, the chosen candidate and its direction
+    private ObservationWithSnaps anchor;
+    private Snap anchorSnap;
+    private int anchorOutEdgeKey;
+
+    private Observation prevObservation;
+    private Observation prevAcceptedObservation;
+    private Observation lastSkippedObservation;
+    private double accumulatedDistance;
+
+    private EdgeIteratorState currentDirectedRealEdge;
+    private List<State> currentStates = new ArrayList<>();
+    private int finalizedObservations;
+    private boolean finished;
+
+    MapMatchingSession(MapMatching mapMatching, BaseGraph graph, double measurementErrorSigma, int lag) {
+        if (lag < 0)
+            throw new IllegalArgumentException("lag must not be negative but was " + lag);
+        this.mapMatching = mapMatching;
+        this.graph = graph;
+        this.measurementErrorSigma = measurementErrorSigma;
+        this.lag = lag;
+    }
+
+    /**
+     * Adds the next observation of the trace and returns the edge matches that became final through it. The returned
+     * list is usually empty or contains a single edge, but can be longer when the vehicle moved fast.
+     * <p>
+     * If the decoding fails, e.g. because the sequence is broken, the exception is thrown and the session is left as
+     * it was before this call, i.e. the observation is ignored.
+     */
+    public List<EdgeMatch> addObservation(Observation observation) {
+        if (finished)
+            throw new IllegalStateException("This session is already finished");
+        Observation oldPrevObservation = prevObservation;
+        Observation oldPrevAcceptedObservation = prevAcceptedObservation;
+        Observation oldLastSkippedObservation = lastSkippedObservation;
+        double oldAccumulatedDistance = accumulatedDistance;
+        int oldWindowSize = window.size();
+        try {
+            if (prevObservation != null)
+                accumulatedDistance += calcDist(prevObservation, observation);
+            prevObservation = observation;
+            // the same filtering as in MapMatching#filterObservations, but the last observation is only known in finish()
+            if (prevAcceptedObservation != null && calcDist(prevAcceptedObservation, observation) <= 2 * measurementErrorSigma) {
+                lastSkippedObservation = observation;
+                return Collections.emptyList();
+            }
+            List<EdgeMatch> result = new ArrayList<>();
+            accept(observation, result);
+            return result;
+        } catch (RuntimeException ex) {
+            // decodeAndFinalize only modifies the window and the edge matches after the Viterbi sequence was found,
+            // so it is sufficient to restore what accept changed before
+            prevObservation = oldPrevObservation;
+            prevAcceptedObservation = oldPrevAcceptedObservation;
+            lastSkippedObservation = oldLastSkippedObservation;
+            accumulatedDistance = oldAccumulatedDistance;
+            window.subList(oldWindowSize, window.size()).clear();
+            throw ex;
+        }
+    }
+
+    /**
+     * Decodes the remaining observations and returns all edge matches that were not returned yet. The session cannot
+     * be used after this call.
+     */
+    public List<EdgeMatch> finish() {
+        if (finished)
+            throw new IllegalStateException("This session is already finished");
+        finished = true;
+        List<EdgeMatch> result = new ArrayList<>();
+        if (lastSkippedObservation != null)
+            accept(lastSkippedObservation, result);
+        if (!window.isEmpty())
+            decodeAndFinalize(window.size(), result);
+        if (currentDirectedRealEdge != null) {
+            result.add(new EdgeMatch(currentDirectedRealEdge, currentStates));
+            currentDirectedRealEdge = null;
+        }
+        currentStates = new ArrayList<>();
+        anchor = null;
+        anchorSnap = null;
+        return result;
+    }
+
+    /**
+     * @return the number of (filtered) observations that were finalized so far
+     */
+    public int getFinalizedObservations() {
+        return finalizedObservations;
+    }
+
+    /**
+     * @return the number of (filtered) observations that were accepted but are not final yet
+     */
+    public int getPendingObservations() {
+        return window.size();
+    }
+
+    private void accept(Observation observation, List<EdgeMatch> result) {
+        lastSkippedObservation = null;
+        List<Snap> snaps = mapMatching.findCandidateSnaps(observation.getPoint().lat, observation.getPoint().lon);
+        if (snaps.isEmpty())
+            // skip this observation, its distance is kept in accumulatedDistance and will be added to the next one
+            return;
+        if (prevAcceptedObservation != null)
+            accumulatedDistance -= calcDist(prevAcceptedObservation, observation);
+        observation.setAccumulatedLinearDistanceToPrevious(accumulatedDistance);
+        accumulatedDistance = 0;
+        prevAcceptedObservation = observation;
+        window.add(new ObservationWithSnaps(observation, snaps));
+        if (window.size() > lag)
+            decodeAndFinalize(window.size() - lag, result);
+    }
+
+    /**
+     * Runs the Viterbi algorithm from the anchor through the whole window and finalizes the first count observations
+     * of the window.
+     */
+    private void decodeAndFinalize(int count, List<EdgeMatch> result) {
+        List<Observation> observations = new ArrayList<>(window.size() + 1);
+        List<List<Snap>> snapsPerObservation = new ArrayList<>(window.size() + 1);
+        // QueryGraph.create modifies the snaps, so we always create it from copies of the original snaps
+        if (anchor != null) {
+            observations.add(anchor.observation);
+            snapsPerObservation.add(Collections.singletonList(copySnap(anchorSnap)));
+        }
+        for (ObservationWithSnaps o : window) {
+            observations.add(o.observation);
+            snapsPerObservation.add(o.snaps.stream().map(MapMatchingSession::copySnap).collect(Collectors.toList()));
+        }
+        QueryGraph queryGraph = QueryGraph.create(graph, snapsPerObservation.stream().flatMap(List::stream).collect(Collectors.toList()));
+        List<ObservationWithCandidateStates> timeSteps = mapMatching.createTimeSteps(queryGraph, observations, snapsPerObservation);
+        int offset = 0;
+        if (anchor != null) {
+            // the anchor is final, so we also need to keep the direction we already chose for it
+            List<State> anchorCandidates = timeSteps.get(0).candidates.stream()
+                    .filter(s -> getOutEdgeKey(s) == anchorOutEdgeKey).collect(Collectors.toList());
+            timeSteps.set(0, new ObservationWithCandidateStates(anchor.observation, anchorCandidates));
+            offset = 1;
+        }
+        List<SequenceState<State, Observation, Path>> seq = mapMatching.computeViterbiSequence(queryGraph, timeSteps);
+        for (int i = offset; i < offset + count; i++)
+            addToEdgeMatches(queryGraph, seq.get(i), result);
+
+        State newAnchorState = seq.get(offset + count - 1).state;
+        int snapIndex = snapsPerObservation.get(offset + count - 1).indexOf(newAnchorState.getSnap());
+        anchor = window.get(count - 1);
+        anchorSnap = anchor.snaps.get(snapIndex);
+        anchorOutEdgeKey = getOutEdgeKey(newAnchorState);
+        window.subList(0, count).clear();
+        finalizedObservations += count;
+    }
+
+    /**
+     * Incremental version of MapMatching#prepareEdgeMatches: an edge match is only completed when the next edge starts.
+     */
+    private void addToEdgeMatches(QueryGraph queryGraph, SequenceState<State, Observation, Path> transitionAndState, List<EdgeMatch> result) {
+        if (transitionAndState.transitionDescriptor != null) {
+            for (EdgeIteratorState edge : transitionAndState.transitionDescriptor.calcEdges()) {
+                startEdge(mapMatching.resolveToRealEdge(queryGraph, edge), result);
+            }
+        }
+        if (transitionAndState.state.isOnDirectedEdge())
+            startEdge(mapMatching.resolveToRealEdge(queryGraph, transitionAndState.state.getOutgoingVirtualEdge()), result);
+        currentStates.add(transitionAndState.state);
+    }
+
+    private void startEdge(EdgeIteratorState newDirectedRealEdge, List<EdgeMatch> result) {
+        if (currentDirectedRealEdge != null && !MapMatching.equalEdges(currentDirectedRealEdge, newDirectedRealEdge)) {
+            result.add(new EdgeMatch(currentDirectedRealEdge, currentStates));
+            currentStates = new ArrayList<>();
+        }
+        currentDirectedRealEdge = newDirectedRealEdge;
+    }
+
+    private static int getOutEdgeKey(State state) {
+        return state.isOnDirectedEdge()
+                ? ((VirtualEdgeIteratorState) state.getOutgoingVirtualEdge()).getOriginalEdgeKey()
+                : EdgeIterator.NO_EDGE;
+    }
+
+    private static Snap copySnap(Snap snap) {
+        Snap copy = new Snap(snap.getQueryPoint().lat, snap.getQueryPoint().lon);
+        copy.setClosestNode(snap.getClosestNode());
+        copy.setClosestEdge(snap.getClosestEdge());
+        copy.setQueryDistance(snap.getQueryDistance());
+        copy.setWayIndex(snap.getWayIndex());
+        copy.setSnappedPosition(snap.getSnappedPosition());
+        copy.setSnappedPoint(snap.getSnappedPoint());
+        return copy;
+    }
+
+    private double calcDist(Observation a, Observation b) {
+        return distanceCalc.calcDist(a.getPoint().lat, a.getPoint().lon, b.getPoint().lat, b.getPoint().lon);
+    }
+
+    private static class ObservationWithSnaps {
+        final Observation observation;
+        final List<Snap> snaps;
+
+        ObservationWithSnaps(Observation observation, List<Snap> snaps) {
+            this.observation = observation;
+            this.snaps = snaps;
+        }
+    }
+}
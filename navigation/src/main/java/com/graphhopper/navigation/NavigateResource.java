@@ -21,6 +21,7 @@ import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.ResponsePath;
 import com.graphhopper.routing.ev.MaxSpeed;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.Parameters;
@@ -64,10 +65,13 @@ public class NavigateResource {
     private final GraphHopper graphHopper;
     private final TranslationMap translationMap;
     private final Map<String, String> resolverMap;
+    private final NavigationSessions sessions;
 
     @Inject
-    public NavigateResource(GraphHopper graphHopper, TranslationMap translationMap, GraphHopperConfig config) {
+    public NavigateResource(GraphHopper graphHopper, TranslationMap translationMap, GraphHopperConfig config,
+                            NavigationSessions sessions) {
         this.graphHopper = graphHopper;
+        this.sessions = sessions;
         resolverMap = config.asPMap().getObject("profiles_mapbox", new HashMap<>());
         if (resolverMap.isEmpty()) {
             resolverMap.put("driving", "car");
@@ -79,6 +83,15 @@ public class NavigateResource {
         this.translationMap = translationMap;
     }
 
+    /**
+     * Creates the sessions that are shared by all requests. The resource is created for every request, so the
+     * sessions have to be bound as a single instance, see GraphHopperBundle.
+     */
+    public static NavigationSessions createSessions(GraphHopperConfig config) {
+        return new NavigationSessions(config.getInt("navigation.sessions.max", 10_000),
+                config.getLong("navigation.sessions.max_age_minutes", 30) * 60_000);
+    }
+
     @GET
     @Path("/directions/v5/gh/{profile}/{coordinatesArray : .+}")
     @Produces({MediaType.APPLICATION_JSON})
@@ -95,7 +108,8 @@ public class NavigateResource {
             @QueryParam("geometries") @DefaultValue("polyline") String geometries,
             @QueryParam("bearings") @DefaultValue("") String bearings,
             @QueryParam("language") @DefaultValue("en") String localeStr,
-            @PathParam("profile") String mapboxProfile) {
+            @PathParam("profile") String mapboxProfile,
+            @QueryParam("session_id") String sessionId) {
 
         StopWatch sw = new StopWatch().start();
 
@@ -120,20 +134,33 @@ public class NavigateResource {
             throw new IllegalArgumentException("Number of bearings and waypoints did not match");
         }
 
-        GHResponse ghResponse = calcRouteForGET(favoredHeadings, requestPoints, ghProfile, localeStr, enableInstructions, minPathPrecision);
-
-        // Only do this, when there are more than 2 points, otherwise we use alternative routes
-        if (!ghResponse.hasErrors() && !favoredHeadings.isEmpty()) {
-            GHResponse noHeadingResponse = calcRouteForGET(Collections.emptyList(), requestPoints, ghProfile, localeStr, enableInstructions, minPathPrecision);
-            if (ghResponse.getBest().getDistance() != noHeadingResponse.getBest().getDistance()) {
-                ghResponse.getAll().add(noHeadingResponse.getBest());
+        // for a rerouting request of a session we reuse the previous route if the position is still on it
+        String sessionKey = Helper.isEmpty(sessionId) ? null
+                : ghProfile + "|" + localeStr + "|" + minPathPrecision + "|" + requestPoints.subList(1, requestPoints.size());
+        ResponsePath remainingRoute = sessionKey == null ? null : sessions.getRemainingRoute(sessionId, sessionKey,
+                requestPoints.get(0), favoredHeadings.isEmpty() ? Double.NaN : favoredHeadings.get(0));
+        GHResponse ghResponse;
+        if (remainingRoute != null) {
+            ghResponse = new GHResponse();
+            ghResponse.add(remainingRoute);
+        } else {
+            ghResponse = calcRouteForGET(favoredHeadings, requestPoints, ghProfile, localeStr, enableInstructions, minPathPrecision);
+            if (sessionKey != null && !ghResponse.hasErrors())
+                sessions.put(sessionId, sessionKey, ghResponse.getBest());
+
+            // Only do this, when there are more than 2 points, otherwise we use alternative routes
+            if (!ghResponse.hasErrors() && !favoredHeadings.isEmpty()) {
+                GHResponse noHeadingResponse = calcRouteForGET(Collections.emptyList(), requestPoints, ghProfile, localeStr, enableInstructions, minPathPrecision);
+                if (ghResponse.getBest().getDistance() != noHeadingResponse.getBest().getDistance()) {
+                    ghResponse.getAll().add(noHeadingResponse.getBest());
+                }
             }
         }
 
         float took = sw.stop().getSeconds();
         String infoStr = httpReq.getRemoteAddr() + " " + httpReq.getLocale() + " " + httpReq.getHeader("User-Agent");
         String logStr = httpReq.getQueryString() + " " + infoStr + " " + requestPoints + ", took:"
-                + took + ", " + ghProfile;
+                + took + ", " + ghProfile + (remainingRoute != null ? ", reused route of session" : "");
 
         if (ghResponse.hasErrors()) {
             logger.error(logStr + ", errors:" + ghResponse.getErrors());
@@ -0,0 +1,285 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.navigation;
+
+import com.graphhopper.ResponsePath;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+import com.graphhopper.util.shapes.GHPoint;
+
+import java.util.*;
+
+import static com.graphhopper.util.AngleCalc.ANGLE_CALC;
+import static com.graphhopper.util.DistanceCalcEarth.DIST_EARTH;
+
+/**
+ * Keeps the last route of every navigation session. The Mapbox Navigation SDK requests a new route as soon as it
+ * considers the driver off route, which often happens for small deviations only, e.g. due to an inaccurate GPS
+ * position. If the new position is still close to the previous route and the destinations did not change, the
+ * remaining part of the previous route is returned instead of calculating the route again.
+ */
+public class NavigationSessions {
+    // the maximum distance in meters between the current position and the previous route
+    static final double MAX_DISTANCE = 25;
+    // the maximum difference in degrees between the bearing of the current position and the direction of the route
+    static final double MAX_BEARING_DIFFERENCE = 60;
+    // the maximum distance in meters along the route from the previously found position, the route is requested again
+    // every few seconds, so the driver cannot be much further ahead
+    static final double MAX_SEARCH_DISTANCE = 2_000;
+
+    private final Map<String, Session> sessions;
+    private final long maxAgeMillis;
+
+    /**
+     * @param maxSessions  the maximum number of sessions, the least recently used session is removed if exceeded
+     * @param maxAgeMillis a route is not used anymore if the session was not used for this time
+     */
+    public NavigationSessions(int maxSessions, long maxAgeMillis) {
+        if (maxSessions <= 0)
+            throw new IllegalArgumentException("Maximum number of navigation sessions must be positive but was " + maxSessions);
+        this.maxAgeMillis = maxAgeMillis;
+        sessions = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Session> eldest) {
+                return size() > maxSessions;
+            }
+        });
+    }
+
+    /**
+     * Stores the route of the specified session. This has to happen before the route is converted, as the
+     * conversion modifies the intersection details.
+     *
+     * @param key describes all request parameters except the start point, e.g. the profile and the destinations
+     */
+    public void put(String sessionId, String key, ResponsePath path) {
+        sessions.put(sessionId, new Session(key, copy(path), 0, System.currentTimeMillis()));
+    }
+
+    /**
+     * @param bearing the bearing of the current position in degrees or NaN if unknown
+     * @return the remaining part of the previous route of the session starting at the specified position or null if
+     * there is no previous route for the same key or if the position is not on this route
+     */
+    public ResponsePath getRemainingRoute(String sessionId, String key, GHPoint position, double bearing) {
+        Session session = sessions.get(sessionId);
+        long now = System.currentTimeMillis();
+        if (session == null || !session.key.equals(key) || now - session.lastAccess > maxAgeMillis)
+            return null;
+
+        // only search ahead of the previously found position as the route could pass the same place twice, and only
+        // up to a limited distance to avoid scanning long routes
+        PointList points = session.path.getPoints();
+        double maxNormedDist = DIST_EARTH.calcNormalizedDist(MAX_DISTANCE);
+        int segment = -1;
+        double segmentDist = Double.MAX_VALUE;
+        double searchedDist = 0;
+        for (int i = session.segment; i + 1 < points.size() && searchedDist <= MAX_SEARCH_DISTANCE; i++) {
+            searchedDist += DIST_EARTH.calcDist(points.getLat(i), points.getLon(i), points.getLat(i + 1), points.getLon(i + 1));
+            double dist = calcNormalizedDist(position, points, i);
+            if (dist <= maxNormedDist) {
+                if (dist < segmentDist) {
+                    segment = i;
+                    segmentDist = dist;
+                }
+            } else if (segment >= 0) {
+                break;
+            }
+        }
+        if (segment < 0 || !isSameDirection(bearing, points, segment))
+            return null;
+
+        ResponsePath remaining = cut(session.path, segment, calcSnappedPoint(position, points, segment));
+        if (remaining == null)
+            return null;
+        sessions.put(sessionId, new Session(key, session.path, segment, now));
+        return remaining;
+    }
+
+    private static double calcNormalizedDist(GHPoint position, PointList points, int segment) {
+        double lat1 = points.getLat(segment), lon1 = points.getLon(segment);
+        double lat2 = points.getLat(segment + 1), lon2 = points.getLon(segment + 1);
+        if (DIST_EARTH.validEdgeDistance(position.lat, position.lon, lat1, lon1, lat2, lon2))
+            return DIST_EARTH.calcNormalizedEdgeDistance(position.lat, position.lon, lat1, lon1, lat2, lon2);
+        return Math.min(DIST_EARTH.calcNormalizedDist(position.lat, position.lon, lat1, lon1),
+                DIST_EARTH.calcNormalizedDist(position.lat, position.lon, lat2, lon2));
+    }
+
+    private static GHPoint calcSnappedPoint(GHPoint position, PointList points, int segment) {
+        double lat1 = points.getLat(segment), lon1 = points.getLon(segment);
+        double lat2 = points.getLat(segment + 1), lon2 = points.getLon(segment + 1);
+        if (DIST_EARTH.validEdgeDistance(position.lat, position.lon, lat1, lon1, lat2, lon2))
+            return DIST_EARTH.calcCrossingPointToEdge(position.lat, position.lon, lat1, lon1, lat2, lon2);
+        if (DIST_EARTH.calcNormalizedDist(position.lat, position.lon, lat1, lon1) <= DIST_EARTH.calcNormalizedDist(position.lat, position.lon, lat2, lon2))
+            return new GHPoint(lat1, lon1);
+        return new GHPoint(lat2, lon2);
+    }
+
+    private static boolean isSameDirection(double bearing, PointList points, int segment) {
+        if (Double.isNaN(bearing))
+            return true;
+        double lat1 = points.getLat(segment), lon1 = points.getLon(segment);
+        double lat2 = points.getLat(segment + 1), lon2 = points.getLon(segment + 1);
+        if (lat1 == lat2 && lon1 == lon2)
+            return true;
+        double diff = Math.abs(ANGLE_CALC.calcAzimuth(lat1, lon1, lat2, lon2) - bearing) % 360;
+        return Math.min(diff, 360 - diff) <= MAX_BEARING_DIFFERENCE;
+    }
+
+    /**
+     * @return the part of the specified path that starts at the position on the specified segment, i.e. between the
+     * points segment and segment + 1, or null if the path has a via point before this position
+     */
+    static ResponsePath cut(ResponsePath path, int segment, GHPoint position) {
+        List<Integer> waypointIndices = path.getWaypointIndices();
+        for (int i = 1; i < waypointIndices.size() - 1; i++) {
+            if (waypointIndices.get(i) <= segment)
+                return null;
+        }
+        PointList points = path.getPoints();
+        PointList remainingPoints = new PointList(points.size() - segment, points.is3D());
+        addPoint(remainingPoints, position, points, segment);
+        for (int i = segment + 1; i < points.size(); i++)
+            remainingPoints.add(points, i);
+
+        InstructionList instructions = path.getInstructions();
+        InstructionList remainingInstructions = new InstructionList(instructions.size(), instructions.getTr());
+        double distance = 0;
+        long time = 0;
+        int from = 0;
+        for (Instruction instruction : instructions) {
+            int to = from + instruction.getPoints().size();
+            if (to > segment) {
+                if (remainingInstructions.isEmpty())
+                    instruction = cut(instruction, points, from, to, segment, position);
+                remainingInstructions.add(instruction);
+                distance += instruction.getDistance();
+                time += instruction.getTime();
+            }
+            from = to;
+        }
+
+        PointList waypoints = path.getWaypoints();
+        PointList remainingWaypoints = new PointList(waypoints.size(), waypoints.is3D());
+        addPoint(remainingWaypoints, position, points, segment);
+        List<Integer> remainingWaypointIndices = new ArrayList<>(waypointIndices.size());
+        remainingWaypointIndices.add(0);
+        for (int i = 1; i < waypoints.size(); i++) {
+            remainingWaypoints.add(waypoints, i);
+            remainingWaypointIndices.add(waypointIndices.get(i) - segment);
+        }
+
+        ResponsePath remaining = new ResponsePath();
+        remaining.setPoints(remainingPoints);
+        remaining.setInstructions(remainingInstructions);
+        remaining.addPathDetails(copyDetails(path.getPathDetails(), segment));
+        remaining.setWaypoints(remainingWaypoints);
+        remaining.setWaypointIndices(remainingWaypointIndices);
+        remaining.setDescription(path.getDescription());
+        remaining.setDistance(distance);
+        remaining.setTime(time);
+        remaining.setRouteWeight(path.getTime() > 0 ? path.getRouteWeight() * time / path.getTime() : 0);
+        return remaining;
+    }
+
+    private static Instruction cut(Instruction instruction, PointList points, int from, int to, int segment, GHPoint position) {
+        PointList cutPoints = new PointList(to - segment, points.is3D());
+        addPoint(cutPoints, position, points, segment);
+        for (int i = segment + 1; i < to; i++)
+            cutPoints.add(points, i);
+        // the distance of the instruction includes the distance to the first point of the next instruction
+        double total = 0, remaining = 0;
+        for (int i = from; i < to && i + 1 < points.size(); i++) {
+            double dist = DIST_EARTH.calcDist(points.getLat(i), points.getLon(i), points.getLat(i + 1), points.getLon(i + 1));
+            total += dist;
+            if (i > segment)
+                remaining += dist;
+        }
+        remaining += DIST_EARTH.calcDist(position.lat, position.lon, points.getLat(segment + 1), points.getLon(segment + 1));
+        double factor = total > 0 ? Math.min(1, remaining / total) : 0;
+
+        Instruction cut = new Instruction(instruction.getSign(), instruction.getName(), cutPoints);
+        for (Map.Entry<String, Object> entry : instruction.getExtraInfoJSON().entrySet())
+            cut.setExtraInfo(entry.getKey(), entry.getValue());
+        cut.setDistance(instruction.getDistance() * factor);
+        cut.setTime(Math.round(instruction.getTime() * factor));
+        return cut;
+    }
+
+    private static void addPoint(PointList pointList, GHPoint point, PointList points, int segment) {
+        if (pointList.is3D())
+            pointList.add(point.lat, point.lon, points.getEle(segment));
+        else
+            pointList.add(point.lat, point.lon);
+    }
+
+    /**
+     * @return the path details that end after the specified point index, shifted so that this index becomes 0
+     */
+    private static Map<String, List<PathDetail>> copyDetails(Map<String, List<PathDetail>> details, int fromIndex) {
+        Map<String, List<PathDetail>> result = new HashMap<>(details.size());
+        for (Map.Entry<String, List<PathDetail>> entry : details.entrySet()) {
+            List<PathDetail> list = new ArrayList<>(entry.getValue().size());
+            for (PathDetail detail : entry.getValue()) {
+                if (detail.getLast() <= fromIndex && !(fromIndex == 0 && detail.getLast() == 0))
+                    continue;
+                // the intersection maps are modified when converting the route
+                Object value = detail.getValue() instanceof Map ? new HashMap<>((Map<?, ?>) detail.getValue()) : detail.getValue();
+                PathDetail copy = new PathDetail(value);
+                copy.setFirst(Math.max(0, detail.getFirst() - fromIndex));
+                copy.setLast(detail.getLast() - fromIndex);
+                list.add(copy);
+            }
+            result.put(entry.getKey(), list);
+        }
+        return result;
+    }
+
+    private static ResponsePath copy(ResponsePath path) {
+        ResponsePath copy = new ResponsePath();
+        copy.setPoints(path.getPoints());
+        copy.setInstructions(path.getInstructions());
+        copy.addPathDetails(copyDetails(path.getPathDetails(), 0));
+        copy.setWaypoints(path.getWaypoints());
+        copy.setWaypointIndices(path.getWaypointIndices());
+        copy.setDescription(path.getDescription());
+        copy.setDistance(path.getDistance());
+        copy.setTime(path.getTime());
+        copy.setRouteWeight(path.getRouteWeight());
+        return copy;
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    private static class Session {
+        final String key;
+        final ResponsePath path;
+        // the segment of the route on which the position was found the last time
+        final int segment;
+        final long lastAccess;
+
+        Session(String key, ResponsePath path, int segment, long lastAccess) {
+            this.key = key;
+            this.path = path;
+            this.segment = segment;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
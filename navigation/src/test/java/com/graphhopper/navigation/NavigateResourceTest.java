@@ -95,7 +95,7 @@ public class NavigateResourceTest {
         TranslationMap map = new TranslationMap();
         GraphHopperConfig gconf = new GraphHopperConfig();
 
-        NavigateResource res = new NavigateResource(hopper, map, gconf);
+        NavigateResource res = new NavigateResource(hopper, map, gconf, NavigateResource.createSessions(gconf));
         
         assertThrows(IllegalArgumentException.class, () -> {
             res.doPost(new GHRequest().putHint("geometry", "not_polyline6"), req);
@@ -165,27 +165,27 @@ public class NavigateResourceTest {
         TranslationMap map = new TranslationMap();
         GraphHopperConfig gconf = new GraphHopperConfig();
 
-        NavigateResource res = new NavigateResource(hopper, map, gconf);
+        NavigateResource res = new NavigateResource(hopper, map, gconf, NavigateResource.createSessions(gconf));
 
         //Check polyline6
         assertThrows(IllegalArgumentException.class, () -> {
-            res.doGet(req, uriInfo, rc, true, true, true, true, "metric", "simplified", "not_polyline6", "", "en", "driving");
+            res.doGet(req, uriInfo, rc, true, true, true, true, "metric", "simplified", "not_polyline6", "", "en", "driving", null);
         });
         //Check enable steps
         assertThrows(IllegalArgumentException.class, () -> {
-            res.doGet(req, uriInfo, rc, false, true, true, true, "metric", "simplified", "polyline6", "", "en", "driving");
+            res.doGet(req, uriInfo, rc, false, true, true, true, "metric", "simplified", "polyline6", "", "en", "driving", null);
         });
         //Check roundabout exits
         assertThrows(IllegalArgumentException.class, () -> {
-            res.doGet(req, uriInfo, rc, true, true, true, false, "metric", "simplified", "polyline6", "", "en", "driving");
+            res.doGet(req, uriInfo, rc, true, true, true, false, "metric", "simplified", "polyline6", "", "en", "driving", null);
         });
         //Check enable voice instructions
         assertThrows(IllegalArgumentException.class, () -> {
-            res.doGet(req, uriInfo, rc, true, false, true, true, "metric", "simplified", "polyline6", "", "en", "driving");
+            res.doGet(req, uriInfo, rc, true, false, true, true, "metric", "simplified", "polyline6", "", "en", "driving", null);
         });
         //Check enable banner instructions
         assertThrows(IllegalArgumentException.class, () -> {
-            res.doGet(req, uriInfo, rc, true, true, false, true, "metric", "simplified", "polyline6", "", "en", "driving");
+            res.doGet(req, uriInfo, rc, true, true, false, true, "metric", "simplified", "polyline6", "", "en", "driving", null);
         });
         
     }
@@ -212,7 +212,7 @@ public class NavigateResourceTest {
         TranslationMap map = new TranslationMap();
         GraphHopperConfig gconf = new GraphHopperConfig();
 
-        NavigateResource res = new NavigateResource(hopper, map, gconf);
+        NavigateResource res = new NavigateResource(hopper, map, gconf, NavigateResource.createSessions(gconf));
 
         String profile = faker.name().username();
         String urlStart = "/navigate/directions/v5/gh/" + profile + "/";
@@ -224,21 +224,21 @@ public class NavigateResourceTest {
         //Bad coords
         when(req.getRequestURI()).thenReturn(urlStart + coord1 + ";" + coord2);
         assertThrows(IllegalArgumentException.class, () -> {
-            res.doGet(req, uriInfo, rc, false, false, false, false, "metric", "simplified", "polyline6", "", "en", "driving");
+            res.doGet(req, uriInfo, rc, false, false, false, false, "metric", "simplified", "polyline6", "", "en", "driving", null);
         });
 
         //Bad profile
         when(req.getRequestURI()).thenReturn(urlStartBadProfile + coord1 + ";" + coord2);
 
         assertThrows(IllegalArgumentException.class, () -> {
-            res.doGet(req, uriInfo, rc, false, false, false, false, "metric", "simplified", "polyline6", "", "en", "driving");
+            res.doGet(req, uriInfo, rc, false, false, false, false, "metric", "simplified", "polyline6", "", "en", "driving", null);
         });
 
         //Bad path
         when(req.getRequestURI()).thenReturn(urlStartBadPath + coord1 + ";" + coord2);
 
         assertThrows(IllegalArgumentException.class, () -> {
-            res.doGet(req, uriInfo, rc, false, false, false, false, "metric", "simplified", "polyline6", "", "en", "driving");
+            res.doGet(req, uriInfo, rc, false, false, false, false, "metric", "simplified", "polyline6", "", "en", "driving", null);
         });
 
     }
@@ -271,9 +271,9 @@ public class NavigateResourceTest {
         
         when(hopper.route(any(GHRequest.class))).thenReturn(gh_res);
 
-        NavigateResource res = new NavigateResource(hopper, map, gconf);
+        NavigateResource res = new NavigateResource(hopper, map, gconf, NavigateResource.createSessions(gconf));
 
-        Response resp = res.doGet(req, uriInfo, rc, true, true, true, true, "metric", "simplified", "polyline6", "", "en", profile);
+        Response resp = res.doGet(req, uriInfo, rc, true, true, true, true, "metric", "simplified", "polyline6", "", "en", profile, null);
 
         assertEquals(422, resp.getStatus());
     }
@@ -303,7 +303,7 @@ public class NavigateResourceTest {
             .thenReturn(com.graphhopper.routing.util.TransportationMode.CAR);
 
 
-        NavigateResource res = new NavigateResource(hopper, map, gconf);
+        NavigateResource res = new NavigateResource(hopper, map, gconf, NavigateResource.createSessions(gconf));
 
         GHRequest gh_req = new GHRequest();
         gh_req.putHint("type", "mapbox");
@@ -0,0 +1,168 @@
+package com.graphhopper.navigation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.routing.util.TransportationMode;
+import com.graphhopper.util.*;
+import com.graphhopper.util.shapes.GHPoint;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Locale;
+
+import static com.graphhopper.util.AngleCalc.ANGLE_CALC;
+import static com.graphhopper.util.DistanceCalcEarth.DIST_EARTH;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NavigationSessionsTest {
+
+    private static final String graphFolder = "target/graphhopper-test-navigation-sessions";
+    private static final String osmFile = "../core/files/andorra.osm.gz";
+    private static final String profile = "my_car";
+    private static GraphHopper hopper;
+
+    @BeforeAll
+    public static void beforeClass() {
+        Helper.removeDir(new File(graphFolder));
+        hopper = new GraphHopper().setOSMFile(osmFile).setStoreOnFlush(true).setGraphHopperLocation(graphFolder)
+                .setEncodedValuesString("car_access, car_average_speed")
+                .setProfiles(TestProfiles.accessAndSpeed(profile, "car")).importOrLoad();
+    }
+
+    @AfterAll
+    public static void afterClass() {
+        Helper.removeDir(new File(graphFolder));
+    }
+
+    private static ResponsePath route() {
+        GHResponse rsp = hopper.route(new GHRequest(42.554851, 1.536198, 42.510071, 1.548128).setProfile(profile)
+                .setPathDetails(Collections.singletonList("intersection")));
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        return rsp.getBest();
+    }
+
+    private static GHPoint between(PointList points, int segment) {
+        return new GHPoint((points.getLat(segment) + points.getLat(segment + 1)) / 2,
+                (points.getLon(segment) + points.getLon(segment + 1)) / 2);
+    }
+
+    /**
+     * @return the first segment that starts at least the specified distance along the route after the start segment
+     */
+    private static int segmentAfter(PointList points, int start, double distance) {
+        double dist = 0;
+        for (int i = start; i + 1 < points.size(); i++) {
+            if (dist >= distance)
+                return i;
+            dist += DIST_EARTH.calcDist(points.getLat(i), points.getLon(i), points.getLat(i + 1), points.getLon(i + 1));
+        }
+        throw new IllegalArgumentException("route is shorter than " + distance);
+    }
+
+    private static double bearing(PointList points, int segment) {
+        return ANGLE_CALC.calcAzimuth(points.getLat(segment), points.getLon(segment), points.getLat(segment + 1), points.getLon(segment + 1));
+    }
+
+    @Test
+    public void remainingRoute() {
+        ResponsePath path = route();
+        PointList points = path.getPoints();
+        NavigationSessions sessions = new NavigationSessions(10, 60_000);
+        sessions.put("s1", "key", path);
+
+        int segment = segmentAfter(points, 0, 1_000);
+        GHPoint position = between(points, segment);
+        ResponsePath remaining = sessions.getRemainingRoute("s1", "key", position, bearing(points, segment));
+        assertNotNull(remaining);
+        assertEquals(points.size() - segment, remaining.getPoints().size());
+        assertEquals(position.lat, remaining.getPoints().getLat(0), 1.e-6);
+        assertEquals(position.lon, remaining.getPoints().getLon(0), 1.e-6);
+        assertEquals(points.getLat(points.size() - 1), remaining.getPoints().getLat(remaining.getPoints().size() - 1), 1.e-6);
+        assertEquals(remaining.getPoints().size(), remaining.getInstructions().stream().mapToInt(i -> i.getPoints().size()).sum());
+        assertEquals(0, remaining.getWaypointIndices().get(0));
+        assertEquals(remaining.getPoints().size() - 1, remaining.getWaypointIndices().get(1));
+
+        double remainingDistance = DIST_EARTH.calcDistance(remaining.getPoints());
+        assertTrue(remaining.getDistance() < path.getDistance());
+        assertEquals(remainingDistance, remaining.getDistance(), remainingDistance * 0.05);
+        assertTrue(remaining.getTime() < path.getTime());
+
+        // the route can be converted several times, even though the conversion modifies the intersection details
+        TranslationMap trMap = hopper.getTranslationMap();
+        DistanceConfig distanceConfig = new DistanceConfig(DistanceUtils.Unit.METRIC, trMap, Locale.ENGLISH, TransportationMode.CAR);
+        GHResponse rsp = new GHResponse();
+        rsp.add(remaining);
+        JsonNode route = NavigateResponseConverter.convertFromGHResponse(rsp, trMap, Locale.ENGLISH, distanceConfig).get("routes").get(0);
+        assertEquals(remaining.getDistance(), route.get("distance").asDouble(), 0.1);
+        JsonNode step = route.get("legs").get(0).get("steps").get(0);
+        assertEquals("depart", step.get("maneuver").get("type").asText());
+        assertEquals(1, step.get("intersections").get(0).get("bearings").size());
+
+        rsp = new GHResponse();
+        rsp.add(sessions.getRemainingRoute("s1", "key", position, Double.NaN));
+        JsonNode route2 = NavigateResponseConverter.convertFromGHResponse(rsp, trMap, Locale.ENGLISH, distanceConfig).get("routes").get(0);
+        assertEquals(route.toString(), route2.toString());
+
+        // the driver cannot go back to the part of the route that was already passed
+        assertNull(sessions.getRemainingRoute("s1", "key", between(points, 1), Double.NaN));
+        // ... but the route stays available for the position further ahead
+        assertNotNull(sessions.getRemainingRoute("s1", "key", between(points, segment + 1), Double.NaN));
+    }
+
+    @Test
+    public void searchWindow() {
+        ResponsePath path = route();
+        PointList points = path.getPoints();
+        NavigationSessions sessions = new NavigationSessions(10, 60_000);
+        sessions.put("s1", "key", path);
+
+        // the position is too far ahead of the previously found position
+        int farSegment = segmentAfter(points, 0, NavigationSessions.MAX_SEARCH_DISTANCE + 100);
+        assertNull(sessions.getRemainingRoute("s1", "key", between(points, farSegment), Double.NaN));
+
+        // ... but once the driver got closer, the position is found
+        int segment = segmentAfter(points, 0, 1_000);
+        assertNotNull(sessions.getRemainingRoute("s1", "key", between(points, segment), Double.NaN));
+        ResponsePath remaining = sessions.getRemainingRoute("s1", "key", between(points, farSegment), Double.NaN);
+        assertNotNull(remaining);
+        assertEquals(points.size() - farSegment, remaining.getPoints().size());
+    }
+
+    @Test
+    public void noRemainingRoute() {
+        ResponsePath path = route();
+        PointList points = path.getPoints();
+        NavigationSessions sessions = new NavigationSessions(10, 60_000);
+        sessions.put("s1", "key", path);
+        GHPoint position = between(points, 3);
+
+        assertNull(sessions.getRemainingRoute("s2", "key", position, Double.NaN));
+        // e.g. the destination has changed
+        assertNull(sessions.getRemainingRoute("s1", "other_key", position, Double.NaN));
+        // the driver is going into the opposite direction
+        assertNull(sessions.getRemainingRoute("s1", "key", position, (bearing(points, 3) + 180) % 360));
+        // the position is too far away from the route
+        assertNull(sessions.getRemainingRoute("s1", "key", new GHPoint(position.lat + 0.001, position.lon), Double.NaN));
+        assertNotNull(sessions.getRemainingRoute("s1", "key", position, Double.NaN));
+
+        // the session expired
+        sessions = new NavigationSessions(10, -1);
+        sessions.put("s1", "key", path);
+        assertNull(sessions.getRemainingRoute("s1", "key", position, Double.NaN));
+
+        // the least recently used session is removed
+        sessions = new NavigationSessions(1, 60_000);
+        sessions.put("s1", "key", path);
+        sessions.put("s2", "key", path);
+        assertEquals(1, sessions.size());
+        assertNull(sessions.getRemainingRoute("s1", "key", position, Double.NaN));
+        assertNotNull(sessions.getRemainingRoute("s2", "key", position, Double.NaN));
+    }
+}
@@ -232,7 +232,14 @@ public class GTFSFeed implements Cloneable, Closeable {
         StopTime[] stopTimes = StreamSupport.stream(Spliterators.spliteratorUnknownSize(getOrderedStopTimesForTrip(trip_id).iterator(), 0), false)
                 .map(st -> st.clone())
                 .toArray(i -> new StopTime[i]);
+        return interpolateStopTimes(stopTimes);
+    }
 
+    /**
+     * Interpolates stop-to-stop travel times like {@link #getInterpolatedStopTimesForTrip(String)}, but for stop times
+     * that were fetched in order from somewhere else. The given stop times are modified, so they must not be shared.
+     */
+    public List<StopTime> interpolateStopTimes(StopTime[] stopTimes) throws FirstAndLastStopsDoNotHaveTimes {
         // avoid having to make sure that the array has length below.
         if (stopTimes.length == 0) return Collections.emptyList();
 
@@ -57,6 +57,29 @@ public class GraphHopperGtfs extends GraphHopper {
         this.ghConfig = ghConfig;
     }
 
+    /**
+     * @return the days from gtfs.schedule_day or, if it is not set, all days covered by any feed. Feeds do not have to
+     * overlap, the trips of a feed are simply not active on the days outside of its calendar.
+     */
+    private List<LocalDate> getTripBasedTrafficDays() {
+        List<LocalDate> trafficDays = new ArrayList<>();
+        if (ghConfig.has("gtfs.schedule_day")) {
+            for (String trafficDayString : ghConfig.getString("gtfs.schedule_day", null).split(",")) {
+                trafficDays.add(LocalDate.parse(trafficDayString));
+            }
+        } else {
+            LocalDate earliestStartDate = LocalDate.ofEpochDay(gtfsStorage.getGtfsFeeds().values().stream().mapToLong(f -> f.getStartDate().toEpochDay()).min().getAsLong());
+            LocalDate latestEndDate = LocalDate.ofEpochDay(gtfsStorage.getGtfsFeeds().values().stream().mapToLong(f -> f.getEndDate().toEpochDay()).max().getAsLong());
+            for (LocalDate trafficDay = earliestStartDate; !trafficDay.isAfter(latestEndDate); trafficDay = trafficDay.plusDays(1)) {
+                trafficDays.add(trafficDay);
+            }
+            LOGGER.info("Creating trip-based transfers for the days from {} to {} covered by the feeds", earliestStartDate, latestEndDate);
+        }
+        if (trafficDays.isEmpty())
+            throw new IllegalArgumentException("No days for the trip-based transfers, check gtfs.schedule_day and the calendars of the feeds");
+        return trafficDays;
+    }
+
     @Override
     protected void importOSM() {
         if (ghConfig.has("datareader.file")) {
@@ -76,11 +99,13 @@ public class GraphHopperGtfs extends GraphHopper {
             ptGraph.loadExisting();
             stopIndex.loadExisting();
             if (ghConfig.getBool("gtfs.trip_based", false)) {
-                for (String trafficDayString : ghConfig.getString("gtfs.schedule_day", null).split(",")) {
-                    LocalDate trafficDay = LocalDate.parse(trafficDayString);
-                    LOGGER.info("Loading trip-based transfers for pt router. Schedule day: {}", trafficDay);
-                    gtfsStorage.tripTransfers.getTripTransfers().put(trafficDay, gtfsStorage.deserializeTripTransfersMap("trip_transfers_" + trafficDayString));
-                }
+                TripTransferTable tripTransferTable = new TripTransferTable(getBaseGraph().getDirectory());
+                if (!tripTransferTable.loadExisting())
+                    throw new IllegalStateException("The trip-based transfers are missing, please import again with gtfs.trip_based: true");
+                if (tripTransferTable.getTripCount() != gtfsStorage.tripTransfers.trips.size())
+                    throw new IllegalStateException("The trip-based transfers were created for " + tripTransferTable.getTripCount()
+                            + " trips, but the feeds have " + gtfsStorage.tripTransfers.trips.size());
+                gtfsStorage.setTripTransferTable(tripTransferTable);
                 for (Map.Entry<String, GTFSFeed> entry : this.gtfsStorage.getGtfsFeeds().entrySet()) {
                     for (Stop stop : entry.getValue().stops.values()) {
                         gtfsStorage.tripTransfers.getPatternBoardings(new GtfsStorage.FeedIdWithStopId(entry.getKey(), stop.stop_id));
@@ -103,7 +128,7 @@ public class GraphHopperGtfs extends GraphHopper {
                 Map<String, Transfers> allTransfers = new HashMap<>();
                 HashMap<String, GtfsReader> allReaders = new HashMap<>();
                 getGtfsStorage().getGtfsFeeds().forEach((id, gtfsFeed) -> {
-                    Transfers transfers = new Transfers(gtfsFeed);
+                    Transfers transfers = new Transfers(gtfsFeed, getGtfsStorage().getStopTimes(id));
                     allTransfers.put(id, transfers);
                     GtfsReader gtfsReader = new GtfsReader(id, ptGraph, ptGraph, getGtfsStorage(), getLocationIndex(), transfers, indexBuilder);
                     // Stops must be connected to the networks of all the modes
@@ -123,14 +148,10 @@ public class GraphHopperGtfs extends GraphHopper {
                 interpolateTransfers(allReaders, allTransfers);
                 if (ghConfig.getBool("gtfs.trip_based", false)) {
                     ArrayListMultimap<Integer, GtfsStorage.FeedIdWithStopId> stopsForStationNode = Multimaps.invertFrom(Multimaps.forMap(gtfsStorage.getStationNodes()), ArrayListMultimap.create());
-                    for (String trafficDayString : ghConfig.getString("gtfs.schedule_day", null).split(",")) {
-                        LocalDate trafficDay = LocalDate.parse(trafficDayString);
-                        LOGGER.info("Computing trip-based transfers for pt router. Schedule day: {}", trafficDay);
-                        Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> tripTransfersMap = gtfsStorage.tripTransfers.getTripTransfers(trafficDay);
-                        gtfsStorage.tripTransfers.findAllTripTransfersInto(tripTransfersMap, trafficDay, allTransfers, stopsForStationNode);
-                        LOGGER.info("Writing. Schedule day: {}", trafficDay);
-                        gtfsStorage.serializeTripTransfersMap("trip_transfers_" + trafficDayString, tripTransfersMap);
-                    }
+                    TripTransferTable tripTransferTable = new TripTransferTable(getBaseGraph().getDirectory());
+                    tripTransferTable.create(gtfsStorage, getTripBasedTrafficDays(), allTransfers, stopsForStationNode);
+                    tripTransferTable.flush();
+                    gtfsStorage.setTripTransferTable(tripTransferTable);
                 }
             } catch (Exception e) {
                 throw new RuntimeException("Error while constructing transit network. Is your GTFS file valid? Please check log for possible causes.", e);
@@ -141,7 +141,7 @@ class GtfsReader {
                             }
                         }
                         ArrayList<StopTime> stopTimes = new ArrayList<>();
-                        feed.getInterpolatedStopTimesForTrip(trip.trip_id).forEach(stopTimes::add);
+                        stopTimes.addAll(feed.interpolateStopTimes(gtfsStorage.getStopTimes(id).getOrderedStopTimesForTrip(trip.trip_id)));
                         return new TripWithStopTimes(trip, stopTimes, validOnDay, Collections.emptySet(), Collections.emptySet());
                     })
                     .sorted(Comparator.comparingInt(trip -> trip.stopTimes.iterator().next().departure_time))
@@ -404,7 +404,7 @@ class GtfsReader {
 
     int addDelayedBoardEdge(ZoneId zoneId, GtfsRealtime.TripDescriptor tripDescriptor, int stopSequence, int departureTime, int departureNode, BitSet validOnDay) {
         Trip trip = feed.trips.get(tripDescriptor.getTripId());
-        StopTime stopTime = feed.stop_times.get(new Fun.Tuple2(tripDescriptor.getTripId(), stopSequence));
+        StopTime stopTime = gtfsStorage.getStopTimes(id).getStopTime(tripDescriptor.getTripId(), stopSequence);
         Map<GtfsStorage.PlatformDescriptor, NavigableMap<Integer, Integer>> departureTimelineNodesByRoute = departureTimelinesByStop.computeIfAbsent(stopTime.stop_id, s -> new HashMap<>());
         NavigableMap<Integer, Integer> departureTimelineNodes = departureTimelineNodesByRoute.computeIfAbsent(GtfsStorage.PlatformDescriptor.route(id, stopTime.stop_id, trip.route_id), s -> new TreeMap<>());
         int departureTimelineNode = departureTimelineNodes.computeIfAbsent(departureTime % (24 * 60 * 60), t -> out.createNode());
@@ -54,6 +54,7 @@ public class GtfsStorage {
 	private LineIntIndex stopIndex;
 	private PtGraph ptGraph;
 	public Trips tripTransfers;
+	private TripTransferTable tripTransferTable;
 
 	public void setStopIndex(LineIntIndex stopIndex) {
 		this.stopIndex = stopIndex;
@@ -163,6 +164,7 @@ public class GtfsStorage {
 	private Directory dir;
 	private Set<String> gtfsFeedIds;
 	private Map<String, GTFSFeed> gtfsFeeds = new HashMap<>();
+	private Map<String, StopTimesStore> stopTimes = new HashMap<>();
 	private Map<String, Map<String, Fare>> faresByFeed;
 	private Map<FeedIdWithStopId, Integer> stationNodes;
 	private IntObjectHashMap<int[]> skippedEdgesForTransfer;
@@ -199,6 +201,12 @@ public class GtfsStorage {
 
             GTFSFeed feed = new GTFSFeed(dbFile);
             this.gtfsFeeds.put(gtfsFeedId, feed);
+            StopTimesStore stopTimesStore = new StopTimesStore(dir, gtfsFeedId);
+            if (!stopTimesStore.loadExisting(feed)) {
+                throw new RuntimeException(String.format("The stop times of %s are missing in %s. Please reimport the graph.",
+                        gtfsFeedId, dir.getLocation()));
+            }
+            this.stopTimes.put(gtfsFeedId, stopTimesStore);
         }
 		ptToStreet = deserializeIntoIntIntHashMap("pt_to_street");
 		streetToPt = deserializeIntoIntIntHashMap("street_to_pt");
@@ -284,6 +292,9 @@ public class GtfsStorage {
 			GTFSFeed feed = new GTFSFeed(dbFile);
 			feed.loadFromFileAndLogErrors(zipFileOrDirectory);
 			this.gtfsFeeds.put(id, feed);
+			StopTimesStore stopTimesStore = new StopTimesStore(dir, id);
+			stopTimesStore.create(feed);
+			this.stopTimes.put(id, stopTimesStore);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
@@ -307,6 +318,11 @@ public class GtfsStorage {
 			for (GTFSFeed feed : gtfsFeeds.values()) {
 				feed.close();
 			}
+			for (StopTimesStore stopTimesStore : stopTimes.values()) {
+				stopTimesStore.close();
+			}
+			if (tripTransferTable != null)
+				tripTransferTable.close();
 		}
 	}
 
@@ -326,11 +342,32 @@ public class GtfsStorage {
 		return Collections.unmodifiableMap(gtfsFeeds);
 	}
 
+	/**
+	 * @return the stop times of the given feed in a layout that is cheaper to read than the stop_times of the GTFSFeed
+	 */
+	public StopTimesStore getStopTimes(String feedId) {
+		return stopTimes.get(feedId);
+	}
+
+	/**
+	 * @return the precomputed transfers of the trip-based router or null if they were not created
+	 */
+	public TripTransferTable getTripTransferTable() {
+		return tripTransferTable;
+	}
+
+	public void setTripTransferTable(TripTransferTable tripTransferTable) {
+		this.tripTransferTable = tripTransferTable;
+	}
+
 	public Map<FeedIdWithStopId, Integer> getStationNodes() {
 		return stationNodes;
 	}
 
 	public void flush() {
+		for (StopTimesStore stopTimesStore : stopTimes.values()) {
+			stopTimesStore.flush();
+		}
 		serialize("pt_to_street", ptToStreet);
 		serialize("street_to_pt", streetToPt);
 		serialize("skipped_edges_for_transfer", skippedEdgesForTransfer);
@@ -345,45 +382,6 @@ public class GtfsStorage {
 		}
 	}
 
-	public void serializeTripTransfersMap(String filename, Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> data) {
-		try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(dir.getLocation() + filename))))) {
-			oos.writeInt(data.size());
-			for (Map.Entry<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> entry : data.entrySet()) {
-				oos.writeInt(entry.getKey().tripIdx);
-				oos.writeInt(entry.getKey().stop_sequence);
-				oos.writeInt(entry.getValue().size());
-				for (Trips.TripAtStopTime tripAtStopTime : entry.getValue()) {
-					oos.writeInt(tripAtStopTime.tripIdx);
-					oos.writeInt(tripAtStopTime.stop_sequence);
-				}
-			}
-		} catch (IOException e) {
-			throw new RuntimeException(e);
-		}
-	}
-
-	public Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> deserializeTripTransfersMap(String filename) {
-		try (FileInputStream in = new FileInputStream(dir.getLocation() + filename)) {
-			ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(in));
-			int size = ois.readInt();
-			Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> result = new TreeMap<>();
-			for (int i = 0; i < size; i++) {
-				Trips.TripAtStopTime origin = new Trips.TripAtStopTime(ois.readInt(), ois.readInt());
-				int nDestinations = ois.readInt();
-				List<Trips.TripAtStopTime> destinations = new ArrayList<>(nDestinations);
-				for (int j = 0; j < nDestinations; j++) {
-					int tripIdxTo = ois.readInt();
-					int stop_sequenceTo = ois.readInt();
-					destinations.add(new Trips.TripAtStopTime(tripIdxTo, stop_sequenceTo));
-				}
-				result.put(origin, destinations);
-			}
-			return result;
-		} catch (IOException e) {
-			throw new RuntimeException(e);
-		}
-	}
-
 	public void serialize(String filename, IntObjectHashMap<int[]> data) {
 		try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(dir.getLocation() + filename))))) {
 			oos.writeInt(data.size());
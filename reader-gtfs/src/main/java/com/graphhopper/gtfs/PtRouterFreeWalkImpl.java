@@ -98,7 +98,7 @@ public final class PtRouterFreeWalkImpl implements PtRouter {
             this.gtfsStorage = gtfsStorage;
             this.transfers = new HashMap<>();
             for (Map.Entry<String, GTFSFeed> entry : this.gtfsStorage.getGtfsFeeds().entrySet()) {
-                this.transfers.put(entry.getKey(), new Transfers(entry.getValue()));
+                this.transfers.put(entry.getKey(), new Transfers(entry.getValue(), gtfsStorage.getStopTimes(entry.getKey())));
             }
         }
 
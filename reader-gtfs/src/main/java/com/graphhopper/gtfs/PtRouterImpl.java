@@ -97,7 +97,7 @@ public final class PtRouterImpl implements PtRouter {
             this.gtfsStorage = gtfsStorage;
             this.transfers = new HashMap<>();
             for (Map.Entry<String, GTFSFeed> entry : this.gtfsStorage.getGtfsFeeds().entrySet()) {
-                this.transfers.put(entry.getKey(), new Transfers(entry.getValue()));
+                this.transfers.put(entry.getKey(), new Transfers(entry.getValue(), gtfsStorage.getStopTimes(entry.getKey())));
             }
         }
 
@@ -107,6 +107,10 @@ public final class PtRouterImpl implements PtRouter {
             return new PtRouterImpl(config, translationMap, baseGraph, encodingManager, locationIndex, gtfsStorage, RealtimeFeed.fromProtobuf(gtfsStorage, this.transfers, realtimeFeeds), new PathDetailsBuilderFactory());
         }
 
+        public PtRouter createWith(RealtimeFeed realtimeFeed) {
+            return new PtRouterImpl(config, translationMap, baseGraph, encodingManager, locationIndex, gtfsStorage, realtimeFeed, new PathDetailsBuilderFactory());
+        }
+
         public PtRouter createWithoutRealtimeFeed() {
             return new PtRouterImpl(config, translationMap, baseGraph, encodingManager, locationIndex, gtfsStorage, RealtimeFeed.empty(), new PathDetailsBuilderFactory());
         }
@@ -52,73 +52,144 @@ public class RealtimeFeed {
     private final IntLongHashMap delaysForAlightEdges;
     private final TreeSet<PtGraph.PtEdge> additionalEdgesByBaseNode;
     private final TreeSet<PtGraph.PtEdge> additionalEdgesByAdjNode;
+    // the ids of the next node and edge of the overlay graph, they continue after those of the pt graph
+    private final int nextNode;
+    private final int nextEdge;
     public final Map<String, GtfsRealtime.FeedMessage> feedMessages;
 
-    private RealtimeFeed(Map<String, GtfsRealtime.FeedMessage> feedMessages, IntHashSet blockedEdges,
-                         IntLongHashMap delaysForBoardEdges, IntLongHashMap delaysForAlightEdges, List<PtGraph.PtEdge> additionalEdges) {
+    private RealtimeFeed(Map<String, GtfsRealtime.FeedMessage> feedMessages, IntHashSet blockedEdges, IntLongHashMap delaysForAlightEdges, RealtimeFeed other) {
+        this(feedMessages, blockedEdges, other.delaysForBoardEdges, delaysForAlightEdges, other.additionalEdgesByBaseNode, other.additionalEdgesByAdjNode, other.nextNode, other.nextEdge);
+    }
+
+    private RealtimeFeed(Map<String, GtfsRealtime.FeedMessage> feedMessages, IntHashSet blockedEdges, IntLongHashMap delaysForBoardEdges, IntLongHashMap delaysForAlightEdges,
+                         TreeSet<PtGraph.PtEdge> additionalEdgesByBaseNode, TreeSet<PtGraph.PtEdge> additionalEdgesByAdjNode, int nextNode, int nextEdge) {
         this.feedMessages = feedMessages;
         this.blockedEdges = blockedEdges;
         this.delaysForBoardEdges = delaysForBoardEdges;
         this.delaysForAlightEdges = delaysForAlightEdges;
-        this.additionalEdgesByBaseNode = new TreeSet<>(Comparator.comparingInt(PtGraph.PtEdge::getBaseNode).thenComparingInt(PtGraph.PtEdge::getId));
-        this.additionalEdgesByBaseNode.addAll(additionalEdges);
-        this.additionalEdgesByAdjNode = new TreeSet<>(Comparator.comparingInt(PtGraph.PtEdge::getAdjNode).thenComparingInt(PtGraph.PtEdge::getId));
-        this.additionalEdgesByAdjNode.addAll(additionalEdges);
+        this.additionalEdgesByBaseNode = additionalEdgesByBaseNode;
+        this.additionalEdgesByAdjNode = additionalEdgesByAdjNode;
+        this.nextNode = nextNode;
+        this.nextEdge = nextEdge;
+    }
+
+    private RealtimeFeed(Map<String, GtfsRealtime.FeedMessage> feedMessages, IntHashSet blockedEdges,
+                         IntLongHashMap delaysForBoardEdges, IntLongHashMap delaysForAlightEdges, OverlayGraph overlayGraph) {
+        this(feedMessages, blockedEdges, delaysForBoardEdges, delaysForAlightEdges,
+                new TreeSet<>(Comparator.comparingInt(PtGraph.PtEdge::getBaseNode).thenComparingInt(PtGraph.PtEdge::getId)),
+                new TreeSet<>(Comparator.comparingInt(PtGraph.PtEdge::getAdjNode).thenComparingInt(PtGraph.PtEdge::getId)),
+                overlayGraph.nextNode, overlayGraph.nextEdge);
+        this.additionalEdgesByBaseNode.addAll(overlayGraph.edges);
+        this.additionalEdgesByAdjNode.addAll(overlayGraph.edges);
     }
 
     public static RealtimeFeed empty() {
-        return new RealtimeFeed(Collections.emptyMap(), new IntHashSet(), new IntLongHashMap(), new IntLongHashMap(), Collections.emptyList());
+        return new RealtimeFeed(Collections.emptyMap(), new IntHashSet(), new IntLongHashMap(), new IntLongHashMap(), new OverlayGraph(0, 0, null));
+    }
+
+    /**
+     * Creates a feed with the same blocked edges, delays and additional edges as this one but with new feed messages,
+     * e.g. when a refresh of the realtime feed did not change any trip update. This feed is not modified.
+     */
+    RealtimeFeed withFeedMessages(Map<String, GtfsRealtime.FeedMessage> feedMessages) {
+        return new RealtimeFeed(feedMessages, blockedEdges, delaysForAlightEdges, this);
+    }
+
+    /**
+     * Creates a feed that differs from this one by the changes of some scheduled trips: the blocked edges and delays
+     * of the old changes are removed and those of the new changes are added. The changes of different static trips
+     * never refer to the same edges, so this gives the same result as building the feed from scratch.
+     * <p>
+     * The delayed departures of the old changes are removed from the overlay graph and those of the new changes are
+     * wired up to the static departure timelines of their stops, with ids after those of this overlay graph. All
+     * other additional edges are kept, so this must only be used if neither the added trips nor the service day
+     * changed. This feed is not modified.
+     */
+    RealtimeFeed withTripChanges(GtfsStorage staticGtfs, Map<String, Transfers> transfers, Map<String, GtfsRealtime.FeedMessage> feedMessages,
+                                 Collection<TripChanges> oldChanges, Collection<TripChanges> newChanges) {
+        IntHashSet blockedEdges = new IntHashSet(this.blockedEdges);
+        IntLongHashMap delaysForAlightEdges = new IntLongHashMap(this.delaysForAlightEdges);
+        for (TripChanges changes : oldChanges) {
+            blockedEdges.removeAll(changes.blockedEdges);
+            delaysForAlightEdges.removeAll(changes.delaysForAlightEdges.keys());
+        }
+        for (TripChanges changes : newChanges) {
+            blockedEdges.addAll(changes.blockedEdges);
+            delaysForAlightEdges.putAll(changes.delaysForAlightEdges);
+        }
+        if (oldChanges.stream().allMatch(c -> c.delayedDepartures.isEmpty()) && newChanges.stream().allMatch(c -> c.delayedDepartures.isEmpty()))
+            return new RealtimeFeed(feedMessages, blockedEdges, delaysForAlightEdges, this);
+
+        IntLongHashMap delaysForBoardEdges = new IntLongHashMap(this.delaysForBoardEdges);
+        TreeSet<PtGraph.PtEdge> additionalEdgesByBaseNode = new TreeSet<>(this.additionalEdgesByBaseNode);
+        TreeSet<PtGraph.PtEdge> additionalEdgesByAdjNode = new TreeSet<>(this.additionalEdgesByAdjNode);
+        for (TripChanges changes : oldChanges) {
+            delaysForBoardEdges.removeAll(changes.delaysForBoardEdges.keys());
+            additionalEdgesByBaseNode.removeAll(changes.overlayEdges);
+            additionalEdgesByAdjNode.removeAll(changes.overlayEdges);
+        }
+        OverlayGraph overlayGraph = new OverlayGraph(nextNode, nextEdge, staticGtfs);
+        for (TripChanges changes : newChanges) {
+            addDelayedDepartures(staticGtfs, transfers, feedMessages.get(changes.feedKey), overlayGraph, changes);
+            delaysForBoardEdges.putAll(changes.delaysForBoardEdges);
+        }
+        additionalEdgesByBaseNode.addAll(overlayGraph.edges);
+        additionalEdgesByAdjNode.addAll(overlayGraph.edges);
+        return new RealtimeFeed(feedMessages, blockedEdges, delaysForBoardEdges, delaysForAlightEdges,
+                additionalEdgesByBaseNode, additionalEdgesByAdjNode, overlayGraph.nextNode, overlayGraph.nextEdge);
     }
 
     public static RealtimeFeed fromProtobuf(GtfsStorage staticGtfs, Map<String, Transfers> transfers, Map<String, GtfsRealtime.FeedMessage> feedMessages) {
-        final IntHashSet blockedEdges = new IntHashSet();
-        final IntLongHashMap delaysForBoardEdges = new IntLongHashMap();
-        final IntLongHashMap delaysForAlightEdges = new IntLongHashMap();
-        final LinkedList<PtGraph.PtEdge> additionalEdges = new LinkedList<>();
-        final GtfsReader.PtGraphOut overlayGraph = new GtfsReader.PtGraphOut() {
-            int nextEdge = staticGtfs.getPtGraph().getEdgeCount();
-            int nextNode = staticGtfs.getPtGraph().getNodeCount();
-
-            @Override
-            public int createEdge(int src, int dest, PtEdgeAttributes attrs) {
-                int edgeId = nextEdge++;
-                PtGraph.PtEdge e = new PtGraph.PtEdge(edgeId, src, dest, attrs);
-                assert canBeAdded(e);
-                additionalEdges.add(e);
-                return edgeId;
-            }
+        return fromProtobuf(staticGtfs, transfers, feedMessages, new DirectTripLookup(staticGtfs));
+    }
 
-            private boolean canBeAdded(PtGraph.PtEdge e) {
-                if (e.getType() != GtfsStorage.EdgeType.ENTER_PT) {
-                    if (staticGtfs.getPtToStreet().containsKey(e.getBaseNode())) {
-                        return false;
-                    }
-                }
-                return true;
-            }
+    static RealtimeFeed fromProtobuf(GtfsStorage staticGtfs, Map<String, Transfers> transfers, Map<String, GtfsRealtime.FeedMessage> feedMessages, TripLookup tripLookup) {
+        List<TripChanges> tripChanges = new ArrayList<>();
+        feedMessages.forEach((feedKey, feedMessage) -> tripChanges.add(collectTripChanges(staticGtfs, tripLookup, feedKey, getScheduledTripUpdates(feedMessage))));
+        return fromTripChanges(staticGtfs, transfers, feedMessages, tripChanges);
+    }
 
-            @Override
-            public int createNode() {
-                return nextNode++;
-            }
+    static List<GtfsRealtime.TripUpdate> getScheduledTripUpdates(GtfsRealtime.FeedMessage feedMessage) {
+        return feedMessage.getEntityList().stream()
+                .filter(GtfsRealtime.FeedEntity::hasTripUpdate)
+                .map(GtfsRealtime.FeedEntity::getTripUpdate)
+                .filter(tripUpdate -> tripUpdate.getTrip().getScheduleRelationship() == GtfsRealtime.TripDescriptor.ScheduleRelationship.SCHEDULED)
+                .collect(Collectors.toList());
+    }
 
-        };
+    /**
+     * @return the blocked edges and delays of the given trip updates of scheduled trips, in the order of the updates
+     */
+    static TripChanges collectTripChanges(GtfsStorage staticGtfs, TripLookup tripLookup, String feedKey, List<GtfsRealtime.TripUpdate> tripUpdates) {
+        GTFSFeed feed = staticGtfs.getGtfsFeeds().get(feedKey);
+        TripChanges changes = new TripChanges(feedKey);
+        for (GtfsRealtime.TripUpdate tripUpdate : tripUpdates) {
+            maybeUpdateScheduledTrip(tripLookup, feedKey, tripUpdate, feed, staticGtfs.getStopTimes(feedKey), staticGtfs.getPtGraph(), changes);
+        }
+        return changes;
+    }
 
+    /**
+     * Creates the feed from the changes of the scheduled trips and builds the overlay graph for their delayed
+     * departures and for the added trips of the feed messages.
+     */
+    static RealtimeFeed fromTripChanges(GtfsStorage staticGtfs, Map<String, Transfers> transfers, Map<String, GtfsRealtime.FeedMessage> feedMessages, Collection<TripChanges> tripChanges) {
+        final IntHashSet blockedEdges = new IntHashSet();
+        final IntLongHashMap delaysForBoardEdges = new IntLongHashMap();
+        final IntLongHashMap delaysForAlightEdges = new IntLongHashMap();
+        for (TripChanges changes : tripChanges) {
+            blockedEdges.addAll(changes.blockedEdges);
+            delaysForAlightEdges.putAll(changes.delaysForAlightEdges);
+        }
+        final OverlayGraph overlayGraph = new OverlayGraph(staticGtfs.getPtGraph().getNodeCount(), staticGtfs.getPtGraph().getEdgeCount(), staticGtfs);
+        for (TripChanges changes : tripChanges) {
+            addDelayedDepartures(staticGtfs, transfers, feedMessages.get(changes.feedKey), overlayGraph, changes);
+            delaysForBoardEdges.putAll(changes.delaysForBoardEdges);
+        }
         feedMessages.forEach((feedKey, feedMessage) -> {
-            GTFSFeed feed = staticGtfs.getGtfsFeeds().get(feedKey);
-            ZoneId timezone = ZoneId.of(feed.agency.values().stream().findFirst().get().agency_timezone);
-            PtGraph ptGraphNodesAndEdges = staticGtfs.getPtGraph();
-            final GtfsReader gtfsReader = new GtfsReader(feedKey, ptGraphNodesAndEdges, overlayGraph, staticGtfs, null, transfers.get(feedKey), null);
-            Instant timestamp = Instant.ofEpochSecond(feedMessage.getHeader().getTimestamp());
-            LocalDate dateToChange = timestamp.atZone(timezone).toLocalDate(); //FIXME
-            BitSet validOnDay = new BitSet();
-            LocalDate startDate = feed.getStartDate();
-            validOnDay.set((int) DAYS.between(startDate, dateToChange));
-            feedMessage.getEntityList().stream()
-                    .filter(GtfsRealtime.FeedEntity::hasTripUpdate)
-                    .map(GtfsRealtime.FeedEntity::getTripUpdate)
-                    .filter(tripUpdate -> tripUpdate.getTrip().getScheduleRelationship() == GtfsRealtime.TripDescriptor.ScheduleRelationship.SCHEDULED)
-                    .forEach(tripUpdate -> maybeUpdateScheduledTrip(staticGtfs, feedKey, tripUpdate, feed, blockedEdges, delaysForAlightEdges, ptGraphNodesAndEdges, gtfsReader, timezone, validOnDay, delaysForBoardEdges));
+            ZoneId timezone = getTimezone(staticGtfs, feedKey);
+            BitSet validOnDay = getValidOnDay(staticGtfs, feedKey, feedMessage);
+            final GtfsReader gtfsReader = new GtfsReader(feedKey, staticGtfs.getPtGraph(), overlayGraph, staticGtfs, null, transfers.get(feedKey), null);
             feedMessage.getEntityList().stream()
                     .filter(GtfsRealtime.FeedEntity::hasTripUpdate)
                     .map(GtfsRealtime.FeedEntity::getTripUpdate)
@@ -127,14 +198,52 @@ public class RealtimeFeed {
             gtfsReader.wireUpAdditionalDeparturesAndArrivals(timezone);
         });
 
-        return new RealtimeFeed(feedMessages, blockedEdges, delaysForBoardEdges, delaysForAlightEdges, additionalEdges);
+        return new RealtimeFeed(feedMessages, blockedEdges, delaysForBoardEdges, delaysForAlightEdges, overlayGraph);
+    }
+
+    /**
+     * Adds board edges for the delayed departures of the given changes to the overlay graph and wires them up to the
+     * static departure timelines of their stops. Every call uses its own reader, so the overlay edges of the changes
+     * only depend on the changes themselves and can later be removed again, see
+     * {@link #withTripChanges(GtfsStorage, Map, Map, Collection, Collection)}.
+     */
+    private static void addDelayedDepartures(GtfsStorage staticGtfs, Map<String, Transfers> transfers, GtfsRealtime.FeedMessage feedMessage, OverlayGraph overlayGraph, TripChanges changes) {
+        changes.overlayEdges.clear();
+        changes.delaysForBoardEdges.clear();
+        if (changes.delayedDepartures.isEmpty())
+            return;
+        ZoneId timezone = getTimezone(staticGtfs, changes.feedKey);
+        BitSet validOnDay = getValidOnDay(staticGtfs, changes.feedKey, feedMessage);
+        int firstEdge = overlayGraph.edges.size();
+        final GtfsReader gtfsReader = new GtfsReader(changes.feedKey, staticGtfs.getPtGraph(), overlayGraph, staticGtfs, null, transfers.get(changes.feedKey), null);
+        for (DelayedDeparture departure : changes.delayedDepartures) {
+            int delayedBoardEdge = gtfsReader.addDelayedBoardEdge(timezone, departure.trip, departure.stopSequence, departure.departureTime, departure.departureNode, validOnDay);
+            changes.delaysForBoardEdges.put(delayedBoardEdge, departure.delay);
+        }
+        gtfsReader.wireUpAdditionalDeparturesAndArrivals(timezone);
+        changes.overlayEdges.addAll(overlayGraph.edges.subList(firstEdge, overlayGraph.edges.size()));
     }
 
-    private static void maybeUpdateScheduledTrip(GtfsStorage staticGtfs, String feedKey, GtfsRealtime.TripUpdate tripUpdate, GTFSFeed feed, IntHashSet blockedEdges, IntLongHashMap delaysForAlightEdges, PtGraph ptGraphNodesAndEdges, GtfsReader gtfsReader, ZoneId timezone, BitSet validOnDay, IntLongHashMap delaysForBoardEdges) {
+    private static ZoneId getTimezone(GtfsStorage staticGtfs, String feedKey) {
+        GTFSFeed feed = staticGtfs.getGtfsFeeds().get(feedKey);
+        return ZoneId.of(feed.agency.values().stream().findFirst().get().agency_timezone);
+    }
+
+    private static BitSet getValidOnDay(GtfsStorage staticGtfs, String feedKey, GtfsRealtime.FeedMessage feedMessage) {
+        GTFSFeed feed = staticGtfs.getGtfsFeeds().get(feedKey);
+        Instant timestamp = Instant.ofEpochSecond(feedMessage.getHeader().getTimestamp());
+        LocalDate dateToChange = timestamp.atZone(getTimezone(staticGtfs, feedKey)).toLocalDate(); //FIXME
+        BitSet validOnDay = new BitSet();
+        LocalDate startDate = feed.getStartDate();
+        validOnDay.set((int) DAYS.between(startDate, dateToChange));
+        return validOnDay;
+    }
+
+    private static void maybeUpdateScheduledTrip(TripLookup tripLookup, String feedKey, GtfsRealtime.TripUpdate tripUpdate, GTFSFeed feed, StopTimesStore stopTimes, PtGraph ptGraphNodesAndEdges, TripChanges changes) {
         Collection<Frequency> frequencies = feed.getFrequencies(tripUpdate.getTrip().getTripId());
         int timeOffset = (tripUpdate.getTrip().hasStartTime() && !frequencies.isEmpty()) ? LocalTime.parse(tripUpdate.getTrip().getStartTime()).toSecondOfDay() : 0;
-        final int[] boardEdges = findBoardEdgesForTrip(staticGtfs, feedKey, feed, tripUpdate.getTrip());
-        final int[] leaveEdges = findAlightEdgesForTrip(staticGtfs, feedKey, feed, tripUpdate.getTrip());
+        final int[] boardEdges = tripLookup.findBoardEdges(feedKey, feed, tripUpdate.getTrip());
+        final int[] leaveEdges = tripLookup.findAlightEdges(feedKey, feed, tripUpdate.getTrip());
         if (boardEdges == null || leaveEdges == null) {
             logger.warn("Trip not found: {}", tripUpdate.getTrip());
             return;
@@ -143,24 +252,29 @@ public class RealtimeFeed {
                 .filter(stopTimeUpdate -> stopTimeUpdate.getScheduleRelationship() == SKIPPED)
                 .mapToInt(GtfsRealtime.TripUpdate.StopTimeUpdate::getStopSequence)
                 .forEach(skippedStopSequenceNumber -> {
-                    blockedEdges.add(boardEdges[skippedStopSequenceNumber]);
-                    blockedEdges.add(leaveEdges[skippedStopSequenceNumber]);
+                    changes.blockedEdges.add(boardEdges[skippedStopSequenceNumber]);
+                    changes.blockedEdges.add(leaveEdges[skippedStopSequenceNumber]);
                 });
-        GtfsReader.TripWithStopTimes tripWithStopTimes = toTripWithStopTimes(feed, tripUpdate);
+        GtfsReader.TripWithStopTimes tripWithStopTimes = tripLookup.toTripWithStopTimes(feedKey, feed, tripUpdate);
+        int trip = stopTimes.getTripIndex(tripUpdate.getTrip().getTripId());
         tripWithStopTimes.stopTimes.forEach(stopTime -> {
             if (stopTime.stop_sequence > leaveEdges.length - 1) {
                 logger.warn("Stop sequence number too high {} vs {}", stopTime.stop_sequence, leaveEdges.length);
                 return;
             }
-            final StopTime originalStopTime = feed.stop_times.get(new Fun.Tuple2(tripUpdate.getTrip().getTripId(), stopTime.stop_sequence));
-            int arrivalDelay = stopTime.arrival_time - originalStopTime.arrival_time;
-            delaysForAlightEdges.put(leaveEdges[stopTime.stop_sequence], arrivalDelay * 1000);
-            int departureDelay = stopTime.departure_time - originalStopTime.departure_time;
+            // the scheduled times are read from the stop times store, so no StopTime has to be deserialized
+            int originalRow = stopTimes.findRow(trip, stopTime.stop_sequence);
+            if (originalRow < 0) {
+                logger.warn("Stop sequence {} not found in trip {}", stopTime.stop_sequence, tripUpdate.getTrip().getTripId());
+                return;
+            }
+            int arrivalDelay = stopTime.arrival_time - stopTimes.getArrivalTime(originalRow);
+            changes.delaysForAlightEdges.put(leaveEdges[stopTime.stop_sequence], arrivalDelay * 1000);
+            int departureDelay = stopTime.departure_time - stopTimes.getDepartureTime(originalRow);
             if (departureDelay > 0) {
                 int boardEdge = boardEdges[stopTime.stop_sequence];
                 int departureNode = ptGraphNodesAndEdges.edge(boardEdge).getAdjNode();
-                int delayedBoardEdge = gtfsReader.addDelayedBoardEdge(timezone, tripUpdate.getTrip(), stopTime.stop_sequence, stopTime.departure_time + timeOffset, departureNode, validOnDay);
-                delaysForBoardEdges.put(delayedBoardEdge, departureDelay * 1000);
+                changes.delayedDepartures.add(new DelayedDeparture(tripUpdate.getTrip(), stopTime.stop_sequence, stopTime.departure_time + timeOffset, departureNode, departureDelay * 1000));
             }
         });
     }
@@ -200,9 +314,13 @@ public class RealtimeFeed {
     }
 
     public static int[] findAlightEdgesForTrip(GtfsStorage staticGtfs, String feedKey, GTFSFeed feed, GtfsRealtime.TripDescriptor tripDescriptor) {
-        Trip trip = feed.trips.get(tripDescriptor.getTripId());
-        StopTime next = feed.getOrderedStopTimesForTrip(trip.trip_id).iterator().next();
-        int station = staticGtfs.getStationNodes().get(new GtfsStorage.FeedIdWithStopId(feedKey, next.stop_id));
+        StopTimesStore stopTimes = staticGtfs.getStopTimes(feedKey);
+        int trip = stopTimes.getTripIndex(tripDescriptor.getTripId());
+        if (trip < 0 || stopTimes.getFirstRow(trip) == stopTimes.getEndRow(trip)) {
+            return null;
+        }
+        String firstStopId = stopTimes.getStopId(stopTimes.getFirstRow(trip));
+        int station = staticGtfs.getStationNodes().get(new GtfsStorage.FeedIdWithStopId(feedKey, firstStopId));
         Optional<PtGraph.PtEdge> firstAlighting = StreamSupport.stream(staticGtfs.getPtGraph().backEdgesAround(station).spliterator(), false)
                 .flatMap(e -> StreamSupport.stream(staticGtfs.getPtGraph().backEdgesAround(e.getAdjNode()).spliterator(), false))
                 .flatMap(e -> StreamSupport.stream(staticGtfs.getPtGraph().backEdgesAround(e.getAdjNode()).spliterator(), false))
@@ -219,9 +337,13 @@ public class RealtimeFeed {
     }
 
     public static int[] findBoardEdgesForTrip(GtfsStorage staticGtfs, String feedKey, GTFSFeed feed, GtfsRealtime.TripDescriptor tripDescriptor) {
-        Trip trip = feed.trips.get(tripDescriptor.getTripId());
-        StopTime next = feed.getOrderedStopTimesForTrip(trip.trip_id).iterator().next();
-        int station = staticGtfs.getStationNodes().get(new GtfsStorage.FeedIdWithStopId(feedKey, next.stop_id));
+        StopTimesStore stopTimes = staticGtfs.getStopTimes(feedKey);
+        int trip = stopTimes.getTripIndex(tripDescriptor.getTripId());
+        if (trip < 0 || stopTimes.getFirstRow(trip) == stopTimes.getEndRow(trip)) {
+            return null;
+        }
+        String firstStopId = stopTimes.getStopId(stopTimes.getFirstRow(trip));
+        int station = staticGtfs.getStationNodes().get(new GtfsStorage.FeedIdWithStopId(feedKey, firstStopId));
         Optional<PtGraph.PtEdge> firstBoarding = StreamSupport.stream(staticGtfs.getPtGraph().edgesAround(station).spliterator(), false)
                 .flatMap(e -> StreamSupport.stream(staticGtfs.getPtGraph().edgesAround(e.getAdjNode()).spliterator(), false))
                 .flatMap(e -> StreamSupport.stream(staticGtfs.getPtGraph().edgesAround(e.getAdjNode()).spliterator(), false))
@@ -237,6 +359,112 @@ public class RealtimeFeed {
         return collectWithPadding(boardEdges);
     }
 
+    /**
+     * The blocked edges and delays caused by trip updates of scheduled trips. Except for the delayed departures they
+     * only refer to edges of the static pt graph.
+     */
+    static class TripChanges {
+        final String feedKey;
+        final IntHashSet blockedEdges = new IntHashSet();
+        final IntLongHashMap delaysForAlightEdges = new IntLongHashMap();
+        // departures that are later than scheduled need new board edges in the overlay graph
+        final List<DelayedDeparture> delayedDepartures = new ArrayList<>();
+        // the edges and board edge delays that were last added to an overlay graph for the delayed departures
+        final List<PtGraph.PtEdge> overlayEdges = new ArrayList<>();
+        final IntLongHashMap delaysForBoardEdges = new IntLongHashMap();
+
+        TripChanges(String feedKey) {
+            this.feedKey = feedKey;
+        }
+    }
+
+    private static class OverlayGraph implements GtfsReader.PtGraphOut {
+        private final GtfsStorage staticGtfs;
+        final List<PtGraph.PtEdge> edges = new ArrayList<>();
+        int nextNode;
+        int nextEdge;
+
+        OverlayGraph(int nextNode, int nextEdge, GtfsStorage staticGtfs) {
+            this.nextNode = nextNode;
+            this.nextEdge = nextEdge;
+            this.staticGtfs = staticGtfs;
+        }
+
+        @Override
+        public int createEdge(int src, int dest, PtEdgeAttributes attrs) {
+            int edgeId = nextEdge++;
+            PtGraph.PtEdge e = new PtGraph.PtEdge(edgeId, src, dest, attrs);
+            assert canBeAdded(e);
+            edges.add(e);
+            return edgeId;
+        }
+
+        private boolean canBeAdded(PtGraph.PtEdge e) {
+            if (e.getType() != GtfsStorage.EdgeType.ENTER_PT) {
+                if (staticGtfs.getPtToStreet().containsKey(e.getBaseNode())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int createNode() {
+            return nextNode++;
+        }
+    }
+
+    static class DelayedDeparture {
+        final GtfsRealtime.TripDescriptor trip;
+        final int stopSequence;
+        final int departureTime;
+        final int departureNode;
+        final long delay;
+
+        DelayedDeparture(GtfsRealtime.TripDescriptor trip, int stopSequence, int departureTime, int departureNode, long delay) {
+            this.trip = trip;
+            this.stopSequence = stopSequence;
+            this.departureTime = departureTime;
+            this.departureNode = departureNode;
+            this.delay = delay;
+        }
+    }
+
+    /**
+     * The parts of applying a trip update that only depend on the static feed and the trip update itself, see
+     * {@link RealtimeFeedUpdater} for an implementation that caches them between updates.
+     */
+    interface TripLookup {
+        int[] findBoardEdges(String feedKey, GTFSFeed feed, GtfsRealtime.TripDescriptor tripDescriptor);
+
+        int[] findAlightEdges(String feedKey, GTFSFeed feed, GtfsRealtime.TripDescriptor tripDescriptor);
+
+        GtfsReader.TripWithStopTimes toTripWithStopTimes(String feedKey, GTFSFeed feed, GtfsRealtime.TripUpdate tripUpdate);
+    }
+
+    static class DirectTripLookup implements TripLookup {
+        private final GtfsStorage staticGtfs;
+
+        DirectTripLookup(GtfsStorage staticGtfs) {
+            this.staticGtfs = staticGtfs;
+        }
+
+        @Override
+        public int[] findBoardEdges(String feedKey, GTFSFeed feed, GtfsRealtime.TripDescriptor tripDescriptor) {
+            return findBoardEdgesForTrip(staticGtfs, feedKey, feed, tripDescriptor);
+        }
+
+        @Override
+        public int[] findAlightEdges(String feedKey, GTFSFeed feed, GtfsRealtime.TripDescriptor tripDescriptor) {
+            return findAlightEdgesForTrip(staticGtfs, feedKey, feed, tripDescriptor);
+        }
+
+        @Override
+        public GtfsReader.TripWithStopTimes toTripWithStopTimes(String feedKey, GTFSFeed feed, GtfsRealtime.TripUpdate tripUpdate) {
+            return RealtimeFeed.toTripWithStopTimes(feed, tripUpdate);
+        }
+    }
+
     private static boolean isDescribedBy(GtfsRealtime.TripDescriptor a, GtfsRealtime.TripDescriptor b) {
         // a is a descriptor of a trip in our database, static or realtime
         // b is a descriptor of a trip in a trip update in the literal current rt feed
@@ -385,6 +613,8 @@ public class RealtimeFeed {
                 StreamSupport.stream(interpolatedStopTimesForTrip.spliterator(), false).mapToInt(stopTime -> stopTime.stop_sequence).max().orElse(0)
         ) + 1;
         stopTimeUpdateListWithSentinel.add(GtfsRealtime.TripUpdate.StopTimeUpdate.newBuilder().setStopSequence(stopSequenceCeiling).setScheduleRelationship(NO_DATA).build());
+        // the updated stop times are clones of those in the MapDB table and not read from the StopTimesStore,
+        // because they need all columns, e.g. stop_headsign for the legs of a response
         for (GtfsRealtime.TripUpdate.StopTimeUpdate stopTimeUpdate : stopTimeUpdateListWithSentinel) {
             int nextStopSequence = stopTimes.isEmpty() ? 1 : stopTimes.get(stopTimes.size() - 1).stop_sequence + 1;
             for (int i = nextStopSequence; i < stopTimeUpdate.getStopSequence(); i++) {
@@ -486,8 +716,8 @@ public class RealtimeFeed {
         }).findFirst().orElse(Instant.now());
     }
 
-    public StopTime getStopTime(GTFSFeed staticFeed, GtfsRealtime.TripDescriptor tripDescriptor, Instant boardTime, int stopSequence) {
-        StopTime stopTime = staticFeed.stop_times.get(new Fun.Tuple2<>(tripDescriptor.getTripId(), stopSequence));
+    public StopTime getStopTime(GTFSFeed staticFeed, StopTimesStore staticStopTimes, GtfsRealtime.TripDescriptor tripDescriptor, Instant boardTime, int stopSequence) {
+        StopTime stopTime = staticStopTimes.getStopTime(tripDescriptor.getTripId(), stopSequence);
         if (stopTime == null) {
             return getTripUpdate(staticFeed, tripDescriptor, boardTime).get().stopTimes.get(stopSequence - 1);
         } else {
@@ -0,0 +1,300 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.conveyal.gtfs.GTFSFeed;
+import com.google.transit.realtime.GtfsRealtime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Creates {@link RealtimeFeed}s from successive versions of the GTFS-realtime feed messages and reuses as much as
+ * possible from the previous version:
+ * <ul>
+ * <li>the trip updates are compared to the previous ones by trip. If no trip update changed, the previous feed is
+ * reused and only its feed messages are replaced.</li>
+ * <li>otherwise only the blocked edges, delays and delayed departures of the static trips whose updates changed are
+ * recomputed and applied as a diff to those of the previous feed. The overlay edges of the old delayed departures
+ * of these trips are removed and the new ones are wired up to the static timelines of their stops.</li>
+ * <li>the whole overlay graph is only rebuilt if an added trip or the service day of a feed changed.</li>
+ * </ul>
+ * The board and alight edges of a trip are looked up in the pt graph only once while the trip has an update.
+ * Every update creates a new RealtimeFeed and never modifies one that was returned before, so callers can hand out
+ * the current feed to queries while the next one is built. Updates must not be called concurrently.
+ */
+public class RealtimeFeedUpdater {
+    private static final Logger logger = LoggerFactory.getLogger(RealtimeFeedUpdater.class);
+    private final GtfsStorage staticGtfs;
+    private final Map<String, Transfers> transfers;
+    private final CachingTripLookup tripLookup;
+    private RealtimeFeed current = RealtimeFeed.empty();
+    private Map<String, GtfsRealtime.TripUpdate> currentTripUpdates = new HashMap<>();
+    private Map<String, LocalDate> currentFeedDates = new HashMap<>();
+    // the updates of the scheduled trips and their changes, by static trip
+    private Map<String, ScheduledTrip> currentScheduledTrips = new HashMap<>();
+    private volatile Statistics lastStatistics = new Statistics(0, 0, 0, false, false);
+
+    public RealtimeFeedUpdater(GtfsStorage staticGtfs, Map<String, Transfers> transfers) {
+        this.staticGtfs = staticGtfs;
+        this.transfers = transfers;
+        this.tripLookup = new CachingTripLookup(staticGtfs);
+    }
+
+    public synchronized RealtimeFeed update(Map<String, GtfsRealtime.FeedMessage> feedMessages) {
+        long start = System.nanoTime();
+        Map<String, GtfsRealtime.TripUpdate> tripUpdates = new HashMap<>();
+        Map<String, LocalDate> feedDates = new HashMap<>();
+        // frequency based trips can have several updates for the same static trip, they are kept in feed order
+        Map<String, ScheduledTrip> scheduledTrips = new LinkedHashMap<>();
+        feedMessages.forEach((feedKey, feedMessage) -> {
+            GTFSFeed feed = staticGtfs.getGtfsFeeds().get(feedKey);
+            ZoneId timezone = ZoneId.of(feed.agency.values().stream().findFirst().get().agency_timezone);
+            // the realtime feed applies the delays to the service day of the feed timestamp, see RealtimeFeed.fromProtobuf
+            feedDates.put(feedKey, Instant.ofEpochSecond(feedMessage.getHeader().getTimestamp()).atZone(timezone).toLocalDate());
+            for (GtfsRealtime.FeedEntity entity : feedMessage.getEntityList()) {
+                if (entity.hasTripUpdate())
+                    tripUpdates.put(tripKey(feedKey, entity.getTripUpdate().getTrip()), entity.getTripUpdate());
+            }
+            for (GtfsRealtime.TripUpdate tripUpdate : RealtimeFeed.getScheduledTripUpdates(feedMessage))
+                scheduledTrips.computeIfAbsent(feedKey + ":" + tripUpdate.getTrip().getTripId(), k -> new ScheduledTrip(feedKey)).tripUpdates.add(tripUpdate);
+        });
+
+        int changedTrips = 0;
+        // changes of trip updates that are not scheduled, e.g. added trips, require a new overlay graph
+        boolean overlayChanged = !feedDates.equals(currentFeedDates);
+        for (Map.Entry<String, GtfsRealtime.TripUpdate> entry : tripUpdates.entrySet()) {
+            GtfsRealtime.TripUpdate previous = currentTripUpdates.get(entry.getKey());
+            if (!isSame(previous, entry.getValue())) {
+                changedTrips++;
+                overlayChanged |= !isScheduled(entry.getValue()) || previous != null && !isScheduled(previous);
+            }
+        }
+        int removedTrips = 0;
+        for (Map.Entry<String, GtfsRealtime.TripUpdate> entry : currentTripUpdates.entrySet()) {
+            if (!tripUpdates.containsKey(entry.getKey())) {
+                removedTrips++;
+                overlayChanged |= !isScheduled(entry.getValue());
+            }
+        }
+
+        boolean reused = changedTrips == 0 && removedTrips == 0 && !overlayChanged;
+        if (!reused)
+            tripLookup.retain(tripUpdates);
+        List<RealtimeFeed.TripChanges> oldChanges = new ArrayList<>();
+        List<RealtimeFeed.TripChanges> newChanges = new ArrayList<>();
+        for (Map.Entry<String, ScheduledTrip> entry : scheduledTrips.entrySet()) {
+            ScheduledTrip trip = entry.getValue();
+            ScheduledTrip previous = currentScheduledTrips.get(entry.getKey());
+            if (previous != null && isSame(previous.tripUpdates, trip.tripUpdates)) {
+                trip.changes = previous.changes;
+            } else {
+                trip.changes = RealtimeFeed.collectTripChanges(staticGtfs, tripLookup, trip.feedKey, trip.tripUpdates);
+                newChanges.add(trip.changes);
+                if (previous != null)
+                    oldChanges.add(previous.changes);
+            }
+        }
+        for (Map.Entry<String, ScheduledTrip> entry : currentScheduledTrips.entrySet()) {
+            if (!scheduledTrips.containsKey(entry.getKey()))
+                oldChanges.add(entry.getValue().changes);
+        }
+
+        if (reused) {
+            current = current.withFeedMessages(feedMessages);
+        } else {
+            if (overlayChanged) {
+                List<RealtimeFeed.TripChanges> changes = new ArrayList<>(scheduledTrips.size());
+                scheduledTrips.values().forEach(trip -> changes.add(trip.changes));
+                current = RealtimeFeed.fromTripChanges(staticGtfs, transfers, feedMessages, changes);
+            } else {
+                current = current.withTripChanges(staticGtfs, transfers, feedMessages, oldChanges, newChanges);
+            }
+        }
+        currentTripUpdates = tripUpdates;
+        currentFeedDates = feedDates;
+        currentScheduledTrips = scheduledTrips;
+        lastStatistics = new Statistics(System.nanoTime() - start, tripUpdates.size(), changedTrips + removedTrips, reused, overlayChanged);
+        logger.info("realtime feed updated, " + lastStatistics);
+        return current;
+    }
+
+    public RealtimeFeed getCurrent() {
+        return current;
+    }
+
+    /**
+     * @return the statistics of the last call of {@link #update(Map)}
+     */
+    public Statistics getLastStatistics() {
+        return lastStatistics;
+    }
+
+    private static String tripKey(String feedKey, GtfsRealtime.TripDescriptor trip) {
+        // frequency based trips are only identified by trip id and start time together
+        return feedKey + ":" + trip.getTripId() + ":" + trip.getStartTime();
+    }
+
+    private static boolean isScheduled(GtfsRealtime.TripUpdate tripUpdate) {
+        return tripUpdate.getTrip().getScheduleRelationship() == GtfsRealtime.TripDescriptor.ScheduleRelationship.SCHEDULED;
+    }
+
+    private static boolean isSame(List<GtfsRealtime.TripUpdate> a, List<GtfsRealtime.TripUpdate> b) {
+        if (a.size() != b.size())
+            return false;
+        for (int i = 0; i < a.size(); i++) {
+            if (!isSame(a.get(i), b.get(i)))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isSame(GtfsRealtime.TripUpdate a, GtfsRealtime.TripUpdate b) {
+        // the timestamp and the vehicle of a trip update do not change the result
+        return a != null && b != null && a.getTrip().equals(b.getTrip()) && a.getStopTimeUpdateList().equals(b.getStopTimeUpdateList());
+    }
+
+    private static class CachingTripLookup implements RealtimeFeed.TripLookup {
+        private final RealtimeFeed.DirectTripLookup direct;
+        // the pt graph does not change, so the board and alight edges of a trip can be kept as long as it has an update
+        private final Map<String, int[]> boardEdges = new HashMap<>();
+        private final Map<String, int[]> alightEdges = new HashMap<>();
+        private final Map<String, CachedStopTimes> stopTimes = new HashMap<>();
+
+        CachingTripLookup(GtfsStorage staticGtfs) {
+            this.direct = new RealtimeFeed.DirectTripLookup(staticGtfs);
+        }
+
+        /**
+         * Removes everything that is not needed for the specified trip updates anymore, including the missing edges
+         * of unknown trips.
+         */
+        void retain(Map<String, GtfsRealtime.TripUpdate> tripUpdates) {
+            boardEdges.keySet().retainAll(tripUpdates.keySet());
+            alightEdges.keySet().retainAll(tripUpdates.keySet());
+            stopTimes.entrySet().removeIf(e -> !isSame(e.getValue().tripUpdate, tripUpdates.get(e.getKey())));
+        }
+
+        @Override
+        public int[] findBoardEdges(String feedKey, GTFSFeed feed, GtfsRealtime.TripDescriptor tripDescriptor) {
+            String key = tripKey(feedKey, tripDescriptor);
+            // null is a valid result for trips that cannot be found
+            if (boardEdges.containsKey(key))
+                return boardEdges.get(key);
+            int[] edges = direct.findBoardEdges(feedKey, feed, tripDescriptor);
+            boardEdges.put(key, edges);
+            return edges;
+        }
+
+        @Override
+        public int[] findAlightEdges(String feedKey, GTFSFeed feed, GtfsRealtime.TripDescriptor tripDescriptor) {
+            String key = tripKey(feedKey, tripDescriptor);
+            if (alightEdges.containsKey(key))
+                return alightEdges.get(key);
+            int[] edges = direct.findAlightEdges(feedKey, feed, tripDescriptor);
+            alightEdges.put(key, edges);
+            return edges;
+        }
+
+        @Override
+        public GtfsReader.TripWithStopTimes toTripWithStopTimes(String feedKey, GTFSFeed feed, GtfsRealtime.TripUpdate tripUpdate) {
+            String key = tripKey(feedKey, tripUpdate.getTrip());
+            CachedStopTimes cached = stopTimes.get(key);
+            if (cached != null && isSame(cached.tripUpdate, tripUpdate))
+                return cached.tripWithStopTimes;
+            GtfsReader.TripWithStopTimes tripWithStopTimes = direct.toTripWithStopTimes(feedKey, feed, tripUpdate);
+            stopTimes.put(key, new CachedStopTimes(tripUpdate, tripWithStopTimes));
+            return tripWithStopTimes;
+        }
+    }
+
+    private static class ScheduledTrip {
+        final String feedKey;
+        final List<GtfsRealtime.TripUpdate> tripUpdates = new ArrayList<>();
+        RealtimeFeed.TripChanges changes;
+
+        ScheduledTrip(String feedKey) {
+            this.feedKey = feedKey;
+        }
+    }
+
+    private static class CachedStopTimes {
+        final GtfsRealtime.TripUpdate tripUpdate;
+        final GtfsReader.TripWithStopTimes tripWithStopTimes;
+
+        CachedStopTimes(GtfsRealtime.TripUpdate tripUpdate, GtfsReader.TripWithStopTimes tripWithStopTimes) {
+            this.tripUpdate = tripUpdate;
+            this.tripWithStopTimes = tripWithStopTimes;
+        }
+    }
+
+    public static class Statistics {
+        private final long nanos;
+        private final int tripUpdates;
+        private final int changedTrips;
+        private final boolean reused;
+        private final boolean overlayRebuilt;
+
+        Statistics(long nanos, int tripUpdates, int changedTrips, boolean reused, boolean overlayRebuilt) {
+            this.nanos = nanos;
+            this.tripUpdates = tripUpdates;
+            this.changedTrips = changedTrips;
+            this.reused = reused;
+            this.overlayRebuilt = overlayRebuilt;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public int getTripUpdates() {
+            return tripUpdates;
+        }
+
+        /**
+         * @return the number of trips whose update was added, changed or removed compared to the previous update
+         */
+        public int getChangedTrips() {
+            return changedTrips;
+        }
+
+        /**
+         * @return true if no trip update changed and the previous feed could be reused
+         */
+        public boolean isReused() {
+            return reused;
+        }
+
+        /**
+         * @return true if the whole overlay graph with the delayed departures and the added trips had to be rebuilt
+         */
+        public boolean isOverlayRebuilt() {
+            return overlayRebuilt;
+        }
+
+        @Override
+        public String toString() {
+            return "took: " + nanos / 1_000_000 + "ms, trip updates: " + tripUpdates + ", changed: " + changedTrips + ", reused: " + reused + ", overlay rebuilt: " + overlayRebuilt;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.carrotsearch.hppc.ObjectIntHashMap;
+import com.conveyal.gtfs.GTFSFeed;
+import com.conveyal.gtfs.model.StopTime;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+
+/**
+ * The stop times of a GTFS feed in a columnar layout. The MapDB stop_times table of the {@link GTFSFeed} has to
+ * deserialize a StopTime object for every access, while this store only reads ints from a {@link DataAccess}, which
+ * can be memory-mapped. The stop times of a trip are stored consecutively in the order of their stop_sequence, so the
+ * rows of trip t are in [getFirstRow(t), getEndRow(t)).
+ * <p>
+ * Only the columns needed for routing are stored: stop_id, stop_sequence, arrival_time, departure_time, pickup_type
+ * and drop_off_type. Trips and stops are referred to by their position in the (sorted) trips and stops tables of the
+ * feed, so the store must always be used with the feed it was created from.
+ * <p>
+ * Not all code reads the columns directly yet: building the Trips and the transit graph and the legs of a response
+ * still create StopTime objects via {@link #getOrderedStopTimesForTrip(String)}, because
+ * {@link GTFSFeed#interpolateStopTimes(StopTime[])} and the code after it work on StopTime objects. And applying a
+ * realtime trip update still clones the stop times of the MapDB table, as the updated stop times need all columns,
+ * e.g. stop_headsign.
+ */
+public class StopTimesStore {
+
+    private static final int STOP = 0, STOP_SEQUENCE = 4, ARRIVAL_TIME = 8, DEPARTURE_TIME = 12, PICKUP_TYPE = 16, DROP_OFF_TYPE = 20;
+    private static final int ROW_BYTES = 24;
+
+    private final DataAccess tripOffsets;
+    private final DataAccess rows;
+    private final ObjectIntHashMap<String> tripIndex = new ObjectIntHashMap<>();
+    private String[] tripIds;
+    private String[] stopIds;
+    private int rowCount;
+
+    public StopTimesStore(Directory dir, String feedId) {
+        tripOffsets = dir.create("pt_stop_time_trips_" + feedId, dir.getDefaultType("pt_stop_time_trips_" + feedId, true), -1);
+        rows = dir.create("pt_stop_times_" + feedId, dir.getDefaultType("pt_stop_times_" + feedId, true), -1);
+    }
+
+    /**
+     * Copies all stop times of the given feed into this store.
+     */
+    public void create(GTFSFeed feed) {
+        initIds(feed);
+        ObjectIntHashMap<String> stopIndex = new ObjectIntHashMap<>(stopIds.length);
+        for (int i = 0; i < stopIds.length; i++) {
+            stopIndex.put(stopIds[i], i);
+        }
+        tripOffsets.create(4L * (tripIds.length + 1));
+        rows.create(100L * ROW_BYTES);
+        int row = 0;
+        for (int trip = 0; trip < tripIds.length; trip++) {
+            tripOffsets.setInt(4L * trip, row);
+            for (StopTime stopTime : feed.getOrderedStopTimesForTrip(tripIds[trip])) {
+                long pointer = (long) row * ROW_BYTES;
+                rows.ensureCapacity(pointer + ROW_BYTES);
+                rows.setInt(pointer + STOP, stopIndex.getOrDefault(stopTime.stop_id, -1));
+                rows.setInt(pointer + STOP_SEQUENCE, stopTime.stop_sequence);
+                rows.setInt(pointer + ARRIVAL_TIME, stopTime.arrival_time);
+                rows.setInt(pointer + DEPARTURE_TIME, stopTime.departure_time);
+                rows.setInt(pointer + PICKUP_TYPE, stopTime.pickup_type);
+                rows.setInt(pointer + DROP_OFF_TYPE, stopTime.drop_off_type);
+                row++;
+            }
+        }
+        tripOffsets.setInt(4L * tripIds.length, row);
+        rowCount = row;
+    }
+
+    public boolean loadExisting(GTFSFeed feed) {
+        if (!tripOffsets.loadExisting() || !rows.loadExisting())
+            return false;
+        initIds(feed);
+        if (tripOffsets.getHeader(0) != tripIds.length || tripOffsets.getHeader(4) != stopIds.length)
+            throw new IllegalStateException("Stop times " + rows.getName() + " do not belong to the feed " + feed.feedId
+                    + ", trips: " + tripOffsets.getHeader(0) + " vs. " + tripIds.length + ", stops: " + tripOffsets.getHeader(4) + " vs. " + stopIds.length);
+        rowCount = rows.getHeader(0);
+        return true;
+    }
+
+    private void initIds(GTFSFeed feed) {
+        tripIds = feed.trips.keySet().toArray(new String[0]);
+        stopIds = feed.stops.keySet().toArray(new String[0]);
+        tripIndex.clear();
+        for (int i = 0; i < tripIds.length; i++) {
+            tripIndex.put(tripIds[i], i);
+        }
+    }
+
+    public void flush() {
+        tripOffsets.setHeader(0, tripIds.length);
+        tripOffsets.setHeader(4, stopIds.length);
+        rows.setHeader(0, rowCount);
+        tripOffsets.flush();
+        rows.flush();
+    }
+
+    public void close() {
+        tripOffsets.close();
+        rows.close();
+    }
+
+    /**
+     * @return the index of the trip or -1 if the feed has no trip with this id
+     */
+    public int getTripIndex(String tripId) {
+        return tripIndex.getOrDefault(tripId, -1);
+    }
+
+    public String getTripId(int trip) {
+        return tripIds[trip];
+    }
+
+    public int getTripCount() {
+        return tripIds.length;
+    }
+
+    public int getFirstRow(int trip) {
+        return tripOffsets.getInt(4L * trip);
+    }
+
+    /**
+     * @return the row after the last stop time of the trip
+     */
+    public int getEndRow(int trip) {
+        return tripOffsets.getInt(4L * (trip + 1));
+    }
+
+    /**
+     * @return the row of the stop time with the given stop_sequence or -1 if the trip does not have it
+     */
+    public int findRow(int trip, int stopSequence) {
+        int low = getFirstRow(trip);
+        int high = getEndRow(trip) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midSequence = getStopSequence(mid);
+            if (midSequence < stopSequence)
+                low = mid + 1;
+            else if (midSequence > stopSequence)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    public String getStopId(int row) {
+        int stop = rows.getInt((long) row * ROW_BYTES + STOP);
+        return stop < 0 ? null : stopIds[stop];
+    }
+
+    public int getStopSequence(int row) {
+        return rows.getInt((long) row * ROW_BYTES + STOP_SEQUENCE);
+    }
+
+    public int getArrivalTime(int row) {
+        return rows.getInt((long) row * ROW_BYTES + ARRIVAL_TIME);
+    }
+
+    public int getDepartureTime(int row) {
+        return rows.getInt((long) row * ROW_BYTES + DEPARTURE_TIME);
+    }
+
+    public int getPickupType(int row) {
+        return rows.getInt((long) row * ROW_BYTES + PICKUP_TYPE);
+    }
+
+    public int getDropOffType(int row) {
+        return rows.getInt((long) row * ROW_BYTES + DROP_OFF_TYPE);
+    }
+
+    /**
+     * @return the stop time with the given trip_id and stop_sequence or null if it does not exist. Unlike the MapDB
+     * stop_times table this only fills the columns contained in this store.
+     */
+    public StopTime getStopTime(String tripId, int stopSequence) {
+        int trip = getTripIndex(tripId);
+        if (trip < 0)
+            return null;
+        int row = findRow(trip, stopSequence);
+        return row < 0 ? null : toStopTime(tripId, row);
+    }
+
+    /**
+     * @return new StopTime objects for the stop times of the trip in the order of their stop_sequence. They can be
+     * modified, e.g. by {@link GTFSFeed#interpolateStopTimes(StopTime[])}.
+     */
+    public StopTime[] getOrderedStopTimesForTrip(String tripId) {
+        int trip = getTripIndex(tripId);
+        if (trip < 0)
+            return new StopTime[0];
+        int firstRow = getFirstRow(trip);
+        StopTime[] stopTimes = new StopTime[getEndRow(trip) - firstRow];
+        for (int i = 0; i < stopTimes.length; i++) {
+            stopTimes[i] = toStopTime(tripId, firstRow + i);
+        }
+        return stopTimes;
+    }
+
+    private StopTime toStopTime(String tripId, int row) {
+        StopTime stopTime = new StopTime();
+        stopTime.trip_id = tripId;
+        stopTime.stop_id = getStopId(row);
+        stopTime.stop_sequence = getStopSequence(row);
+        stopTime.arrival_time = getArrivalTime(row);
+        stopTime.departure_time = getDepartureTime(row);
+        stopTime.pickup_type = getPickupType(row);
+        stopTime.drop_off_type = getDropOffType(row);
+        return stopTime;
+    }
+}
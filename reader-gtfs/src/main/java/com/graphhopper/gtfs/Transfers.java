@@ -34,11 +34,33 @@ public class Transfers {
     private final Map<String, Set<String>> routesByStop;
 
     public Transfers(GTFSFeed feed) {
+        this(feed, null);
+    }
+
+    /**
+     * @param stopTimes the stop times of the feed or null to read them from the stop_times table of the feed, which
+     *                  is much slower as every stop time has to be deserialized
+     */
+    public Transfers(GTFSFeed feed, StopTimesStore stopTimes) {
         this.transfersToStop = explodeTransfers(feed).collect(Collectors.groupingBy(t -> t.to_stop_id));
         this.transfersFromStop = explodeTransfers(feed).collect(Collectors.groupingBy(t -> t.from_stop_id));
-        this.routesByStop = GTFSFeed.stream(feed.stop_times.values())
+        this.routesByStop = stopTimes == null ? GTFSFeed.stream(feed.stop_times.values())
                 .collect(Collectors.groupingBy(stopTime -> stopTime.stop_id,
-                        Collectors.mapping(stopTime -> feed.trips.get(stopTime.trip_id).route_id, Collectors.toSet())));
+                        Collectors.mapping(stopTime -> feed.trips.get(stopTime.trip_id).route_id, Collectors.toSet())))
+                : findRoutesByStop(feed, stopTimes);
+    }
+
+    private static Map<String, Set<String>> findRoutesByStop(GTFSFeed feed, StopTimesStore stopTimes) {
+        Map<String, Set<String>> routesByStop = new HashMap<>();
+        for (int trip = 0; trip < stopTimes.getTripCount(); trip++) {
+            String routeId = feed.trips.get(stopTimes.getTripId(trip)).route_id;
+            for (int row = stopTimes.getFirstRow(trip); row < stopTimes.getEndRow(trip); row++) {
+                String stopId = stopTimes.getStopId(row);
+                if (stopId != null)
+                    routesByStop.computeIfAbsent(stopId, k -> new HashSet<>()).add(routeId);
+            }
+        }
+        return routesByStop;
     }
 
     private Stream<Transfer> explodeTransfers(GTFSFeed feed) {
@@ -185,8 +185,7 @@ public class TripBasedRouter {
                     break;
                 Trips.TripAtStopTime transferOrigin = new Trips.TripAtStopTime(enqueuedTripSegment.tripPointer.idx, stopTime.stop_sequence);
                 logger.debug("  {}", print(transferOrigin, tripTransfers, ARRIVAL));
-                Collection<Trips.TripAtStopTime> transferDestinations = gtfsStorage.tripTransfers.getTripTransfers(enqueuedTripSegment.serviceDay).get(transferOrigin);
-                if (transferDestinations == null) continue; // currently if we didn't build the service day.
+                Collection<Trips.TripAtStopTime> transferDestinations = gtfsStorage.tripTransfers.getTripTransfers(enqueuedTripSegment.serviceDay, transferOrigin);
                 for (Trips.TripAtStopTime transferDestination : transferDestinations) {
                     GTFSFeed.StopTimesForTripWithTripPatternKey destinationTripPointer = tripTransfers.getTrip(transferDestination.tripIdx);
                     GTFSFeed destinationFeed = gtfsStorage.getGtfsFeeds().get(destinationTripPointer.feedId);
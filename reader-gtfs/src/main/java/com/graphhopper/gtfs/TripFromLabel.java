@@ -222,6 +222,7 @@ class TripFromLabel {
         private final GtfsRealtime.TripDescriptor tripDescriptor;
         private final List<Trip.Stop> stops = new ArrayList<>();
         private final GTFSFeed gtfsFeed;
+        private final StopTimesStore stopTimes;
         private Instant boardTime;
         private Instant arrivalTimeFromHopEdge;
         private Optional<Instant> updatedArrival;
@@ -232,6 +233,7 @@ class TripFromLabel {
         StopsFromBoardHopDwellEdges(String feedId, GtfsRealtime.TripDescriptor tripDescriptor) {
             this.tripDescriptor = tripDescriptor;
             this.gtfsFeed = gtfsStorage.getGtfsFeeds().get(feedId);
+            this.stopTimes = gtfsStorage.getStopTimes(feedId);
             if (this.tripUpdate != null) {
                 validateTripUpdate(this.tripUpdate);
             }
@@ -242,7 +244,7 @@ class TripFromLabel {
                 case BOARD: {
                     boardTime = Instant.ofEpochMilli(t.label.currentTime);
                     stopSequence = t.edge.getStopSequence();
-                    stopTime = realtimeFeed.getStopTime(gtfsFeed, tripDescriptor, boardTime, stopSequence);
+                    stopTime = realtimeFeed.getStopTime(gtfsFeed, stopTimes, tripDescriptor, boardTime, stopSequence);
                     tripUpdate = realtimeFeed.getTripUpdate(gtfsFeed, tripDescriptor, boardTime).orElse(null);
                     Instant plannedDeparture = Instant.ofEpochMilli(t.label.currentTime);
                     Optional<Instant> updatedDeparture = getDepartureDelay(stopSequence).map(delay -> plannedDeparture.plus(delay, SECONDS));
@@ -255,7 +257,7 @@ class TripFromLabel {
                 }
                 case HOP: {
                     stopSequence = t.edge.getStopSequence();
-                    stopTime = realtimeFeed.getStopTime(gtfsFeed, tripDescriptor, boardTime, stopSequence);
+                    stopTime = realtimeFeed.getStopTime(gtfsFeed, stopTimes, tripDescriptor, boardTime, stopSequence);
                     arrivalTimeFromHopEdge = Instant.ofEpochMilli(t.label.currentTime);
                     updatedArrival = getArrivalDelay(stopSequence).map(delay -> arrivalTimeFromHopEdge.plus(delay, SECONDS));
                     break;
@@ -326,7 +328,7 @@ class TripFromLabel {
 
         private void validateTripUpdate(GtfsReader.TripWithStopTimes tripUpdate) {
             try {
-                Iterable<StopTime> interpolatedStopTimesForTrip = gtfsFeed.getInterpolatedStopTimesForTrip(tripUpdate.trip.trip_id);
+                Iterable<StopTime> interpolatedStopTimesForTrip = gtfsFeed.interpolateStopTimes(stopTimes.getOrderedStopTimesForTrip(tripUpdate.trip.trip_id));
                 long nStopTimes = StreamSupport.stream(interpolatedStopTimesForTrip.spliterator(), false).count();
                 logger.trace("Original stop times: {} Updated stop times: {}", nStopTimes, tripUpdate.stopTimes.size());
                 if (nStopTimes != tripUpdate.stopTimes.size()) {
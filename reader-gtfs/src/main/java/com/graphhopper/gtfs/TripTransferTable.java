@@ -0,0 +1,227 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.conveyal.gtfs.GTFSFeed;
+import com.conveyal.gtfs.model.Service;
+import com.google.common.collect.ArrayListMultimap;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * The reduced trip transfers of the trip-based router for a range of service days. The transfers of a day only
+ * depend on the services that are active on it and on the time zone offsets of the feeds, so days that agree in
+ * these are put into the same day class and the transfers are only computed once per class. Every transfer is stored
+ * once with a bitset of the day classes it is valid for.
+ * <p>
+ * The transfers from a trip at a stop_sequence are stored consecutively. The trip indices are the ones of
+ * {@link Trips}, so the table must be used with the Trips it was created from.
+ */
+public class TripTransferTable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TripTransferTable.class);
+
+    // the day class of every day, -1 for days without transfers
+    private final DataAccess days;
+    // the first slot of every trip, followed by the first transfer of every slot, where a slot is a trip at a stop_sequence
+    private final DataAccess origins;
+    // the destination trip and stop_sequence of every transfer, followed by the bitset of the day classes
+    private final DataAccess transfers;
+    private long firstDay;
+    private int dayCount;
+    private int classCount;
+    private int tripCount;
+    private int transferBytes;
+
+    public TripTransferTable(Directory dir) {
+        days = dir.create("pt_trip_transfer_days", dir.getDefaultType("pt_trip_transfer_days", true), -1);
+        origins = dir.create("pt_trip_transfer_origins", dir.getDefaultType("pt_trip_transfer_origins", true), -1);
+        transfers = dir.create("pt_trip_transfers", dir.getDefaultType("pt_trip_transfers", true), -1);
+    }
+
+    /**
+     * Computes the transfers for all days from the first to the last of the given days. Days in between that are not
+     * in the collection have no transfers.
+     */
+    public void create(GtfsStorage gtfsStorage, Collection<LocalDate> trafficDays, Map<String, Transfers> allTransfers, ArrayListMultimap<Integer, GtfsStorage.FeedIdWithStopId> stopsForStationNode) {
+        Trips trips = gtfsStorage.tripTransfers;
+        tripCount = trips.trips.size();
+        firstDay = trafficDays.stream().mapToLong(LocalDate::toEpochDay).min().orElse(0);
+        dayCount = trafficDays.isEmpty() ? 0 : (int) (trafficDays.stream().mapToLong(LocalDate::toEpochDay).max().getAsLong() - firstDay + 1);
+
+        int[] classOfDay = new int[dayCount];
+        Arrays.fill(classOfDay, -1);
+        Map<List<Object>, Integer> classes = new HashMap<>();
+        List<LocalDate> representativeDays = new ArrayList<>();
+        Map<String, Service> services = new TreeMap<>();
+        for (GTFSFeed.StopTimesForTripWithTripPatternKey trip : trips.trips) {
+            services.putIfAbsent(trip.feedId + ":" + trip.service.service_id, trip.service);
+        }
+        Map<String, ZoneId> zoneIds = new TreeMap<>();
+        gtfsStorage.getGtfsFeeds().forEach((feedId, feed) -> zoneIds.put(feedId, ZoneId.of(feed.agency.values().stream().findFirst().get().agency_timezone)));
+        for (LocalDate trafficDay : new TreeSet<>(trafficDays)) {
+            List<Object> key = dayClassKey(trafficDay, services, zoneIds);
+            Integer dayClass = classes.get(key);
+            if (dayClass == null) {
+                dayClass = classes.size();
+                classes.put(key, dayClass);
+                representativeDays.add(trafficDay);
+            }
+            classOfDay[(int) (trafficDay.toEpochDay() - firstDay)] = dayClass;
+        }
+        classCount = classes.size();
+        int classInts = (classCount + 31) / 32;
+        transferBytes = 4 * (2 + classInts);
+
+        // the destinations of every origin, in the order in which they were found, with their day classes
+        Map<Trips.TripAtStopTime, LinkedHashMap<Trips.TripAtStopTime, BitSet>> all = new HashMap<>();
+        for (int dayClass = 0; dayClass < classCount; dayClass++) {
+            LocalDate trafficDay = representativeDays.get(dayClass);
+            LOGGER.info("Computing trip-based transfers for day class {}/{}, e.g. {}", dayClass + 1, classCount, trafficDay);
+            Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> tripTransfers = new HashMap<>();
+            trips.findAllTripTransfersInto(tripTransfers, trafficDay, allTransfers, stopsForStationNode);
+            for (Map.Entry<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> e : tripTransfers.entrySet()) {
+                LinkedHashMap<Trips.TripAtStopTime, BitSet> destinations = all.computeIfAbsent(e.getKey(), k -> new LinkedHashMap<>());
+                for (Trips.TripAtStopTime destination : e.getValue()) {
+                    destinations.computeIfAbsent(destination, k -> new BitSet()).set(dayClass);
+                }
+            }
+        }
+
+        days.create(4L * Math.max(dayCount, 1));
+        for (int i = 0; i < dayCount; i++) {
+            days.setInt(4L * i, classOfDay[i]);
+        }
+        origins.create(4L * (tripCount + 1));
+        int slot = 0;
+        for (int trip = 0; trip < tripCount; trip++) {
+            origins.setInt(4L * trip, slot);
+            slot += trips.getTrip(trip).stopTimes.size();
+        }
+        int slotCount = slot;
+        origins.ensureCapacity(4L * (tripCount + slotCount + 1));
+        transfers.create(100L * transferBytes);
+        int transfer = 0;
+        for (int trip = 0; trip < tripCount; trip++) {
+            int stopTimes = trips.getTrip(trip).stopTimes.size();
+            for (int stopSequence = 0; stopSequence < stopTimes; stopSequence++) {
+                origins.setInt(4L * (tripCount + getSlot(trip, stopSequence)), transfer);
+                Map<Trips.TripAtStopTime, BitSet> destinations = all.get(new Trips.TripAtStopTime(trip, stopSequence));
+                if (destinations == null)
+                    continue;
+                for (Map.Entry<Trips.TripAtStopTime, BitSet> destination : destinations.entrySet()) {
+                    long pointer = (long) transfer * transferBytes;
+                    transfers.ensureCapacity(pointer + transferBytes);
+                    transfers.setInt(pointer, destination.getKey().tripIdx);
+                    transfers.setInt(pointer + 4, destination.getKey().stop_sequence);
+                    long[] bits = destination.getValue().toLongArray();
+                    for (int i = 0; i < classInts; i++) {
+                        long word = i / 2 < bits.length ? bits[i / 2] : 0;
+                        transfers.setInt(pointer + 8 + 4L * i, (int) (i % 2 == 0 ? word : word >>> 32));
+                    }
+                    transfer++;
+                }
+            }
+        }
+        origins.setInt(4L * (tripCount + slotCount), transfer);
+        LOGGER.info("Stored {} trip-based transfers for {} days in {} day classes", transfer, dayCount, classCount);
+    }
+
+    private static List<Object> dayClassKey(LocalDate trafficDay, Map<String, Service> services, Map<String, ZoneId> zoneIds) {
+        List<Object> key = new ArrayList<>();
+        for (Map.Entry<String, Service> service : services.entrySet()) {
+            if (service.getValue().activeOn(trafficDay))
+                key.add(service.getKey());
+        }
+        // arrival times can be after midnight, so the offsets of the next day matter, too
+        for (ZoneId zoneId : zoneIds.values()) {
+            key.add(zoneId.getRules().getOffset(trafficDay.atTime(12, 0)));
+            key.add(zoneId.getRules().getOffset(trafficDay.plusDays(1).atTime(12, 0)));
+        }
+        return key;
+    }
+
+    public boolean loadExisting() {
+        if (!days.loadExisting() || !origins.loadExisting() || !transfers.loadExisting())
+            return false;
+        firstDay = (long) days.getHeader(0) << 32 | (days.getHeader(4) & 0xFFFFFFFFL);
+        dayCount = days.getHeader(8);
+        classCount = days.getHeader(12);
+        tripCount = origins.getHeader(0);
+        transferBytes = transfers.getHeader(0);
+        return true;
+    }
+
+    public void flush() {
+        days.setHeader(0, (int) (firstDay >>> 32));
+        days.setHeader(4, (int) firstDay);
+        days.setHeader(8, dayCount);
+        days.setHeader(12, classCount);
+        origins.setHeader(0, tripCount);
+        transfers.setHeader(0, transferBytes);
+        days.flush();
+        origins.flush();
+        transfers.flush();
+    }
+
+    public void close() {
+        days.close();
+        origins.close();
+        transfers.close();
+    }
+
+    public int getTripCount() {
+        return tripCount;
+    }
+
+    /**
+     * @return the reduced transfers from the given trip at the given stop_sequence on the given day. The list is empty
+     * if the day is not covered by this table.
+     */
+    public List<Trips.TripAtStopTime> getTransfers(LocalDate trafficDay, Trips.TripAtStopTime origin) {
+        long day = trafficDay.toEpochDay() - firstDay;
+        if (day < 0 || day >= dayCount)
+            return Collections.emptyList();
+        int dayClass = days.getInt(4L * day);
+        if (dayClass < 0)
+            return Collections.emptyList();
+        int slot = getSlot(origin.tripIdx, origin.stop_sequence);
+        int from = origins.getInt(4L * (tripCount + slot));
+        int to = origins.getInt(4L * (tripCount + slot + 1));
+        List<Trips.TripAtStopTime> result = new ArrayList<>(to - from);
+        long bitOffset = 8 + 4L * (dayClass >>> 5);
+        int mask = 1 << (dayClass & 31);
+        for (int transfer = from; transfer < to; transfer++) {
+            long pointer = (long) transfer * transferBytes;
+            if ((transfers.getInt(pointer + bitOffset) & mask) != 0)
+                result.add(new Trips.TripAtStopTime(transfers.getInt(pointer), transfers.getInt(pointer + 4)));
+        }
+        return result;
+    }
+
+    private int getSlot(int trip, int stopSequence) {
+        return origins.getInt(4L * trip) + stopSequence;
+    }
+}
@@ -19,7 +19,6 @@ public class Trips {
 
     public final List<GTFSFeed.StopTimesForTripWithTripPatternKey> trips;
     private Map<GtfsStorage.FeedIdWithStopId, Map<String, List<TripAtStopTime>>> boardingsForStopByPattern = new ConcurrentHashMap<>();
-    private Map<LocalDate, Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>>> tripTransfersPerDay = new ConcurrentHashMap<>();
     public int idx;
 
     public Trips(GtfsStorage gtfsStorage) {
@@ -28,6 +27,7 @@ public class Trips {
         idx = 0;
         for (Map.Entry<String, GTFSFeed> entry : this.gtfsStorage.getGtfsFeeds().entrySet()) {
             GTFSFeed feed = entry.getValue();
+            StopTimesStore stopTimes = gtfsStorage.getStopTimes(entry.getKey());
             Map<TripPatternKey, Pattern> patterns = new LinkedHashMap<>();
             int nextPatternId = 1;
             for (Trip trip : feed.trips.values()) {
@@ -35,7 +35,7 @@ public class Trips {
                 Route route = feed.routes.get(trip.route_id);
                 Service service = feed.services.get(trip.service_id);
                 List<StopTime> orderedStopTimesForTripWithPadding = new ArrayList<>();
-                List<StopTime> interpolatedStopTimesForTrip = feed.getInterpolatedStopTimesForTrip(trip.trip_id);
+                List<StopTime> interpolatedStopTimesForTrip = feed.interpolateStopTimes(stopTimes.getOrderedStopTimesForTrip(trip.trip_id));
                 if (interpolatedStopTimesForTrip.isEmpty()) {
                     System.out.println("empty trip: "+trip.trip_id);
                     continue;
@@ -218,12 +218,15 @@ public class Trips {
             });
     }
 
-    public Map<LocalDate, Map<TripAtStopTime, Collection<TripAtStopTime>>> getTripTransfers() {
-        return tripTransfersPerDay;
-    }
-
-    public Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> getTripTransfers(LocalDate trafficDay) {
-        return tripTransfersPerDay.computeIfAbsent(trafficDay, k -> new TreeMap<>());
+    /**
+     * @return the reduced transfers from the given trip at the given stop_sequence on the given day, which are empty if
+     * no {@link TripTransferTable} was created for this day
+     */
+    public Collection<TripAtStopTime> getTripTransfers(LocalDate trafficDay, TripAtStopTime origin) {
+        TripTransferTable tripTransferTable = gtfsStorage.getTripTransferTable();
+        if (tripTransferTable == null)
+            return Collections.emptyList();
+        return tripTransferTable.getTransfers(trafficDay, origin);
     }
 
     public GTFSFeed.StopTimesForTripWithTripPatternKey getTrip(int tripIdx) {
@@ -250,6 +253,11 @@ public class Trips {
             return tripIdx == that.tripIdx && stop_sequence == that.stop_sequence;
         }
 
+        @Override
+        public int hashCode() {
+            return 31 * tripIdx + stop_sequence;
+        }
+
         @Override
         public String toString() {
             return "TripAtStopTime{" +
@@ -102,7 +102,7 @@ public interface AnotherAgencyIT<T extends PtRouter> {
         public void testMuseum() {
             Trips tripTransfers = graphHopperGtfs().getGtfsStorage().tripTransfers;
             int tripIdx = findTrip("MUSEUMAIRPORT1", LocalTime.of(10, 40), 2, ARRIVAL);
-            Collection<Trips.TripAtStopTime> transferDestinations = tripTransfers.getTripTransfers(LocalDate.of(2007, 1, 1)).get(new Trips.TripAtStopTime(tripIdx, 2));
+            Collection<Trips.TripAtStopTime> transferDestinations = tripTransfers.getTripTransfers(LocalDate.of(2007, 1, 1), new Trips.TripAtStopTime(tripIdx, 2));
             assertThat(transferDestinations).extracting(td -> print(td, tripTransfers, DEPARTURE)).contains("8 AB3_NO_BLOCK @ 1 BEATTY_AIRPORT 50400");
         }
 
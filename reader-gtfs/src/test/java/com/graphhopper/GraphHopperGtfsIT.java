@@ -20,9 +20,13 @@ package com.graphhopper;
 
 import com.conveyal.gtfs.GTFSFeed;
 import com.conveyal.gtfs.model.Stop;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimaps;
 import com.graphhopper.gtfs.*;
 import com.graphhopper.gtfs.Trips;
 import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.GHDirectory;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.Instruction;
 import com.graphhopper.util.TranslationMap;
@@ -34,9 +38,7 @@ import org.junit.jupiter.api.Test;
 import java.io.File;
 import java.math.BigDecimal;
 import java.time.*;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -104,10 +106,41 @@ public interface GraphHopperGtfsIT<T extends PtRouter> {
         public void testTransferForRoute5IsAvailable() {
             Trips tripTransfers = graphHopperGtfs().getGtfsStorage().tripTransfers;
             int tripIdx = findTrip("STBA", LocalTime.of(7, 50), 2, ARRIVAL);
-            Collection<Trips.TripAtStopTime> transferDestinations = tripTransfers.getTripTransfers(LocalDate.of(2007, 1, 1)).get(new Trips.TripAtStopTime(tripIdx, 2));
+            Collection<Trips.TripAtStopTime> transferDestinations = tripTransfers.getTripTransfers(LocalDate.of(2007, 1, 1), new Trips.TripAtStopTime(tripIdx, 2));
             assertThat(transferDestinations).extracting(td -> print(td, tripTransfers, DEPARTURE)).contains("4 AB1 @ 1 BEATTY_AIRPORT 28800");
         }
 
+        @Test
+        public void testStoredTripTransfersMatchComputedOnes() {
+            GtfsStorage gtfsStorage = graphHopperGtfs().getGtfsStorage();
+            Trips tripTransfers = gtfsStorage.tripTransfers;
+            Map<String, Transfers> allTransfers = new HashMap<>();
+            gtfsStorage.getGtfsFeeds().forEach((id, feed) -> allTransfers.put(id, new Transfers(feed)));
+            ArrayListMultimap<Integer, GtfsStorage.FeedIdWithStopId> stopsForStationNode = Multimaps.invertFrom(Multimaps.forMap(gtfsStorage.getStationNodes()), ArrayListMultimap.create());
+            // the table is memory-mapped again, like after a restart
+            TripTransferTable loadedTable = new TripTransferTable(new GHDirectory(GRAPH_LOC, DAType.MMAP_RO));
+            assertTrue(loadedTable.loadExisting());
+            for (LocalDate trafficDay : List.of(LocalDate.of(2007, 1, 1), LocalDate.of(2007, 1, 2), LocalDate.of(2007, 1, 6), LocalDate.of(2007, 1, 7))) {
+                Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> expected = new TreeMap<>();
+                tripTransfers.findAllTripTransfersInto(expected, trafficDay, allTransfers, stopsForStationNode);
+                assertFalse(expected.isEmpty());
+                for (GTFSFeed.StopTimesForTripWithTripPatternKey trip : tripTransfers.trips) {
+                    for (int stopSequence = 0; stopSequence < trip.stopTimes.size(); stopSequence++) {
+                        Trips.TripAtStopTime origin = new Trips.TripAtStopTime(trip.idx, stopSequence);
+                        // the order of the destinations does not matter
+                        Set<Trips.TripAtStopTime> expectedDestinations = new TreeSet<>(expected.getOrDefault(origin, Collections.emptyList()));
+                        assertEquals(expectedDestinations, new TreeSet<>(tripTransfers.getTripTransfers(trafficDay, origin)), trafficDay + " " + origin);
+                        assertEquals(expectedDestinations, new TreeSet<>(loadedTable.getTransfers(trafficDay, origin)), trafficDay + " " + origin);
+                    }
+                }
+            }
+            loadedTable.close();
+            // not a schedule day
+            int tripIdx = findTrip("STBA", LocalTime.of(7, 50), 2, ARRIVAL);
+            assertTrue(tripTransfers.getTripTransfers(LocalDate.of(2007, 1, 3), new Trips.TripAtStopTime(tripIdx, 2)).isEmpty());
+            assertTrue(tripTransfers.getTripTransfers(LocalDate.of(2008, 1, 1), new Trips.TripAtStopTime(tripIdx, 2)).isEmpty());
+        }
+
         private int findTrip(String tripId, LocalTime time, int stopSequence, Trips.TripAtStopTime.ArrivalDeparture arrivalDeparture) {
             Trips tripTransfers = graphHopperGtfs().getGtfsStorage().tripTransfers;
             int tripIdx = 0;
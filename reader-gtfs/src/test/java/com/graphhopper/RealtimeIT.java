@@ -18,11 +18,9 @@
 
 package com.graphhopper;
 
+import com.conveyal.gtfs.GTFSFeed;
 import com.google.transit.realtime.GtfsRealtime;
-import com.graphhopper.gtfs.GraphHopperGtfs;
-import com.graphhopper.gtfs.PtRouter;
-import com.graphhopper.gtfs.PtRouterImpl;
-import com.graphhopper.gtfs.Request;
+import com.graphhopper.gtfs.*;
 import com.graphhopper.routing.TestProfiles;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.TranslationMap;
@@ -33,7 +31,9 @@ import org.junit.jupiter.api.Test;
 import java.io.File;
 import java.math.BigDecimal;
 import java.time.*;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.google.transit.realtime.GtfsRealtime.TripDescriptor.ScheduleRelationship.ADDED;
 import static com.google.transit.realtime.GtfsRealtime.TripUpdate.StopTimeUpdate.ScheduleRelationship.SCHEDULED;
@@ -155,6 +155,36 @@ public class RealtimeIT {
         assertEquals(LocalDateTime.parse("2007-01-01T07:49:00").atZone(zoneId).toInstant(), impossiblePtLeg.stops.get(impossiblePtLeg.stops.size() - 1).predictedArrivalTime.toInstant(), "..which is very late today");
     }
 
+    @Test
+    public void testUnknownTrip() {
+        final double FROM_LAT = 36.914893, FROM_LON = -116.76821; // NADAV stop
+        final double TO_LAT = 36.914944, TO_LON = -116.761472; // NANAA stop
+        Request ghRequest = new Request(
+                FROM_LAT, FROM_LON,
+                TO_LAT, TO_LON
+        );
+        ghRequest.setEarliestDepartureTime(LocalDateTime.of(2007, 1, 1, 6, 44).atZone(zoneId).toInstant());
+
+        final GtfsRealtime.FeedMessage.Builder feedMessageBuilder = GtfsRealtime.FeedMessage.newBuilder();
+        feedMessageBuilder.setHeader(GtfsRealtime.FeedHeader.newBuilder()
+                .setGtfsRealtimeVersion("1")
+                .setTimestamp(ZonedDateTime.of(LocalDate.of(2007, 1, 1), LocalTime.of(0, 0), zoneId).toEpochSecond()));
+        GHResponse expected = graphHopperFactory.createWith(feedMessageBuilder.build()).route(ghRequest);
+
+        // the update of a trip that is not in the static feed is ignored
+        feedMessageBuilder.addEntityBuilder()
+                .setId("1")
+                .getTripUpdateBuilder()
+                .setTrip(GtfsRealtime.TripDescriptor.newBuilder().setTripId("NO_SUCH_TRIP").setStartTime("06:00:00"))
+                .addStopTimeUpdateBuilder()
+                .setScheduleRelationship(SCHEDULED)
+                .setStopSequence(3)
+                .setArrival(GtfsRealtime.TripUpdate.StopTimeEvent.newBuilder().setDelay(3600).build());
+        GHResponse response = graphHopperFactory.createWith(feedMessageBuilder.build()).route(ghRequest);
+        assertFalse(response.hasErrors(), response.getErrors().toString());
+        assertEquals(expected.getBest().getTime(), response.getBest().getTime());
+    }
+
     @Test
     public void testCanUseDelayedTripWhenIAmLateToo() {
         final double FROM_LAT = 36.914893, FROM_LON = -116.76821; // NADAV stop
@@ -186,6 +216,121 @@ public class RealtimeIT {
         assertEquals(time(0, 5), response.getBest().getTime(), 0.1, "I am two minutes late for my bus, but the bus is two minutes late, too, so I catch it!");
     }
 
+    @Test
+    public void testIncrementalUpdates() {
+        final double FROM_LAT = 36.914893, FROM_LON = -116.76821; // NADAV stop
+        final double TO_LAT = 36.914944, TO_LON = -116.761472; // NANAA stop
+        Request ghRequest = new Request(
+                FROM_LAT, FROM_LON,
+                TO_LAT, TO_LON
+        );
+        ghRequest.setEarliestDepartureTime(LocalDateTime.of(2007, 1, 1, 6, 46).atZone(zoneId).toInstant());
+
+        Map<String, Transfers> transfers = new HashMap<>();
+        for (Map.Entry<String, GTFSFeed> entry : graphHopperGtfs.getGtfsStorage().getGtfsFeeds().entrySet()) {
+            transfers.put(entry.getKey(), new Transfers(entry.getValue()));
+        }
+        RealtimeFeedUpdater updater = new RealtimeFeedUpdater(graphHopperGtfs.getGtfsStorage(), transfers);
+
+        RealtimeFeed realtimeFeed = updater.update(Map.of("gtfs_0", delayCity2(120)));
+        assertFalse(updater.getLastStatistics().isReused());
+        assertEquals(1, updater.getLastStatistics().getChangedTrips());
+        assertEquals(time(0, 5), graphHopperFactory.createWith(realtimeFeed).route(ghRequest).getBest().getTime(), 0.1, "The bus is two minutes late, so I catch it");
+
+        RealtimeFeed unchangedFeed = updater.update(Map.of("gtfs_0", delayCity2(120)));
+        assertTrue(updater.getLastStatistics().isReused());
+        assertEquals(0, updater.getLastStatistics().getChangedTrips());
+        assertEquals(time(0, 5), graphHopperFactory.createWith(unchangedFeed).route(ghRequest).getBest().getTime(), 0.1);
+
+        RealtimeFeed changedFeed = updater.update(Map.of("gtfs_0", delayCity2(60)));
+        assertFalse(updater.getLastStatistics().isReused());
+        assertEquals(1, updater.getLastStatistics().getChangedTrips());
+        assertEquals(time(0, 33), graphHopperFactory.createWith(changedFeed).route(ghRequest).getBest().getTime(), 0.1, "Now the bus is only one minute late and I miss it");
+        // the feeds that were handed out before are not modified
+        assertEquals(time(0, 5), graphHopperFactory.createWith(realtimeFeed).route(ghRequest).getBest().getTime(), 0.1);
+
+        RealtimeFeed emptyFeed = updater.update(Map.of("gtfs_0", delayCity2(0).toBuilder().clearEntity().build()));
+        assertEquals(1, updater.getLastStatistics().getChangedTrips());
+        assertEquals(time(0, 33), graphHopperFactory.createWith(emptyFeed).route(ghRequest).getBest().getTime(), 0.1);
+    }
+
+    @Test
+    public void testIncrementalUpdatesKeepTheOverlayGraph() {
+        final double FROM_LAT = 36.914893, FROM_LON = -116.76821; // NADAV stop
+        final double TO_LAT = 36.914944, TO_LON = -116.761472; // NANAA stop
+        Request ghRequest = new Request(
+                FROM_LAT, FROM_LON,
+                TO_LAT, TO_LON
+        );
+        ghRequest.setEarliestDepartureTime(LocalDateTime.of(2007, 1, 1, 6, 44).atZone(zoneId).toInstant());
+
+        Map<String, Transfers> transfers = new HashMap<>();
+        for (Map.Entry<String, GTFSFeed> entry : graphHopperGtfs.getGtfsStorage().getGtfsFeeds().entrySet()) {
+            transfers.put(entry.getKey(), new Transfers(entry.getValue()));
+        }
+        RealtimeFeedUpdater updater = new RealtimeFeedUpdater(graphHopperGtfs.getGtfsStorage(), transfers);
+        GtfsRealtime.FeedMessage emptyMessage = delayCity2(0).toBuilder().clearEntity().build();
+        RealtimeFeed emptyFeed = updater.update(Map.of("gtfs_0", emptyMessage));
+        assertEquals(time(0, 5), graphHopperFactory.createWith(emptyFeed).route(ghRequest).getBest().getTime(), 0.1);
+
+        // skipping a stop only blocks edges, so the overlay graph is kept
+        GtfsRealtime.FeedMessage.Builder skipMessage = emptyMessage.toBuilder();
+        skipMessage.addEntityBuilder()
+                .setId("1")
+                .getTripUpdateBuilder()
+                .setTrip(GtfsRealtime.TripDescriptor.newBuilder().setTripId("CITY2").setStartTime("06:00:00"))
+                .addStopTimeUpdateBuilder()
+                .setStopSequence(4)
+                .setScheduleRelationship(SKIPPED);
+        RealtimeFeed skipFeed = updater.update(Map.of("gtfs_0", skipMessage.build()));
+        assertEquals(1, updater.getLastStatistics().getChangedTrips());
+        assertFalse(updater.getLastStatistics().isOverlayRebuilt());
+        assertEquals(time(0, 21), graphHopperFactory.createWith(skipFeed).route(ghRequest).getBest().getTime(), 0.1, "I have to continue to STAGECOACH and then go back one stop with the 07:00 bus.");
+
+        RealtimeFeed restoredFeed = updater.update(Map.of("gtfs_0", emptyMessage));
+        assertEquals(1, updater.getLastStatistics().getChangedTrips());
+        assertFalse(updater.getLastStatistics().isOverlayRebuilt());
+        assertEquals(time(0, 5), graphHopperFactory.createWith(restoredFeed).route(ghRequest).getBest().getTime(), 0.1);
+        // the feeds that were handed out before are not modified
+        assertEquals(time(0, 21), graphHopperFactory.createWith(skipFeed).route(ghRequest).getBest().getTime(), 0.1);
+
+        // a delayed departure only adds its own board edge to the overlay graph
+        RealtimeFeed delayedFeed = updater.update(Map.of("gtfs_0", delayCity2(120)));
+        assertFalse(updater.getLastStatistics().isOverlayRebuilt());
+        assertEquals(time(0, 7), graphHopperFactory.createWith(delayedFeed).route(ghRequest).getBest().getTime(), 0.1, "The bus is two minutes late, so I arrive two minutes later");
+
+        ghRequest.setEarliestDepartureTime(LocalDateTime.of(2007, 1, 1, 6, 46).atZone(zoneId).toInstant());
+        assertEquals(time(0, 5), graphHopperFactory.createWith(delayedFeed).route(ghRequest).getBest().getTime(), 0.1, "Because of the delay I can still catch the bus");
+
+        // changing the delay replaces the board edge of the trip
+        RealtimeFeed lessDelayedFeed = updater.update(Map.of("gtfs_0", delayCity2(60)));
+        assertFalse(updater.getLastStatistics().isOverlayRebuilt());
+        assertEquals(time(0, 33), graphHopperFactory.createWith(lessDelayedFeed).route(ghRequest).getBest().getTime(), 0.1, "Now the bus is only one minute late and I miss it");
+        assertEquals(time(0, 5), graphHopperFactory.createWith(delayedFeed).route(ghRequest).getBest().getTime(), 0.1);
+
+        RealtimeFeed punctualFeed = updater.update(Map.of("gtfs_0", emptyMessage));
+        assertFalse(updater.getLastStatistics().isOverlayRebuilt());
+        assertEquals(time(0, 33), graphHopperFactory.createWith(punctualFeed).route(ghRequest).getBest().getTime(), 0.1);
+        ghRequest.setEarliestDepartureTime(LocalDateTime.of(2007, 1, 1, 6, 44).atZone(zoneId).toInstant());
+        assertEquals(time(0, 5), graphHopperFactory.createWith(punctualFeed).route(ghRequest).getBest().getTime(), 0.1);
+    }
+
+    private static GtfsRealtime.FeedMessage delayCity2(int delay) {
+        final GtfsRealtime.FeedMessage.Builder feedMessageBuilder = GtfsRealtime.FeedMessage.newBuilder();
+        feedMessageBuilder.setHeader(GtfsRealtime.FeedHeader.newBuilder()
+                .setGtfsRealtimeVersion("1")
+                .setTimestamp(ZonedDateTime.of(LocalDate.of(2007, 1, 1), LocalTime.of(0, 0), zoneId).toEpochSecond()));
+        feedMessageBuilder.addEntityBuilder()
+                .setId("1")
+                .getTripUpdateBuilder()
+                .setTrip(GtfsRealtime.TripDescriptor.newBuilder().setTripId("CITY2").setStartTime("06:00:00"))
+                .addStopTimeUpdateBuilder()
+                .setScheduleRelationship(SCHEDULED)
+                .setStopSequence(3)
+                .setArrival(GtfsRealtime.TripUpdate.StopTimeEvent.newBuilder().setDelay(delay).build());
+        return feedMessageBuilder.build();
+    }
+
     @Test
     public void testSkipArrivalStop() {
         final double FROM_LAT = 36.914893, FROM_LON = -116.76821; // NADAV stop
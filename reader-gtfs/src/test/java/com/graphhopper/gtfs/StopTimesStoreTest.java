@@ -0,0 +1,91 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.conveyal.gtfs.GTFSFeed;
+import com.conveyal.gtfs.model.StopTime;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.GHDirectory;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StopTimesStoreTest {
+
+    private static final String DIR = "./target/stop-times-store-test";
+    private GTFSFeed feed;
+
+    @BeforeEach
+    public void init() throws IOException {
+        Helper.removeDir(new File(DIR));
+        feed = new GTFSFeed();
+        feed.loadFromZipfileOrDirectory(new File("files/sample-feed"), "");
+    }
+
+    @AfterEach
+    public void close() {
+        feed.close();
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testSameAsMapDB() {
+        StopTimesStore store = new StopTimesStore(new GHDirectory(DIR, DAType.RAM_STORE).create(), "gtfs_0");
+        store.create(feed);
+        store.flush();
+        store.close();
+
+        store = new StopTimesStore(new GHDirectory(DIR, DAType.MMAP_RO), "gtfs_0");
+        assertTrue(store.loadExisting(feed));
+        assertEquals(feed.trips.size(), store.getTripCount());
+        for (String tripId : feed.trips.keySet()) {
+            List<StopTime> expected = new ArrayList<>();
+            feed.getOrderedStopTimesForTrip(tripId).forEach(expected::add);
+            StopTime[] actual = store.getOrderedStopTimesForTrip(tripId);
+            assertEquals(expected.size(), actual.length, tripId);
+            for (int i = 0; i < actual.length; i++) {
+                assertSameStopTime(expected.get(i), actual[i]);
+                assertSameStopTime(expected.get(i), store.getStopTime(tripId, expected.get(i).stop_sequence));
+            }
+            assertEquals(feed.getInterpolatedStopTimesForTrip(tripId).toString(), feed.interpolateStopTimes(actual).toString());
+        }
+        assertNull(store.getStopTime("CITY2", 100));
+        assertNull(store.getStopTime("NO_SUCH_TRIP", 1));
+        assertEquals(0, store.getOrderedStopTimesForTrip("NO_SUCH_TRIP").length);
+        store.close();
+    }
+
+    private static void assertSameStopTime(StopTime expected, StopTime actual) {
+        assertEquals(expected.trip_id, actual.trip_id);
+        assertEquals(expected.stop_id, actual.stop_id);
+        assertEquals(expected.stop_sequence, actual.stop_sequence);
+        assertEquals(expected.arrival_time, actual.arrival_time);
+        assertEquals(expected.departure_time, actual.departure_time);
+        assertEquals(expected.pickup_type, actual.pickup_type);
+        assertEquals(expected.drop_off_type, actual.drop_off_type);
+    }
+}
@@ -29,8 +29,12 @@ import com.graphhopper.jackson.Jackson;
 import com.graphhopper.routing.TestProfiles;
 import com.graphhopper.routing.ch.PrepareContractionHierarchies;
 import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.lm.LMApproximator;
 import com.graphhopper.routing.lm.LMConfig;
+import com.graphhopper.routing.lm.LandmarkStorage;
 import com.graphhopper.routing.lm.PrepareLandmarks;
+import com.graphhopper.routing.subnetwork.EdgeBasedParallelSCC;
+import com.graphhopper.routing.subnetwork.EdgeBasedTarjanSCC;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.routing.weighting.custom.CustomWeighting;
@@ -184,6 +188,7 @@ public class Measurement {
             printGraphDetails(g, vehicle);
             measureGraphTraversal(g, accessEnc, count * 100);
             measureLocationIndex(g, hopper.getLocationIndex(), count);
+            measureSubnetworkSearch(hopper, withTurnCosts ? "profile_tc" : "profile_no_tc", args.getInt("measurement.subnetworks.threads", 4));
 
             if (runSlow) {
                 boolean isCH = false;
@@ -206,6 +211,9 @@ public class Measurement {
                 gcAndWait();
                 boolean isCH = false;
                 boolean isLM = true;
+                LandmarkStorage lms = hopper.getLandmarks().get("profile_no_tc");
+                if (lms != null)
+                    measureLMApproximation(g, lms, count);
                 Helper.parseList(args.getString("measurement.lm.active_counts", "[4,8,12]")).stream()
                         .mapToInt(Integer::parseInt).forEach(activeLMCount -> {
                             measureRouting(hopper, new QuerySettings("routingLM" + activeLMCount, count / 20, isCH, isLM).
@@ -456,6 +464,42 @@ public class Measurement {
         print("unit_tests.get_edge_state", miniPerf);
     }
 
+    private void measureSubnetworkSearch(GraphHopper hopper, String profileName, int threads) {
+        // Compares the sequential and the parallel search for the strongly connected components of the subnetwork
+        // preparation. Both find the same components, see EdgeBasedParallelSCCTest.
+        Weighting weighting = hopper.createWeighting(hopper.getProfile(profileName), new PMap());
+        EdgeBasedTarjanSCC.EdgeTransitionFilter filter = (prev, edge) -> Double.isFinite(GHUtility.calcWeightWithTurnWeight(weighting, edge, false, prev));
+        Graph graph = hopper.getBaseGraph();
+        MiniPerfTest miniPerf = new MiniPerfTest().setIterations(3).start((warmup, run) ->
+                EdgeBasedTarjanSCC.findComponents(graph, filter, false).getTotalComponents());
+        print("subnetworks.tarjan", miniPerf);
+        put("subnetworks.parallel.threads", threads);
+        miniPerf = new MiniPerfTest().setIterations(3).start((warmup, run) ->
+                EdgeBasedParallelSCC.findComponents(graph, filter, false, threads).getTotalComponents());
+        print("subnetworks.parallel", miniPerf);
+    }
+
+    private void measureLMApproximation(Graph graph, LandmarkStorage lms, int count) {
+        // Compare runs with prepare.lm.compress_weights=true and false to compare the layouts of the landmark weights.
+        // The nodes are random, so nearly every approximation is a cache miss.
+        put("lm.compressed", lms.isCompressed());
+        put("lm.size_in_MB", lms.getCapacity() / MB);
+        final Random rand = new Random(seed);
+        final int approximations = 1000;
+        MiniPerfTest miniPerf = new MiniPerfTest().setIterations(count).start((warmup, run) -> {
+            int to = rand.nextInt(maxNode);
+            LMApproximator approximator = LMApproximator.forLandmarks(graph, lms.getWeighting(), lms, 8);
+            approximator.setTo(to);
+            // the first call selects the active landmarks
+            double sum = approximator.approximate(to);
+            for (int i = 0; i < approximations; i++) {
+                sum += approximator.approximate(rand.nextInt(maxNode));
+            }
+            return (int) sum;
+        });
+        print("lm_approximation_" + approximations, miniPerf);
+    }
+
     private void measureGraphTraversalCH(final RoutingCHGraph lg, int count) {
         final Random rand = new Random(seed);
         final int maxEdgesId = lg.getEdges();
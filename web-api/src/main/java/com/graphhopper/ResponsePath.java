@@ -50,6 +50,11 @@ public class ResponsePath {
     private final Map<String, List<PathDetail>> pathDetails = new HashMap<>();
     private BigDecimal fare;
     private boolean impossible = false;
+    // volatile for the double-checked locking in calcDetails
+    private volatile Runnable detailsCalculator;
+    // true while the details calculator runs, because it uses the setters of this path
+    private boolean calculatingDetails;
+    private boolean summaryOnly = false;
 
     /**
      * @return the description of this route alternative to make it meaningful for the user e.g. it
@@ -98,6 +103,7 @@ public class ResponsePath {
      */
     public PointList getPoints() {
         check("getPoints");
+        calcDetails();
         return pointList;
     }
 
@@ -130,6 +136,7 @@ public class ResponsePath {
 
     public List<Integer> getWaypointIndices() {
         check("getWaypointIndices");
+        calcDetails();
         return waypointIndices;
     }
 
@@ -162,6 +169,7 @@ public class ResponsePath {
      * @return ascend in meter
      */
     public double getAscend() {
+        calcDetails();
         return ascend;
     }
 
@@ -180,6 +188,7 @@ public class ResponsePath {
      * @return decline in meter
      */
     public double getDescend() {
+        calcDetails();
         return descend;
     }
 
@@ -224,6 +233,7 @@ public class ResponsePath {
      */
     public Envelope calcBBox2D() {
         check("calcBBox2D");
+        calcDetails();
         Envelope bounds = new Envelope();
         for (int i = 0; i < pointList.size(); i++) {
             bounds.expandToInclude(pointList.getLon(i), pointList.getLat(i));
@@ -245,6 +255,7 @@ public class ResponsePath {
 
     public InstructionList getInstructions() {
         check("getInstructions");
+        calcDetails();
         if (instructions == null)
             throw new IllegalArgumentException("To access instructions you need to enable creation before routing");
 
@@ -277,9 +288,51 @@ public class ResponsePath {
     }
 
     public Map<String, List<PathDetail>> getPathDetails() {
+        calcDetails();
         return this.pathDetails;
     }
 
+    /**
+     * Sets a callback that calculates the points, instructions and path details of this path. It is called when
+     * one of them is accessed for the first time, so they are never calculated for paths that are not read in detail.
+     */
+    public ResponsePath setDetailsCalculator(Runnable detailsCalculator) {
+        this.detailsCalculator = detailsCalculator;
+        return this;
+    }
+
+    private void calcDetails() {
+        if (detailsCalculator == null)
+            return;
+        // the paths of a response can be serialized from different threads, and the details must be calculated once
+        synchronized (this) {
+            Runnable calculator = detailsCalculator;
+            if (calculator == null || calculatingDetails)
+                return;
+            calculatingDetails = true;
+            try {
+                calculator.run();
+            } finally {
+                calculatingDetails = false;
+                // only now other threads can skip the lock and read the details
+                detailsCalculator = null;
+            }
+        }
+    }
+
+    /**
+     * @return true if only the summary of this path like the distance, time and weight was requested, i.e. the
+     * points, instructions and path details should not be included in the response
+     */
+    public boolean isSummaryOnly() {
+        return summaryOnly;
+    }
+
+    public ResponsePath setSummaryOnly(boolean summaryOnly) {
+        this.summaryOnly = summaryOnly;
+        return this;
+    }
+
     private void check(String method) {
         if (hasErrors()) {
             throw new RuntimeException("You cannot call " + method + " if response contains errors. Check this with ghResponse.hasErrors(). "
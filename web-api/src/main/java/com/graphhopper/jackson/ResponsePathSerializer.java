@@ -105,7 +105,7 @@ public class ResponsePathSerializer {
             jsonPath.put("points_encoded", pointsEncoded);
             if (pointsEncoded) jsonPath.put("points_encoded_multiplier", pointsMultiplier);
 
-            if (calcPoints) {
+            if (calcPoints && !p.isSummaryOnly()) {
                 jsonPath.putPOJO("bbox", p.calcBBox2D());
                 jsonPath.putPOJO("points", pointsEncoded ? encodePolyline(p.getPoints(), enableElevation, pointsMultiplier) : p.getPoints().toLineString(enableElevation));
                 if (enableInstructions) {
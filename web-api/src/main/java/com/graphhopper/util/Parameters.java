@@ -66,6 +66,13 @@ public class Parameters {
             public static final String MAX_WEIGHT = ALT_ROUTE + ".max_weight_factor";
 
             public static final String MAX_SHARE = ALT_ROUTE + ".max_share_factor";
+
+            /**
+             * Comma separated indices of the alternatives that are returned including points, instructions and
+             * path details. For the other alternatives only the summary is returned. If this is specified the
+             * details are calculated lazily, i.e. only for the paths that are actually read.
+             */
+            public static final String DETAILED_PATHS = ALT_ROUTE + ".detailed_paths";
         }
 
         public static final class AStar {
@@ -129,6 +136,11 @@ public class Parameters {
          */
         public static final double DEFAULT_HEADING_PENALTY = 300;
         public static final String HEADING_PENALTY = "heading_penalty";
+        /**
+         * The date (yyyy-MM-dd) or ISO 8601 date time for which the conditional access restrictions are evaluated,
+         * see TemporalAccessSchedule. Currently only the day is considered.
+         */
+        public static final String DEPARTURE_TIME = "departure_time";
     }
 
     /**
@@ -172,6 +184,11 @@ public class Parameters {
          * Specifies how many landmarks should be created
          */
         public static final String COUNT = PREPARE + "landmarks";
+        /**
+         * Specifies after how many visited nodes the active landmarks should be chosen again for the current nodes of
+         * the search. 0 means the active landmarks are only chosen at the beginning.
+         */
+        public static final String ACTIVE_UPDATE_INTERVAL = "lm.active_landmarks_update_interval";
     }
 
     /**
@@ -18,19 +18,26 @@
 
 package com.graphhopper.http;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.util.StdDateFormat;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.config.CHProfile;
 import com.graphhopper.gtfs.*;
 import com.graphhopper.http.health.GraphHopperHealthCheck;
 import com.graphhopper.isochrone.algorithm.JTSTriangulator;
 import com.graphhopper.isochrone.algorithm.Triangulator;
 import com.graphhopper.jackson.Jackson;
 import com.graphhopper.matching.MapMatching;
+import com.graphhopper.navigation.NavigateResource;
+import com.graphhopper.navigation.NavigationSessions;
 import com.graphhopper.resources.*;
+import com.graphhopper.routing.ch.ShortcutUnpackingCache;
 import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.util.TranslationMap;
@@ -44,9 +51,30 @@ import jakarta.inject.Singleton;
 import org.apache.hc.client5.http.classic.HttpClient;
 import org.glassfish.hk2.api.Factory;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
+import org.glassfish.jersey.process.internal.RequestScoped;
 
 public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConfiguration> {
 
+    /**
+     * Provides the current graph for the duration of a request, a replaced graph is closed only after the requests
+     * using it are finished.
+     */
+    static class GraphHopperFactory implements Factory<GraphHopper> {
+
+        @Inject
+        GraphHopperManaged graphHopperManaged;
+
+        @Override
+        public GraphHopper provide() {
+            return graphHopperManaged.acquire();
+        }
+
+        @Override
+        public void dispose(GraphHopper instance) {
+            graphHopperManaged.release(instance);
+        }
+    }
+
     static class TranslationMapFactory implements Factory<TranslationMap> {
 
         @Inject
@@ -275,11 +303,18 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         final GraphHopperManaged graphHopperManaged = new GraphHopperManaged(configuration.getGraphHopperConfiguration());
         environment.lifecycle().manage(graphHopperManaged);
         final GraphHopper graphHopper = graphHopperManaged.getGraphHopper();
+        final boolean publicTransit = configuration.getGraphHopperConfiguration().has("gtfs.file");
         environment.jersey().register(new AbstractBinder() {
             @Override
             protected void configure() {
                 bind(configuration.getGraphHopperConfiguration()).to(GraphHopperConfig.class);
-                bind(graphHopper).to(GraphHopper.class);
+                bind(graphHopperManaged).to(GraphHopperManaged.class);
+                if (publicTransit)
+                    // the public transit resources need the graph and the GTFS storage of the same GraphHopperGtfs
+                    // instance, so the graph cannot be replaced
+                    bind(graphHopper).to(GraphHopper.class);
+                else
+                    bindFactory(GraphHopperFactory.class).to(GraphHopper.class).in(RequestScoped.class);
 
                 bind(new JTSTriangulator(graphHopper.getRouterConfig())).to(Triangulator.class);
                 bindFactory(MapMatchingRouterFactoryFactory.class).to(MapMatchingResource.MapMatchingRouterFactory.class);
@@ -292,6 +327,8 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
                 bindFactory(EncodingManagerFactory.class).to(EncodingManager.class);
                 bindFactory(BaseGraphFactory.class).to(BaseGraph.class);
                 bindFactory(GtfsStorageFactory.class).to(GtfsStorage.class);
+                // the navigation sessions have to outlive the per-request NavigateResource
+                bind(NavigateResource.createSessions(configuration.getGraphHopperConfiguration())).to(NavigationSessions.class);
             }
         });
 
@@ -301,7 +338,7 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         environment.jersey().register(IsochroneResource.class);
         environment.jersey().register(MapMatchingResource.class);
 
-        if (configuration.getGraphHopperConfiguration().has("gtfs.file")) {
+        if (publicTransit) {
             // These are pt-specific implementations of /route and /isochrone, but the same API.
             // We serve them under different paths (/route-pt and /isochrone-pt), and forward
             // requests for ?vehicle=pt there.
@@ -328,7 +365,11 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         environment.jersey().register(SPTResource.class);
         environment.jersey().register(I18NResource.class);
         environment.jersey().register(InfoResource.class);
-        environment.healthChecks().register("graphhopper", new GraphHopperHealthCheck(graphHopper));
+        environment.healthChecks().register("graphhopper", new GraphHopperHealthCheck(graphHopperManaged));
+        if (!publicTransit)
+            environment.admin().addTask(new SwapGraphTask(graphHopperManaged));
+        if (configuration.getGraphHopperConfiguration().getInt("routing.ch.unpacking_cache.size_mb", 0) > 0)
+            registerShortcutUnpackingCacheMetrics(environment.metrics(), graphHopperManaged);
         environment.jersey().register(environment.healthChecks());
         environment.jersey().register(HealthCheckResource.class);
 
@@ -344,6 +385,7 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
                     .using(configuration.gtfsrealtime().getHttpClientConfiguration())
                     .build("gtfs-realtime-feed-loader");
             RealtimeFeedLoadingCache realtimeFeedLoadingCache = new RealtimeFeedLoadingCache(((GraphHopperGtfs) graphHopper), httpClient, configuration);
+            realtimeFeedLoadingCache.registerMetrics(environment.metrics());
             environment.lifecycle().manage(realtimeFeedLoadingCache);
             environment.jersey().register(new AbstractBinder() {
                 @Override
@@ -354,4 +396,26 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
             });
         }
     }
+
+    private static void registerShortcutUnpackingCacheMetrics(MetricRegistry metrics, GraphHopperManaged graphHopperManaged) {
+        for (CHProfile chProfile : graphHopperManaged.getGraphHopper().getCHPreparationHandler().getCHProfiles()) {
+            String profile = chProfile.getProfile();
+            // the cache is looked up for every read, because the graph is loaded later and can be replaced
+            metrics.register(MetricRegistry.name(ShortcutUnpackingCache.class, profile, "hit-rate"),
+                    (Gauge<Double>) () -> {
+                        ShortcutUnpackingCache cache = getShortcutUnpackingCache(graphHopperManaged, profile);
+                        return cache == null ? 0 : cache.getHitRate();
+                    });
+            metrics.register(MetricRegistry.name(ShortcutUnpackingCache.class, profile, "used-bytes"),
+                    (Gauge<Long>) () -> {
+                        ShortcutUnpackingCache cache = getShortcutUnpackingCache(graphHopperManaged, profile);
+                        return cache == null ? 0 : cache.getUsedBytes();
+                    });
+        }
+    }
+
+    private static ShortcutUnpackingCache getShortcutUnpackingCache(GraphHopperManaged graphHopperManaged, String profile) {
+        RoutingCHGraph chGraph = graphHopperManaged.getGraphHopper().getCHGraphs().get(profile);
+        return chGraph == null ? null : chGraph.getShortcutUnpackingCache();
+    }
 }
@@ -25,38 +25,201 @@ import io.dropwizard.lifecycle.Managed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Manages the GraphHopper instance of the server. The graph can be replaced while the server is running, see
+ * {@link #swap(String)}. Requests use {@link #acquire()} and {@link #release(GraphHopper)} so that a replaced graph
+ * is only closed after all requests using it are finished.
+ */
 public class GraphHopperManaged implements Managed {
 
     private final static Logger logger = LoggerFactory.getLogger(GraphHopperManaged.class);
-    private final GraphHopper graphHopper;
+    private final GraphHopperConfig configuration;
+    // all generations that are not yet closed
+    private final Map<GraphHopper, Generation> generations = new ConcurrentHashMap<>();
+    private volatile Generation current;
+    private final long warmUpMillis;
+    private GraphHopperWarmUp warmUp;
+    private Thread warmUpThread;
+    private volatile boolean warmingUp = false;
 
     public GraphHopperManaged(GraphHopperConfig configuration) {
+        this.configuration = configuration;
+        warmUpMillis = Math.round(configuration.getDouble("warm_up.max_seconds", 0) * 1000);
+        current = new Generation(createGraphHopper(configuration));
+        generations.put(current.graphHopper, current);
+    }
+
+    private static GraphHopper createGraphHopper(GraphHopperConfig configuration) {
+        GraphHopper graphHopper;
         if (configuration.has("gtfs.file")) {
             graphHopper = new GraphHopperGtfs(configuration);
         } else {
             graphHopper = new GraphHopper();
         }
         graphHopper.init(configuration);
+        return graphHopper;
     }
 
     @Override
     public void start() {
+        GraphHopper graphHopper = getGraphHopper();
         graphHopper.importOrLoad();
         logger.info("loaded graph at:{}, data_reader_file:{}, encoded values:{}, {} bytes for edge flags, {}",
                 graphHopper.getGraphHopperLocation(), graphHopper.getOSMFile(),
                 graphHopper.getEncodingManager().toEncodedValuesAsString(),
                 graphHopper.getEncodingManager().getBytesForFlags(),
                 graphHopper.getBaseGraph().toDetailsString());
+        if (warmUpMillis > 0)
+            startWarmUp();
+    }
+
+    private void startWarmUp() {
+        warmingUp = true;
+        GraphHopper graphHopper = acquire();
+        warmUp = new GraphHopperWarmUp(graphHopper, warmUpMillis).
+                setBatchSize(configuration.getInt("warm_up.batch_size", 20)).
+                setMinIterations(configuration.getInt("warm_up.min_iterations", 200)).
+                setStableBatches(configuration.getInt("warm_up.stable_batches", 3)).
+                setStableChange(configuration.getDouble("warm_up.stable_change", 0.1));
+        warmUpThread = new Thread(() -> {
+            try {
+                warmUp.run();
+            } catch (Exception ex) {
+                logger.error("Problem while warming up", ex);
+            } finally {
+                release(graphHopper);
+                warmingUp = false;
+            }
+        }, "warm-up");
+        warmUpThread.setDaemon(true);
+        warmUpThread.start();
     }
 
+    /**
+     * @return true while random queries are executed after the start to get the JIT compiler going, see the
+     * warm_up.max_seconds setting
+     */
+    public boolean isWarmingUp() {
+        return warmingUp;
+    }
+
+    /**
+     * @return the GraphHopper instance of the current graph. Use {@link #acquire()} if the instance is used for longer
+     * and must not be closed in the meantime.
+     */
     public GraphHopper getGraphHopper() {
-        return graphHopper;
+        return current.graphHopper;
+    }
+
+    /**
+     * @return the GraphHopper instance of the current graph, which won't be closed before {@link #release} is called
+     */
+    public GraphHopper acquire() {
+        while (true) {
+            Generation generation = current;
+            // fails only if the generation was replaced in the meantime
+            if (generation.tryAcquire())
+                return generation.graphHopper;
+        }
+    }
+
+    public void release(GraphHopper graphHopper) {
+        Generation generation = generations.get(graphHopper);
+        if (generation == null)
+            throw new IllegalArgumentException("GraphHopper instance was not acquired or was already closed");
+        generation.release();
+    }
+
+    /**
+     * Loads the graph of the specified folder and makes it the current graph. The previous graph is closed as soon as
+     * all requests using it are finished. The graph has to be created with the same configuration as the current
+     * one, e.g. via the import command, and is loaded including the preloading of memory mapped files before it
+     * replaces the current graph.
+     */
+    public synchronized void swap(String graphLocation) {
+        if (configuration.has("gtfs.file"))
+            throw new IllegalStateException("Replacing the graph is not supported for public transit");
+        GraphHopperConfig config = new GraphHopperConfig(configuration).
+                putObject("graph.location", graphLocation).
+                putObject("graph.dataaccess.mmap.background_preload", false);
+        GraphHopper graphHopper = createGraphHopper(config);
+        try {
+            if (!graphHopper.load())
+                throw new IllegalArgumentException("There is no graph at " + graphLocation);
+            if (warmUpMillis > 0)
+                new GraphHopperWarmUp(graphHopper, warmUpMillis).run();
+        } catch (RuntimeException ex) {
+            graphHopper.close();
+            throw ex;
+        }
+        Generation generation = new Generation(graphHopper);
+        generations.put(graphHopper, generation);
+        Generation previous = current;
+        current = generation;
+        logger.info("replaced graph at:{} with graph at:{}, {}", previous.graphHopper.getGraphHopperLocation(),
+                graphHopper.getGraphHopperLocation(), graphHopper.getBaseGraph().toDetailsString());
+        previous.retire(() -> {
+            previous.graphHopper.close();
+            generations.remove(previous.graphHopper);
+            logger.info("closed replaced graph at:{}", previous.graphHopper.getGraphHopperLocation());
+        });
+    }
+
+    /**
+     * @return the number of replaced graphs that are still used by running requests
+     */
+    public int getRetiredGraphs() {
+        return generations.size() - 1;
     }
 
     @Override
     public void stop() {
-        graphHopper.close();
+        if (warmUpThread != null) {
+            warmUp.stop();
+            try {
+                warmUpThread.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Generation generation : generations.values())
+            generation.graphHopper.close();
+        generations.clear();
     }
 
+    private static class Generation {
+        final GraphHopper graphHopper;
+        // the number of requests using this generation, Integer.MIN_VALUE is added when the generation gets retired
+        private final AtomicInteger users = new AtomicInteger();
+        private volatile Runnable onDrained;
+
+        Generation(GraphHopper graphHopper) {
+            this.graphHopper = graphHopper;
+        }
+
+        boolean tryAcquire() {
+            while (true) {
+                int count = users.get();
+                if (count < 0)
+                    return false;
+                if (users.compareAndSet(count, count + 1))
+                    return true;
+            }
+        }
 
+        void release() {
+            if (users.decrementAndGet() == Integer.MIN_VALUE)
+                onDrained.run();
+        }
+
+        void retire(Runnable onDrained) {
+            this.onDrained = onDrained;
+            if (users.addAndGet(Integer.MIN_VALUE) == Integer.MIN_VALUE)
+                onDrained.run();
+        }
+    }
 }
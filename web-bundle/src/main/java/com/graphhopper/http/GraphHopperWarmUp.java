@@ -0,0 +1,283 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.http;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.config.Profile;
+import com.graphhopper.isochrone.algorithm.ContourBuilder;
+import com.graphhopper.isochrone.algorithm.JTSTriangulator;
+import com.graphhopper.isochrone.algorithm.ShortestPathTree;
+import com.graphhopper.isochrone.algorithm.Triangulator;
+import com.graphhopper.jackson.Jackson;
+import com.graphhopper.jackson.ResponsePathSerializer;
+import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.ev.Subnetwork;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.DefaultSnapFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.*;
+import com.graphhopper.util.shapes.GHPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.graphhopper.routing.util.TraversalMode.EDGE_BASED;
+import static com.graphhopper.routing.util.TraversalMode.NODE_BASED;
+
+/**
+ * Runs random route, isochrone and nearest queries for all profiles, including the JSON serialization of the
+ * responses, so that the JIT compiler has optimized the hot code before the first real requests arrive. The queries
+ * run in batches until the average time stayed stable for several consecutive batches after a minimum number of
+ * iterations, or until the time budget is used up. This is similar to the warm up in Measurement.
+ */
+public class GraphHopperWarmUp {
+    private static final Logger logger = LoggerFactory.getLogger(GraphHopperWarmUp.class);
+
+    private final GraphHopper graphHopper;
+    private final long maxMillis;
+    private int batchSize = 20;
+    private int minIterations = 200;
+    private int stableBatches = 3;
+    private double stableChange = 0.1;
+    private final ObjectMapper objectMapper = Jackson.newObjectMapper();
+    private final Random random = new Random(123);
+    private volatile boolean stopped;
+
+    /**
+     * @param maxMillis the time budget for all profiles
+     */
+    public GraphHopperWarmUp(GraphHopper graphHopper, long maxMillis) {
+        this.graphHopper = graphHopper;
+        this.maxMillis = maxMillis;
+    }
+
+    /**
+     * @param batchSize the number of iterations per batch. Every iteration runs route, isochrone and nearest queries
+     *                  for random points.
+     */
+    public GraphHopperWarmUp setBatchSize(int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("batch size must be at least 1 but was " + batchSize);
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * @param minIterations the warm up of a profile does not stop before this number of iterations, even if the
+     *                      batch times are stable
+     */
+    public GraphHopperWarmUp setMinIterations(int minIterations) {
+        this.minIterations = minIterations;
+        return this;
+    }
+
+    /**
+     * @param stableBatches the number of consecutive batches whose time has to be stable
+     */
+    public GraphHopperWarmUp setStableBatches(int stableBatches) {
+        if (stableBatches < 1)
+            throw new IllegalArgumentException("stable batches must be at least 1 but was " + stableBatches);
+        this.stableBatches = stableBatches;
+        return this;
+    }
+
+    /**
+     * @param stableChange the time of a batch is stable if it changes less than this fraction compared to the
+     *                     previous batch
+     */
+    public GraphHopperWarmUp setStableChange(double stableChange) {
+        this.stableChange = stableChange;
+        return this;
+    }
+
+    public List<Stats> run() {
+        List<Profile> profiles = graphHopper.getProfiles();
+        List<Stats> result = new ArrayList<>(profiles.size());
+        StopWatch total = StopWatch.started();
+        for (int i = 0; i < profiles.size(); i++) {
+            // unused time of a profile is given to the following profiles
+            long remaining = maxMillis - (long) (total.getCurrentSeconds() * 1000);
+            Stats stats = warmUp(profiles.get(i), remaining / (profiles.size() - i));
+            logger.info("warm up of profile {}: {}", stats.profile, stats);
+            result.add(stats);
+        }
+        return result;
+    }
+
+    private Stats warmUp(Profile profile, long maxMillis) {
+        Stats stats = new Stats(profile.getName());
+        Weighting weighting = graphHopper.createWeighting(profile, new PMap());
+        BooleanEncodedValue inSubnetworkEnc = graphHopper.getEncodingManager().getBooleanEncodedValue(Subnetwork.key(profile.getName()));
+        DefaultSnapFilter snapFilter = new DefaultSnapFilter(weighting, inSubnetworkEnc);
+        EdgeExplorer explorer = graphHopper.getBaseGraph().createEdgeExplorer(snapFilter);
+        boolean ch = graphHopper.getCHGraphs().containsKey(profile.getName());
+        boolean lm = graphHopper.getLandmarks().containsKey(profile.getName());
+        StopWatch sw = StopWatch.started();
+        double previousBatchMillis = -1;
+        int stableCount = 0;
+        while (!stopped && sw.getCurrentSeconds() * 1000 < maxMillis) {
+            long batchStart = System.nanoTime();
+            for (int i = 0; i < batchSize && !stopped; i++) {
+                GHPoint from = randomPoint(explorer);
+                GHPoint to = randomPoint(explorer);
+                if (from == null || to == null) {
+                    // there are (almost) no accessible edges for this profile
+                    stats.seconds = sw.stop().getSeconds();
+                    return stats;
+                }
+                if (ch)
+                    route(profile, from, to, false, true);
+                if (lm)
+                    route(profile, from, to, true, false);
+                // without CH and LM long routes can take very long, so use a close destination
+                GHPoint close = closePoint(from, snapFilter);
+                if (close != null)
+                    route(profile, from, close, true, true);
+                isochrone(profile, weighting, snapFilter, from);
+                graphHopper.getLocationIndex().findClosest(to.lat, to.lon, EdgeFilter.ALL_EDGES);
+                stats.iterations++;
+            }
+            double batchMillis = (System.nanoTime() - batchStart) / 1e6 / batchSize;
+            stats.batches++;
+            if (stats.batches == 1)
+                stats.firstBatchMillis = batchMillis;
+            stats.lastBatchMillis = batchMillis;
+            // a single batch with a similar time as the previous one can be a coincidence, e.g. while the JIT compiler
+            // is still busy, so we require several stable batches in a row
+            if (stats.batches > 1 && Math.abs(batchMillis - previousBatchMillis) < stableChange * previousBatchMillis)
+                stableCount++;
+            else
+                stableCount = 0;
+            if (stableCount >= stableBatches && stats.iterations >= minIterations) {
+                stats.stable = true;
+                break;
+            }
+            previousBatchMillis = batchMillis;
+        }
+        stats.seconds = sw.stop().getSeconds();
+        return stats;
+    }
+
+    /**
+     * Makes a running warm up return as soon as possible.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    private GHPoint randomPoint(EdgeExplorer explorer) {
+        BaseGraph graph = graphHopper.getBaseGraph();
+        NodeAccess na = graph.getNodeAccess();
+        for (int tries = 0; tries < 1000; tries++) {
+            int node = random.nextInt(graph.getNodes());
+            if (GHUtility.count(explorer.setBaseNode(node)) > 0)
+                return new GHPoint(na.getLat(node), na.getLon(node));
+        }
+        return null;
+    }
+
+    private GHPoint closePoint(GHPoint point, EdgeFilter snapFilter) {
+        // roughly 5km
+        double lat = point.lat + (random.nextDouble() - 0.5) * 0.09;
+        double lon = point.lon + (random.nextDouble() - 0.5) * 0.09;
+        Snap snap = graphHopper.getLocationIndex().findClosest(lat, lon, snapFilter);
+        return snap.isValid() ? snap.getSnappedPoint() : null;
+    }
+
+    private void route(Profile profile, GHPoint from, GHPoint to, boolean disableCH, boolean disableLM) {
+        GHRequest request = new GHRequest(from, to).setProfile(profile.getName());
+        request.putHint(Parameters.CH.DISABLE, disableCH);
+        request.putHint(Parameters.Landmark.DISABLE, disableLM);
+        GHResponse response = graphHopper.route(request);
+        if (response.hasErrors())
+            return;
+        try {
+            objectMapper.writeValueAsBytes(ResponsePathSerializer.jsonObject(response,
+                    new ResponsePathSerializer.Info(List.of(), 0, ""), true, true, false, true, 1e5));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private void isochrone(Profile profile, Weighting weighting, EdgeFilter snapFilter, GHPoint point) {
+        Snap snap = graphHopper.getLocationIndex().findClosest(point.lat, point.lon, snapFilter);
+        if (!snap.isValid())
+            return;
+        QueryGraph queryGraph = QueryGraph.create(graphHopper.getBaseGraph(), snap);
+        ShortestPathTree tree = new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(weighting), false,
+                profile.hasTurnCosts() ? EDGE_BASED : NODE_BASED);
+        // a small time limit like five minutes keeps the warm up fast
+        double limit = 300_000;
+        tree.setTimeLimit(limit);
+        try {
+            Triangulator.Result result = new JTSTriangulator(graphHopper.getRouterConfig()).triangulate(snap, queryGraph, tree, l -> l.time, 0);
+            new ContourBuilder(result.triangulation).computeIsoline(limit / 2, result.seedEdges);
+        } catch (IllegalArgumentException ex) {
+            // e.g. too few points were found
+        }
+    }
+
+    public static class Stats {
+        final String profile;
+        int batches;
+        int iterations;
+        double firstBatchMillis;
+        double lastBatchMillis;
+        boolean stable;
+        float seconds;
+
+        Stats(String profile) {
+            this.profile = profile;
+        }
+
+        public String getProfile() {
+            return profile;
+        }
+
+        public int getBatches() {
+            return batches;
+        }
+
+        public int getIterations() {
+            return iterations;
+        }
+
+        public boolean isStable() {
+            return stable;
+        }
+
+        @Override
+        public String toString() {
+            return "batches: " + batches + ", iterations: " + iterations + ", time per iteration of first batch: " + Helper.round2(firstBatchMillis)
+                    + "ms, of last batch: " + Helper.round2(lastBatchMillis) + "ms, stable: " + stable
+                    + ", took: " + seconds + "s";
+        }
+    }
+}
@@ -36,10 +36,20 @@ public class RealtimeConfiguration {
     @JsonProperty
     private List<FeedConfiguration> feeds = new ArrayList<>();
 
+    /**
+     * If true only the trip updates that changed since the last refresh are applied again, see RealtimeFeedUpdater
+     */
+    @JsonProperty
+    private boolean incremental = false;
+
     public List<FeedConfiguration> getFeeds() {
         return feeds;
     }
 
+    public boolean isIncremental() {
+        return incremental;
+    }
+
     public HttpClientConfiguration getHttpClientConfiguration() {
         return httpClient;
     }
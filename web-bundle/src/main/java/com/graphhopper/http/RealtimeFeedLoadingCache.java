@@ -18,6 +18,9 @@
 
 package com.graphhopper.http;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.conveyal.gtfs.GTFSFeed;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
@@ -53,6 +56,8 @@ public class RealtimeFeedLoadingCache implements Factory<RealtimeFeed>, Managed
     private ExecutorService executor;
     private LoadingCache<String, RealtimeFeed> cache;
     private Map<String, Transfers> transfers;
+    private RealtimeFeedUpdater updater;
+    private Timer updateTimer;
 
     @Inject
     RealtimeFeedLoadingCache(GraphHopperGtfs graphHopper, HttpClient httpClient, GraphHopperBundleConfiguration bundleConfiguration) {
@@ -65,8 +70,10 @@ public class RealtimeFeedLoadingCache implements Factory<RealtimeFeed>, Managed
     public void start() {
         this.transfers = new HashMap<>();
         for (Map.Entry<String, GTFSFeed> entry : this.graphHopper.getGtfsStorage().getGtfsFeeds().entrySet()) {
-            this.transfers.put(entry.getKey(), new Transfers(entry.getValue()));
+            this.transfers.put(entry.getKey(), new Transfers(entry.getValue(), this.graphHopper.getGtfsStorage().getStopTimes(entry.getKey())));
         }
+        if (bundleConfiguration.gtfsrealtime().isIncremental())
+            this.updater = new RealtimeFeedUpdater(graphHopper.getGtfsStorage(), transfers);
         this.executor = Executors.newSingleThreadExecutor();
         this.cache = CacheBuilder.newBuilder()
                 .maximumSize(1)
@@ -85,6 +92,17 @@ public class RealtimeFeedLoadingCache implements Factory<RealtimeFeed>, Managed
                 });
     }
 
+    /**
+     * Registers the latency of the feed updates and, in incremental mode, the number of changed trips of the last update.
+     */
+    public void registerMetrics(MetricRegistry metrics) {
+        this.updateTimer = metrics.timer(MetricRegistry.name(RealtimeFeedLoadingCache.class, "update"));
+        metrics.register(MetricRegistry.name(RealtimeFeedLoadingCache.class, "changed-trips"),
+                (Gauge<Integer>) () -> updater == null ? -1 : updater.getLastStatistics().getChangedTrips());
+        metrics.register(MetricRegistry.name(RealtimeFeedLoadingCache.class, "trip-updates"),
+                (Gauge<Integer>) () -> updater == null ? -1 : updater.getLastStatistics().getTripUpdates());
+    }
+
     @Override
     public RealtimeFeed provide() {
         try {
@@ -105,6 +123,19 @@ public class RealtimeFeedLoadingCache implements Factory<RealtimeFeed>, Managed
     }
 
     private RealtimeFeed fetchFeedsAndCreateGraph() {
+        Timer.Context timerContext = updateTimer == null ? null : updateTimer.time();
+        try {
+            Map<String, GtfsRealtime.FeedMessage> feedMessageMap = fetchFeeds();
+            if (updater != null)
+                return updater.update(feedMessageMap);
+            return RealtimeFeed.fromProtobuf(graphHopper.getGtfsStorage(), this.transfers, feedMessageMap);
+        } finally {
+            if (timerContext != null)
+                timerContext.stop();
+        }
+    }
+
+    private Map<String, GtfsRealtime.FeedMessage> fetchFeeds() {
         Map<String, GtfsRealtime.FeedMessage> feedMessageMap = new HashMap<>();
         for (FeedConfiguration configuration : bundleConfiguration.gtfsrealtime().getFeeds()) {
             try {
@@ -125,7 +156,7 @@ public class RealtimeFeedLoadingCache implements Factory<RealtimeFeed>, Managed
                 throw new RuntimeException(e);
             }
         }
-        return RealtimeFeed.fromProtobuf(graphHopper.getGtfsStorage(), this.transfers, feedMessageMap);
+        return feedMessageMap;
     }
 
     private void validate(RealtimeFeed realtimeFeed) {
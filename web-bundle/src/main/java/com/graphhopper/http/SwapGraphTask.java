@@ -0,0 +1,49 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.http;
+
+import io.dropwizard.servlets.tasks.Task;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the graph of the running server, e.g. POST /tasks/swap-graph?location=/data/graph-cache-new on the admin
+ * port. The request returns after the new graph is loaded and serves all following requests.
+ */
+public class SwapGraphTask extends Task {
+
+    private final GraphHopperManaged graphHopperManaged;
+
+    public SwapGraphTask(GraphHopperManaged graphHopperManaged) {
+        super("swap-graph");
+        this.graphHopperManaged = graphHopperManaged;
+    }
+
+    @Override
+    public void execute(Map<String, List<String>> parameters, PrintWriter output) {
+        List<String> locations = parameters.get("location");
+        if (locations == null || locations.size() != 1)
+            throw new IllegalArgumentException("Specify the graph folder via the location parameter");
+        graphHopperManaged.swap(locations.get(0));
+        output.println("loaded graph at " + graphHopperManaged.getGraphHopper().getGraphHopperLocation());
+        output.println("replaced graphs still in use: " + graphHopperManaged.getRetiredGraphs());
+    }
+}
@@ -20,23 +20,31 @@ package com.graphhopper.http.health;
 
 import com.codahale.metrics.health.HealthCheck;
 import com.graphhopper.GraphHopper;
+import com.graphhopper.http.GraphHopperManaged;
 
 public class GraphHopperHealthCheck extends HealthCheck {
 
-    private final GraphHopper graphHopper;
+    private final GraphHopperManaged graphHopperManaged;
 
-    public GraphHopperHealthCheck(GraphHopper graphHopper) {
-        this.graphHopper = graphHopper;
+    public GraphHopperHealthCheck(GraphHopperManaged graphHopperManaged) {
+        this.graphHopperManaged = graphHopperManaged;
     }
 
     @Override
     protected Result check() {
+        GraphHopper graphHopper = graphHopperManaged.getGraphHopper();
         if (!graphHopper.getBaseGraph().getBounds().isValid()) {
             return Result.unhealthy("BaseGraph has invalid bounds.");
         }
         if (!graphHopper.getFullyLoaded()) {
             return Result.unhealthy("GraphHopper is not fully loaded.");
         }
+        if (graphHopperManaged.isWarmingUp()) {
+            return Result.unhealthy("GraphHopper is still warming up.");
+        }
+        if (graphHopper.isPreloading()) {
+            return Result.unhealthy("GraphHopper is still loading memory mapped files into physical memory.");
+        }
         return Result.healthy();
     }
 }
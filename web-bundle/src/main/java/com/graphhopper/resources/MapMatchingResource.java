@@ -17,6 +17,7 @@
  */
 package com.graphhopper.resources;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
@@ -34,6 +35,7 @@ import com.graphhopper.jackson.ResponsePathSerializer;
 import com.graphhopper.matching.*;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.util.*;
+import com.graphhopper.util.shapes.GHPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,7 +45,9 @@ import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import jakarta.ws.rs.core.UriInfo;
+import java.io.*;
 import java.util.*;
 
 import static com.graphhopper.resources.RouteResource.removeLegacyParameters;
@@ -114,17 +118,8 @@ public class MapMatchingResource {
 
         StopWatch sw = new StopWatch().start();
 
-        PMap hints = new PMap();
-        RouteResource.initHints(hints, uriInfo.getQueryParameters());
-
-        // resolve profile and remove legacy vehicle/weighting parameters
-        // we need to explicitly disable CH here because map matching does not use it
-        PMap profileResolverHints = new PMap(hints);
-        profileResolverHints.putObject("profile", profile);
-        profileResolverHints.putObject(Parameters.CH.DISABLE, true);
-        profile = profileResolver.resolveProfile(profileResolverHints);
-        hints.putObject("profile", profile);
-        removeLegacyParameters(hints);
+        PMap hints = createHints(uriInfo, profile);
+        profile = hints.getString("profile", "");
 
         MapMatching matching = new MapMatching(graphHopper.getBaseGraph(), (LocationIndexTree) graphHopper.getLocationIndex(), mapMatchingRouterFactory.createMapMatchingRouter(hints));
         matching.setMeasurementErrorSigma(gpsAccuracy);
@@ -193,6 +188,101 @@ public class MapMatchingResource {
         }
     }
 
+    /**
+     * Online map matching for live GPS feeds. The request body is read as a stream of newline-delimited JSON
+     * observations like {"lat":51.3,"lon":12.3}. The response is streamed as well: whenever an edge of the matched
+     * path becomes final it is written as one JSON line, so clients can keep the connection open and send new
+     * observations as they arrive. The parameter 'lag' is the number of observations the matching looks ahead before
+     * an observation is considered final.
+     * <p>
+     * The status is sent before the first observation is read, so an invalid observation or a failed matching, e.g.
+     * a broken sequence, cannot change it anymore. Instead the stream ends with an error record like
+     * {"message":"..."}.
+     */
+    @POST
+    @jakarta.ws.rs.Path("stream")
+    @Consumes({"application/x-ndjson", MediaType.TEXT_PLAIN})
+    @Produces("application/x-ndjson")
+    public Response matchStream(
+            InputStream body,
+            @Context UriInfo uriInfo,
+            @QueryParam("profile") String profile,
+            @QueryParam("lag") @DefaultValue("5") int lag,
+            @QueryParam("gps_accuracy") @DefaultValue("10") double gpsAccuracy) {
+        PMap hints = createHints(uriInfo, profile);
+        MapMatching matching = new MapMatching(graphHopper.getBaseGraph(), (LocationIndexTree) graphHopper.getLocationIndex(), mapMatchingRouterFactory.createMapMatchingRouter(hints));
+        matching.setMeasurementErrorSigma(gpsAccuracy);
+        MapMatchingSession session = matching.createSession(lag);
+
+        StreamingOutput out = output -> {
+            StopWatch sw = new StopWatch().start();
+            int observations = 0;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, Helper.UTF_CS));
+                 Writer writer = new BufferedWriter(new OutputStreamWriter(output, Helper.UTF_CS))) {
+                try {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (line.isBlank())
+                            continue;
+                        JsonNode node = objectMapper.readTree(line);
+                        if (!node.path("lat").isNumber() || !node.path("lon").isNumber())
+                            throw new IllegalArgumentException("Every observation needs a numeric 'lat' and 'lon' but was: " + line);
+                        observations++;
+                        writeEdgeMatches(writer, session.addObservation(new Observation(new GHPoint(node.get("lat").asDouble(), node.get("lon").asDouble()))));
+                    }
+                    writeEdgeMatches(writer, session.finish());
+                } catch (JsonProcessingException ex) {
+                    writeError(writer, "Cannot parse observation " + (observations + 1) + ": " + ex.getOriginalMessage());
+                } catch (IllegalArgumentException | IllegalStateException ex) {
+                    writeError(writer, ex.getMessage());
+                }
+            }
+            logger.info(objectMapper.createObjectNode()
+                    .put("duration", sw.stop().getNanos())
+                    .put("profile", hints.getString("profile", ""))
+                    .put("observations", observations)
+                    .put("streaming", true).toString());
+        };
+        return Response.ok(out).build();
+    }
+
+    private void writeEdgeMatches(Writer writer, List<EdgeMatch> edgeMatches) throws IOException {
+        if (edgeMatches.isEmpty())
+            return;
+        for (EdgeMatch em : edgeMatches) {
+            EdgeIteratorState edge = em.getEdgeState();
+            ObjectNode node = objectMapper.createObjectNode();
+            node.put("edge_id", edge.getEdge());
+            // the traversal key includes the orientation, see 'traversal_keys' for the GPX based matching
+            node.put("traversal_key", edge.getEdgeKey());
+            node.put("distance", Helper.round(edge.getDistance(), 3));
+            node.put("observations", em.getStates().size());
+            writer.write(node.toString());
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    private void writeError(Writer writer, String message) throws IOException {
+        writer.write(objectMapper.createObjectNode().put("message", message).toString());
+        writer.write('\n');
+        writer.flush();
+    }
+
+    private PMap createHints(UriInfo uriInfo, String profile) {
+        PMap hints = new PMap();
+        RouteResource.initHints(hints, uriInfo.getQueryParameters());
+
+        // resolve profile and remove legacy vehicle/weighting parameters
+        // we need to explicitly disable CH here because map matching does not use it
+        PMap profileResolverHints = new PMap(hints);
+        profileResolverHints.putObject("profile", profile);
+        profileResolverHints.putObject(Parameters.CH.DISABLE, true);
+        hints.putObject("profile", profileResolver.resolveProfile(profileResolverHints));
+        removeLegacyParameters(hints);
+        return hints;
+    }
+
     public static JsonNode convertToTree(MatchResult result, boolean elevation, boolean pointsEncoded, double pointsEncodedMultiplier) {
         ObjectNode root = JsonNodeFactory.instance.objectNode();
         ObjectNode diary = root.putObject("diary");
@@ -167,7 +167,7 @@ public class RouteResource {
                     + ", distance0: " + ghResponse.getBest().getDistance()
                     + ", weight0: " + ghResponse.getBest().getRouteWeight()
                     + ", time0: " + Math.round(ghResponse.getBest().getTime() / 60000f) + "min"
-                    + ", points0: " + ghResponse.getBest().getPoints().size()
+                    + (ghResponse.getBest().isSummaryOnly() ? "" : ", points0: " + ghResponse.getBest().getPoints().size())
                     + ", debugInfo: " + ghResponse.getDebugInfo());
             return writeGPX ?
                     gpxSuccessResponseBuilder(ghResponse, timeString, trackName, enableElevation, withRoute, withTrack, withWayPoints, Constants.VERSION).
@@ -221,7 +221,7 @@ public class RouteResource {
                     + ", distance0: " + ghResponse.getBest().getDistance()
                     + ", weight0: " + ghResponse.getBest().getRouteWeight()
                     + ", time0: " + Math.round(ghResponse.getBest().getTime() / 60000f) + "min"
-                    + ", points0: " + ghResponse.getBest().getPoints().size()
+                    + (ghResponse.getBest().isSummaryOnly() ? "" : ", points0: " + ghResponse.getBest().getPoints().size())
                     + ", debugInfo: " + ghResponse.getDebugInfo());
             return Response.ok(ResponsePathSerializer.jsonObject(ghResponse, new ResponsePathSerializer.Info(config.getCopyrights(), Math.round(took), osmDate), instructions, calcPoints, enableElevation, pointsEncoded, pointsEncodedMultiplier)).
                     header("X-GH-Took", "" + Math.round(took)).
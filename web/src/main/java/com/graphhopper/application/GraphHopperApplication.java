@@ -17,6 +17,8 @@
  */
 package com.graphhopper.application;
 
+import com.graphhopper.application.cli.BatchMatchCommand;
+import com.graphhopper.application.cli.ElevationArchiveCommand;
 import com.graphhopper.application.cli.ImportCommand;
 import com.graphhopper.application.cli.MatchCommand;
 import com.graphhopper.application.resources.RootResource;
@@ -42,6 +44,8 @@ public final class GraphHopperApplication extends Application<GraphHopperServerC
         bootstrap.addBundle(new GraphHopperBundle());
         bootstrap.addCommand(new ImportCommand());
         bootstrap.addCommand(new MatchCommand());
+        bootstrap.addCommand(new BatchMatchCommand());
+        bootstrap.addCommand(new ElevationArchiveCommand());
         bootstrap.addBundle(new AssetsBundle("/com/graphhopper/maps/", "/maps/", "index.html"));
         // see this link even though its outdated?! // https://www.webjars.org/documentation#dropwizard
         bootstrap.addBundle(new AssetsBundle("/META-INF/resources/webjars", "/webjars/", null, "webjars"));
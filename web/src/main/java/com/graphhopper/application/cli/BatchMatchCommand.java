@@ -0,0 +1,349 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.application.cli;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.gpx.GpxConversions;
+import com.graphhopper.jackson.Gpx;
+import com.graphhopper.jackson.Jackson;
+import com.graphhopper.matching.BatchMapMatching;
+import com.graphhopper.matching.EdgeMatch;
+import com.graphhopper.matching.MapMatching;
+import com.graphhopper.matching.MatchResult;
+import com.graphhopper.matching.Observation;
+import com.graphhopper.routing.ev.IntEncodedValue;
+import com.graphhopper.routing.ev.OSMWayID;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.shapes.GHPoint;
+import io.dropwizard.core.cli.ConfiguredCommand;
+import io.dropwizard.core.setup.Bootstrap;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Map-matches a large number of traces concurrently, see {@link BatchMapMatching}. The traces are read from a directory
+ * of GPX files, a CSV file with the columns trace_id, lat and lon (rows of the same trace must be consecutive), or a
+ * file with one GeoJSON LineString feature per line. An invalid file, row or line does not stop the batch but is
+ * written as failed trace.
+ * <p>
+ * The result is a tab separated file with one row per trace and the matched edge ids and OSM way ids as comma
+ * separated lists. We do not write a binary columnar format like Parquet as this would need new dependencies, and
+ * the file can be streamed while matching and is easily loaded into columnar stores, e.g. with COPY or read_csv.
+ */
+public class BatchMatchCommand extends ConfiguredCommand<GraphHopperServerConfiguration> {
+
+    private static final String COL_SEP = "\t", LIST_SEP = ",";
+
+    public BatchMatchCommand() {
+        super("match_batch", "map-match many traces concurrently and write the matched edges to one file");
+    }
+
+    @Override
+    public void configure(Subparser subparser) {
+        super.configure(subparser);
+        subparser.addArgument("--input")
+                .type(File.class)
+                .required(true)
+                .help("directory with gpx files, a csv file (trace_id,lat,lon) or a file with one GeoJSON feature per line");
+        subparser.addArgument("--output")
+                .type(File.class)
+                .required(true)
+                .help("the tab separated result file");
+        subparser.addArgument("--profile")
+                .type(String.class)
+                .required(true)
+                .help("profile to use for map-matching (must be configured in configuration file)");
+        subparser.addArgument("--threads")
+                .type(Integer.class)
+                .setDefault(Runtime.getRuntime().availableProcessors());
+        subparser.addArgument("--gps_accuracy")
+                .type(Integer.class)
+                .required(false)
+                .setDefault(40);
+        subparser.addArgument("--transition_probability_beta")
+                .type(Double.class)
+                .required(false)
+                .setDefault(2.0);
+    }
+
+    @Override
+    protected void run(Bootstrap<GraphHopperServerConfiguration> bootstrap, Namespace args, GraphHopperServerConfiguration configuration) throws Exception {
+        GraphHopper hopper = new GraphHopper().init(configuration.getGraphHopperConfiguration());
+        hopper.importOrLoad();
+        try {
+            PMap hints = new PMap();
+            hints.putObject("profile", args.get("profile"));
+            double beta = args.getDouble("transition_probability_beta");
+            int gpsAccuracy = args.getInt("gps_accuracy");
+            BatchMapMatching batchMapMatching = new BatchMapMatching(() -> {
+                MapMatching mapMatching = MapMatching.fromGraphHopper(hopper, hints);
+                mapMatching.setTransitionProbabilityBeta(beta);
+                mapMatching.setMeasurementErrorSigma(gpsAccuracy);
+                return mapMatching;
+            }, args.getInt("threads"));
+
+            IntEncodedValue osmWayIdEnc = hopper.getEncodingManager().hasEncodedValue(OSMWayID.KEY)
+                    ? hopper.getEncodingManager().getIntEncodedValue(OSMWayID.KEY) : null;
+            File input = args.get("input");
+            BatchMapMatching.Statistics statistics;
+            try (TraceReader reader = createReader(input);
+                 Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(args.<File>get("output")), Helper.UTF_CS))) {
+                writer.write(String.join(COL_SEP, "trace_id", "status", "observations", "gpx_distance", "matched_distance",
+                        "matched_time", "edge_ids", "osm_way_ids", "error") + "\n");
+                statistics = batchMapMatching.match(reader, result -> {
+                    try {
+                        writer.write(toRow(result, osmWayIdEnc));
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+            System.out.println("batch map matching finished, " + statistics);
+            System.out.println("match took " + statistics.getMatchNanos() / 1_000_000 + "ms summed over all threads");
+        } finally {
+            hopper.close();
+        }
+    }
+
+    private static String toRow(BatchMapMatching.Result result, IntEncodedValue osmWayIdEnc) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(result.getTrace().getId().replace(COL_SEP, " ")).append(COL_SEP);
+        sb.append(result.isSuccess() ? "ok" : "error").append(COL_SEP);
+        sb.append(result.getTrace().getObservations().size()).append(COL_SEP);
+        if (result.isSuccess()) {
+            MatchResult mr = result.getMatchResult();
+            sb.append(Helper.round(mr.getGpxEntriesLength(), 1)).append(COL_SEP);
+            sb.append(Helper.round(mr.getMatchLength(), 1)).append(COL_SEP);
+            sb.append(mr.getMatchMillis()).append(COL_SEP);
+            StringBuilder wayIds = new StringBuilder();
+            int prevWayId = -1;
+            for (int i = 0; i < mr.getEdgeMatches().size(); i++) {
+                EdgeMatch em = mr.getEdgeMatches().get(i);
+                if (i > 0)
+                    sb.append(LIST_SEP);
+                sb.append(em.getEdgeState().getEdge());
+                if (osmWayIdEnc != null) {
+                    // consecutive edges of the same way are written only once
+                    int wayId = em.getEdgeState().get(osmWayIdEnc);
+                    if (wayId != prevWayId) {
+                        if (wayIds.length() > 0)
+                            wayIds.append(LIST_SEP);
+                        wayIds.append(wayId);
+                        prevWayId = wayId;
+                    }
+                }
+            }
+            sb.append(COL_SEP).append(wayIds).append(COL_SEP);
+        } else {
+            sb.append(COL_SEP).append(COL_SEP).append(COL_SEP).append(COL_SEP).append(COL_SEP);
+            String message = result.getError().getMessage() == null ? result.getError().getClass().getSimpleName() : result.getError().getMessage();
+            sb.append(message.replaceAll("[\\t\\n\\r]", " "));
+        }
+        return sb.append("\n").toString();
+    }
+
+    static TraceReader createReader(File input) throws IOException {
+        if (input.isDirectory()) {
+            List<File> files;
+            try (Stream<File> stream = Files.list(input.toPath()).map(java.nio.file.Path::toFile)) {
+                files = stream.filter(f -> f.getName().endsWith(".gpx")).sorted().collect(Collectors.toList());
+            }
+            return new GpxDirectoryReader(files);
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(input), Helper.UTF_CS));
+        if (input.getName().endsWith(".csv"))
+            return new CsvReader(reader);
+        return new GeoJsonLinesReader(reader);
+    }
+
+    /**
+     * Reads traces lazily, so that the input does not need to fit into memory.
+     */
+    static abstract class TraceReader implements Iterator<BatchMapMatching.Trace>, Closeable {
+        private BatchMapMatching.Trace next;
+
+        abstract BatchMapMatching.Trace readNext() throws IOException;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = readNext();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public BatchMapMatching.Trace next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            BatchMapMatching.Trace trace = next;
+            next = null;
+            return trace;
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+
+    static class GpxDirectoryReader extends TraceReader {
+        private final XmlMapper xmlMapper = new XmlMapper();
+        private final Iterator<File> files;
+
+        GpxDirectoryReader(List<File> files) {
+            this.files = files.iterator();
+        }
+
+        @Override
+        BatchMapMatching.Trace readNext() throws IOException {
+            if (!files.hasNext())
+                return null;
+            File file = files.next();
+            try {
+                Gpx gpx = xmlMapper.readValue(file, Gpx.class);
+                if (gpx.trk == null || gpx.trk.size() != 1)
+                    return BatchMapMatching.Trace.invalid(file.getName(), "GPX file must contain exactly one track");
+                return new BatchMapMatching.Trace(file.getName(), GpxConversions.getEntries(gpx.trk.get(0)));
+            } catch (IOException ex) {
+                return BatchMapMatching.Trace.invalid(file.getName(), "Cannot read GPX file: " + ex.getMessage());
+            }
+        }
+    }
+
+    static class CsvReader extends TraceReader {
+        private final BufferedReader reader;
+        private final int idIndex, latIndex, lonIndex;
+        private String[] pending;
+        private int lineNumber = 1;
+
+        CsvReader(BufferedReader reader) throws IOException {
+            this.reader = reader;
+            String header = reader.readLine();
+            if (header == null)
+                throw new IllegalArgumentException("CSV file is empty");
+            List<String> columns = Arrays.stream(header.split(",")).map(String::trim).collect(Collectors.toList());
+            idIndex = columns.indexOf("trace_id");
+            latIndex = columns.indexOf("lat");
+            lonIndex = columns.indexOf("lon");
+            if (idIndex < 0 || latIndex < 0 || lonIndex < 0)
+                throw new IllegalArgumentException("CSV header must contain the columns trace_id, lat and lon but was: " + header);
+        }
+
+        @Override
+        BatchMapMatching.Trace readNext() throws IOException {
+            String[] row = pending != null ? pending : readRow();
+            if (row == null)
+                return null;
+            String id = getId(row);
+            List<Observation> observations = new ArrayList<>();
+            String invalidReason = null;
+            while (row != null && getId(row).equals(id)) {
+                // the remaining rows of an invalid trace are skipped
+                if (invalidReason == null) {
+                    try {
+                        observations.add(new Observation(new GHPoint(Double.parseDouble(row[latIndex]), Double.parseDouble(row[lonIndex]))));
+                    } catch (NumberFormatException | ArrayIndexOutOfBoundsException ex) {
+                        invalidReason = "Cannot parse line " + lineNumber + ": " + String.join(",", row);
+                    }
+                }
+                row = readRow();
+            }
+            pending = row;
+            return invalidReason == null ? new BatchMapMatching.Trace(id, observations) : BatchMapMatching.Trace.invalid(id, invalidReason);
+        }
+
+        private String getId(String[] row) {
+            return row.length > idIndex ? row[idIndex] : "";
+        }
+
+        private String[] readRow() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                lineNumber++;
+            } while (line != null && line.isBlank());
+            return line == null ? null : line.split(",");
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    static class GeoJsonLinesReader extends TraceReader {
+        private final ObjectMapper objectMapper = Jackson.newObjectMapper();
+        private final BufferedReader reader;
+        private int lineNumber;
+
+        GeoJsonLinesReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        BatchMapMatching.Trace readNext() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                lineNumber++;
+            } while (line != null && line.isBlank());
+            if (line == null)
+                return null;
+            JsonNode feature;
+            try {
+                feature = objectMapper.readTree(line);
+            } catch (JsonProcessingException ex) {
+                return BatchMapMatching.Trace.invalid("line_" + lineNumber, "Cannot parse line " + lineNumber + ": " + ex.getOriginalMessage());
+            }
+            String id = feature.has("id") ? feature.get("id").asText()
+                    : feature.path("properties").has("id") ? feature.get("properties").get("id").asText() : "line_" + lineNumber;
+            JsonNode geometry = feature.path("geometry");
+            if (!"LineString".equals(geometry.path("type").asText()))
+                return BatchMapMatching.Trace.invalid(id, "Only LineString features are supported, see line " + lineNumber);
+            List<Observation> observations = new ArrayList<>();
+            for (JsonNode coordinate : geometry.path("coordinates")) {
+                if (coordinate.size() < 2 || !coordinate.get(0).isNumber() || !coordinate.get(1).isNumber())
+                    return BatchMapMatching.Trace.invalid(id, "Invalid coordinate " + coordinate + " in line " + lineNumber);
+                observations.add(new Observation(new GHPoint(coordinate.get(1).asDouble(), coordinate.get(0).asDouble())));
+            }
+            return new BatchMapMatching.Trace(id, observations);
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.application.cli;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.reader.dem.ElevationArchiveProvider;
+import com.graphhopper.reader.dem.ElevationProvider;
+import com.graphhopper.reader.dem.TileBasedElevationProvider;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.shapes.BBox;
+import io.dropwizard.core.cli.ConfiguredCommand;
+import io.dropwizard.core.setup.Bootstrap;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+
+import java.io.File;
+
+/**
+ * Converts the tiles of the elevation provider configured in graph.elevation.provider into a single archive file
+ * that can be used with graph.elevation.provider: archive.
+ */
+public class ElevationArchiveCommand extends ConfiguredCommand<GraphHopperServerConfiguration> {
+
+    public ElevationArchiveCommand() {
+        super("elevation-archive", "converts the elevation tiles of an area into a memory mapped archive");
+    }
+
+    @Override
+    public void configure(Subparser subparser) {
+        super.configure(subparser);
+        subparser.addArgument("--bbox")
+                .type(String.class)
+                .required(false)
+                .setDefault("-180,180,-90,90")
+                .help("the area to convert as minLon,maxLon,minLat,maxLat");
+        subparser.addArgument("--output")
+                .type(File.class)
+                .required(true)
+                .help("the archive file to create");
+    }
+
+    @Override
+    protected void run(Bootstrap<GraphHopperServerConfiguration> bootstrap, Namespace args, GraphHopperServerConfiguration configuration) {
+        ElevationProvider provider = new GraphHopper().init(configuration.getGraphHopperConfiguration()).getElevationProvider();
+        if (!(provider instanceof TileBasedElevationProvider))
+            throw new IllegalArgumentException("graph.elevation.provider must be a tile based provider like srtm or cgiar but was " + provider);
+
+        BBox bbox = BBox.parseBBoxString(args.getString("bbox"));
+        File output = args.get("output");
+        StopWatch sw = new StopWatch().start();
+        try {
+            int tiles = ElevationArchiveProvider.createArchive((TileBasedElevationProvider) provider, bbox, output);
+            System.out.println("wrote " + tiles + " tiles of " + bbox + " to " + output + " in " + sw.stop().getSeconds() + "s");
+        } finally {
+            provider.release();
+        }
+    }
+}
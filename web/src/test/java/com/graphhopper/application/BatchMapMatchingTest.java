@@ -0,0 +1,144 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application;
+
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.gpx.GpxConversions;
+import com.graphhopper.jackson.Gpx;
+import com.graphhopper.matching.BatchMapMatching;
+import com.graphhopper.matching.MapMatching;
+import com.graphhopper.matching.MatchResult;
+import com.graphhopper.matching.Observation;
+import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchMapMatchingTest {
+    private static final String GH_LOCATION = "../target/batchmapmatchingtest-gh";
+
+    @BeforeEach
+    @AfterEach
+    public void clean() {
+        Helper.removeDir(new File(GH_LOCATION));
+    }
+
+    private static GraphHopper createHopper() {
+        GraphHopper hopper = new GraphHopper();
+        hopper.setOSMFile("../map-matching/files/map-issue13.osm.gz");
+        hopper.setGraphHopperLocation(GH_LOCATION);
+        hopper.setEncodedValuesString("car_access, car_average_speed");
+        hopper.setProfiles(TestProfiles.accessAndSpeed("my_profile", "car"));
+        hopper.importOrLoad();
+        return hopper;
+    }
+
+    @Test
+    public void testMatchConcurrently() throws IOException {
+        GraphHopper hopper = createHopper();
+        Gpx gpx = new XmlMapper().readValue(getClass().getResourceAsStream("/issue-13.gpx"), Gpx.class);
+        PMap hints = new PMap().putObject("profile", "my_profile");
+        MatchResult expected = MapMatching.fromGraphHopper(hopper, hints).match(GpxConversions.getEntries(gpx.trk.get(0)));
+
+        List<BatchMapMatching.Trace> traces = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            traces.add(new BatchMapMatching.Trace("trace_" + i, GpxConversions.getEntries(gpx.trk.get(0))));
+        }
+        traces.add(new BatchMapMatching.Trace("empty", Collections.<Observation>emptyList()));
+
+        List<String> failed = new ArrayList<>();
+        Map<String, Double> matchLengths = new HashMap<>();
+        BatchMapMatching.Statistics statistics = new BatchMapMatching(() -> MapMatching.fromGraphHopper(hopper, hints), 4).
+                match(traces.iterator(), result -> {
+                    if (result.isSuccess())
+                        matchLengths.put(result.getTrace().getId(), result.getMatchResult().getMatchLength());
+                    else
+                        failed.add(result.getTrace().getId());
+                });
+
+        assertEquals(21, statistics.getTraces());
+        assertEquals(1, statistics.getFailedTraces());
+        assertEquals(1.0 / 21, statistics.getErrorRate(), 1.e-6);
+        assertEquals(Collections.singletonList("empty"), failed);
+        assertEquals(20, matchLengths.size());
+        for (double matchLength : matchLengths.values()) {
+            assertEquals(expected.getMatchLength(), matchLength, 1.e-6);
+        }
+        hopper.close();
+    }
+
+    @Test
+    public void testFailingInput() throws IOException {
+        GraphHopper hopper = createHopper();
+        Gpx gpx = new XmlMapper().readValue(getClass().getResourceAsStream("/issue-13.gpx"), Gpx.class);
+        PMap hints = new PMap().putObject("profile", "my_profile");
+        // e.g. a malformed line in the input file
+        Iterator<BatchMapMatching.Trace> traces = new Iterator<>() {
+            int count = 0;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public BatchMapMatching.Trace next() {
+                if (count == 5)
+                    throw new IllegalArgumentException("Cannot parse trace");
+                return new BatchMapMatching.Trace("trace_" + count++, GpxConversions.getEntries(gpx.trk.get(0)));
+            }
+        };
+
+        List<String> matched = new ArrayList<>();
+        BatchMapMatching batchMapMatching = new BatchMapMatching(() -> MapMatching.fromGraphHopper(hopper, hints), 4);
+        // the exception is thrown after the traces read so far were matched, and the worker threads do not hang
+        IllegalArgumentException ex = assertTimeoutPreemptively(Duration.ofSeconds(60), () -> assertThrows(IllegalArgumentException.class,
+                () -> batchMapMatching.match(traces, result -> matched.add(result.getTrace().getId()))));
+        assertEquals("Cannot parse trace", ex.getMessage());
+        assertEquals(5, matched.size());
+        assertTrue(Thread.getAllStackTraces().keySet().stream().noneMatch(t -> t.getName().startsWith("batch-match-")));
+        hopper.close();
+    }
+
+    @Test
+    public void testUnknownProfile() throws IOException {
+        GraphHopper hopper = createHopper();
+        Gpx gpx = new XmlMapper().readValue(getClass().getResourceAsStream("/issue-13.gpx"), Gpx.class);
+        List<BatchMapMatching.Trace> traces = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            traces.add(new BatchMapMatching.Trace("trace_" + i, GpxConversions.getEntries(gpx.trk.get(0))));
+        }
+        PMap hints = new PMap().putObject("profile", "unknown");
+        BatchMapMatching batchMapMatching = new BatchMapMatching(() -> MapMatching.fromGraphHopper(hopper, hints), 4);
+        // the failing factory is reported instead of leaving the reading thread blocked on the full queue
+        assertTimeoutPreemptively(Duration.ofSeconds(60), () -> assertThrows(IllegalArgumentException.class,
+                () -> batchMapMatching.match(traces.iterator(), result -> fail("no trace can be matched"))));
+        assertTrue(Thread.getAllStackTraces().keySet().stream().noneMatch(t -> t.getName().startsWith("batch-match-")));
+        hopper.close();
+    }
+}
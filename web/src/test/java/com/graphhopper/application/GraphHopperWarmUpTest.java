@@ -0,0 +1,73 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.config.LMProfile;
+import com.graphhopper.http.GraphHopperWarmUp;
+import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GraphHopperWarmUpTest {
+    private static final String DIR = "./target/warm-up-gh/";
+
+    @BeforeEach
+    @AfterEach
+    public void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testWarmUp() {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(DIR).
+                setOSMFile("../core/files/andorra.osm.pbf").
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed("car"), TestProfiles.constantSpeed("foot"));
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile("car"));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile("car"));
+        hopper.importOrLoad();
+
+        List<GraphHopperWarmUp.Stats> stats = new GraphHopperWarmUp(hopper, 3_000).run();
+        assertEquals(2, stats.size());
+        assertEquals("car", stats.get(0).getProfile());
+        assertEquals("foot", stats.get(1).getProfile());
+        for (GraphHopperWarmUp.Stats s : stats)
+            assertTrue(s.getBatches() > 0, s.toString());
+
+        // the latency is never considered stable before the minimum number of iterations
+        for (GraphHopperWarmUp.Stats s : new GraphHopperWarmUp(hopper, 1_000).setBatchSize(5).setMinIterations(1_000_000).run())
+            assertFalse(s.isStable(), s.toString());
+
+        GraphHopperWarmUp stopped = new GraphHopperWarmUp(hopper, 60_000);
+        stopped.stop();
+        assertEquals(0, stopped.run().get(0).getBatches());
+        hopper.close();
+    }
+}
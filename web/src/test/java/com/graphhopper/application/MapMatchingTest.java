@@ -26,6 +26,7 @@ import com.graphhopper.gpx.GpxConversions;
 import com.graphhopper.jackson.Gpx;
 import com.graphhopper.matching.EdgeMatch;
 import com.graphhopper.matching.MapMatching;
+import com.graphhopper.matching.MapMatchingSession;
 import com.graphhopper.matching.MatchResult;
 import com.graphhopper.matching.Observation;
 import com.graphhopper.routing.TestProfiles;
@@ -161,6 +162,33 @@ public class MapMatchingTest {
         assertThat(Math.abs(route.getTime() - mr.getMatchMillis()), is(lessThan(1000L)));
     }
 
+    @ParameterizedTest
+    @ArgumentsSource(FixtureProvider.class)
+    public void testSession(PMap hints) {
+        ResponsePath route = graphHopper.route(new GHRequest(
+                new GHPoint(51.377781, 12.338333),
+                new GHPoint(51.323317, 12.387085))
+                .setProfile("my_profile")).getBest();
+        MapMatching mapMatching = MapMatching.fromGraphHopper(graphHopper, hints);
+        mapMatching.setMeasurementErrorSigma(20);
+        MatchResult mr = mapMatching.match(createRandomGPXEntriesAlongRoute(route));
+
+        MapMatchingSession session = mapMatching.createSession(3);
+        List<EdgeMatch> edgeMatches = new ArrayList<>();
+        for (Observation observation : createRandomGPXEntriesAlongRoute(route)) {
+            edgeMatches.addAll(session.addObservation(observation));
+            assertTrue(session.getPendingObservations() <= 3);
+        }
+        assertFalse(edgeMatches.isEmpty());
+        edgeMatches.addAll(session.finish());
+        assertEquals(mr.getEdgeMatches().size(), edgeMatches.size());
+        for (int i = 0; i < edgeMatches.size(); i++) {
+            assertEquals(mr.getEdgeMatches().get(i).getEdgeState().getEdgeKey(), edgeMatches.get(i).getEdgeState().getEdgeKey());
+            assertEquals(mr.getEdgeMatches().get(i).getStates().size(), edgeMatches.get(i).getStates().size());
+        }
+        assertThrows(IllegalStateException.class, session::finish);
+    }
+
     @ParameterizedTest
     @ArgumentsSource(FixtureProvider.class)
     public void testLongTrackWithTwoPoints(PMap hints) {
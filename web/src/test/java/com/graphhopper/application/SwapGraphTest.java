@@ -0,0 +1,88 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application;
+
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.http.GraphHopperManaged;
+import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.File;
+import java.util.List;
+
+import static com.graphhopper.application.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class SwapGraphTest {
+    private static final String DIR = "./target/swap-graph-gh/";
+    private static final String NEW_DIR = "./target/swap-graph-new-gh/";
+    private static final String ANDORRA_ROUTE = "/route?profile=car&point=42.554851,1.536198&point=42.510071,1.548128";
+    private static final String MONACO_ROUTE = "/route?profile=car&point=43.727687,7.418737&point=43.74958,7.436566";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.location", DIR).
+                putObject("import.osm.ignored_highways", "").
+                setProfiles(List.of(TestProfiles.constantSpeed("car")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+        Helper.removeDir(new File(NEW_DIR));
+    }
+
+    @Test
+    public void testSwap() {
+        assertEquals(200, clientTarget(app, ANDORRA_ROUTE).request().get().getStatus());
+        assertEquals(400, clientTarget(app, MONACO_ROUTE).request().get().getStatus());
+
+        // the new graph is imported with the same configuration, but for another area
+        GraphHopperConfig newConfig = new GraphHopperConfig(app.getConfiguration().getGraphHopperConfiguration()).
+                putObject("datareader.file", "../core/files/monaco.osm.gz").
+                putObject("graph.location", NEW_DIR);
+        new GraphHopperManaged(newConfig).getGraphHopper().importAndClose();
+
+        Response response = app.client().target("http://localhost:" + app.getAdminPort() + "/tasks/swap-graph")
+                .queryParam("location", NEW_DIR).request().post(Entity.text(""));
+        assertEquals(200, response.getStatus());
+        String output = response.readEntity(String.class);
+        // all previous requests are finished, so the previous graph was closed already
+        assertTrue(output.contains("replaced graphs still in use: 0"), output);
+
+        assertEquals(400, clientTarget(app, ANDORRA_ROUTE).request().get().getStatus());
+        assertEquals(200, clientTarget(app, MONACO_ROUTE).request().get().getStatus());
+        assertEquals(200, clientTarget(app, "/health").request().get().getStatus());
+    }
+}
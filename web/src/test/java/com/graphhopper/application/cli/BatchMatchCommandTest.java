@@ -0,0 +1,82 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application.cli;
+
+import com.graphhopper.matching.BatchMapMatching;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchMatchCommandTest {
+
+    private static List<BatchMapMatching.Trace> readAll(BatchMatchCommand.TraceReader reader) throws IOException {
+        List<BatchMapMatching.Trace> traces = new ArrayList<>();
+        try (reader) {
+            reader.forEachRemaining(traces::add);
+        }
+        return traces;
+    }
+
+    @Test
+    public void invalidCsvRow() throws IOException {
+        String csv = "trace_id,lat,lon\n" +
+                "a,51.1,12.1\n" +
+                "a,51.2,12.2\n" +
+                "b,51.1,12.1\n" +
+                "b,not_a_number,12.2\n" +
+                "b,51.3,12.3\n" +
+                "c,51.1\n" +
+                "d,51.1,12.1\n";
+        List<BatchMapMatching.Trace> traces = readAll(new BatchMatchCommand.CsvReader(new BufferedReader(new StringReader(csv))));
+        assertEquals(4, traces.size());
+        assertEquals("a", traces.get(0).getId());
+        assertNull(traces.get(0).getInvalidReason());
+        assertEquals(2, traces.get(0).getObservations().size());
+        assertEquals("b", traces.get(1).getId());
+        assertEquals("Cannot parse line 5: b,not_a_number,12.2", traces.get(1).getInvalidReason());
+        assertEquals("c", traces.get(2).getId());
+        assertEquals("Cannot parse line 7: c,51.1", traces.get(2).getInvalidReason());
+        assertEquals("d", traces.get(3).getId());
+        assertEquals(1, traces.get(3).getObservations().size());
+    }
+
+    @Test
+    public void invalidGeoJsonLine() throws IOException {
+        String lines = "{\"type\":\"Feature\",\"id\":\"a\",\"geometry\":{\"type\":\"LineString\",\"coordinates\":[[12.1,51.1],[12.2,51.2]]}}\n" +
+                "{\"type\":\"Feature\",\"id\":\"b\",\n" +
+                "{\"type\":\"Feature\",\"id\":\"c\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[12.1,51.1]}}\n" +
+                "{\"type\":\"Feature\",\"id\":\"d\",\"geometry\":{\"type\":\"LineString\",\"coordinates\":[[12.1,\"x\"]]}}\n" +
+                "{\"type\":\"Feature\",\"properties\":{\"id\":\"e\"},\"geometry\":{\"type\":\"LineString\",\"coordinates\":[[12.1,51.1]]}}\n";
+        List<BatchMapMatching.Trace> traces = readAll(new BatchMatchCommand.GeoJsonLinesReader(new BufferedReader(new StringReader(lines))));
+        assertEquals(5, traces.size());
+        assertEquals("a", traces.get(0).getId());
+        assertEquals(51.2, traces.get(0).getObservations().get(1).getPoint().lat, 1.e-6);
+        assertEquals("line_2", traces.get(1).getId());
+        assertTrue(traces.get(1).getInvalidReason().startsWith("Cannot parse line 2"), traces.get(1).getInvalidReason());
+        assertEquals("Only LineString features are supported, see line 3", traces.get(2).getInvalidReason());
+        assertTrue(traces.get(3).getInvalidReason().startsWith("Invalid coordinate"), traces.get(3).getInvalidReason());
+        assertEquals("e", traces.get(4).getId());
+        assertNull(traces.get(4).getInvalidReason());
+    }
+}
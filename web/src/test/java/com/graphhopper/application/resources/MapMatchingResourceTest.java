@@ -20,6 +20,7 @@ package com.graphhopper.application.resources;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.graphhopper.application.GraphHopperApplication;
 import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.jackson.Jackson;
 import com.graphhopper.jackson.ResponsePathDeserializerHelper;
 import com.graphhopper.routing.TestProfiles;
 import com.graphhopper.util.Helper;
@@ -36,6 +37,7 @@ import org.locationtech.jts.io.WKTReader;
 import jakarta.ws.rs.client.Entity;
 import jakarta.ws.rs.core.Response;
 import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 
 import static com.graphhopper.application.util.TestUtils.clientTarget;
@@ -122,6 +124,56 @@ public class MapMatchingResourceTest {
         }
     }
 
+    @Test
+    public void testStream() throws IOException {
+        // the first points of tour2-with-loop.gpx
+        String body = "{\"lat\":51.343657,\"lon\":12.360708}\n" +
+                "{\"lat\":51.344095,\"lon\":12.362617}\n" +
+                "{\"lat\":51.344439,\"lon\":12.36419}\n" +
+                "{\"lat\":51.344967,\"lon\":12.363973}\n" +
+                "{\"lat\":51.345371,\"lon\":12.363807}\n" +
+                "{\"lat\":51.345011,\"lon\":12.36216}\n" +
+                "{\"lat\":51.344814,\"lon\":12.361238}\n" +
+                "{\"lat\":51.344768,\"lon\":12.361025}\n" +
+                "{\"lat\":51.344735,\"lon\":12.36082}\n" +
+                "{\"lat\":51.344632,\"lon\":12.3609}\n";
+        String response = clientTarget(app, "/match/stream?profile=fast_car&lag=2")
+                .request()
+                .post(Entity.entity(body, "application/x-ndjson"), String.class);
+        String[] lines = response.split("\n");
+        assertTrue(lines.length > 3, response);
+        double distance = 0;
+        for (String line : lines) {
+            JsonNode json = Jackson.newObjectMapper().readTree(line);
+            assertTrue(json.get("edge_id").asInt() >= 0);
+            assertEquals(json.get("edge_id").asInt(), json.get("traversal_key").asInt() / 2);
+            distance += json.get("distance").asDouble();
+        }
+        assertTrue(distance > 300, "unexpected distance " + distance);
+    }
+
+    @Test
+    public void testStreamWithInvalidObservation() throws IOException {
+        String body = "{\"lat\":51.343657,\"lon\":12.360708}\n" +
+                "{\"lat\":51.344095,\"lon\":12.362617}\n" +
+                "{\"lat\":51.344439}\n" +
+                "{\"lat\":51.344967,\"lon\":12.363973}\n";
+        String response = clientTarget(app, "/match/stream?profile=fast_car&lag=2")
+                .request()
+                .post(Entity.entity(body, "application/x-ndjson"), String.class);
+        String[] lines = response.split("\n");
+        // the status is already sent, so the error is the last record of the stream
+        JsonNode error = Jackson.newObjectMapper().readTree(lines[lines.length - 1]);
+        assertTrue(error.get("message").asText().startsWith("Every observation needs a numeric 'lat' and 'lon'"), response);
+
+        response = clientTarget(app, "/match/stream?profile=fast_car&lag=2")
+                .request()
+                .post(Entity.entity("{\"lat\":51.343657,\"lon\":12.360708}\n{\"lat\":51.34", "application/x-ndjson"), String.class);
+        lines = response.split("\n");
+        error = Jackson.newObjectMapper().readTree(lines[lines.length - 1]);
+        assertTrue(error.get("message").asText().startsWith("Cannot parse observation 2"), response);
+    }
+
     private LineString readWktLineString(String wkt) {
         WKTReader wktReader = new WKTReader();
         LineString expectedGeometry = null;
@@ -121,6 +121,38 @@ public class RouteResourceTest {
         assertTrue(distance < 9500, "distance wasn't correct:" + distance);
     }
 
+    @Test
+    public void testAlternativesWithSummaryOnly() {
+        JsonNode json = clientTarget(app, "/route?profile=my_car&algorithm=alternative_route&" +
+                "alternative_route.detailed_paths=0&details=street_name&" +
+                "point=42.554851,1.536198&point=42.510071,1.548128").request().get(JsonNode.class);
+        JsonNode paths = json.get("paths");
+        assertTrue(paths.size() > 1, "there should be alternatives: " + paths.size());
+        assertTrue(paths.get(0).has("points"));
+        assertTrue(paths.get(0).has("instructions"));
+        assertTrue(paths.get(0).get("details").has("street_name"));
+        for (int i = 1; i < paths.size(); i++) {
+            JsonNode path = paths.get(i);
+            assertTrue(path.get("distance").asDouble() > 9000, "distance wasn't correct:" + path.get("distance"));
+            assertTrue(path.get("time").asLong() > 0);
+            assertFalse(path.has("points"));
+            assertFalse(path.has("instructions"));
+            assertFalse(path.has("details"));
+        }
+    }
+
+    @Test
+    public void testBestPathWithSummaryOnly() {
+        JsonNode json = clientTarget(app, "/route?profile=my_car&algorithm=alternative_route&" +
+                "alternative_route.detailed_paths=1&" +
+                "point=42.554851,1.536198&point=42.510071,1.548128").request().get(JsonNode.class);
+        JsonNode paths = json.get("paths");
+        assertTrue(paths.size() > 1, "there should be alternatives: " + paths.size());
+        assertTrue(paths.get(0).get("distance").asDouble() > 9000, "distance wasn't correct:" + paths.get(0).get("distance"));
+        assertFalse(paths.get(0).has("points"));
+        assertTrue(paths.get(1).has("points"));
+    }
+
     @Test
     public void testBasicQuerySamePoint() {
         JsonNode json = clientTarget(app, "/route?profile=my_car&" +
@@ -157,6 +189,24 @@ public class RouteResourceTest {
         assertEquals(1256, json.get("routes").get(0).get("distance").asDouble(), 20);
     }
 
+    @Test
+    public void testNavigationSession() {
+        String params = "geometries=polyline6&overview=full&steps=true&language=en&roundabout_exits=true&" +
+                "voice_instructions=true&banner_instructions=true&voice_units=metric&session_id=route-resource-test";
+        JsonNode json = clientTarget(app, "/navigate/directions/v5/gh/driving/1.537174,42.507145;1.539116,42.511368?" + params).
+                request().get(JsonNode.class);
+        double distance = json.get("routes").get(0).get("distance").asDouble();
+        assertEquals(1256, distance, 20);
+
+        // the start is still on the previous route, so its remaining part is returned
+        JsonNode secondManeuver = json.get("routes").get(0).get("legs").get(0).get("steps").get(1).get("maneuver").get("location");
+        json = clientTarget(app, "/navigate/directions/v5/gh/driving/" + secondManeuver.get(0).asDouble() + "," +
+                secondManeuver.get(1).asDouble() + ";1.539116,42.511368?" + params).request().get(JsonNode.class);
+        double remainingDistance = json.get("routes").get(0).get("distance").asDouble();
+        assertTrue(remainingDistance < distance, "remaining distance " + remainingDistance + " should be smaller than " + distance);
+        assertEquals("depart", json.get("routes").get(0).get("legs").get(0).get("steps").get(0).get("maneuver").get("type").asText());
+    }
+
     @Test
     public void testWrongPointFormat() {
         BodyAndStatus response = getWithStatus(clientTarget(app, "/route?profile=my_car&point=1234&point=42.510071,1.548128"));